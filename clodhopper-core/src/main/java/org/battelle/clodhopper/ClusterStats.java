@@ -3,6 +3,7 @@ package org.battelle.clodhopper;
 import java.util.Arrays;
 import java.util.List;
 
+import org.battelle.clodhopper.tuple.ColumnarTupleList;
 import org.battelle.clodhopper.tuple.TupleList;
 import org.battelle.clodhopper.tuple.TupleMath;
 
@@ -82,12 +83,23 @@ public final class ClusterStats {
             double[] buffer = new double[tupleLen];
             double[] sums = new double[tupleLen];
             double[] sumSqs = new double[tupleLen];
-            for (int i = 0; i < sz; i++) {
-                tuples.getTuple(cluster.getMember(i), buffer);
+            if (tuples instanceof ColumnarTupleList) {
+                // One column at a time, so the values are read in storage order.
                 for (int j = 0; j < tupleLen; j++) {
-                    double v = buffer[j];
-                    sums[j] += v;
-                    sumSqs[j] += v * v;
+                    for (int i = 0; i < sz; i++) {
+                        double v = tuples.getTupleValue(cluster.getMember(i), j);
+                        sums[j] += v;
+                        sumSqs[j] += v * v;
+                    }
+                }
+            } else {
+                for (int i = 0; i < sz; i++) {
+                    tuples.getTuple(cluster.getMember(i), buffer);
+                    for (int j = 0; j < tupleLen; j++) {
+                        double v = buffer[j];
+                        sums[j] += v;
+                        sumSqs[j] += v * v;
+                    }
                 }
             }
             for (int j = 0; j < tupleLen; j++) {
@@ -210,14 +222,28 @@ public final class ClusterStats {
             double[] buffer = new double[dim];
             int[] nonNaNCount = new int[dim];
 
-            for (int i = 0; i < n; i++) {
-                tuples.getTuple(cluster.getMember(i), buffer);
+            if (tuples instanceof ColumnarTupleList) {
+                // One column at a time, so the values are read in storage order.
                 for (int j = 0; j < dim; j++) {
-                    double d = buffer[j];
-                    if (!Double.isNaN(d)) {
-                        sum[j] += d;
-                        variance[j] += d * d;
-                        nonNaNCount[j]++;
+                    for (int i = 0; i < n; i++) {
+                        double d = tuples.getTupleValue(cluster.getMember(i), j);
+                        if (!Double.isNaN(d)) {
+                            sum[j] += d;
+                            variance[j] += d * d;
+                            nonNaNCount[j]++;
+                        }
+                    }
+                }
+            } else {
+                for (int i = 0; i < n; i++) {
+                    tuples.getTuple(cluster.getMember(i), buffer);
+                    for (int j = 0; j < dim; j++) {
+                        double d = buffer[j];
+                        if (!Double.isNaN(d)) {
+                            sum[j] += d;
+                            variance[j] += d * d;
+                            nonNaNCount[j]++;
+                        }
                     }
                 }
             }
@@ -42,7 +42,7 @@ package org.battelle.clodhopper.distance;
  * @since 1.0.1
  *
  */
-public class CanberraDistanceMetric implements DistanceMetric {
+public class CanberraDistanceMetric implements FloatDistanceMetric, TriangleInequalityMetric {
 
     /**
      * {@inheritDoc}
@@ -62,6 +62,24 @@ public class CanberraDistanceMetric implements DistanceMetric {
         return dist;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double distance(final float[] tuple1, final double[] tuple2) {
+        double dist = 0.0;
+        final int len = tuple1.length;
+        for (int i = 0; i < len; i++) {
+            double c1 = tuple1[i];
+            double c2 = tuple2[i];
+            double denom = Math.abs(c1) + Math.abs(c2);
+            if (denom != 0.0) {
+                dist += Math.abs(c1 - c2) / denom;
+            }
+        }
+        return dist;
+    }
+
     /**
      * {@inheritDoc}
      */
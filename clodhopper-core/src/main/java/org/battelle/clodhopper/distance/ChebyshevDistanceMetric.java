@@ -37,7 +37,7 @@ package org.battelle.clodhopper.distance;
  * @since 1.0.1
  *
  */
-public class ChebyshevDistanceMetric implements DistanceMetric {
+public class ChebyshevDistanceMetric implements FloatDistanceMetric, TriangleInequalityMetric {
 
     /**
      * {@inheritDoc}
@@ -57,6 +57,22 @@ public class ChebyshevDistanceMetric implements DistanceMetric {
         return dist;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double distance(final float[] tuple1, final double[] tuple2) {
+        double dist = 0.0;
+        final int len = tuple1.length;
+        for (int i = 0; i < len; i++) {
+            double diff = Math.abs(tuple1[i] - tuple2[i]);
+            if (diff > dist) {
+                dist = diff;
+            }
+        }
+        return dist;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -37,7 +37,7 @@ package org.battelle.clodhopper.distance;
  * @author R. Scarberry
  * @since 1.0
  */
-public class CosineDistanceMetric implements DistanceMetric {
+public class CosineDistanceMetric implements FloatDistanceMetric, SparseDistanceMetric {
 
     /**
      * {@inheritDoc}
@@ -56,6 +56,33 @@ public class CosineDistanceMetric implements DistanceMetric {
             sumB2 += tuple2[i]*tuple2[i];
         } 
         
+        return cosineDistance(sumAB, sumA2, sumB2);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double distance(final float[] tuple1, final double[] tuple2) {
+        
+        final int len = tuple1.length;
+        
+        double sumAB = 0;
+        double sumA2 = 0, sumB2 = 0;
+        
+        for (int i = 0; i < len; i++) {
+            double a = tuple1[i];
+            sumAB += a * tuple2[i];
+            sumA2 += a * a;
+            sumB2 += tuple2[i]*tuple2[i];
+        } 
+        
+        return cosineDistance(sumAB, sumA2, sumB2);
+    }
+    
+    // Computes the distance from the dot product and the squared lengths of the tuples.
+    private static double cosineDistance(final double sumAB, double sumA2, double sumB2) {
+        
         sumA2 = Math.sqrt(sumA2);
         sumB2 = Math.sqrt(sumB2);
         
@@ -75,6 +102,64 @@ public class CosineDistanceMetric implements DistanceMetric {
         return 1.0 - (sumAB/(sumA2*sumB2));
     }
     
+    /**
+     * {@inheritDoc}
+     * 
+     * <p>For this metric, the summary is the sum of the squared values.</p>
+     */
+    @Override
+    public double denseNorm(final double[] tuple) {
+        double sum = 0;
+        for (double d : tuple) {
+            sum += d * d;
+        }
+        return sum;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double distance(final int[] indexes, final double[] values, final int nnz, 
+            final double[] dense, final double denseNorm) {
+        double sumAB = 0;
+        double sumA2 = 0;
+        for (int i = 0; i < nnz; i++) {
+            double a = values[i];
+            sumAB += a * dense[indexes[i]];
+            sumA2 += a * a;
+        }
+        return cosineDistance(sumAB, sumA2, denseNorm);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double distance(final int[] indexes1, final double[] values1, final int nnz1, 
+            final int[] indexes2, final double[] values2, final int nnz2) {
+        double sumAB = 0;
+        double sumA2 = 0, sumB2 = 0;
+        for (int i = 0; i < nnz1; i++) {
+            sumA2 += values1[i] * values1[i];
+        }
+        for (int j = 0; j < nnz2; j++) {
+            sumB2 += values2[j] * values2[j];
+        }
+        // Only columns nonzero in both contribute to the dot product.
+        int i = 0, j = 0;
+        while (i < nnz1 && j < nnz2) {
+            if (indexes1[i] < indexes2[j]) {
+                i++;
+            } else if (indexes2[j] < indexes1[i]) {
+                j++;
+            } else {
+                sumAB += values1[i++] * values2[j++];
+            }
+        }
+        return cosineDistance(sumAB, sumA2, sumB2);
+    }
+
     /**
      * {@inheritDoc}
      */
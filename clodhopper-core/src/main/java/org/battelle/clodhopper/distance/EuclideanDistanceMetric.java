@@ -36,7 +36,7 @@ package org.battelle.clodhopper.distance;
  * @since 1.0
  *
  */
-public class EuclideanDistanceMetric implements DistanceMetric {
+public class EuclideanDistanceMetric implements FloatDistanceMetric, SparseDistanceMetric, TriangleInequalityMetric {
 
     /**
      * {@inheritDoc}
@@ -54,6 +54,73 @@ public class EuclideanDistanceMetric implements DistanceMetric {
         return Math.sqrt(d2);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double distance(final float[] tuple1, final double[] tuple2) {
+        double d2 = 0;
+        final int len = tuple1.length;
+        for (int i = 0; i < len; i++) {
+            double d = tuple1[i] - tuple2[i];
+            d2 += d * d;
+        }
+        return Math.sqrt(d2);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * <p>For this metric, the summary is the sum of the squared values.</p>
+     */
+    @Override
+    public double denseNorm(final double[] tuple) {
+        double sum = 0;
+        for (double d : tuple) {
+            sum += d * d;
+        }
+        return sum;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double distance(final int[] indexes, final double[] values, final int nnz, 
+            final double[] dense, final double denseNorm) {
+        // Start with the distance from the zero tuple, then correct it for the nonzero columns.
+        double d2 = denseNorm;
+        for (int i = 0; i < nnz; i++) {
+            double a = values[i];
+            double b = dense[indexes[i]];
+            d2 += a * (a - 2.0 * b);
+        }
+        // Rounding could make it slightly negative.
+        return Math.sqrt(Math.max(0.0, d2));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double distance(final int[] indexes1, final double[] values1, final int nnz1, 
+            final int[] indexes2, final double[] values2, final int nnz2) {
+        double d2 = 0;
+        int i = 0, j = 0;
+        while (i < nnz1 || j < nnz2) {
+            double d;
+            if (j >= nnz2 || (i < nnz1 && indexes1[i] < indexes2[j])) {
+                d = values1[i++];
+            } else if (i >= nnz1 || indexes2[j] < indexes1[i]) {
+                d = values2[j++];
+            } else {
+                d = values1[i++] - values2[j++];
+            }
+            d2 += d * d;
+        }
+        return Math.sqrt(d2);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -0,0 +1,57 @@
+package org.battelle.clodhopper.distance;
+
+/*=====================================================================
+ * 
+ *                       CLODHOPPER CLUSTERING API
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Copyright (C) 2013 Battelle Memorial Institute 
+ * http://www.battelle.org
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ * 
+ * -------------------------------------------------------------------- 
+ * *
+ * FloatDistanceMetric.java
+ *
+ *===================================================================*/
+/**
+ * A <code>DistanceMetric</code> that can also compute distances directly from
+ * single-precision tuple data, such as the data held by a 
+ * <code>FloatTupleList</code>. This avoids widening each tuple to an array of
+ * doubles before computing its distance to a double-precision tuple, usually
+ * a cluster center.
+ *
+ * @author R. Scarberry
+ * @since 2.0.1
+ *
+ * @see org.battelle.clodhopper.tuple.FloatTupleList
+ */
+public interface FloatDistanceMetric extends DistanceMetric {
+
+    /**
+     * Computes the distance between single-precision tuple data and double-precision
+     * tuple data contained in two arrays of the same length. The result must equal
+     * that of <code>distance(double[], double[])</code> after widening tuple1.
+     *
+     * @param tuple1 array containing data for the first tuple.
+     * @param tuple2 array containing data for the second tuple.
+     *
+     * @return the distance between the tuples.
+     */
+    double distance(float[] tuple1, double[] tuple2);
+
+}
@@ -36,7 +36,7 @@ package org.battelle.clodhopper.distance;
  * @since 1.0
  *
  */
-public class ManhattanDistanceMetric implements DistanceMetric {
+public class ManhattanDistanceMetric implements FloatDistanceMetric, SparseDistanceMetric, TriangleInequalityMetric {
 
     @Override
     /**
@@ -51,6 +51,69 @@ public class ManhattanDistanceMetric implements DistanceMetric {
         return d;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double distance(final float[] tuple1, final double[] tuple2) {
+        double d = 0;
+        final int len = tuple1.length;
+        for (int i = 0; i < len; i++) {
+            d += Math.abs(tuple1[i] - tuple2[i]);
+        }
+        return d;
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * <p>For this metric, the summary is the sum of the absolute values.</p>
+     */
+    @Override
+    public double denseNorm(final double[] tuple) {
+        double sum = 0;
+        for (double d : tuple) {
+            sum += Math.abs(d);
+        }
+        return sum;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double distance(final int[] indexes, final double[] values, final int nnz, 
+            final double[] dense, final double denseNorm) {
+        // Start with the distance from the zero tuple, then correct it for the nonzero columns.
+        double d = denseNorm;
+        for (int i = 0; i < nnz; i++) {
+            double b = dense[indexes[i]];
+            d += Math.abs(values[i] - b) - Math.abs(b);
+        }
+        // Rounding could make it slightly negative.
+        return Math.max(0.0, d);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double distance(final int[] indexes1, final double[] values1, final int nnz1, 
+            final int[] indexes2, final double[] values2, final int nnz2) {
+        double d = 0;
+        int i = 0, j = 0;
+        while (i < nnz1 || j < nnz2) {
+            if (j >= nnz2 || (i < nnz1 && indexes1[i] < indexes2[j])) {
+                d += Math.abs(values1[i++]);
+            } else if (i >= nnz1 || indexes2[j] < indexes1[i]) {
+                d += Math.abs(values2[j++]);
+            } else {
+                d += Math.abs(values1[i++] - values2[j++]);
+            }
+        }
+        return d;
+    }
+
     @Override
     /**
      * {@inheritDoc}
@@ -0,0 +1,90 @@
+package org.battelle.clodhopper.distance;
+
+/*=====================================================================
+ * 
+ *                       CLODHOPPER CLUSTERING API
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Copyright (C) 2013 Battelle Memorial Institute 
+ * http://www.battelle.org
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ * 
+ * -------------------------------------------------------------------- 
+ * *
+ * SparseDistanceMetric.java
+ *
+ *===================================================================*/
+/**
+ * A <code>DistanceMetric</code> that can also compute distances from sparse 
+ * tuple data, such as the data held by a <code>SparseTupleList</code>, in 
+ * time proportional to the number of nonzero values rather than the tuple length.
+ * 
+ * <p>Distances between a sparse tuple and a dense tuple, usually a cluster 
+ * center, need a summary of the dense tuple that covers the columns where the
+ * sparse tuple is zero. That summary is returned by <code>denseNorm</code> and 
+ * should be computed once for each dense tuple and reused.</p>
+ *
+ * @author R. Scarberry
+ * @since 2.0.1
+ *
+ * @see org.battelle.clodhopper.tuple.SparseTupleList
+ */
+public interface SparseDistanceMetric extends DistanceMetric {
+
+    /**
+     * Computes the summary of a dense tuple needed by 
+     * <code>distance(int[], double[], int, double[], double)</code>.
+     *
+     * @param tuple array containing the data for a dense tuple.
+     *
+     * @return the summary value.
+     */
+    double denseNorm(double[] tuple);
+
+    /**
+     * Computes the distance between a sparse tuple and a dense tuple. The 
+     * result must equal that of <code>distance(double[], double[])</code> 
+     * after expanding the sparse tuple, apart from rounding.
+     *
+     * @param indexes the column indexes of the sparse tuple's nonzero values, in ascending order.
+     * @param values the sparse tuple's nonzero values.
+     * @param nnz the number of nonzero values.
+     * @param dense array containing data for the dense tuple.
+     * @param denseNorm the value returned by <code>denseNorm(dense)</code>.
+     *
+     * @return the distance between the tuples.
+     */
+    double distance(int[] indexes, double[] values, int nnz, double[] dense, double denseNorm);
+
+    /**
+     * Computes the distance between two sparse tuples. The result must equal
+     * that of <code>distance(double[], double[])</code> after expanding both 
+     * tuples, apart from rounding.
+     *
+     * @param indexes1 the column indexes of the first tuple's nonzero values, in ascending order.
+     * @param values1 the first tuple's nonzero values.
+     * @param nnz1 the number of nonzero values in the first tuple.
+     * @param indexes2 the column indexes of the second tuple's nonzero values, in ascending order.
+     * @param values2 the second tuple's nonzero values.
+     * @param nnz2 the number of nonzero values in the second tuple.
+     *
+     * @return the distance between the tuples.
+     */
+    double distance(int[] indexes1, double[] values1, int nnz1, 
+            int[] indexes2, double[] values2, int nnz2);
+
+}
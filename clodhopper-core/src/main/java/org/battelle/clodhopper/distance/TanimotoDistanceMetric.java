@@ -35,7 +35,7 @@ package org.battelle.clodhopper.distance;
  * @since 1.0
  *
  */
-public class TanimotoDistanceMetric implements DistanceMetric {
+public class TanimotoDistanceMetric implements FloatDistanceMetric, SparseDistanceMetric {
 
     @Override
     /**
@@ -55,6 +55,81 @@ public class TanimotoDistanceMetric implements DistanceMetric {
         return sdenom != 0.0 ? 1.0 - snum / sdenom : 0.0;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double distance(final float[] tuple1, final double[] tuple2) {
+        final int len = tuple1.length;
+        double snum = 0.0;
+        double sdenom = 0.0;
+        for (int i = 0; i < len; i++) {
+            double x = tuple1[i];
+            double y = tuple2[i];
+            double xy = x * y;
+            snum += xy;
+            sdenom += (x * x + y * y - xy);
+        }
+        return sdenom != 0.0 ? 1.0 - snum / sdenom : 0.0;
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * <p>For this metric, the summary is the sum of the squared values.</p>
+     */
+    @Override
+    public double denseNorm(final double[] tuple) {
+        double sum = 0;
+        for (double d : tuple) {
+            sum += d * d;
+        }
+        return sum;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double distance(final int[] indexes, final double[] values, final int nnz, 
+            final double[] dense, final double denseNorm) {
+        double snum = 0.0;
+        double sx2 = 0.0;
+        for (int i = 0; i < nnz; i++) {
+            double x = values[i];
+            snum += x * dense[indexes[i]];
+            sx2 += x * x;
+        }
+        double sdenom = sx2 + denseNorm - snum;
+        return sdenom != 0.0 ? 1.0 - snum / sdenom : 0.0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double distance(final int[] indexes1, final double[] values1, final int nnz1, 
+            final int[] indexes2, final double[] values2, final int nnz2) {
+        double snum = 0.0;
+        double sdenom = 0.0;
+        int i = 0, j = 0;
+        while (i < nnz1 || j < nnz2) {
+            double x = 0.0, y = 0.0;
+            if (j >= nnz2 || (i < nnz1 && indexes1[i] < indexes2[j])) {
+                x = values1[i++];
+            } else if (i >= nnz1 || indexes2[j] < indexes1[i]) {
+                y = values2[j++];
+            } else {
+                x = values1[i++];
+                y = values2[j++];
+            }
+            double xy = x * y;
+            snum += xy;
+            sdenom += (x * x + y * y - xy);
+        }
+        return sdenom != 0.0 ? 1.0 - snum / sdenom : 0.0;
+    }
+
     @Override
     /**
      * {@inheritDoc}
@@ -0,0 +1,45 @@
+package org.battelle.clodhopper.distance;
+
+/*=====================================================================
+ * 
+ *                       CLODHOPPER CLUSTERING API
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Copyright (C) 2013 Battelle Memorial Institute 
+ * http://www.battelle.org
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ * 
+ * -------------------------------------------------------------------- 
+ * *
+ * TriangleInequalityMetric.java
+ *
+ *===================================================================*/
+/**
+ * A marker interface for <code>DistanceMetric</code>s that satisfy the 
+ * triangle inequality: for any tuples x, y, and z, 
+ * <tt>distance(x, z) &lt;= distance(x, y) + distance(y, z)</tt>. Algorithms 
+ * that use the inequality to avoid computing distances, such as the Elkan
+ * variant of k-means, require metrics that implement this interface.
+ * 
+ * <p>Only implement this interface if the inequality holds for all inputs.
+ * Cosine distance, for instance, does not satisfy it.</p>
+ *
+ * @author R. Scarberry
+ * @since 2.0.1
+ */
+public interface TriangleInequalityMetric extends DistanceMetric {
+}
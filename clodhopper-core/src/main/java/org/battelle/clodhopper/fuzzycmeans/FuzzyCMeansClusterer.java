@@ -7,13 +7,14 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 import org.battelle.clodhopper.AbstractClusterer;
 import org.battelle.clodhopper.Cluster;
 import org.battelle.clodhopper.distance.DistanceMetric;
 import org.battelle.clodhopper.seeding.ClusterSeeder;
 import org.battelle.clodhopper.task.ProgressHandler;
+import org.battelle.clodhopper.task.TaskExecutors;
+import org.battelle.clodhopper.tuple.TupleBlockReader;
 import org.battelle.clodhopper.tuple.TupleList;
 import org.battelle.clodhopper.tuple.TupleMath;
 import org.battelle.clodhopper.util.ArrayIntIterator;
@@ -216,7 +217,7 @@ public class FuzzyCMeansClusterer extends AbstractClusterer {
             }
 
             if (workerThreadCount > 1) {
-                threadPool = Executors.newFixedThreadPool(workerThreadCount);
+                threadPool = TaskExecutors.newThreadPool(params.getExecutor(), workerThreadCount);
             }
 
             this.degreesOfMembership = new double[tupleCount][this.clusterCount];
@@ -445,10 +446,11 @@ public class FuzzyCMeansClusterer extends AbstractClusterer {
 
             final double[] buffer = new double[tupleLength];
             final double[] dists = new double[clusterCount];
+            final TupleBlockReader reader = new TupleBlockReader(tuples, startTuple, lim);
 
             for (int i = startTuple; i < lim; i++) {
 
-                tuples.getTuple(i, buffer);
+                reader.next(buffer);
 
                 for (int j = 0; j < clusterCount; j++) {
                     dists[j] = dm.distance(buffer, clusterCenters[j]);
@@ -500,9 +502,10 @@ public class FuzzyCMeansClusterer extends AbstractClusterer {
 
             double[] buffer = new double[tupleLength];
             double[][] denoms = new double[numClusters][tupleLength];
+            TupleBlockReader reader = new TupleBlockReader(tuples, 0, tupleCount);
 
             for (int i = 0; i < tupleCount; i++) {
-                tuples.getTuple(i, buffer);
+                reader.next(buffer);
 
                 for (int j = startCluster; j < lim; j++) {
                     double m = degreesOfMembership[i][j];
@@ -553,9 +556,10 @@ public class FuzzyCMeansClusterer extends AbstractClusterer {
             final int tupleLength = tuples.getTupleLength();
             final double[] buffer = new double[tupleLength];
             final int lim = startTuple + numTuples;
+            final TupleBlockReader reader = new TupleBlockReader(tuples, startTuple, lim);
 
             for (int i = startTuple; i < lim; i++) {
-                tuples.getTuple(i, buffer);
+                reader.next(buffer);
 
                 for (int j = 0; j < clusterCount; j++) {
                     double dist = dm.distance(buffer, clusterCenters[j]);
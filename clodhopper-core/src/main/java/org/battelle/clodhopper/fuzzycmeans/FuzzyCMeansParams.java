@@ -1,5 +1,7 @@
 package org.battelle.clodhopper.fuzzycmeans;
 
+import java.util.concurrent.ExecutorService;
+
 import org.battelle.clodhopper.distance.DistanceMetric;
 import org.battelle.clodhopper.distance.EuclideanDistanceMetric;
 import org.battelle.clodhopper.seeding.ClusterSeeder;
@@ -54,6 +56,7 @@ public class FuzzyCMeansParams {
     private DistanceMetric distanceMetric;
     private ClusterSeeder clusterSeeder;
     private int workerThreadCount = Runtime.getRuntime().availableProcessors();
+    private ExecutorService executor;
 
     /**
      * Constructor
@@ -226,6 +229,25 @@ public class FuzzyCMeansParams {
         this.clusterSeeder = seeder;
     }
 
+    /**
+     * Get the executor on which the worker threads run.
+     *
+     * @return the executor, or null if none has been set.
+     */
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Set the executor on which the worker threads run, in place of a thread
+     * pool created for each run. See <code>TaskExecutors</code>.
+     *
+     * @param executor the executor, which may be null.
+     */
+    public void setExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+
     /**
      * A builder class used for convenience in creating a FuzzyCMeansParams
      * object. Each method returns a reference to the builder, so calls can be
@@ -278,6 +300,11 @@ public class FuzzyCMeansParams {
             return this;
         }
 
+        public Builder executor(ExecutorService executor) {
+            params.setExecutor(executor);
+            return this;
+        }
+
         public FuzzyCMeansParams build() {
             return params;
         }
@@ -195,6 +195,7 @@ public class GMeansClusterSplitter extends AbstractClusterSplitter {
                 .maxIterations(Integer.MAX_VALUE)
                 .movesGoal(0)
                 .workerThreadCount(1)
+                .executor(params.getExecutor())
                 .replaceEmptyClusters(false)
                 .distanceMetric(params.getDistanceMetric())
                 .clusterSeeder(new PreassignedSeeder(seeds)).
@@ -428,6 +428,22 @@ public class Dendrogram implements Externalizable {
         return getChildID(parentLevel, rightIndices);
     }
 
+    /**
+     * Get the distance at which the children of the node at the specified level
+     * were merged. Unlike <code>getNode(level).distance()</code>, this may be called
+     * before the dendrogram is finished.
+     *
+     * @param level - a non-leaf node level greater than or equal to the current
+     * level.
+     * @return - the merge distance or NaN if level is not a valid non-leaf level.
+     */
+    public double getMergeDistance(final int level) {
+        if (level >= currentLevel && level < distances.length) {
+            return distances[level];
+        }
+        return Double.NaN;
+    }
+
     /**
      * Get the level (not the ID) of the left child of the node at the specified
      * level.
@@ -1,5 +1,7 @@
 package org.battelle.clodhopper.hierarchical;
 
+import java.util.concurrent.ExecutorService;
+
 import org.battelle.clodhopper.distance.DistanceMetric;
 import org.battelle.clodhopper.distance.EuclideanDistanceMetric;
 
@@ -98,6 +100,9 @@ public class HierarchicalParams {
     // If -1, then select based on the number of processors.
     private int workerThreadCount = Runtime.getRuntime().availableProcessors();
 
+    // If non-null, the executor on which the worker threads run.
+    private ExecutorService executor;
+
     // Random generator seed for variants of hierarchical that use it.
     private long randomSeed = System.currentTimeMillis();
 
@@ -346,6 +351,25 @@ public class HierarchicalParams {
         this.randomSeed = randomSeed;
     }
 
+    /**
+     * Get the executor on which the worker threads run.
+     *
+     * @return the executor, or null if none has been set.
+     */
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Set the executor on which the worker threads run, in place of a thread
+     * pool created for each run. See <code>TaskExecutors</code>.
+     *
+     * @param executor the executor, which may be null.
+     */
+    public void setExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+
     @Override
     /**
      * {@inheritDoc}
@@ -452,6 +476,11 @@ public class HierarchicalParams {
             return this;
         }
 
+        public Builder executor(ExecutorService executor) {
+            params.setExecutor(executor);
+            return this;
+        }
+
         public HierarchicalParams build() {
             return params;
         }
@@ -28,12 +28,12 @@ import java.util.List;
 import java.util.Random;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 import org.battelle.clodhopper.distance.CosineDistanceMetric;
 import org.battelle.clodhopper.distance.DistanceMetric;
 import org.battelle.clodhopper.distance.EuclideanDistanceMetric;
 import org.battelle.clodhopper.task.ProgressHandler;
+import org.battelle.clodhopper.task.TaskExecutors;
 import org.battelle.clodhopper.tuple.TupleList;
 
 /*=====================================================================
@@ -266,7 +266,7 @@ public class ReverseNNHierarchicalClusterer extends
 			assert tuplesSoFar == tupleCount;
 
 			if (threadCount > 1) {
-				this.threadPool = Executors.newFixedThreadPool(threadCount);
+				this.threadPool = TaskExecutors.newThreadPool(params.getExecutor(), threadCount);
 			}
 
 			final double[] tupleBuf1 = new double[tupleLength];
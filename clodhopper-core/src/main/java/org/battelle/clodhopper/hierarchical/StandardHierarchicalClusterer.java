@@ -20,8 +20,11 @@ package org.battelle.clodhopper.hierarchical;
 
 import gnu.trove.list.array.TIntArrayList;
 
+import java.io.Externalizable;
 import java.io.File;
 import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -29,12 +32,13 @@ import java.util.Optional;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 import org.battelle.clodhopper.distance.DistanceCache;
 import org.battelle.clodhopper.distance.DistanceCacheFactory;
 import org.battelle.clodhopper.distance.DistanceMetric;
+import org.battelle.clodhopper.task.CheckpointStore;
 import org.battelle.clodhopper.task.ProgressHandler;
+import org.battelle.clodhopper.task.TaskExecutors;
 import org.battelle.clodhopper.tuple.TupleList;
 
 /*=====================================================================
@@ -74,6 +78,7 @@ public class StandardHierarchicalClusterer extends AbstractHierarchicalClusterer
 
     public static final long DEFAULT_MEM_THRESHOLD = 128L * 1024L * 1024L;
     public static final long DEFAULT_FILE_THRESHOLD = 2L * 1024L * 1024L * 1024L;
+    public static final int DEFAULT_CHECKPOINT_INTERVAL = 1000;
 
 	// Threshold that determines the number of coordinates whose
     // pairwise distances can be cached in RAM.  Defaulting to 128MB,
@@ -90,6 +95,11 @@ public class StandardHierarchicalClusterer extends AbstractHierarchicalClusterer
     // construction of a new dendrogram.
     private File cacheFileLocation;
 
+    // When non-null, the partial dendrogram and the nearest neighbors are saved
+    // every checkpointInterval merges.
+    private CheckpointStore checkpointStore;
+    private int checkpointInterval = DEFAULT_CHECKPOINT_INTERVAL;
+
     public StandardHierarchicalClusterer(TupleList tuples,
             HierarchicalParams params,
             Dendrogram dendrogram) {
@@ -182,6 +192,53 @@ public class StandardHierarchicalClusterer extends AbstractHierarchicalClusterer
         cacheFileLocation = location;
     }
 
+    /**
+     * Get the store in which checkpoints are saved.
+     *
+     * @return - the checkpoint store, or null if checkpointing is off.
+     */
+    public CheckpointStore getCheckpointStore() {
+        return checkpointStore;
+    }
+
+    /**
+     * Set the store in which the partially built dendrogram and the nearest
+     * neighbors of the unmerged nodes are saved every <code>checkpointInterval</code>
+     * merges. If the store already holds a checkpoint, which must be from clustering
+     * the same tuples with the same parameters, the merges it records are not
+     * searched for again. The pairwise distances are not saved, since there are far 
+     * too many, so they are computed again and brought up to date by repeating the
+     * distance updates for those merges.
+     *
+     * @param store the checkpoint store, or null to turn checkpointing off.
+     */
+    public void setCheckpointStore(final CheckpointStore store) {
+        checkpointStore = store;
+    }
+
+    /**
+     * Get the number of merges between checkpoints.
+     *
+     * @return - the checkpoint interval.
+     */
+    public int getCheckpointInterval() {
+        return checkpointInterval;
+    }
+
+    /**
+     * Set the number of merges between checkpoints.
+     *
+     * @param n the checkpoint interval.
+     *
+     * @throws IllegalArgumentException - if less than 1.
+     */
+    public void setCheckpointInterval(final int n) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("checkpoint interval must be greater than 0");
+        }
+        checkpointInterval = n;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -253,13 +310,17 @@ public class StandardHierarchicalClusterer extends AbstractHierarchicalClusterer
 
             ph.postEnd();
 
+            ph.subsection(fracForMerging, tupleCount - 1);
+
+            if (mgr != null && checkpointStore != null) {
+                resumeFromCheckpoint(mgr, ph);
+            }
+
             boolean done = dendrogram.isFinished();
             // To hold the indices of the nearest neighbors to be merged in each iteration.
             int[] nnPair = new int[2];
             double[] nnDistance = new double[1];
 
-            ph.subsection(fracForMerging, tupleCount - 1);
-
             ph.postMessage("merging nodes");
 
             while (!done) {
@@ -275,12 +336,25 @@ public class StandardHierarchicalClusterer extends AbstractHierarchicalClusterer
                 if (!done) {
                     mgr.updateDistances(mergeID);
                     mgr.updateNearestNeighbors();
+                    if (checkpointStore != null 
+                            && (tupleCount - 1 - dendrogram.getCurrentLevel()) % checkpointInterval == 0) {
+                        checkpointStore.save(new HierarchicalCheckpoint(dendrogram, 
+                                mgr.nnIndices, mgr.nnDistances));
+                    }
                 }
 
                 ph.postStep();
 
             } // while
 
+            if (checkpointStore != null) {
+                try {
+                    checkpointStore.flush();
+                } catch (IOException ioe) {
+                    ph.postMessage("checkpoints could not be saved: " + ioe.getMessage());
+                }
+            }
+
             ph.postEnd();
 
         } finally {
@@ -301,6 +375,40 @@ public class StandardHierarchicalClusterer extends AbstractHierarchicalClusterer
 
     }
 
+    // Restores the state saved in the latest checkpoint, if there is one. The
+    // distances in the cache must have been initialized.
+    private void resumeFromCheckpoint(SubtaskManager mgr, ProgressHandler ph) throws Exception {
+
+        HierarchicalCheckpoint checkpoint = new HierarchicalCheckpoint();
+        if (!checkpointStore.restoreLatest(checkpoint)) {
+            return;
+        }
+
+        Dendrogram saved = checkpoint.dendrogram;
+        int tupleCount = tuples.getTupleCount();
+        if (saved.getLeafCount() != tupleCount || checkpoint.nnIndices.length != tupleCount) {
+            finishWithError("checkpoint is for " + saved.getLeafCount() + " tuples, not " + tupleCount);
+        }
+
+        int lastLevel = saved.getCurrentLevel();
+        ph.postMessage(String.format("resuming from the checkpoint saved after %d merges", 
+                tupleCount - 1 - lastLevel));
+
+        // Repeat the merges in order, since the distance updates depend on the
+        // sizes of the nodes at the time.
+        for (int level = saved.getLeafLevel() - 1; level >= lastLevel; level--) {
+            int mergeID = dendrogram.mergeNodes(saved.getLeftChildID(level),
+                    saved.getRightChildID(level), saved.getMergeDistance(level));
+            if (!dendrogram.isFinished()) {
+                mgr.updateDistances(mergeID);
+            }
+            ph.postStep();
+        }
+
+        System.arraycopy(checkpoint.nnIndices, 0, mgr.nnIndices, 0, tupleCount);
+        System.arraycopy(checkpoint.nnDistances, 0, mgr.nnDistances, 0, tupleCount);
+    }
+
     private class SubtaskManager {
 
 	// Codes for what the workers are currently doing.
@@ -390,7 +498,7 @@ public class StandardHierarchicalClusterer extends AbstractHierarchicalClusterer
             }
 
             if (numWorkers > 1) {
-                this.threadPool = Executors.newFixedThreadPool(numWorkers);
+                this.threadPool = TaskExecutors.newThreadPool(params.getExecutor(), numWorkers);
             }
         }
 
@@ -791,4 +899,55 @@ public class StandardHierarchicalClusterer extends AbstractHierarchicalClusterer
             }
         }
     }
+
+    // The state saved in a checkpoint.
+    private static class HierarchicalCheckpoint implements Externalizable {
+
+        private static final long serialVersionUID = 1L;
+
+        private static final int EXTERNALIZABLE_VERSION = 1;
+
+        private Dendrogram dendrogram;
+        private int[] nnIndices;
+        private double[] nnDistances;
+
+        // Used when restoring a checkpoint.
+        private HierarchicalCheckpoint() {
+        }
+
+        private HierarchicalCheckpoint(Dendrogram dendrogram, int[] nnIndices, double[] nnDistances) {
+            this.dendrogram = dendrogram;
+            this.nnIndices = nnIndices;
+            this.nnDistances = nnDistances;
+        }
+
+        @Override
+        public void writeExternal(ObjectOutput out) throws IOException {
+            out.writeInt(EXTERNALIZABLE_VERSION);
+            dendrogram.writeExternal(out);
+            out.writeInt(nnIndices.length);
+            for (int i = 0; i < nnIndices.length; i++) {
+                out.writeInt(nnIndices[i]);
+                out.writeDouble(nnDistances[i]);
+            }
+        }
+
+        @Override
+        public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+            int version = in.readInt();
+            if (version != EXTERNALIZABLE_VERSION) {
+                throw new IOException("invalid version: " + version);
+            }
+            // Replaced entirely by readExternal().
+            dendrogram = new Dendrogram(1);
+            dendrogram.readExternal(in);
+            int n = in.readInt();
+            nnIndices = new int[n];
+            nnDistances = new double[n];
+            for (int i = 0; i < n; i++) {
+                nnIndices[i] = in.readInt();
+                nnDistances[i] = in.readDouble();
+            }
+        }
+    }
 }
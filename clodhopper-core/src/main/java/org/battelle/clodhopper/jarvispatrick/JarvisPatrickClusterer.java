@@ -7,11 +7,11 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 import org.battelle.clodhopper.AbstractClusterer;
 import org.battelle.clodhopper.Cluster;
 import org.battelle.clodhopper.task.ProgressHandler;
+import org.battelle.clodhopper.task.TaskExecutors;
 import org.battelle.clodhopper.tuple.TupleKDTree;
 import org.battelle.clodhopper.tuple.TupleList;
 import org.battelle.clodhopper.tuple.TupleMath;
@@ -308,7 +308,7 @@ public class JarvisPatrickClusterer extends AbstractClusterer {
     if (workerCount > 1) {
         ExecutorService threadPool = null;
         try {
-          threadPool = Executors.newFixedThreadPool(workerCount);
+          threadPool = TaskExecutors.newThreadPool(params.getExecutor(), workerCount);
           // This will block. However, canceling will cause execution
           // to stop when the workers post progress.
           threadPool.invokeAll(workers);
@@ -1,5 +1,7 @@
 package org.battelle.clodhopper.jarvispatrick;
 
+import java.util.concurrent.ExecutorService;
+
 import org.battelle.clodhopper.distance.DistanceMetric;
 import org.battelle.clodhopper.distance.EuclideanDistanceMetric;
 
@@ -55,6 +57,7 @@ public class JarvisPatrickParams {
     private DistanceMetric distanceMetric;
     // The number of threads to use for the concurrent parts.
     private int workerThreadCount;
+    private ExecutorService executor;
 
     /**
      * Constructor
@@ -175,6 +178,25 @@ public class JarvisPatrickParams {
         this.workerThreadCount = n;
     }
 
+    /**
+     * Get the executor on which the worker threads run.
+     *
+     * @return the executor, or null if none has been set.
+     */
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Set the executor on which the worker threads run, in place of a thread
+     * pool created for each run. See <code>TaskExecutors</code>.
+     *
+     * @param executor the executor, which may be null.
+     */
+    public void setExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+
     /**
      * Builder class for JarvisPatrickParams.
      *
@@ -214,6 +236,11 @@ public class JarvisPatrickParams {
             return this;
         }
 
+        public Builder executor(ExecutorService executor) {
+            params.setExecutor(executor);
+            return this;
+        }
+
         public JarvisPatrickParams build() {
             return params;
         }
@@ -0,0 +1,232 @@
+package org.battelle.clodhopper.kmeans;
+
+import java.util.Arrays;
+import org.battelle.clodhopper.distance.DistanceMetric;
+
+/*=====================================================================
+ * 
+ *                       CLODHOPPER CLUSTERING API
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Copyright (C) 2013 Battelle Memorial Institute 
+ * http://www.battelle.org
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ * 
+ * -------------------------------------------------------------------- 
+ * *
+ * BoundedAssigner.java
+ *
+ *===================================================================*/
+/**
+ * Base class for the k-means assignment algorithms that keep bounds on the 
+ * distances between tuples and cluster centers from one iteration to the next,
+ * so most distances need not be computed. Bounds are kept valid across 
+ * iterations using the distance each center moved, which relies upon the 
+ * triangle inequality.
+ * 
+ * <p>Before each round of assignments, <code>prepare</code> is called from a
+ * single thread with the current centers. <code>nearest</code> may then be 
+ * called concurrently for different tuples.</p>
+ * 
+ * @author R. Scarberry
+ * @since 2.0.1
+ */
+abstract class BoundedAssigner {
+
+    protected final int tupleCount;
+    protected final DistanceMetric distanceMetric;
+    
+    protected int clusterCount;
+    // Whether each cluster may receive tuples.
+    protected boolean[] candidates;
+    // The distance each center moved since the last round, or null if the bounds
+    // must be initialized with a full search.
+    protected double[] drift;
+    // The centers as of the last round.
+    private double[][] previousCenters;
+    // Set by warmStart() until the next round begins.
+    private boolean warmStart;
+    // Whether this is the first round of a warm start.
+    private boolean warmRound;
+
+    /**
+     * Constructor.
+     * 
+     * @param tupleCount the number of tuples being clustered.
+     * @param distanceMetric the distance metric, which must satisfy the triangle
+     *   inequality. It is only used from the thread calling <code>prepare</code>.
+     */
+    protected BoundedAssigner(final int tupleCount, final DistanceMetric distanceMetric) {
+        this.tupleCount = tupleCount;
+        this.distanceMetric = distanceMetric;
+    }
+
+    /**
+     * Creates the assigner for an algorithm.
+     * 
+     * @param algorithm the algorithm, which must not be <code>STANDARD</code>.
+     * @param tupleCount the number of tuples being clustered.
+     * @param distanceMetric the distance metric.
+     * 
+     * @return the assigner.
+     */
+    static BoundedAssigner create(final KMeansParams.Algorithm algorithm, final int tupleCount, 
+            final DistanceMetric distanceMetric) {
+        switch (algorithm) {
+        case ELKAN:
+            return new ElkanAssigner(tupleCount, distanceMetric);
+        case HAMERLY:
+            return new HamerlyAssigner(tupleCount, distanceMetric);
+        case YINYANG:
+            return new YinyangAssigner(tupleCount, distanceMetric);
+        default:
+            throw new IllegalArgumentException("no bounded assigner for " + algorithm);
+        }
+    }
+
+    /**
+     * Starts from earlier assignments, as when resuming from earlier clusters or a 
+     * checkpoint. Like the standard algorithm, the next round takes each tuple 
+     * already assigned to a candidate to be nearest its own center, as it is after
+     * convergence, so that is the only distance computed for it, and all of its 
+     * bounds are set to that distance. Tuples not yet assigned are searched fully.
+     */
+    void warmStart() {
+        warmStart = true;
+    }
+
+    /**
+     * Prepares for a round of assignments.
+     * 
+     * @param centers the current cluster centers.
+     * @param candidates whether each cluster may receive tuples.
+     */
+    void prepare(final double[][] centers, final boolean[] candidates) {
+        final int k = centers.length;
+        if (previousCenters == null || previousCenters.length != k) {
+            drift = null;
+            previousCenters = new double[k][];
+        } else {
+            if (drift == null) {
+                drift = new double[k];
+            }
+            for (int c = 0; c < k; c++) {
+                drift[c] = Arrays.equals(previousCenters[c], centers[c]) ? 0.0 : 
+                    distanceMetric.distance(previousCenters[c], centers[c]);
+            }
+        }
+        for (int c = 0; c < k; c++) {
+            previousCenters[c] = centers[c].clone();
+        }
+        this.clusterCount = k;
+        this.candidates = candidates.clone();
+        warmRound = warmStart;
+        warmStart = false;
+        prepareBounds(centers);
+    }
+
+    /**
+     * Called at the end of <code>prepare</code> so subclasses can precompute 
+     * whatever they need from the centers for the coming round. 
+     * <code>drift</code> has already been updated.
+     * 
+     * @param centers the current cluster centers.
+     */
+    protected abstract void prepareBounds(double[][] centers);
+
+    /**
+     * Finds the nearest cluster to a tuple, updating the tuple's bounds.
+     * 
+     * @param tuple the index of the tuple.
+     * @param current the cluster to which the tuple is currently assigned, or -1
+     *   if it has not been assigned.
+     * @param distances computes the distances from the tuple to the centers.
+     * 
+     * @return the index of the nearest cluster, or -1 if no cluster is a candidate.
+     */
+    abstract int nearest(int tuple, int current, CenterDistances distances);
+
+    /**
+     * Returns whether a tuple keeps its assignment in the first round of a warm
+     * start, so its bounds are set from the distance to its center.
+     */
+    protected boolean keepsWarmStartAssignment(final int current) {
+        return warmRound && current >= 0 && current < clusterCount && candidates[current];
+    }
+
+    /**
+     * Returns whether the bounds for a tuple are unusable, so a full search 
+     * is needed.
+     */
+    protected boolean needsFullSearch(final int current) {
+        return drift == null || current < 0 || current >= clusterCount || !candidates[current];
+    }
+
+    /**
+     * Computes the distances between all pairs of candidate centers into 
+     * <code>centerDistances</code>, and for each center half the distance to 
+     * its nearest other candidate center into <code>halfNearest</code>. 
+     * Distances involving non-candidates are left as infinity.
+     */
+    protected void computeCenterDistances(final double[][] centers, final double[][] centerDistances, 
+            final double[] halfNearest) {
+        final int k = centers.length;
+        Arrays.fill(halfNearest, Double.POSITIVE_INFINITY);
+        for (int c = 0; c < k; c++) {
+            Arrays.fill(centerDistances[c], Double.POSITIVE_INFINITY);
+        }
+        for (int c1 = 0; c1 < k; c1++) {
+            if (!candidates[c1]) {
+                continue;
+            }
+            centerDistances[c1][c1] = 0.0;
+            for (int c2 = c1 + 1; c2 < k; c2++) {
+                if (candidates[c2]) {
+                    double d = distanceMetric.distance(centers[c1], centers[c2]);
+                    centerDistances[c1][c2] = centerDistances[c2][c1] = d;
+                    halfNearest[c1] = Math.min(halfNearest[c1], 0.5 * d);
+                    halfNearest[c2] = Math.min(halfNearest[c2], 0.5 * d);
+                }
+            }
+        }
+    }
+
+    /**
+     * Computes, for each candidate center, half the distance to its nearest other 
+     * candidate center, without keeping the distances between all the centers.
+     */
+    protected void computeHalfNearest(final double[][] centers, final double[] halfNearest) {
+        final int k = centers.length;
+        Arrays.fill(halfNearest, Double.POSITIVE_INFINITY);
+        for (int c1 = 0; c1 < k; c1++) {
+            if (!candidates[c1]) {
+                continue;
+            }
+            for (int c2 = c1 + 1; c2 < k; c2++) {
+                if (candidates[c2]) {
+                    double d = 0.5 * distanceMetric.distance(centers[c1], centers[c2]);
+                    if (d < halfNearest[c1]) {
+                        halfNearest[c1] = d;
+                    }
+                    if (d < halfNearest[c2]) {
+                        halfNearest[c2] = d;
+                    }
+                }
+            }
+        }
+    }
+}
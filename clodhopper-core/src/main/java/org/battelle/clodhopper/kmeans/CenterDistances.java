@@ -0,0 +1,50 @@
+package org.battelle.clodhopper.kmeans;
+
+/*=====================================================================
+ * 
+ *                       CLODHOPPER CLUSTERING API
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Copyright (C) 2013 Battelle Memorial Institute 
+ * http://www.battelle.org
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ * 
+ * -------------------------------------------------------------------- 
+ * *
+ * CenterDistances.java
+ *
+ *===================================================================*/
+/**
+ * Supplies the distances from the tuple currently being assigned to the cluster
+ * centers. Implemented by the workers that make cluster assignments, which 
+ * hold the tuple's values in whatever form suits the distance metric.
+ * 
+ * @author R. Scarberry
+ * @since 2.0.1
+ */
+interface CenterDistances {
+
+    /**
+     * Computes the distance from the current tuple to the center of a cluster.
+     * 
+     * @param cluster the index of the cluster.
+     * 
+     * @return the distance.
+     */
+    double distanceTo(int cluster);
+    
+}
@@ -0,0 +1,323 @@
+package org.battelle.clodhopper.kmeans;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.battelle.clodhopper.AbstractClusterer;
+import org.battelle.clodhopper.Cluster;
+import org.battelle.clodhopper.seeding.ClusterSeeder;
+import org.battelle.clodhopper.seeding.RandomClusterSeeder;
+import org.battelle.clodhopper.task.ProgressHandler;
+import org.battelle.clodhopper.task.TaskExecutors;
+import org.battelle.clodhopper.tuple.ArrayTupleList;
+import org.battelle.clodhopper.tuple.TupleList;
+
+/*=====================================================================
+ * 
+ *                       CLODHOPPER CLUSTERING API
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Copyright (C) 2013 Battelle Memorial Institute 
+ * http://www.battelle.org
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ * 
+ * -------------------------------------------------------------------- 
+ * *
+ * DistributedKMeansClusterer.java
+ *
+ *===================================================================*/
+/**
+ * A k-means clusterer for data divided into shards which may be held by other
+ * processes. Each shard is reached through a <code>KMeansShard</code>, and in 
+ * each iteration the coordinator, this class, sends the current centers to every
+ * shard and gets back the per-cluster counts and sums of the shard's tuples. No 
+ * tuples are exchanged apart from a sample drawn once for seeding: the 
+ * <code>clusterSeeder</code> of the parameters is applied to a sample of at most
+ * <code>SEED_SAMPLE_SIZE</code> tuples, taken from the shards in proportion to
+ * their sizes. Shard i draws its sample with the seed of the cluster seeder plus
+ * i, or with i if the seeder is not a <code>RandomClusterSeeder</code>, so runs
+ * with the same seeder and shards are reproducible.
+ * 
+ * <p>The shards must cover the tuple indexes 0 through N-1 without gaps or overlaps,
+ * and the members of the returned clusters are indexes in that range. The 
+ * <code>clusterCount</code>, <code>maxIterations</code>, <code>movesGoal</code>,
+ * <code>clusterSeeder</code>, and <code>executor</code> of the parameters are used. The shard workers 
+ * should be given the parameters' <code>distanceMetric</code>. The shards are
+ * called concurrently, but not closed, since they belong to the caller. As in 
+ * <code>MultiStartKMeansClusterer</code>, empty clusters keep their centers.</p>
+ * 
+ * @author R. Scarberry
+ * @since 2.0.1
+ *
+ */
+public class DistributedKMeansClusterer extends AbstractClusterer {
+
+    /**
+     * The greatest number of tuples gathered from the shards for seeding.
+     */
+    public static final int SEED_SAMPLE_SIZE = 1 << 14;
+
+    private List<KMeansShard> shards;
+    private KMeansParams params;
+
+    // Used to call the shards concurrently.
+    private ExecutorService threadPool;
+
+    /**
+     * Constructor
+     * 
+     * @param shards the shards holding the data to be clustered.
+     * @param params the k-means parameters.
+     */
+    public DistributedKMeansClusterer(List<? extends KMeansShard> shards, KMeansParams params) {
+        if (shards == null || params == null) {
+            throw new NullPointerException();
+        }
+        this.shards = new ArrayList<>(shards);
+        this.params = params;
+    }
+
+    @Override
+    public String taskName() {
+        return "distributed k-means";
+    }
+
+    @Override
+    protected List<Cluster> doTask() throws Exception {
+
+        List<Cluster> clusters = null;
+
+        try {
+
+            final int clusterCount = params.getClusterCount();
+            if (shards.isEmpty()) {
+                finishWithError("no shards");
+            }
+            if (clusterCount <= 0) {
+                finishWithError("requested cluster count must be greater than 0: " + clusterCount);
+            }
+
+            final int maxIterations = params.getMaxIterations();
+            if (maxIterations <= 0) {
+                finishWithError("max iterations must be greater than 0: " + maxIterations);
+            }
+            final ProgressHandler ph = new ProgressHandler(this, 2 + Math.min(maxIterations, 1000));
+            ph.postBegin();
+
+            if (shards.size() > 1) {
+                threadPool = TaskExecutors.newThreadPool(params.getExecutor(), shards.size());
+            }
+
+            // Check that the shards fit together.
+            final int shardCount = shards.size();
+            final int[] firstIndexes = new int[shardCount];
+            final int[] tupleCounts = new int[shardCount];
+            int tupleLength = -1;
+            for (int s = 0; s < shardCount; s++) {
+                KMeansShard shard = shards.get(s);
+                firstIndexes[s] = shard.getFirstTupleIndex();
+                tupleCounts[s] = shard.getTupleCount();
+                if (tupleLength < 0) {
+                    tupleLength = shard.getTupleLength();
+                } else if (shard.getTupleLength() != tupleLength) {
+                    finishWithError(String.format("shard %d has tuple length %d, not %d", 
+                            s, shard.getTupleLength(), tupleLength));
+                }
+            }
+            final Integer[] order = new Integer[shardCount];
+            for (int s = 0; s < shardCount; s++) {
+                order[s] = s;
+            }
+            Arrays.sort(order, Comparator.comparingInt(s -> firstIndexes[s]));
+            long tupleCount = 0;
+            for (int s : order) {
+                if (firstIndexes[s] != tupleCount) {
+                    finishWithError(String.format("shard %d starts at tuple %d, but should start at %d", 
+                            s, firstIndexes[s], tupleCount));
+                }
+                tupleCount += tupleCounts[s];
+            }
+            if (tupleCount == 0) {
+                finishWithError("zero tuples");
+            }
+            if (tupleCount > Integer.MAX_VALUE) {
+                finishWithError("too many tuples: " + tupleCount);
+            }
+            ph.postStep();
+
+            double[][] centers = seed(tupleLength, (int) tupleCount, tupleCounts);
+            if (centers.length < clusterCount) {
+                ph.postMessage(String.format("only %d seeds could be generated", centers.length));
+            }
+            ph.postStep();
+
+            int iteration = 0;
+            int moves = Integer.MAX_VALUE;
+
+            while (moves > params.getMovesGoal() && iteration < maxIterations) {
+
+                final double[][] iterationCenters = centers;
+                List<KMeansShard.PartialSums> partials = callShards((s, shard) -> shard.assign(iterationCenters));
+
+                moves = 0;
+                double inertia = 0.0;
+                final double[][] newCenters = new double[centers.length][];
+                for (int c = 0; c < centers.length; c++) {
+                    int count = 0;
+                    double[] sums = new double[tupleLength];
+                    final int offset = c * tupleLength;
+                    for (KMeansShard.PartialSums partial : partials) {
+                        count += partial.getCounts()[c];
+                        final double[] shardSums = partial.getSums();
+                        for (int j = 0; j < tupleLength; j++) {
+                            sums[j] += shardSums[offset + j];
+                        }
+                    }
+                    if (count > 0) {
+                        for (int j = 0; j < tupleLength; j++) {
+                            sums[j] /= count;
+                        }
+                        newCenters[c] = sums;
+                    } else {
+                        newCenters[c] = centers[c];
+                    }
+                }
+                for (KMeansShard.PartialSums partial : partials) {
+                    moves += partial.getMoves();
+                    inertia += partial.getInertia();
+                }
+                centers = newCenters;
+                iteration++;
+
+                ph.postMessage(String.format("iteration %d: %d moves, inertia %f", iteration, moves, inertia));
+                if (iteration <= 1000) {
+                    ph.postStep();
+                }
+            }
+
+            // Gather the final assignments, translating to global indexes. In order of 
+            // first index, so the members come out sorted.
+            List<int[]> assignments = callShards((s, shard) -> shard.getAssignments());
+            final int[][] orderedAssignments = new int[shardCount][];
+            final int[] orderedFirstIndexes = new int[shardCount];
+            for (int i = 0; i < shardCount; i++) {
+                orderedAssignments[i] = assignments.get(order[i]);
+                orderedFirstIndexes[i] = firstIndexes[order[i]];
+            }
+            clusters = KMeansSupport.clusters(orderedAssignments, orderedFirstIndexes, centers);
+
+            ph.postEnd();
+
+        } finally {
+
+            if (threadPool != null) {
+                threadPool.shutdownNow();
+                threadPool = null;
+            }
+        }
+
+        return clusters;
+    }
+
+    // Generates the initial centers from a sample gathered from the shards.
+    private double[][] seed(int tupleLength, int tupleCount, int[] tupleCounts) throws Exception {
+        final int sampleSize = Math.min(tupleCount, SEED_SAMPLE_SIZE);
+        // Divide the sample among the shards in proportion to their sizes.
+        final int shardCount = shards.size();
+        final int[] shardSampleSizes = new int[shardCount];
+        long cumulative = 0;
+        int assigned = 0;
+        for (int s = 0; s < shardCount; s++) {
+            cumulative += tupleCounts[s];
+            int upTo = (int) (cumulative * sampleSize / tupleCount);
+            shardSampleSizes[s] = upTo - assigned;
+            assigned = upTo;
+        }
+        final List<double[]> samples = new ArrayList<>(shardCount);
+        for (int s = 0; s < shardCount; s++) {
+            samples.add(null);
+        }
+        // Derive the sample seeds from the seeder's, so runs are reproducible.
+        final ClusterSeeder seeder = params.getClusterSeeder();
+        final long baseSeed = seeder instanceof RandomClusterSeeder ? 
+                ((RandomClusterSeeder) seeder).getRandomGeneratorSeed() : 0L;
+        callShards((s, shard) -> {
+            samples.set(s, shard.sample(shardSampleSizes[s], baseSeed + s));
+            return null;
+        });
+
+        final double[] values = new double[sampleSize * tupleLength];
+        int offset = 0;
+        for (double[] sample : samples) {
+            System.arraycopy(sample, 0, values, offset, sample.length);
+            offset += sample.length;
+        }
+        TupleList seeds = seeder.generateSeeds(
+                new ArrayTupleList(tupleLength, offset / tupleLength, values), params.getClusterCount());
+        final double[][] centers = new double[seeds.getTupleCount()][];
+        for (int c = 0; c < centers.length; c++) {
+            centers[c] = seeds.getTuple(c, null);
+        }
+        return centers;
+    }
+
+    // Calls every shard, concurrently when there is more than one, and returns 
+    // the results in the order of the shards.
+    private <T> List<T> callShards(ShardCall<T> call) throws Exception {
+        final List<T> results = new ArrayList<>(shards.size());
+        if (threadPool == null) {
+            for (int s = 0; s < shards.size(); s++) {
+                results.add(call.apply(s, shards.get(s)));
+            }
+        } else {
+            List<Future<T>> futures = new ArrayList<>(shards.size());
+            for (int s = 0; s < shards.size(); s++) {
+                final int shardIndex = s;
+                futures.add(threadPool.submit((Callable<T>) () -> call.apply(shardIndex, shards.get(shardIndex))));
+            }
+            try {
+                for (Future<T> future : futures) {
+                    results.add(future.get());
+                }
+            } catch (ExecutionException e) {
+                for (Future<T> future : futures) {
+                    future.cancel(true);
+                }
+                Throwable cause = e.getCause();
+                if (cause instanceof Exception) {
+                    throw (Exception) cause;
+                }
+                throw e;
+            }
+        }
+        checkForCancel();
+        return Collections.unmodifiableList(results);
+    }
+
+    // A request made of every shard, given the shard's position in the list.
+    private interface ShardCall<T> {
+        T apply(int shardIndex, KMeansShard shard) throws IOException;
+    }
+}
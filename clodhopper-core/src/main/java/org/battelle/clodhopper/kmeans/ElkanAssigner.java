@@ -0,0 +1,152 @@
+package org.battelle.clodhopper.kmeans;
+
+import java.util.Arrays;
+
+import org.battelle.clodhopper.distance.DistanceMetric;
+
+/*=====================================================================
+ * 
+ *                       CLODHOPPER CLUSTERING API
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Copyright (C) 2013 Battelle Memorial Institute 
+ * http://www.battelle.org
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ * 
+ * -------------------------------------------------------------------- 
+ * *
+ * ElkanAssigner.java
+ *
+ *===================================================================*/
+/**
+ * Makes k-means cluster assignments with Elkan's algorithm. For every tuple,
+ * it keeps an upper bound on the distance to its own center and a lower bound 
+ * on the distance to each of the other centers. A center is only considered if
+ * the tuple's upper bound exceeds both the lower bound for that center and half
+ * the distance between that center and the tuple's own center.
+ * 
+ * <p>See C. Elkan (2003): "Using the Triangle Inequality to Accelerate k-Means",
+ * Proceedings of the Twentieth International Conference on Machine Learning.</p>
+ * 
+ * @author R. Scarberry
+ * @since 2.0.1
+ */
+class ElkanAssigner extends BoundedAssigner {
+
+    // Upper bound on the distance from each tuple to its center.
+    private final double[] upperBounds;
+    // Lower bounds on the distances from each tuple to every center, 
+    // tupleIndex * clusterCount + clusterIndex.
+    private double[] lowerBounds;
+    private double[][] centerDistances;
+    // Half the distance from each center to the nearest other center.
+    private double[] halfNearest;
+
+    ElkanAssigner(final int tupleCount, final DistanceMetric distanceMetric) {
+        super(tupleCount, distanceMetric);
+        upperBounds = new double[tupleCount];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void prepareBounds(final double[][] centers) {
+        final int k = centers.length;
+        if (lowerBounds == null || lowerBounds.length != (long) tupleCount * k) {
+            if ((long) tupleCount * k > Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException(String.format(
+                        "too many lower bounds for the Elkan algorithm: %d tuples x %d clusters", tupleCount, k));
+            }
+            lowerBounds = new double[tupleCount * k];
+            centerDistances = new double[k][k];
+            halfNearest = new double[k];
+        }
+        computeCenterDistances(centers, centerDistances, halfNearest);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    int nearest(final int tuple, final int current, final CenterDistances distances) {
+
+        final int k = clusterCount;
+        final int base = tuple * k;
+
+        if (keepsWarmStartAssignment(current)) {
+            final double d = distances.distanceTo(current);
+            Arrays.fill(lowerBounds, base, base + k, d);
+            upperBounds[tuple] = d;
+            return current;
+        }
+
+        if (needsFullSearch(current)) {
+            int nearest = -1;
+            double min = Double.MAX_VALUE;
+            for (int c = 0; c < k; c++) {
+                if (candidates[c]) {
+                    double d = distances.distanceTo(c);
+                    lowerBounds[base + c] = d;
+                    if (d < min) {
+                        min = d;
+                        nearest = c;
+                    }
+                }
+            }
+            upperBounds[tuple] = min;
+            return nearest;
+        }
+
+        // Loosen the bounds by how far the centers moved.
+        for (int c = 0; c < k; c++) {
+            double lb = lowerBounds[base + c] - drift[c];
+            lowerBounds[base + c] = lb > 0.0 ? lb : 0.0;
+        }
+
+        int nearest = current;
+        double upper = upperBounds[tuple] + drift[current];
+
+        if (upper > halfNearest[current]) {
+            boolean tight = false;
+            for (int c = 0; c < k; c++) {
+                if (c == nearest || !candidates[c] || upper <= lowerBounds[base + c] 
+                        || upper <= 0.5 * centerDistances[nearest][c]) {
+                    continue;
+                }
+                if (!tight) {
+                    // Make the upper bound exact and check again.
+                    upper = distances.distanceTo(nearest);
+                    lowerBounds[base + nearest] = upper;
+                    tight = true;
+                    if (upper <= lowerBounds[base + c] || upper <= 0.5 * centerDistances[nearest][c]) {
+                        continue;
+                    }
+                }
+                double d = distances.distanceTo(c);
+                lowerBounds[base + c] = d;
+                if (d < upper) {
+                    upper = d;
+                    nearest = c;
+                }
+            }
+        }
+
+        upperBounds[tuple] = upper;
+        return nearest;
+    }
+}
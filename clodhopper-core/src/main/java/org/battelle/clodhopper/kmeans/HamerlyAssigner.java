@@ -0,0 +1,151 @@
+package org.battelle.clodhopper.kmeans;
+
+import org.battelle.clodhopper.distance.DistanceMetric;
+
+/*=====================================================================
+ * 
+ *                       CLODHOPPER CLUSTERING API
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Copyright (C) 2013 Battelle Memorial Institute 
+ * http://www.battelle.org
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ * 
+ * -------------------------------------------------------------------- 
+ * *
+ * HamerlyAssigner.java
+ *
+ *===================================================================*/
+/**
+ * Makes k-means cluster assignments with Hamerly's algorithm. For every tuple,
+ * it keeps an upper bound on the distance to its own center and a single lower
+ * bound on the distance to the second-nearest center, so the extra memory is
+ * two doubles per tuple regardless of the number of clusters. When the bounds
+ * cannot rule out a change, the distances to all centers are computed.
+ * 
+ * <p>See G. Hamerly (2010): "Making k-means Even Faster", Proceedings of the 
+ * 2010 SIAM International Conference on Data Mining.</p>
+ * 
+ * @author R. Scarberry
+ * @since 2.0.1
+ */
+class HamerlyAssigner extends BoundedAssigner {
+
+    // Upper bound on the distance from each tuple to its center.
+    private final double[] upperBounds;
+    // Lower bound on the distance from each tuple to any other center.
+    private final double[] lowerBounds;
+    // Half the distance from each center to the nearest other center.
+    private double[] halfNearest;
+    // The center that moved the most, and the largest distances moved by any center
+    // and by any center but that one.
+    private int maxDriftCluster;
+    private double maxDrift;
+    private double secondMaxDrift;
+
+    HamerlyAssigner(final int tupleCount, final DistanceMetric distanceMetric) {
+        super(tupleCount, distanceMetric);
+        upperBounds = new double[tupleCount];
+        lowerBounds = new double[tupleCount];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void prepareBounds(final double[][] centers) {
+        final int k = centers.length;
+        if (halfNearest == null || halfNearest.length != k) {
+            halfNearest = new double[k];
+        }
+        computeHalfNearest(centers, halfNearest);
+        maxDriftCluster = -1;
+        maxDrift = secondMaxDrift = 0.0;
+        if (drift != null) {
+            for (int c = 0; c < k; c++) {
+                double d = drift[c];
+                if (d > maxDrift) {
+                    secondMaxDrift = maxDrift;
+                    maxDrift = d;
+                    maxDriftCluster = c;
+                } else if (d > secondMaxDrift) {
+                    secondMaxDrift = d;
+                }
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    int nearest(final int tuple, final int current, final CenterDistances distances) {
+
+        if (keepsWarmStartAssignment(current)) {
+            final double d = distances.distanceTo(current);
+            upperBounds[tuple] = lowerBounds[tuple] = d;
+            return current;
+        }
+
+        if (needsFullSearch(current)) {
+            return search(tuple, -1, 0.0, distances);
+        }
+
+        double upper = upperBounds[tuple] + drift[current];
+        double lower = lowerBounds[tuple] - (current == maxDriftCluster ? secondMaxDrift : maxDrift);
+        if (lower < 0.0) {
+            lower = 0.0;
+        }
+        lowerBounds[tuple] = lower;
+
+        final double bound = Math.max(lower, halfNearest[current]);
+        if (upper > bound) {
+            // Make the upper bound exact and check again.
+            upper = distances.distanceTo(current);
+            if (upper > bound) {
+                return search(tuple, current, upper, distances);
+            }
+        }
+
+        upperBounds[tuple] = upper;
+        return current;
+    }
+
+    // Finds the nearest and second-nearest centers by computing every distance, except 
+    // to current, if it is non-negative, whose distance is given.
+    private int search(final int tuple, final int current, final double currentDistance, 
+            final CenterDistances distances) {
+        int nearest = -1;
+        double min = Double.MAX_VALUE;
+        double secondMin = Double.MAX_VALUE;
+        for (int c = 0; c < clusterCount; c++) {
+            if (candidates[c]) {
+                double d = c == current ? currentDistance : distances.distanceTo(c);
+                if (d < min) {
+                    secondMin = min;
+                    min = d;
+                    nearest = c;
+                } else if (d < secondMin) {
+                    secondMin = d;
+                }
+            }
+        }
+        upperBounds[tuple] = min;
+        lowerBounds[tuple] = secondMin;
+        return nearest;
+    }
+}
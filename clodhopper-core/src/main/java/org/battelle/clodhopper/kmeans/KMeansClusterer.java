@@ -4,6 +4,10 @@ import gnu.trove.list.array.TIntArrayList;
 import gnu.trove.map.TIntObjectMap;
 import gnu.trove.map.hash.TIntObjectHashMap;
 
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
@@ -13,17 +17,27 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 
 import org.battelle.clodhopper.AbstractClusterer;
 import org.battelle.clodhopper.Cluster;
 import org.battelle.clodhopper.ClusterStats;
 import org.battelle.clodhopper.distance.DistanceMetric;
+import org.battelle.clodhopper.distance.FloatDistanceMetric;
+import org.battelle.clodhopper.distance.SparseDistanceMetric;
 import org.battelle.clodhopper.seeding.ClusterSeeder;
+import org.battelle.clodhopper.task.CheckpointStore;
 import org.battelle.clodhopper.task.ProgressHandler;
+import org.battelle.clodhopper.task.TaskExecutors;
 import org.battelle.clodhopper.task.TaskOutcome;
 import org.battelle.clodhopper.tuple.FilteredTupleList;
+import org.battelle.clodhopper.tuple.FloatTupleList;
+import org.battelle.clodhopper.tuple.NormalizedTupleList;
+import org.battelle.clodhopper.tuple.PartitionedTupleList;
+import org.battelle.clodhopper.tuple.SparseTupleList;
+import org.battelle.clodhopper.tuple.TupleBlockReader;
 import org.battelle.clodhopper.tuple.TupleList;
 import org.battelle.clodhopper.tuple.TupleMath;
 import org.battelle.clodhopper.util.ArrayIntIterator;
@@ -60,7 +74,20 @@ import org.battelle.clodhopper.util.Sorting;
  *===================================================================*/
 public class KMeansClusterer extends AbstractClusterer {
 
+    /**
+     * The default number of iterations between checkpoints.
+     */
+    public static final int DEFAULT_CHECKPOINT_INTERVAL = 10;
+
     private static final int MOVES_TRACKING_WINDOW_LEN = 6;
+    // The number of values per block when reading tuples out of core.
+    private static final int OUT_OF_CORE_BLOCK_SIZE = 1 << 18;
+    // Chunks of tuples for the assignment workers are sized to take about this many
+    // distance computations times the tuple length.
+    private static final long CHUNK_DISTANCE_WORK = 1L << 20;
+    // The number of chunks wanted for each assignment worker, so the workers finish together.
+    private static final int CHUNKS_PER_WORKER = 8;
+    private static final int MIN_CHUNK_SIZE = 64;
 
     private TupleList tuples;
     private KMeansParams params;
@@ -75,10 +102,20 @@ public class KMeansClusterer extends AbstractClusterer {
     // an infinite loop near the end of clustering when replacing clusters that become empty.
     private Set<ProtoClusterState> pastStates;
 
+    // Non-null when the assignments are made by an algorithm that keeps distance bounds.
+    private BoundedAssigner boundedAssigner;
+
     // Set to true if clustering does not appear to be converging to detect the case of
     // clustering oscillating between states.
     private boolean oscillationDetectionOn;
 
+    // Non-null when clustering is to resume from earlier clusters instead of from seeds.
+    private List<Cluster> previousClusters;
+
+    // When non-null, the centers and assignments are saved every checkpointInterval iterations.
+    private CheckpointStore checkpointStore;
+    private int checkpointInterval = DEFAULT_CHECKPOINT_INTERVAL;
+
     public KMeansClusterer(TupleList tuples, KMeansParams params) {
         if (tuples == null || params == null) {
             throw new NullPointerException();
@@ -87,6 +124,72 @@ public class KMeansClusterer extends AbstractClusterer {
         this.params = params;
     }
 
+    /**
+     * Constructor for resuming from the result of an earlier clustering, commonly
+     * of the same tuples before more were appended. The earlier clusters' centers 
+     * are used instead of seeds, and their members keep their assignments, so only 
+     * tuples that were not members of any of them are compared to all the centers 
+     * in the first iteration. The number of clusters is that of the earlier clusters,
+     * not the cluster count in the parameters.
+     * 
+     * @param tuples the tuples to cluster. The member indexes of the earlier clusters
+     *   must refer to the same tuples.
+     * @param params the parameters. The cluster seeder is not used.
+     * @param previousClusters the earlier clusters.
+     */
+    public KMeansClusterer(TupleList tuples, KMeansParams params, List<Cluster> previousClusters) {
+        this(tuples, params);
+        if (previousClusters == null) {
+            throw new NullPointerException();
+        }
+        this.previousClusters = new ArrayList<>(previousClusters);
+    }
+
+    /**
+     * Get the store in which checkpoints are saved.
+     * 
+     * @return the checkpoint store, or null if checkpointing is off.
+     */
+    public CheckpointStore getCheckpointStore() {
+        return checkpointStore;
+    }
+
+    /**
+     * Set the store in which the centers and cluster assignments are saved every
+     * <code>checkpointInterval</code> iterations. If the store already holds a
+     * checkpoint, which must be from clustering the same tuples with the same 
+     * parameters, clustering resumes from it instead of starting from seeds. This
+     * is ignored when resuming from earlier clusters passed to the constructor.
+     * 
+     * @param store the checkpoint store, or null to turn checkpointing off.
+     */
+    public void setCheckpointStore(CheckpointStore store) {
+        this.checkpointStore = store;
+    }
+
+    /**
+     * Get the number of iterations between checkpoints.
+     * 
+     * @return the checkpoint interval.
+     */
+    public int getCheckpointInterval() {
+        return checkpointInterval;
+    }
+
+    /**
+     * Set the number of iterations between checkpoints.
+     * 
+     * @param n the checkpoint interval.
+     * 
+     * @throws IllegalArgumentException if less than 1.
+     */
+    public void setCheckpointInterval(int n) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("checkpoint interval must be greater than 0");
+        }
+        this.checkpointInterval = n;
+    }
+
     @Override
     public String taskName() {
         return "k-means";
@@ -97,6 +200,10 @@ public class KMeansClusterer extends AbstractClusterer {
 
         List<Cluster> clusters = null;
 
+        // Spherical k-means works with a normalized view of the tuples, in place of the
+        // tuples given, for the duration of the run.
+        final TupleList givenTuples = tuples;
+
         try {
 
             final int tupleCount = tuples.getTupleCount();
@@ -110,6 +217,14 @@ public class KMeansClusterer extends AbstractClusterer {
             if (requestedClusterCount <= 0) {
                 finishWithError("requested cluster count must be greater than 0: " + requestedClusterCount);
             }
+            if (!params.getAlgorithm().supports(params.getDistanceMetric())) {
+                finishWithError(String.format("the %s algorithm requires a distance metric that satisfies the " 
+                        + "triangle inequality", params.getAlgorithm()));
+            }
+            if (params.getSpherical() && params.getAlgorithm() != KMeansParams.Algorithm.STANDARD) {
+                finishWithError(String.format("the %s algorithm cannot be used for spherical k-means", 
+                        params.getAlgorithm()));
+            }
 
             final int maxIterations = params.getMaxIterations();
 
@@ -119,14 +234,58 @@ public class KMeansClusterer extends AbstractClusterer {
 
             ph.postBegin();
 
-            // Pick some initial centers based upon the seeding method.
-            initializeCenters(ph);
+            if (params.getSpherical()) {
+                tuples = NormalizedTupleList.normalize(tuples);
+            }
+
+            // The clusters from which to start, if not from seeds.
+            List<Cluster> startingClusters = previousClusters;
+            // Nonzero when resuming from a checkpoint.
+            int startingIteration = 0;
+            int startingMoves = 0;
+            int[] startingMoveDiffs = new int[0];
+            int startingMoveDiffIndex = 0;
+            boolean[] startingChanges = null;
+
+            if (startingClusters == null && checkpointStore != null) {
+                KMeansCheckpoint checkpoint = new KMeansCheckpoint();
+                if (checkpointStore.restoreLatest(checkpoint)) {
+                    if (checkpoint.assignments.length != tupleCount 
+                            || checkpoint.centers[0].length != tuples.getTupleLength()) {
+                        finishWithError(String.format("checkpoint is for %d tuples of length %d", 
+                                checkpoint.assignments.length, checkpoint.centers[0].length));
+                    }
+                    startingClusters = checkpoint.toClusters();
+                    startingIteration = checkpoint.iteration;
+                    startingMoves = checkpoint.moves;
+                    startingMoveDiffs = checkpoint.moveDiffs;
+                    startingMoveDiffIndex = checkpoint.moveDiffIndex;
+                    startingChanges = checkpoint.changed;
+                    ph.postMessage(String.format("resuming from the checkpoint saved after iteration %d", 
+                            startingIteration));
+                }
+            }
+
+            if (startingClusters != null) {
+                // Start from the earlier clusters' centers.
+                initializeFromPreviousClusters(startingClusters);
+            } else {
+                // Pick some initial centers based upon the seeding method.
+                initializeCenters(ph);
+            }
 
             // The actual cluster count may be less than the requested cluster count. For example,
             // if the number of unique tuples is less than the requested cluster count, it will
             // be reduced.
             final int actualClusterCount = protoClusters.length;
 
+            if (params.getSpherical()) {
+                // Seeders need not produce centers of unit length.
+                for (ProtoCluster cluster : protoClusters) {
+                    cluster.normalizeCenter();
+                }
+            }
+
             ph.postMessage(String.format("%d initial cluster centers selected", actualClusterCount));
 
             // The trivial case.  No work to do, since everything is to be in 1 cluster.
@@ -136,12 +295,13 @@ public class KMeansClusterer extends AbstractClusterer {
                 ProtoCluster cluster = protoClusters[0];
               
                 // Add them all to the protocluster.
-                cluster.ensureCurrentCapacity(tupleCount);
+                int[] members = new int[tupleCount];
                 for (int i = 0; i < tupleCount; i++) {
-                    cluster.add(i);
+                    members[i] = i;
                 }
+                cluster.setMembers(members);
                 
-                cluster.updateCenter(tuples);
+                cluster.updateCenter(tuples, params.getSpherical());
 
             } else {
 
@@ -149,6 +309,11 @@ public class KMeansClusterer extends AbstractClusterer {
                 final int workerCount = params.getWorkerThreadCount() > 0 ? 
                     params.getWorkerThreadCount() : Runtime.getRuntime().availableProcessors();
 
+                if (params.getAlgorithm() != KMeansParams.Algorithm.STANDARD) {
+                    boundedAssigner = BoundedAssigner.create(params.getAlgorithm(), tupleCount,
+                            params.getDistanceMetric().clone());
+                }
+
                 subtaskManager = new SubtaskManager(workerCount);
 
                 // Keeps a running count of the cluster assignments.
@@ -157,14 +322,41 @@ public class KMeansClusterer extends AbstractClusterer {
                 // -1 is a flag indicator meaning unassigned.
                 Arrays.fill(clusterAssignments, -1);
 
+                if (startingClusters != null) {
+                    // Since the centers have not moved, the first round of assignments only compares
+                    // these tuples to their earlier clusters.
+                    for (int c = 0; c < actualClusterCount; c++) {
+                        Cluster cluster = startingClusters.get(c);
+                        final int memberCount = cluster.getMemberCount();
+                        for (int i = 0; i < memberCount; i++) {
+                            clusterAssignments[cluster.getMember(i)] = c;
+                        }
+                    }
+                    if (boundedAssigner != null) {
+                        boundedAssigner.warmStart();
+                    }
+                }
+
+                // When resuming, this round reproduces the checkpointed assignments, and it is 
+                // numbered as it was then, so the rounds that follow compute exact sums as they would have.
+                subtaskManager.assignmentRound = startingIteration;
+
                 // Make the 1st round of cluster assignments (concurrent operation)
                 makeAssignments();
 
+                if (startingChanges != null) {
+                    // The centers of the clusters that changed in the checkpointed round still 
+                    // have to be recomputed.
+                    for (int c = 0; c < actualClusterCount; c++) {
+                        protoClusters[c].membershipChanged |= startingChanges[c];
+                    }
+                }
+
                 ph.postMessage("initial cluster assignments have been made");
                 ph.postStep();
 
-                int moves = 0;
-                int iteration = 0;
+                int moves = startingMoves;
+                int iteration = startingIteration;
                 boolean emptyClustersReplaced = false;
 
                 final int movesGoal = params.getMovesGoal();
@@ -172,9 +364,9 @@ public class KMeansClusterer extends AbstractClusterer {
 
                 // Keeps track of the differences in the number of moves between an iteration and the preceding iteration.
                 // Never longer than MOVES_TRACKING_WINDOW_LEN.
-                TIntArrayList moveDiffList = new TIntArrayList();
+                TIntArrayList moveDiffList = new TIntArrayList(startingMoveDiffs);
                 // After moveDiffList fills up, used as index for replacing old elements with new one.
-                int moveDiffListIndex = 0;
+                int moveDiffListIndex = startingMoveDiffIndex;
 
                 // If oscillation detection is turned on, keeps track of moves during iterations.
                 List<List<Move>> pastMoveLists = null;
@@ -256,6 +448,15 @@ public class KMeansClusterer extends AbstractClusterer {
                         }
                     }
 
+                    // Checkpoints are not saved while looking for oscillation, which only happens near 
+                    // the end, since the past moves would have to be saved too.
+                    if (checkpointStore != null && iteration % checkpointInterval == 0 && !emptyClustersReplaced
+                            && !oscillationDetectionOn && moves > movesGoal && iteration < iterationLimit) {
+                        // The centers are those from which the assignments were just made.
+                        checkpointStore.save(new KMeansCheckpoint(iteration, moves, moveDiffList.toArray(), 
+                                moveDiffListIndex, protoClusters, clusterAssignments));
+                    }
+
                 } while ((moves > movesGoal && iteration < iterationLimit && !oscillationDetected) || emptyClustersReplaced);
             }
 
@@ -279,13 +480,23 @@ public class KMeansClusterer extends AbstractClusterer {
                         clusters.size(), emptyClustersDeleted));
             }
 
+            if (checkpointStore != null) {
+                try {
+                    checkpointStore.flush();
+                } catch (IOException e) {
+                    ph.postMessage("checkpoints could not be saved: " + e.getMessage());
+                }
+            }
+
             ph.postEnd();
 
         } finally {
 
+            tuples = givenTuples;
             protoClusters = null;
             pastStates = null;
             clusterAssignments = null;
+            boundedAssigner = null;
 
             if (subtaskManager != null) {
                 subtaskManager.shutdown();
@@ -334,16 +545,48 @@ public class KMeansClusterer extends AbstractClusterer {
 
     }
 
+    /**
+     * Called at the beginning of clustering instead of <code>initializeCenters()</code> when
+     * resuming from earlier clusters or from a checkpoint.
+     * 
+     * @param previousClusters the clusters from which to resume.
+     */
+    private void initializeFromPreviousClusters(List<Cluster> previousClusters) {
+
+        final int tupleCount = tuples.getTupleCount();
+        final int tupleLength = tuples.getTupleLength();
+        final int clusterCount = previousClusters.size();
+
+        if (clusterCount == 0) {
+            finishWithError("no previous clusters");
+        }
+
+        protoClusters = new ProtoCluster[clusterCount];
+
+        for (int c = 0; c < clusterCount; c++) {
+            Cluster cluster = previousClusters.get(c);
+            double[] center = cluster.getCenter();
+            if (center.length != tupleLength) {
+                finishWithError(String.format("previous cluster center length %d != tuple length %d", 
+                        center.length, tupleLength));
+            }
+            final int memberCount = cluster.getMemberCount();
+            for (int i = 0; i < memberCount; i++) {
+                int member = cluster.getMember(i);
+                if (member < 0 || member >= tupleCount) {
+                    finishWithError(String.format("previous cluster member %d not in [0 - %d]", 
+                            member, tupleCount - 1));
+                }
+            }
+            protoClusters[c] = new ProtoCluster(center);
+        }
+    }
+
     /**
      * Called every iteration to make cluster assignments. 
      * @return the number of moves.
      */
     private int makeAssignments() {
-        // First, checkpoint the protoclusters.
-        int clusterCount = protoClusters.length;
-        for (int c = 0; c < clusterCount; c++) {
-            protoClusters[c].checkPoint();
-        }
         // Delegate to the subtaskManager to make the assignments in a concurrent fashion.
         subtaskManager.makeAssignments();
         return subtaskManager.getMoves();
@@ -353,16 +596,13 @@ public class KMeansClusterer extends AbstractClusterer {
      * Computes the cluster centers.
      */
     private void computeCenters() {
-        // First, set the update flags for the protoclusters. This compares the current membership with the previous
-        // membership to determine whether the center needs to be recomputed.
+        // First, set the update flags for the protoclusters. A center only needs to be recomputed
+        // if tuples joined or left the cluster in the last round of assignments.
         int clusterCount = protoClusters.length;
         for (int c = 0; c < clusterCount; c++) {
-            ProtoCluster cluster = protoClusters[c];
-            if (!cluster.isEmpty()) {
-                cluster.setUpdateFlag();
-            }
-            checkForCancel();
+            protoClusters[c].setUpdateFlag();
         }
+        checkForCancel();
         // Delegate to the subtaskManager to compute the centers in a concurrent fashion.
         subtaskManager.computeCenters();
     }
@@ -486,6 +726,11 @@ public class KMeansClusterer extends AbstractClusterer {
                 clusterCount(2).
                 workerThreadCount(params.getWorkerThreadCount()).
                 distanceMetric(params.getDistanceMetric()).
+                algorithm(params.getAlgorithm()).
+                exactCenterInterval(params.getExactCenterInterval()).
+                outOfCore(params.getOutOfCore()).
+                spherical(params.getSpherical()).
+                executor(params.getExecutor()).
                 clusterSeeder(seeder).
                 replaceEmptyClusters(false).build();
 
@@ -539,15 +784,25 @@ public class KMeansClusterer extends AbstractClusterer {
         return result;
     }
 
-    private int nearestCluster(int tupleNdx, double[] buffer, DistanceMetric distMetric) {
+    /**
+     * Finds the nearest cluster to a tuple.
+     * 
+     * @param tupleNdx the index of the tuple.
+     * @param worker the assignment worker whose buffers currently hold the tuple's values.
+     * 
+     * @return the index of the nearest cluster.
+     */
+    private int nearestCluster(int tupleNdx, SubtaskManager.AssignmentWorker worker) {
+
+        if (boundedAssigner != null) {
+            return boundedAssigner.nearest(tupleNdx, clusterAssignments[tupleNdx], worker);
+        }
 
         int nearest = -1;
         double min = Double.MAX_VALUE;
         int lastNearest = clusterAssignments[tupleNdx];
         boolean onlyConsiderChanged = false;
 
-        tuples.getTuple(tupleNdx, buffer);
-
 		// If the last cluster to which the tuple was assigned did not change in the previous
         // iteration, performance is enormously enhanced by only considering the distance to it and
         // to the clusters that changed in the previous iteration.  The clusters that did not change
@@ -560,7 +815,7 @@ public class KMeansClusterer extends AbstractClusterer {
             if (lastCluster.isAssignmentCandidate() && !lastCluster.getUpdateFlag()) {
                 onlyConsiderChanged = true;
                 nearest = lastNearest;
-                min = distMetric.distance(buffer, lastCluster.center);
+                min = worker.distanceTo(lastNearest);
             }
 
         }
@@ -570,7 +825,7 @@ public class KMeansClusterer extends AbstractClusterer {
             ProtoCluster cluster = protoClusters[c];
             if (cluster.isAssignmentCandidate()) {
                 if (!onlyConsiderChanged || cluster.getUpdateFlag()) {
-                    double d = distMetric.distance(buffer, cluster.center);
+                    double d = worker.distanceTo(c);
                     if (d < min) {
                         min = d;
                         nearest = c;
@@ -665,66 +920,116 @@ public class KMeansClusterer extends AbstractClusterer {
      * SubtaskManager manages the concurrent execution of two phases of K-Means clustering: 
      * 1) making the cluster assignments, and 
      * 2) recomputing cluster centers.
+     * 
+     * <p>Rather than giving each worker a fixed share, the tuples are divided into many
+     * chunks which the workers claim one at a time, and the clusters are claimed one at 
+     * a time for recomputing the centers, so a worker slowed by costly tuples or by I/O 
+     * does not hold up the others. Counts are kept per chunk, so the membership arrays
+     * still come out sorted, and the sums of the chunks are combined in chunk order, so 
+     * the centers do not depend on which worker took which chunk.</p>
      */
     private class SubtaskManager {
 
         private final List<CenterComputationWorker> centerCompWorkers;
         private final List<AssignmentWorker> assignmentWorkers;
+        // Fill in the membership arrays after each round of assignments.
+        private final List<Callable<Void>> memberWorkers;
+        
+        // Non-null only when the tuples are sparse and the distance metric can use them.
+        private final SparseDistanceMetric sparseMetric;
+        // When sparseMetric is non-null, the summaries of the centers it needs, computed 
+        // before each round of assignments.
+        private double[] centerNorms;
 
         // Non-null only if the number of worker threads > 1
         private ExecutorService threadPool;
+        // Non-null only when reading out of core, to read the next blocks of the tuples 
+        // while the assignment workers process the current ones.
+        private ExecutorService readAheadPool;
+
+        // Counts the rounds of assignments, to know when the centers must be computed exactly.
+        private int assignmentRound;
+        // True when the assignment workers sum the values of all the tuples, false when they
+        // only sum the changes due to tuples that move.
+        private boolean exactSums;
+
+        // The boundaries of the chunks of tuples, one more than the number of chunks.
+        private final int[] chunkBoundaries;
+        private final int chunkCount;
+        // The next chunk to be claimed by an assignment worker or a member worker, and 
+        // the next cluster to be claimed by a center computation worker.
+        private final AtomicInteger nextChunk = new AtomicInteger();
+        private final AtomicInteger nextMemberChunk = new AtomicInteger();
+        private final AtomicInteger nextCluster = new AtomicInteger();
+        // The number of tuples of each chunk assigned to each cluster, chunkIndex * clusterCount 
+        // + clusterIndex. After merging, where each chunk's members of each cluster start in
+        // the cluster's membership array.
+        private final int[] chunkCounts;
+
+        // The sums of the members' values, clusterIndex * tupleLength + column, combined 
+        // from the chunks in chunk order. When exactSums is false, only the values of the
+        // tuples that moved are summed, added to the clusters they joined and subtracted 
+        // from the clusters they left.
+        private final double[] roundSums;
+        // The next chunk whose sums are to be added to roundSums, the sums of chunks that
+        // finished before it, and sums ready for reuse. Guarded by the manager's lock.
+        private int nextChunkToCombine;
+        private final TIntObjectMap<ChunkSums> finishedSums = new TIntObjectHashMap<>();
+        private final List<ChunkSums> spareSums = new ArrayList<>();
 
         private SubtaskManager(int workerCount) {
 
             final int tupleCount = tuples.getTupleCount();
+            final int tupleLength = tuples.getTupleLength();
             final int clusterCount = protoClusters.length;
 
+            DistanceMetric distanceMetric = params.getDistanceMetric();
+            sparseMetric = tuples instanceof SparseTupleList && distanceMetric instanceof SparseDistanceMetric ?
+                    (SparseDistanceMetric) distanceMetric : null;
+
             // Wouldn't make sense to have more workers making assignment concurrently than there are tuples.
             // Some would have nothing to do.
-            final int assignmentWorkerCount = Math.min(workerCount, tupleCount);
-            
-            // Collect the actual # of tuples for each worker in an array.
-            int[] tuplesPerAssignmentWorker = new int[assignmentWorkerCount];
+            final int assignmentWorkerCount = Math.max(1, Math.min(workerCount, tupleCount));
 
-            Arrays.fill(tuplesPerAssignmentWorker, tupleCount/assignmentWorkerCount);
-
-            // tupleCount might not have been evenly divisible by assignmentWorkerCount. Some workers will handle
-            // 1 more tuple than others.
-            int leftOver = tupleCount%assignmentWorkerCount;
-            for (int i = 0; i < leftOver; i++) {
-                tuplesPerAssignmentWorker[i]++;
+            final boolean outOfCore = params.getOutOfCore() && sparseMetric == null;
+            final int chunkSize = chunkSize(tupleCount, assignmentWorkerCount, outOfCore);
+            if (outOfCore && tuples instanceof PartitionedTupleList) {
+                chunkBoundaries = partitionChunks((PartitionedTupleList) tuples, chunkSize);
+            } else {
+                chunkBoundaries = evenRanges(0, tupleCount, (tupleCount + chunkSize - 1) / chunkSize);
             }
+            chunkCount = chunkBoundaries.length - 1;
+            chunkCounts = new int[chunkCount * clusterCount];
+            roundSums = new double[clusterCount * tupleLength];
 
             assignmentWorkers = new ArrayList<>(assignmentWorkerCount);
+            memberWorkers = new ArrayList<>(assignmentWorkerCount);
 
-            int startTuple = 0;
             for (int i = 0; i < assignmentWorkerCount; i++) {
-                int endTuple = startTuple + tuplesPerAssignmentWorker[i];
-                assignmentWorkers.add(new AssignmentWorker(startTuple, endTuple));
-                startTuple = endTuple;
+                AssignmentWorker worker = new AssignmentWorker();
+                if (outOfCore) {
+                    // Each chunk is read as one block.
+                    worker.tuplesPerBlock = chunkSize;
+                }
+                assignmentWorkers.add(worker);
+                memberWorkers.add(this::fillMembers);
             }
 
-            // Similar logic for the center computation workers.
-            final int centerCompWorkerCount = Math.min(workerCount, clusterCount);
-            int[] clustersPerCenterCompWorker = new int[centerCompWorkerCount];
-            Arrays.fill(clustersPerCenterCompWorker, clusterCount/centerCompWorkerCount);
-
-            leftOver = clusterCount%centerCompWorkerCount;
-            for (int i = 0; i < leftOver; i++) {
-                clustersPerCenterCompWorker[i]++;
+            if (outOfCore) {
+                readAheadPool = TaskExecutors.newThreadPool(params.getExecutor(), assignmentWorkerCount);
             }
 
+            // Similar logic for the center computation workers.
+            final int centerCompWorkerCount = Math.min(workerCount, clusterCount);
             centerCompWorkers = new ArrayList<>(centerCompWorkerCount);
-            int startCluster = 0;
             for (int i = 0; i < centerCompWorkerCount; i++) {
-                int endCluster = startCluster + clustersPerCenterCompWorker[i];
-                centerCompWorkers.add(new CenterComputationWorker(startCluster, endCluster));
-                startCluster = endCluster;
+                centerCompWorkers.add(new CenterComputationWorker());
             }
 
             // Now create a thread pool if either of the worker counts is > 1.
             if (assignmentWorkerCount > 1 || centerCompWorkerCount > 1) {
-                threadPool = Executors.newFixedThreadPool(Math.max(assignmentWorkerCount, centerCompWorkerCount));
+                threadPool = TaskExecutors.newThreadPool(params.getExecutor(), 
+                        Math.max(assignmentWorkerCount, centerCompWorkerCount));
             }
         }
 
@@ -735,33 +1040,120 @@ public class KMeansClusterer extends AbstractClusterer {
             if (threadPool != null) {
                 threadPool.shutdownNow();
             }
+            if (readAheadPool != null) {
+                readAheadPool.shutdownNow();
+            }
+        }
+
+        /**
+         * Chooses the number of tuples per chunk. Chunks are small enough that each worker 
+         * gets several, but have enough distance computations that claiming them costs
+         * little, and at least as many tuples as there are clusters, so the per-chunk counts
+         * take no more memory than the cluster assignments. When reading out of core, chunks
+         * are whole blocks if possible.
+         */
+        private int chunkSize(int tupleCount, int workerCount, boolean outOfCore) {
+            final int tupleLength = Math.max(1, tuples.getTupleLength());
+            final int clusterCount = protoClusters.length;
+            long size = Math.max(1L, CHUNK_DISTANCE_WORK / ((long) tupleLength * clusterCount));
+            if (outOfCore) {
+                size = Math.max(size, OUT_OF_CORE_BLOCK_SIZE / tupleLength);
+            }
+            final long chunksWanted = (long) workerCount * CHUNKS_PER_WORKER;
+            size = Math.min(size, (tupleCount + chunksWanted - 1) / chunksWanted);
+            return (int) Math.max(size, Math.max(clusterCount, MIN_CHUNK_SIZE));
+        }
+
+        /**
+         * Divides a range of tuples as evenly as possible.
+         * 
+         * @return the boundaries of the pieces, one more than the number of pieces.
+         */
+        private int[] evenRanges(int start, int end, int pieces) {
+            int[] boundaries = new int[pieces + 1];
+            final int count = end - start;
+            for (int i = 0; i <= pieces; i++) {
+                boundaries[i] = start + (int) ((long) i * count / pieces);
+            }
+            return boundaries;
+        }
+
+        /**
+         * Divides each partition into chunks, so no chunk reads from more than one partition.
+         * 
+         * @return the boundaries of the chunks, one more than the number of chunks.
+         */
+        private int[] partitionChunks(PartitionedTupleList partitionedTuples, int chunkSize) {
+            final int partitionCount = partitionedTuples.getPartitionCount();
+            TIntArrayList boundaries = new TIntArrayList();
+            boundaries.add(0);
+            for (int p = 0; p < partitionCount; p++) {
+                final int start = partitionedTuples.getPartitionStart(p);
+                final int count = partitionedTuples.getPartitionTupleCount(p);
+                if (count > 0) {
+                    int[] pieces = evenRanges(start, start + count, (count + chunkSize - 1) / chunkSize);
+                    for (int i = 1; i < pieces.length; i++) {
+                        boundaries.add(pieces[i]);
+                    }
+                }
+            }
+            return boundaries.toArray();
         }
 
         private boolean makeAssignments() {
-            boolean ok = false;
-            if (threadPool != null) {
-                try {
-                    threadPool.invokeAll(assignmentWorkers);
-                    ok = true;
-                } catch (InterruptedException e) {
-                    // Normal, if canceled during cluster assignment.
+            exactSums = assignmentRound++ % params.getExactCenterInterval() == 0;
+            for (ProtoCluster cluster : protoClusters) {
+                // Without sums from the last round, such as after splitting, there is nothing to update.
+                if (cluster.sums == null) {
+                    exactSums = true;
                 }
-            } else {
-                try {
-                    // Single-threaded, so just call directly.
-                    assignmentWorkers.get(0).call();
-                    ok = true;
-                } catch (Exception e) {
+            }
+            if (sparseMetric != null && !params.getSpherical()) {
+                final int clusterCount = protoClusters.length;
+                if (centerNorms == null) {
+                    centerNorms = new double[clusterCount];
+                }
+                for (int c = 0; c < clusterCount; c++) {
+                    centerNorms[c] = sparseMetric.denseNorm(protoClusters[c].center);
                 }
             }
-            return ok;
+            if (boundedAssigner != null) {
+                final int clusterCount = protoClusters.length;
+                double[][] centers = new double[clusterCount][];
+                boolean[] candidates = new boolean[clusterCount];
+                for (int c = 0; c < clusterCount; c++) {
+                    centers[c] = protoClusters[c].center;
+                    candidates[c] = protoClusters[c].isAssignmentCandidate();
+                }
+                boundedAssigner.prepare(centers, candidates);
+            }
+            Arrays.fill(chunkCounts, 0);
+            Arrays.fill(roundSums, 0.0);
+            nextChunkToCombine = 0;
+            nextChunk.set(0);
+            if (!runWorkers(assignmentWorkers)) {
+                return false;
+            }
+            mergeAssignments();
+            nextMemberChunk.set(0);
+            return runWorkers(memberWorkers);
         }
 
         private boolean computeCenters() {
+            nextCluster.set(0);
+            return runWorkers(centerCompWorkers);
+        }
+
+        /**
+         * Runs workers on the thread pool, or directly if there is only one.
+         * 
+         * @return false if interrupted.
+         */
+        private boolean runWorkers(List<? extends Callable<Void>> workers) {
             boolean ok = false;
-            if (threadPool != null) {
+            if (threadPool != null && workers.size() > 1) {
                 try {
-                    threadPool.invokeAll(centerCompWorkers);
+                    threadPool.invokeAll(workers);
                     ok = true;
                 } catch (InterruptedException e) {
                     // Normal, if canceled during cluster assignment.
@@ -769,7 +1161,9 @@ public class KMeansClusterer extends AbstractClusterer {
             } else {
                 try {
                     // Single-threaded, so just call directly.
-                    centerCompWorkers.get(0).call();
+                    for (Callable<Void> worker : workers) {
+                        worker.call();
+                    }
                     ok = true;
                 } catch (Exception e) {
                 }
@@ -777,6 +1171,84 @@ public class KMeansClusterer extends AbstractClusterer {
             return ok;
         }
 
+        // Claims the next chunk for an assignment worker, returning chunkCount when none are left.
+        private int claimChunk() {
+            return Math.min(nextChunk.getAndIncrement(), chunkCount);
+        }
+
+        // Gets a cleared ChunkSums for a worker to fill.
+        private synchronized ChunkSums obtainSums() {
+            return spareSums.isEmpty() ? new ChunkSums() : spareSums.remove(spareSums.size() - 1);
+        }
+
+        // Adds the sums of a finished chunk to roundSums, along with those of any later chunks that 
+        // were waiting for it, or keeps them until the chunks before it are done.
+        private synchronized void combineSums(int chunk, ChunkSums chunkSums) {
+            if (chunk != nextChunkToCombine) {
+                finishedSums.put(chunk, chunkSums);
+                return;
+            }
+            ChunkSums next = chunkSums;
+            while (next != null) {
+                next.addTo(roundSums);
+                spareSums.add(next);
+                next = finishedSums.remove(++nextChunkToCombine);
+            }
+        }
+
+        /**
+         * Combines the member counts, sums, and changes accumulated by the assignment workers,
+         * and works out where each chunk's members go in the membership arrays.
+         */
+        private void mergeAssignments() {
+            final int clusterCount = protoClusters.length;
+            final int tupleLength = tuples.getTupleLength();
+            for (int c = 0; c < clusterCount; c++) {
+                int count = 0;
+                // The chunks are in ascending order, so giving each the next stretch of 
+                // the membership array keeps the members sorted.
+                for (int chunk = 0, index = c; chunk < chunkCount; chunk++, index += clusterCount) {
+                    final int n = chunkCounts[index];
+                    chunkCounts[index] = count;
+                    count += n;
+                }
+                boolean changed = false;
+                for (AssignmentWorker worker : assignmentWorkers) {
+                    changed |= worker.changed[c];
+                }
+                ProtoCluster cluster = protoClusters[c];
+                // When only the changes were summed, they are applied to the last round's sums.
+                double[] sums = exactSums ? new double[tupleLength] : cluster.sums.clone();
+                final int offset = c * tupleLength;
+                for (int j = 0; j < tupleLength; j++) {
+                    sums[j] += roundSums[offset + j];
+                }
+                if (count == 0) {
+                    // Discard any rounding errors.
+                    Arrays.fill(sums, 0.0);
+                }
+                cluster.setAssignedMembers(count, sums, changed);
+            }
+        }
+
+        // Places the tuples of the chunks it claims into the membership arrays, once the 
+        // offsets are known.
+        private Void fillMembers() {
+            final int clusterCount = protoClusters.length;
+            int chunk;
+            while ((chunk = nextMemberChunk.getAndIncrement()) < chunkCount) {
+                final int base = chunk * clusterCount;
+                final int end = chunkBoundaries[chunk + 1];
+                for (int i = chunkBoundaries[chunk]; i < end; i++) {
+                    final int c = clusterAssignments[i];
+                    if (c >= 0) {
+                        protoClusters[c].currentMembers[chunkCounts[base + c]++] = i;
+                    }
+                }
+            }
+            return null;
+        }
+
         private int getMoves() {
             // Return the sum of the moves from the individual assignment workers.
             return assignmentWorkers.stream().map(AssignmentWorker::getMoves).reduce(0, (a, b) -> a + b);
@@ -794,25 +1266,54 @@ public class KMeansClusterer extends AbstractClusterer {
         }
 
         /**
-         * The worker class that calls updateCenter() on a range of clusters.
+         * The sums of the values of one chunk's tuples for each cluster, with a record 
+         * of the clusters touched, so only those need to be combined and cleared.
          */
-        private class CenterComputationWorker implements Callable<Void> {
+        private class ChunkSums {
 
-            private int startCluster, endCluster;
+            private final double[] sums = new double[protoClusters.length * tuples.getTupleLength()];
+            private final boolean[] touched = new boolean[protoClusters.length];
+            private final int[] touchedClusters = new int[protoClusters.length];
+            private int touchedCount;
 
-            private CenterComputationWorker(int startCluster, int endCluster) {
-                this.startCluster = startCluster;
-                this.endCluster = endCluster;
+            private void touch(int c) {
+                if (!touched[c]) {
+                    touched[c] = true;
+                    touchedClusters[touchedCount++] = c;
+                }
             }
 
+            // Adds the sums to the totals, then clears them for reuse.
+            private void addTo(double[] totals) {
+                final int tupleLength = tuples.getTupleLength();
+                for (int t = 0; t < touchedCount; t++) {
+                    final int c = touchedClusters[t];
+                    final int offset = c * tupleLength;
+                    for (int j = 0; j < tupleLength; j++) {
+                        totals[offset + j] += sums[offset + j];
+                        sums[offset + j] = 0.0;
+                    }
+                    touched[c] = false;
+                }
+                touchedCount = 0;
+            }
+        }
+
+        /**
+         * The worker class that calls updateCenter() on the clusters it claims.
+         */
+        private class CenterComputationWorker implements Callable<Void> {
+
             public Void call() throws Exception {
                 try {
-                    for (int c = startCluster; c < endCluster; c++) {
+                    final int clusterCount = protoClusters.length;
+                    int c;
+                    while ((c = nextCluster.getAndIncrement()) < clusterCount) {
                         checkForCancel();
                         ProtoCluster cluster = protoClusters[c];
                         // No need to recompute the center unless the cluster changed.
                         if (cluster.getUpdateFlag()) {
-                            cluster.updateCenter(tuples);
+                            cluster.updateCenter(tuples, params.getSpherical());
                         }
                     }
                 } catch (CancellationException e) {
@@ -823,22 +1324,135 @@ public class KMeansClusterer extends AbstractClusterer {
         }
 
         /**
-         * The worker class that makes cluster assignments for a range of tuples.
+         * The worker class that makes cluster assignments for the chunks of tuples it claims.
          */
-        private class AssignmentWorker implements Callable<Void> {
+        private class AssignmentWorker implements Callable<Void>, CenterDistances {
 
-            private int startTuple, endTuple;
             private double[] buffer;
+            // Only non-null when the tuples and the distance metric both support single precision.
+            private float[] floatBuffer;
+            // Tuples are read in blocks of this many, rather than one at a time.
+            private int tuplesPerBlock;
+            // Only non-null when sparseMetric is non-null. Hold the nonzero values of the
+            // current tuple.
+            private int[] sparseIndexes;
+            private double[] sparseValues;
+            private int nonZeroCount;
             private DistanceMetric distanceMetric;
+            // When true, the tuples and centers have unit length.
+            private final boolean spherical = params.getSpherical();
             private int moves;
             // Only set when oscillationDetectionOn == true.
             private List<Move> movesList;
+            // Whether any of this worker's tuples joined or left each cluster.
+            private final boolean[] changed;
+            // Where the current chunk's counts start in chunkCounts, and its sums.
+            private int chunkBase;
+            private ChunkSums chunkSums;
 
-            private AssignmentWorker(int startTuple, int endTuple) {
-                this.startTuple = startTuple;
-                this.endTuple = endTuple;
+            private AssignmentWorker() {
                 this.buffer = new double[tuples.getTupleLength()];
                 this.distanceMetric = (DistanceMetric) params.getDistanceMetric().clone();
+                if (tuples instanceof FloatTupleList && distanceMetric instanceof FloatDistanceMetric) {
+                    this.floatBuffer = new float[tuples.getTupleLength()];
+                }
+                this.tuplesPerBlock = Math.max(1, TupleBlockReader.DEFAULT_BLOCK_SIZE / Math.max(1, buffer.length));
+                if (sparseMetric != null) {
+                    int maxNonZeroCount = ((SparseTupleList) tuples).getMaxNonZeroCount();
+                    this.sparseIndexes = new int[maxNonZeroCount];
+                    this.sparseValues = new double[maxNonZeroCount];
+                }
+                this.changed = new boolean[protoClusters.length];
+            }
+
+            // Computes the distance from the current tuple to the center of a cluster.
+            @Override
+            public double distanceTo(int cluster) {
+                double[] center = protoClusters[cluster].center;
+                if (spherical) {
+                    // The cosine distance is then 1 minus the dot product, so the nearest center
+                    // has the greatest dot product.
+                    double dot = 0.0;
+                    if (sparseIndexes != null) {
+                        for (int j = 0; j < nonZeroCount; j++) {
+                            dot += sparseValues[j] * center[sparseIndexes[j]];
+                        }
+                    } else {
+                        for (int j = 0; j < center.length; j++) {
+                            dot += buffer[j] * center[j];
+                        }
+                    }
+                    return 1.0 - dot;
+                }
+                if (sparseIndexes != null) {
+                    return sparseMetric.distance(sparseIndexes, sparseValues, nonZeroCount, center, 
+                            centerNorms[cluster]);
+                }
+                return floatBuffer != null ? ((FloatDistanceMetric) distanceMetric).distance(floatBuffer, center) : 
+                    distanceMetric.distance(buffer, center);
+            }
+
+            // Assigns tuple i to the nearest cluster, once its values are in the buffers.
+            private void assign(int i) {
+                int c = nearestCluster(i, this);
+                if (c >= 0) {
+                    chunkCounts[chunkBase + c]++;
+                    final int previous = clusterAssignments[i];
+                    if (exactSums) {
+                        accumulate(c, 1.0);
+                    } else if (previous != c) {
+                        accumulate(c, 1.0);
+                        if (previous >= 0) {
+                            accumulate(previous, -1.0);
+                        }
+                    }
+                    if (previous != c) {
+                        if (oscillationDetectionOn) {
+                            movesList.add(new Move(i, previous, c));
+                        }
+                        changed[c] = true;
+                        if (previous >= 0) {
+                            changed[previous] = true;
+                        }
+                        clusterAssignments[i] = c;
+                        moves++;
+                    }
+                } else {
+                    // Only happens if there are no candidate clusters at all.
+                    clusterAssignments[i] = -1;
+                }
+            }
+
+            // Adds the values of the tuple in the buffers, or subtracts them if sign is -1, 
+            // to the current chunk's sums for a cluster.
+            private void accumulate(int c, double sign) {
+                chunkSums.touch(c);
+                final double[] sums = chunkSums.sums;
+                final int tupleLength = buffer.length;
+                final int offset = c * tupleLength;
+                if (sparseIndexes != null) {
+                    for (int j = 0; j < nonZeroCount; j++) {
+                        sums[offset + sparseIndexes[j]] += sign * sparseValues[j];
+                    }
+                } else if (floatBuffer != null) {
+                    for (int j = 0; j < tupleLength; j++) {
+                        sums[offset + j] += sign * floatBuffer[j];
+                    }
+                } else {
+                    for (int j = 0; j < tupleLength; j++) {
+                        sums[offset + j] += sign * buffer[j];
+                    }
+                }
+            }
+
+            private void beginChunk(int chunk) {
+                chunkBase = chunk * protoClusters.length;
+                chunkSums = obtainSums();
+            }
+
+            private void endChunk(int chunk) {
+                combineSums(chunk, chunkSums);
+                chunkSums = null;
             }
 
             private int getMoves() {
@@ -853,19 +1467,101 @@ public class KMeansClusterer extends AbstractClusterer {
             public Void call() throws Exception {
                 try {
                     moves = 0;
+                    Arrays.fill(changed, false);
                     if (oscillationDetectionOn) {
                         movesList = new ArrayList<>();
                     }
-                    for (int i = startTuple; i < endTuple; i++) {
-                        int c = nearestCluster(i, buffer, distanceMetric);
-                        if (c >= 0) {
-                            protoClusters[c].add(i);
-                            if (clusterAssignments[i] != c) {
-                                if (oscillationDetectionOn) {
-                                    movesList.add(new Move(i, clusterAssignments[i], c));
+                    if (sparseIndexes != null) {
+                        // Sparse tuples are stored in memory, so there is nothing to gain from blocks.
+                        SparseTupleList sparseTuples = (SparseTupleList) tuples;
+                        int chunk;
+                        while ((chunk = claimChunk()) < chunkCount) {
+                            beginChunk(chunk);
+                            final int end = chunkBoundaries[chunk + 1];
+                            for (int i = chunkBoundaries[chunk]; i < end; i++) {
+                                nonZeroCount = sparseTuples.getSparseTuple(i, sparseIndexes, sparseValues);
+                                assign(i);
+                            }
+                            endChunk(chunk);
+                        }
+                        return null;
+                    }
+                    final int tupleLength = buffer.length;
+                    final int blockLength = tuplesPerBlock * tupleLength;
+                    // With read-ahead, one block is filled while the other is processed.
+                    final int blockCount = readAheadPool != null ? 2 : 1;
+                    double[][] blocks = null;
+                    float[][] floatBlocks = null;
+                    int current = 0;
+                    Future<?> pendingRead = null;
+                    try {
+                        int chunk = claimChunk();
+                        while (chunk < chunkCount) {
+                            if (blocks == null && floatBlocks == null) {
+                                // Only allocated once there is something to read.
+                                if (floatBuffer != null) {
+                                    floatBlocks = new float[blockCount][blockLength];
+                                } else {
+                                    blocks = new double[blockCount][blockLength];
+                                }
+                            }
+                            beginChunk(chunk);
+                            final int chunkEnd = chunkBoundaries[chunk + 1];
+                            int nextChunkToRead = chunkCount;
+                            for (int blockStart = chunkBoundaries[chunk]; blockStart < chunkEnd; 
+                                    blockStart += tuplesPerBlock) {
+                                final int blockEnd = Math.min(chunkEnd, blockStart + tuplesPerBlock);
+                                if (pendingRead != null) {
+                                    awaitRead(pendingRead);
+                                    pendingRead = null;
+                                } else {
+                                    readBlock(blockStart, blockEnd, blocks, floatBlocks, current);
+                                }
+                                if (blockCount > 1) {
+                                    // Start reading the next block, claiming the next chunk
+                                    // if this is the last block of the current one.
+                                    int nextStart = blockEnd;
+                                    int nextLimit = chunkEnd;
+                                    if (blockEnd == chunkEnd) {
+                                        nextChunkToRead = claimChunk();
+                                        nextStart = nextChunkToRead < chunkCount ? 
+                                                chunkBoundaries[nextChunkToRead] : chunkEnd;
+                                        nextLimit = nextChunkToRead < chunkCount ? 
+                                                chunkBoundaries[nextChunkToRead + 1] : chunkEnd;
+                                    }
+                                    if (nextStart < nextLimit) {
+                                        final int readStart = nextStart;
+                                        final int readEnd = Math.min(nextLimit, nextStart + tuplesPerBlock);
+                                        final int next = 1 - current;
+                                        final double[][] readBlocks = blocks;
+                                        final float[][] readFloatBlocks = floatBlocks;
+                                        pendingRead = readAheadPool.submit(
+                                                () -> readBlock(readStart, readEnd, readBlocks, readFloatBlocks, next));
+                                    }
+                                }
+                                for (int i = blockStart, offset = 0; i < blockEnd; i++, offset += tupleLength) {
+                                    if (floatBuffer != null) {
+                                        System.arraycopy(floatBlocks[current], offset, floatBuffer, 0, tupleLength);
+                                    } else {
+                                        System.arraycopy(blocks[current], offset, buffer, 0, tupleLength);
+                                    }
+                                    assign(i);
                                 }
-                                clusterAssignments[i] = c;
-                                moves++;
+                                current = (current + 1) % blockCount;
+                            }
+                            endChunk(chunk);
+                            if ((chunk & 0xf) == 0) {
+                                checkForCancel();
+                            }
+                            chunk = blockCount > 1 ? nextChunkToRead : claimChunk();
+                        }
+                    } finally {
+                        if (pendingRead != null) {
+                            // Don't leave a read filling a block after returning.
+                            try {
+                                pendingRead.get();
+                            } catch (ExecutionException | CancellationException e) {
+                                // Not needed anymore.
                             }
                         }
                     }
@@ -874,17 +1570,43 @@ public class KMeansClusterer extends AbstractClusterer {
                 }
                 return null;
             }
+
+            // Reads the tuples from start to end into one of the blocks.
+            private void readBlock(int start, int end, double[][] blocks, float[][] floatBlocks, int which) {
+                if (floatBlocks != null) {
+                    ((FloatTupleList) tuples).getFloatTuples(start, end - start, floatBlocks[which], 0);
+                } else {
+                    tuples.getTuples(start, end - start, blocks[which], 0);
+                }
+            }
+
+            // Waits for a read ahead to finish, rethrowing any exception it threw.
+            private void awaitRead(Future<?> read) throws Exception {
+                try {
+                    read.get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof Exception) {
+                        throw (Exception) cause;
+                    }
+                    throw new RuntimeException(cause);
+                }
+            }
         }
     }
 
     private static class ProtoCluster {
 
-        private int[] previousMembers;
-
+        // The indexes of the members, in ascending order.
         private int[] currentMembers;
         private int currentSize;
 
         private double[] center;
+        // The sums of the members' values from the last round of assignments, or null if 
+        // the members were set some other way.
+        private double[] sums;
+        // Whether any tuples joined or left the cluster in the last round of assignments.
+        private boolean membershipChanged;
         private boolean updateFlag;
 
         private boolean assignmentCandidate = true;
@@ -894,8 +1616,8 @@ public class KMeansClusterer extends AbstractClusterer {
         }
 
         private ProtoCluster(int[] members, double[] center) {
-            this.currentMembers = (int[]) members.clone();
             this.center = (double[]) center.clone();
+            setMembers((int[]) members.clone());
         }
 
         private int size() {
@@ -910,17 +1632,57 @@ public class KMeansClusterer extends AbstractClusterer {
             return result;
         }
 
-	    // This method must be synchronized, since it will be called from multiple threads by
-        // the AssignmentWorkers.
-        private synchronized void add(int newMember) {
-            ensureCurrentCapacity(currentSize + 1);
-            currentMembers[currentSize++] = newMember;
+        /**
+         * Sets the members directly, rather than from a round of assignments.
+         * 
+         * @param members the indexes of the members in ascending order.
+         */
+        private void setMembers(int[] members) {
+            currentMembers = members;
+            currentSize = members.length;
+            sums = null;
+            membershipChanged = true;
+        }
+
+        /**
+         * Called after each round of assignments with the merged results of the assignment
+         * workers. The membership array is allocated, but the workers fill it in afterwards.
+         */
+        private void setAssignedMembers(int memberCount, double[] sums, boolean changed) {
+            currentMembers = new int[memberCount];
+            currentSize = memberCount;
+            this.sums = sums;
+            membershipChanged = changed;
+        }
+
+        private void updateCenter(TupleList tuples, boolean unitLength) {
+            if (sums != null) {
+                // The assignment workers already summed the members' values.
+                double[] newCenter = new double[sums.length];
+                for (int j = 0; j < sums.length; j++) {
+                    newCenter[j] = sums[j] / currentSize;
+                }
+                this.center = newCenter;
+            } else {
+                this.center = TupleMath.average(tuples, new ArrayIntIterator(currentMembers));
+            }
+            if (unitLength) {
+                normalizeCenter();
+            }
         }
 
-        private void updateCenter(TupleList tuples) {
-            // Other code assumes currentMembers is sorted.  This is a good spot to place the sort.
-            trimToSizeAndSort();
-            this.center = TupleMath.average(tuples, new ArrayIntIterator(currentMembers));
+        // Scales the center to unit length, unless it is all zeros.
+        private void normalizeCenter() {
+            double sum = 0.0;
+            for (double v : center) {
+                sum += v * v;
+            }
+            if (sum > 0.0) {
+                final double scale = 1.0 / Math.sqrt(sum);
+                for (int j = 0; j < center.length; j++) {
+                    center[j] *= scale;
+                }
+            }
         }
 
         private boolean isEmpty() {
@@ -928,38 +1690,14 @@ public class KMeansClusterer extends AbstractClusterer {
         }
 
         private void setUpdateFlag() {
-            boolean sameAsPrevious = true;
-            int previousSize = previousMembers != null ? previousMembers.length : 0;
-            if (currentSize != previousSize) {
-                sameAsPrevious = false;
-            } else {
-                for (int i = 0; i < currentSize; i++) {
-                    if (previousMembers[i] != currentMembers[i]) {
-                        sameAsPrevious = false;
-                        break;
-                    }
-                }
-            }
-            updateFlag = !sameAsPrevious;
+            // The center of an empty cluster is left where it was.
+            updateFlag = membershipChanged && !isEmpty();
         }
 
         private boolean getUpdateFlag() {
             return updateFlag;
         }
 
-        /**
-         * Called before each round of new cluster assignments, so it can be detected 
-         * whether or not the cluster changed during the iteration.
-         */
-        private void checkPoint() {
-            previousMembers = new int[currentSize];
-            if (currentSize > 0) {
-                System.arraycopy(currentMembers, 0, previousMembers, 0, currentSize);
-                currentMembers = null;
-                currentSize = 0;
-            }
-        }
-
         private boolean isAssignmentCandidate() {
             return assignmentCandidate;
         }
@@ -968,40 +1706,6 @@ public class KMeansClusterer extends AbstractClusterer {
             assignmentCandidate = b;
         }
 
-        /**
-         * Reduce the length of currentMembers to currentSize and sort the 
-         * indexes contained therein.
-         */
-        private void trimToSizeAndSort() {
-            if (currentMembers == null || currentMembers.length != currentSize) {
-                int[] temp = new int[currentSize];
-                if (currentMembers != null) {
-                    System.arraycopy(currentMembers, 0, temp, 0, currentSize);
-                }
-                Arrays.sort(temp);
-                currentMembers = temp;
-            }
-        }
-
-        /**
-         * Ensure the currentMembers array is at least capacity in length.
-         * Called before adding a new tuple index to the protocluster.
-         */
-        private void ensureCurrentCapacity(int capacity) {
-            int currentCapacity = currentMembers != null ? currentMembers.length : 0;
-            if (currentCapacity < capacity) {
-                int newCapacity = Math.max(7, 2 * currentCapacity);
-                if (newCapacity < capacity) {
-                    newCapacity = capacity;
-                }
-                int[] temp = new int[newCapacity];
-                if (currentCapacity > 0) {
-                    System.arraycopy(currentMembers, 0, temp, 0, currentCapacity);
-                }
-                currentMembers = temp;
-            }
-        }
-
     }
 
     private static class ProtoClusterState {
@@ -1117,4 +1821,131 @@ public class KMeansClusterer extends AbstractClusterer {
             return toCluster;
         }
     }
+
+    /**
+     * The state saved in a checkpoint: the centers and the assignments made from them.
+     */
+    private static class KMeansCheckpoint implements Externalizable {
+
+        private static final long serialVersionUID = 1L;
+
+        private static final int EXTERNALIZABLE_VERSION = 1;
+
+        private int iteration;
+        private int moves;
+        // The state of the check for slow convergence.
+        private int[] moveDiffs;
+        private int moveDiffIndex;
+        private double[][] centers;
+        // Whether the members of each cluster changed in the last round of assignments.
+        private boolean[] changed;
+        private int[] assignments;
+
+        // Used when restoring a checkpoint.
+        private KMeansCheckpoint() {
+        }
+
+        private KMeansCheckpoint(int iteration, int moves, int[] moveDiffs, int moveDiffIndex,
+                ProtoCluster[] protoClusters, int[] assignments) {
+            this.iteration = iteration;
+            this.moves = moves;
+            this.moveDiffs = moveDiffs;
+            this.moveDiffIndex = moveDiffIndex;
+            this.centers = new double[protoClusters.length][];
+            this.changed = new boolean[protoClusters.length];
+            for (int c = 0; c < centers.length; c++) {
+                centers[c] = protoClusters[c].center;
+                changed[c] = protoClusters[c].membershipChanged;
+            }
+            this.assignments = assignments;
+        }
+
+        // One cluster per center, including those that are empty, so the cluster indexes
+        // are those of the assignments.
+        private List<Cluster> toClusters() {
+            final int clusterCount = centers.length;
+            final int[] sizes = new int[clusterCount];
+            for (int c : assignments) {
+                if (c >= 0) {
+                    sizes[c]++;
+                }
+            }
+            final int[][] members = new int[clusterCount][];
+            for (int c = 0; c < clusterCount; c++) {
+                members[c] = new int[sizes[c]];
+                sizes[c] = 0;
+            }
+            for (int i = 0; i < assignments.length; i++) {
+                int c = assignments[i];
+                if (c >= 0) {
+                    members[c][sizes[c]++] = i;
+                }
+            }
+            List<Cluster> clusters = new ArrayList<>(clusterCount);
+            for (int c = 0; c < clusterCount; c++) {
+                clusters.add(new Cluster(members[c], centers[c]));
+            }
+            return clusters;
+        }
+
+        @Override
+        public void writeExternal(ObjectOutput out) throws IOException {
+            out.writeInt(EXTERNALIZABLE_VERSION);
+            out.writeInt(iteration);
+            out.writeInt(moves);
+            out.writeInt(moveDiffs.length);
+            for (int d : moveDiffs) {
+                out.writeInt(d);
+            }
+            out.writeInt(moveDiffIndex);
+            out.writeInt(centers.length);
+            out.writeInt(centers[0].length);
+            for (int c = 0; c < centers.length; c++) {
+                for (double v : centers[c]) {
+                    out.writeDouble(v);
+                }
+                out.writeBoolean(changed[c]);
+            }
+            out.writeInt(assignments.length);
+            for (int c : assignments) {
+                out.writeInt(c);
+            }
+        }
+
+        @Override
+        public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+            int version = in.readInt();
+            if (version != EXTERNALIZABLE_VERSION) {
+                throw new IOException("invalid version: " + version);
+            }
+            iteration = in.readInt();
+            moves = in.readInt();
+            moveDiffs = new int[in.readInt()];
+            for (int i = 0; i < moveDiffs.length; i++) {
+                moveDiffs[i] = in.readInt();
+            }
+            moveDiffIndex = in.readInt();
+            final int clusterCount = in.readInt();
+            final int tupleLength = in.readInt();
+            if (clusterCount <= 0) {
+                throw new IOException("invalid cluster count: " + clusterCount);
+            }
+            centers = new double[clusterCount][tupleLength];
+            changed = new boolean[clusterCount];
+            for (int c = 0; c < clusterCount; c++) {
+                for (int j = 0; j < tupleLength; j++) {
+                    centers[c][j] = in.readDouble();
+                }
+                changed[c] = in.readBoolean();
+            }
+            assignments = new int[in.readInt()];
+            for (int i = 0; i < assignments.length; i++) {
+                int c = in.readInt();
+                if (c < -1 || c >= clusterCount) {
+                    throw new IOException("invalid cluster assignment: " + c);
+                }
+                assignments[i] = c;
+            }
+        }
+    }
 }
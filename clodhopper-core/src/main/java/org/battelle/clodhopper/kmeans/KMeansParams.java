@@ -1,7 +1,10 @@
 package org.battelle.clodhopper.kmeans;
 
+import java.util.concurrent.ExecutorService;
+
 import org.battelle.clodhopper.distance.DistanceMetric;
 import org.battelle.clodhopper.distance.EuclideanDistanceMetric;
+import org.battelle.clodhopper.distance.TriangleInequalityMetric;
 import org.battelle.clodhopper.seeding.ClusterSeeder;
 import org.battelle.clodhopper.seeding.KMeansPlusPlusSeeder;
 
@@ -36,6 +39,77 @@ import org.battelle.clodhopper.seeding.KMeansPlusPlusSeeder;
 
 public class KMeansParams {
 
+	/**
+	 * The algorithms available for making the cluster assignments in each 
+	 * iteration. All produce the same clusters, apart from the handling of exact
+	 * ties in distance, but differ in how many distances they compute.
+	 */
+	public enum Algorithm {
+		
+		/**
+		 * Each tuple's distance to every cluster center is computed, except that
+		 * centers that did not move are skipped for tuples whose cluster did not
+		 * change either.
+		 */
+		STANDARD(false),
+		
+		/**
+		 * Elkan's algorithm, which keeps an upper bound on each tuple's distance to
+		 * its own center, a lower bound on its distance to every other center, and 
+		 * the distances between centers. Distances are only computed for centers the
+		 * bounds cannot rule out, which in later iterations is usually very few. The
+		 * lower bounds take memory proportional to the number of tuples times the
+		 * number of clusters. Requires a <code>TriangleInequalityMetric</code>.
+		 */
+		ELKAN(true),
+		
+		/**
+		 * Hamerly's algorithm, which keeps only an upper bound on each tuple's distance
+		 * to its own center and one lower bound on its distance to any other center, 
+		 * two doubles per tuple. Prunes less than Elkan's algorithm for each tuple, but
+		 * its memory does not grow with the number of clusters, so it suits large
+		 * numbers of clusters in low dimensions. Requires a 
+		 * <code>TriangleInequalityMetric</code>.
+		 */
+		HAMERLY(true),
+		
+		/**
+		 * The Yinyang algorithm, which divides the centers into groups of about ten and
+		 * keeps a lower bound on each tuple's distance to each group, so the extra memory 
+		 * is 1 + k/10 doubles per tuple for k clusters. A middle ground between 
+		 * <code>HAMERLY</code> and <code>ELKAN</code> that usually does best for large
+		 * numbers of clusters. Requires a <code>TriangleInequalityMetric</code>.
+		 */
+		YINYANG(true);
+		
+		private final boolean requiresTriangleInequality;
+		
+		private Algorithm(boolean requiresTriangleInequality) {
+			this.requiresTriangleInequality = requiresTriangleInequality;
+		}
+		
+		/**
+		 * Returns whether the algorithm relies upon the distance metric satisfying
+		 * the triangle inequality.
+		 * 
+		 * @return true if a <code>TriangleInequalityMetric</code> is required.
+		 */
+		public boolean requiresTriangleInequality() {
+			return requiresTriangleInequality;
+		}
+		
+		/**
+		 * Returns whether the algorithm may be used with a distance metric.
+		 * 
+		 * @param distanceMetric the metric.
+		 * 
+		 * @return true if the metric is supported.
+		 */
+		public boolean supports(DistanceMetric distanceMetric) {
+			return !requiresTriangleInequality || distanceMetric instanceof TriangleInequalityMetric;
+		}
+	};
+	
 	private int clusterCount;
 	private int maxIterations = Integer.MAX_VALUE;
 	private boolean replaceEmptyClusters = true;
@@ -43,6 +117,11 @@ public class KMeansParams {
 	private int workerThreadCount;
 	private DistanceMetric distanceMetric;
 	private ClusterSeeder seeder;
+	private Algorithm algorithm = Algorithm.STANDARD;
+	private int exactCenterInterval = 1;
+	private boolean outOfCore;
+	private boolean spherical;
+	private ExecutorService executor;
 	
 	public KMeansParams() {
 		workerThreadCount = Runtime.getRuntime().availableProcessors();
@@ -122,6 +201,100 @@ public class KMeansParams {
 		this.seeder = seeder;
 	}
 	
+	public Algorithm getAlgorithm() {
+		return algorithm;
+	}
+	
+	/**
+	 * Sets the algorithm used to make cluster assignments. An algorithm that
+	 * requires the triangle inequality is refused when clustering begins if
+	 * the distance metric is not a <code>TriangleInequalityMetric</code>.
+	 * 
+	 * @param algorithm the algorithm.
+	 */
+	public void setAlgorithm(Algorithm algorithm) {
+		if (algorithm == null) {
+			throw new NullPointerException();
+		}
+		this.algorithm = algorithm;
+	}
+	
+	public int getExactCenterInterval() {
+		return exactCenterInterval;
+	}
+	
+	/**
+	 * Sets how often the cluster centers are computed exactly from all of their
+	 * members. With the default of 1, they are computed exactly after every round of
+	 * assignments. With a larger value n, they are computed exactly every n rounds,
+	 * and in between, each center is updated by adding and subtracting only the tuples 
+	 * that moved into or out of its cluster. This makes late iterations, when few 
+	 * tuples move, much cheaper, while the exact computations keep rounding errors from 
+	 * accumulating.
+	 * 
+	 * @param n the number of rounds of assignments per exact computation.
+	 */
+	public void setExactCenterInterval(int n) {
+		if (n <= 0) {
+			throw new IllegalArgumentException("exact center interval must be greater than 0");
+		}
+		this.exactCenterInterval = n;
+	}
+	
+	public boolean getOutOfCore() {
+		return outOfCore;
+	}
+	
+	/**
+	 * Sets whether the tuples should be read as if they reside in storage, such as
+	 * a <code>MultiFileMappedTupleList</code>, rather than in memory. If so, the tuples 
+	 * are read in large blocks, the next block of each worker thread is read while the
+	 * current one is being processed, and the worker threads are given whole 
+	 * partitions of a <code>PartitionedTupleList</code>, so each iteration is 
+	 * one sequential pass through every partition.
+	 * 
+	 * @param b true for tuples in storage.
+	 */
+	public void setOutOfCore(boolean b) {
+		outOfCore = b;
+	}
+	
+	public boolean getSpherical() {
+		return spherical;
+	}
+	
+	/**
+	 * Sets whether to perform spherical k-means, which clusters by cosine similarity.
+	 * The tuples are viewed through a <code>NormalizedTupleList</code>, so each has unit
+	 * length, and the centers are scaled to unit length whenever they are computed. A
+	 * tuple is then assigned to the center with which it has the greatest dot product,
+	 * which is the center nearest by <code>CosineDistanceMetric</code>, but takes no
+	 * square roots or divisions to find. The distance metric is still used for seeding,
+	 * and should be a <code>CosineDistanceMetric</code>. Only the <code>STANDARD</code>
+	 * algorithm may be used.
+	 * 
+	 * @param b true for spherical k-means.
+	 */
+	public void setSpherical(boolean b) {
+		spherical = b;
+	}
+	
+	public ExecutorService getExecutor() {
+		return executor;
+	}
+	
+	/**
+	 * Sets the executor, such as a <code>ForkJoinPool</code> shared by the whole
+	 * application, on which the worker threads run. It is not shut down when 
+	 * clustering finishes. If null, the default from <code>TaskExecutors</code> is
+	 * used, and if that is also null, a thread pool is created for each run.
+	 * 
+	 * @param executor the executor, which may be null.
+	 */
+	public void setExecutor(ExecutorService executor) {
+		this.executor = executor;
+	}
+	
 	public static class Builder {
 		
 		private KMeansParams params;
@@ -165,7 +338,45 @@ public class KMeansParams {
 			return this;
 		}
 		
+		public Builder algorithm(Algorithm algorithm) {
+			params.setAlgorithm(algorithm);
+			return this;
+		}
+		
+		public Builder exactCenterInterval(int n) {
+			params.setExactCenterInterval(n);
+			return this;
+		}
+		
+		public Builder outOfCore(boolean b) {
+			params.setOutOfCore(b);
+			return this;
+		}
+		
+		public Builder spherical(boolean b) {
+			params.setSpherical(b);
+			return this;
+		}
+		
+		public Builder executor(ExecutorService executor) {
+			params.setExecutor(executor);
+			return this;
+		}
+		
+		/**
+		 * Returns the parameters.
+		 * 
+		 * @return the parameters.
+		 * 
+		 * @throws IllegalArgumentException if the algorithm does not support the
+		 *   distance metric.
+		 */
 		public KMeansParams build() {
+			if (!params.getAlgorithm().supports(params.getDistanceMetric())) {
+				throw new IllegalArgumentException(String.format("the %s algorithm cannot be used with %s, " 
+						+ "which does not satisfy the triangle inequality", params.getAlgorithm(), 
+						params.getDistanceMetric().getClass().getSimpleName()));
+			}
 			return params;
 		}
 	}
@@ -0,0 +1,153 @@
+package org.battelle.clodhopper.kmeans;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/*=====================================================================
+ * 
+ *                       CLODHOPPER CLUSTERING API
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Copyright (C) 2013 Battelle Memorial Institute 
+ * http://www.battelle.org
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ * 
+ * -------------------------------------------------------------------- 
+ * *
+ * KMeansShard.java
+ *
+ *===================================================================*/
+/**
+ * The view a <code>DistributedKMeansClusterer</code> has of one shard of the
+ * tuples, a contiguous range of the global tuple indexes owned by a worker that 
+ * may be in another process. Only cluster centers and partial sums pass through
+ * this interface, never the tuples themselves, except for a small sample used 
+ * in seeding. Implementations are the transport: a <code>KMeansShardWorker</code>
+ * is its own in-process implementation, and <code>SocketKMeansShard</code> talks 
+ * to a worker served by a <code>KMeansShardServer</code>.
+ * 
+ * @author R. Scarberry
+ * @since 2.0.1
+ */
+public interface KMeansShard extends Closeable {
+
+    /**
+     * Returns the global index of the shard's first tuple.
+     * 
+     * @return the index.
+     * 
+     * @throws IOException if communication fails.
+     */
+    int getFirstTupleIndex() throws IOException;
+
+    /**
+     * Returns the number of tuples in the shard.
+     * 
+     * @return the number of tuples.
+     * 
+     * @throws IOException if communication fails.
+     */
+    int getTupleCount() throws IOException;
+
+    /**
+     * Returns the length of the tuples in the shard.
+     * 
+     * @return the tuple length.
+     * 
+     * @throws IOException if communication fails.
+     */
+    int getTupleLength() throws IOException;
+
+    /**
+     * Returns tuples drawn at random from the shard, without replacement.
+     * 
+     * @param count the number of tuples, which is reduced to the shard's tuple count if larger.
+     * @param seed the seed for the random generator.
+     * 
+     * @return the values of the tuples, one after another.
+     * 
+     * @throws IOException if communication fails.
+     */
+    double[] sample(int count, long seed) throws IOException;
+
+    /**
+     * Assigns each tuple of the shard to the nearest center, and returns the
+     * sums for each cluster.
+     * 
+     * @param centers the cluster centers.
+     * 
+     * @return the partial sums.
+     * 
+     * @throws IOException if communication fails.
+     */
+    PartialSums assign(double[][] centers) throws IOException;
+
+    /**
+     * Returns the cluster assignments made by the last call to <code>assign()</code>.
+     * 
+     * @return the index of the cluster for each tuple of the shard.
+     * 
+     * @throws IOException if communication fails.
+     */
+    int[] getAssignments() throws IOException;
+
+    /**
+     * The results of assigning a shard's tuples to the nearest centers.
+     */
+    public static class PartialSums {
+
+        private final int[] counts;
+        private final double[] sums;
+        private final int moves;
+        private final double inertia;
+
+        /**
+         * Constructor
+         * 
+         * @param counts the number of tuples assigned to each cluster.
+         * @param sums the sums of the values of the tuples assigned to each cluster, 
+         *   clusterIndex * tupleLength + column.
+         * @param moves the number of tuples whose cluster changed.
+         * @param inertia the sum of the squared distances from the tuples to their centers.
+         */
+        public PartialSums(int[] counts, double[] sums, int moves, double inertia) {
+            if (counts == null || sums == null) {
+                throw new NullPointerException();
+            }
+            this.counts = counts;
+            this.sums = sums;
+            this.moves = moves;
+            this.inertia = inertia;
+        }
+
+        public int[] getCounts() {
+            return counts;
+        }
+
+        public double[] getSums() {
+            return sums;
+        }
+
+        public int getMoves() {
+            return moves;
+        }
+
+        public double getInertia() {
+            return inertia;
+        }
+    }
+}
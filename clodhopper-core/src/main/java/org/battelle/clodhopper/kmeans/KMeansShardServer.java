@@ -0,0 +1,240 @@
+package org.battelle.clodhopper.kmeans;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*=====================================================================
+ * 
+ *                       CLODHOPPER CLUSTERING API
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Copyright (C) 2013 Battelle Memorial Institute 
+ * http://www.battelle.org
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ * 
+ * -------------------------------------------------------------------- 
+ * *
+ * KMeansShardServer.java
+ *
+ *===================================================================*/
+/**
+ * Serves a <code>KMeansShard</code>, normally a <code>KMeansShardWorker</code>, 
+ * to coordinators connecting with <code>SocketKMeansShard</code>. Run it on its 
+ * own thread, typically as the main work of a worker process. Connections are 
+ * handled one at a time until the server is closed.
+ * 
+ * @author R. Scarberry
+ * @since 2.0.1
+ */
+public class KMeansShardServer implements Runnable, Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(KMeansShardServer.class);
+
+    // The requests a SocketKMeansShard can make.
+    static final int INFO = 1;
+    static final int SAMPLE = 2;
+    static final int ASSIGN = 3;
+    static final int ASSIGNMENTS = 4;
+    static final int CLOSE = 5;
+
+    // The first byte of every reply.
+    static final int OK = 0;
+    static final int FAILED = 1;
+
+    /**
+     * The greatest number of centers a coordinator may send in one request, which 
+     * limits the memory a malformed request can claim.
+     */
+    public static final int MAX_CLUSTER_COUNT = 1 << 20;
+
+    private final KMeansShard shard;
+    private final ServerSocket serverSocket;
+
+    /**
+     * Constructor
+     * 
+     * @param shard the shard to serve.
+     * @param serverSocket a bound server socket.
+     */
+    public KMeansShardServer(KMeansShard shard, ServerSocket serverSocket) {
+        if (shard == null || serverSocket == null) {
+            throw new NullPointerException();
+        }
+        this.shard = shard;
+        this.serverSocket = serverSocket;
+    }
+
+    /**
+     * Get the port on which the server listens.
+     * 
+     * @return the port.
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    @Override
+    public void run() {
+        while (!serverSocket.isClosed()) {
+            try (Socket socket = serverSocket.accept()) {
+                serve(socket);
+            } catch (SocketException e) {
+                // Thrown by accept() when the server is closed.
+                if (!serverSocket.isClosed()) {
+                    LOGGER.error("error serving k-means shard", e);
+                }
+            } catch (IOException e) {
+                LOGGER.error("error serving k-means shard", e);
+            }
+        }
+    }
+
+    // Handles the requests on one connection until it is closed.
+    private void serve(Socket socket) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        while (true) {
+            int request;
+            try {
+                request = in.readByte();
+            } catch (EOFException e) {
+                return;
+            }
+            try {
+                switch (request) {
+                case INFO:
+                    out.writeByte(OK);
+                    out.writeInt(shard.getFirstTupleIndex());
+                    out.writeInt(shard.getTupleCount());
+                    out.writeInt(shard.getTupleLength());
+                    break;
+                case SAMPLE:
+                    int count = in.readInt();
+                    if (count < 0) {
+                        // Larger sizes are safe, since the shard limits the sample to its tuples.
+                        throw new IOException("negative sample size: " + count);
+                    }
+                    long seed = in.readLong();
+                    double[] sample = shard.sample(count, seed);
+                    out.writeByte(OK);
+                    writeDoubles(out, sample);
+                    break;
+                case ASSIGN:
+                    int clusterCount = in.readInt();
+                    if (clusterCount <= 0 || clusterCount > MAX_CLUSTER_COUNT) {
+                        throw new IOException(String.format("cluster count %d not in [1 - %d]", 
+                                clusterCount, MAX_CLUSTER_COUNT));
+                    }
+                    final int tupleLength = shard.getTupleLength();
+                    double[][] centers = new double[clusterCount][];
+                    for (int c = 0; c < clusterCount; c++) {
+                        centers[c] = readDoubles(in, tupleLength);
+                        if (centers[c].length != tupleLength) {
+                            throw new IOException(String.format("center length %d != tuple length %d", 
+                                    centers[c].length, tupleLength));
+                        }
+                    }
+                    KMeansShard.PartialSums partial = shard.assign(centers);
+                    out.writeByte(OK);
+                    writeInts(out, partial.getCounts());
+                    writeDoubles(out, partial.getSums());
+                    out.writeInt(partial.getMoves());
+                    out.writeDouble(partial.getInertia());
+                    break;
+                case ASSIGNMENTS:
+                    int[] assignments = shard.getAssignments();
+                    out.writeByte(OK);
+                    writeInts(out, assignments);
+                    break;
+                case CLOSE:
+                    out.writeByte(OK);
+                    out.flush();
+                    return;
+                default:
+                    throw new IOException("unknown request: " + request);
+                }
+            } catch (RuntimeException e) {
+                // Report the failure to the coordinator, which can go on to other requests.
+                out.writeByte(FAILED);
+                out.writeUTF(String.valueOf(e));
+            }
+            out.flush();
+        }
+    }
+
+    /**
+     * Stops the server by closing its socket.
+     * 
+     * @throws IOException if the socket cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+
+    static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        out.writeInt(values.length);
+        for (int v : values) {
+            out.writeInt(v);
+        }
+    }
+
+    // Reads an array length, which must be in [0 - maxLength], so a malformed or hostile 
+    // peer cannot make the reader allocate an array of any size it likes.
+    static int readLength(DataInputStream in, long maxLength) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > maxLength) {
+            throw new IOException(String.format("array length %d not in [0 - %d]", 
+                    length, Math.min(maxLength, Integer.MAX_VALUE)));
+        }
+        return length;
+    }
+
+    static int[] readInts(DataInputStream in, long maxLength) throws IOException {
+        int[] values = new int[readLength(in, maxLength)];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = in.readInt();
+        }
+        return values;
+    }
+
+    static void writeDoubles(DataOutputStream out, double[] values) throws IOException {
+        out.writeInt(values.length);
+        for (double v : values) {
+            out.writeDouble(v);
+        }
+    }
+
+    static double[] readDoubles(DataInputStream in, long maxLength) throws IOException {
+        double[] values = new double[readLength(in, maxLength)];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = in.readDouble();
+        }
+        return values;
+    }
+}
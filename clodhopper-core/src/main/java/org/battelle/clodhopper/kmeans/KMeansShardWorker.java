@@ -0,0 +1,161 @@
+package org.battelle.clodhopper.kmeans;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.battelle.clodhopper.distance.DistanceMetric;
+import org.battelle.clodhopper.tuple.TupleBlockReader;
+import org.battelle.clodhopper.tuple.TupleList;
+
+/*=====================================================================
+ * 
+ *                       CLODHOPPER CLUSTERING API
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Copyright (C) 2013 Battelle Memorial Institute 
+ * http://www.battelle.org
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ * 
+ * -------------------------------------------------------------------- 
+ * *
+ * KMeansShardWorker.java
+ *
+ *===================================================================*/
+/**
+ * The worker for one shard in distributed k-means. It holds the shard's tuples,
+ * such as one partition file of a <code>MultiFileMappedTupleList</code>, and the
+ * cluster assignments of those tuples. Used directly, it is the in-process 
+ * <code>KMeansShard</code>. To run it in another process, serve it with a 
+ * <code>KMeansShardServer</code>.
+ * 
+ * @author R. Scarberry
+ * @since 2.0.1
+ */
+public class KMeansShardWorker implements KMeansShard {
+
+    private final TupleList tuples;
+    private final int firstTupleIndex;
+    private final DistanceMetric distanceMetric;
+    private final int[] assignments;
+
+    /**
+     * Constructor
+     * 
+     * @param tuples the shard's tuples.
+     * @param firstTupleIndex the global index of the first of the tuples.
+     * @param distanceMetric the distance metric, which should be the one in the 
+     *   coordinator's parameters.
+     */
+    public KMeansShardWorker(TupleList tuples, int firstTupleIndex, DistanceMetric distanceMetric) {
+        if (tuples == null || distanceMetric == null) {
+            throw new NullPointerException();
+        }
+        if (firstTupleIndex < 0) {
+            throw new IllegalArgumentException("first tuple index < 0: " + firstTupleIndex);
+        }
+        this.tuples = tuples;
+        this.firstTupleIndex = firstTupleIndex;
+        this.distanceMetric = distanceMetric.clone();
+        this.assignments = new int[tuples.getTupleCount()];
+        Arrays.fill(assignments, -1);
+    }
+
+    @Override
+    public int getFirstTupleIndex() {
+        return firstTupleIndex;
+    }
+
+    @Override
+    public int getTupleCount() {
+        return tuples.getTupleCount();
+    }
+
+    @Override
+    public int getTupleLength() {
+        return tuples.getTupleLength();
+    }
+
+    @Override
+    public synchronized double[] sample(int count, long seed) {
+        final int tupleCount = tuples.getTupleCount();
+        final int tupleLength = tuples.getTupleLength();
+        count = Math.max(0, Math.min(count, tupleCount));
+        // A partial Fisher-Yates shuffle of the indexes.
+        Random random = new Random(seed);
+        int[] indexes = new int[tupleCount];
+        for (int i = 0; i < tupleCount; i++) {
+            indexes[i] = i;
+        }
+        for (int i = 0; i < count; i++) {
+            int j = i + random.nextInt(tupleCount - i);
+            int tmp = indexes[i];
+            indexes[i] = indexes[j];
+            indexes[j] = tmp;
+        }
+        Arrays.sort(indexes, 0, count);
+        double[] values = new double[count * tupleLength];
+        double[] buffer = new double[tupleLength];
+        for (int i = 0; i < count; i++) {
+            System.arraycopy(tuples.getTuple(indexes[i], buffer), 0, values, i * tupleLength, tupleLength);
+        }
+        return values;
+    }
+
+    @Override
+    public synchronized PartialSums assign(double[][] centers) {
+        final int tupleLength = tuples.getTupleLength();
+        final int clusterCount = centers.length;
+        final int[] counts = new int[clusterCount];
+        final double[] sums = new double[clusterCount * tupleLength];
+        int moves = 0;
+        double inertia = 0.0;
+
+        TupleBlockReader reader = new TupleBlockReader(tuples, 0, tuples.getTupleCount());
+        final double[] tuple = new double[tupleLength];
+        final double[] distance = new double[1];
+        while (reader.hasNext()) {
+            final int i = reader.nextIndex();
+            reader.next(tuple);
+            final int nearest = KMeansSupport.nearestCenter(tuple, centers, distanceMetric, distance);
+            final double min = distance[0];
+            if (assignments[i] != nearest) {
+                assignments[i] = nearest;
+                moves++;
+            }
+            counts[nearest]++;
+            inertia += min * min;
+            final int offset = nearest * tupleLength;
+            for (int j = 0; j < tupleLength; j++) {
+                sums[offset + j] += tuple[j];
+            }
+        }
+
+        return new PartialSums(counts, sums, moves, inertia);
+    }
+
+    @Override
+    public synchronized int[] getAssignments() {
+        return assignments.clone();
+    }
+
+    /**
+     * Does nothing, since the tuples belong to the caller.
+     */
+    @Override
+    public void close() {
+    }
+}
@@ -7,7 +7,6 @@ import java.util.List;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 
 import org.battelle.clodhopper.AbstractClusterer;
@@ -18,6 +17,7 @@ import org.battelle.clodhopper.seeding.PreassignedSeeder;
 import org.battelle.clodhopper.task.ProgressHandler;
 import org.battelle.clodhopper.task.TaskAdapter;
 import org.battelle.clodhopper.task.TaskEvent;
+import org.battelle.clodhopper.task.TaskExecutors;
 import org.battelle.clodhopper.tuple.ArrayTupleList;
 import org.battelle.clodhopper.tuple.TupleList;
 import org.battelle.clodhopper.tuple.TupleMath;
@@ -117,7 +117,7 @@ public abstract class KMeansSplittingClusterer extends AbstractClusterer {
         try {
             
             if (numWorkerThreads > 1) {
-                threadPool = Executors.newFixedThreadPool(numWorkerThreads);
+                threadPool = TaskExecutors.newThreadPool(params.getExecutor(), numWorkerThreads);
             }
 
             int minClusters = Math.max(1, params.getMinClusters());
@@ -149,6 +149,7 @@ public abstract class KMeansSplittingClusterer extends AbstractClusterer {
                 	.maxIterations(Integer.MAX_VALUE)
                 	.movesGoal(0)
                 	.workerThreadCount(params.getWorkerThreadCount())
+                	.executor(params.getExecutor())
                 	.distanceMetric(params.getDistanceMetric())
                 	.clusterSeeder(seeder)
                 	.build();
@@ -260,6 +261,7 @@ public abstract class KMeansSplittingClusterer extends AbstractClusterer {
             	.maxIterations(Integer.MAX_VALUE)
             	.movesGoal(0)
             	.workerThreadCount(params.getWorkerThreadCount())
+            	.executor(params.getExecutor())
             	.distanceMetric(params.getDistanceMetric())
             	.clusterSeeder(new PreassignedSeeder(finalSeeds))
             	.build();
@@ -1,5 +1,7 @@
 package org.battelle.clodhopper.kmeans;
 
+import java.util.concurrent.ExecutorService;
+
 import org.battelle.clodhopper.distance.DistanceMetric;
 import org.battelle.clodhopper.distance.EuclideanDistanceMetric;
 import org.battelle.clodhopper.seeding.ClusterSeeder;
@@ -41,6 +43,7 @@ public class KMeansSplittingParams {
     private DistanceMetric distanceMetric = new EuclideanDistanceMetric();
     private ClusterSeeder clusterSeeder = new KMeansPlusPlusSeeder(new EuclideanDistanceMetric());
     private int workerThreadCount = Runtime.getRuntime().availableProcessors();
+    private ExecutorService executor;
 
     public KMeansSplittingParams() {
     }
@@ -140,6 +143,25 @@ public class KMeansSplittingParams {
         this.workerThreadCount = n;
     }
 
+    /**
+     * Get the executor on which the worker threads run.
+     *
+     * @return the executor, or null if none has been set.
+     */
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Set the executor on which the worker threads run, in place of a thread
+     * pool created for each run. See <code>TaskExecutors</code>.
+     *
+     * @param executor the executor, which may be null.
+     */
+    public void setExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+
     /**
      * Get the seeder used for seeding the initial clusters.
      * 
@@ -0,0 +1,138 @@
+package org.battelle.clodhopper.kmeans;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.battelle.clodhopper.Cluster;
+import org.battelle.clodhopper.distance.DistanceMetric;
+
+/*=====================================================================
+ * 
+ *                       CLODHOPPER CLUSTERING API
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Copyright (C) 2013 Battelle Memorial Institute 
+ * http://www.battelle.org
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ * 
+ * -------------------------------------------------------------------- 
+ * *
+ * KMeansSupport.java
+ *
+ *===================================================================*/
+/**
+ * Methods shared by the k-means clusterers that keep their centers in plain
+ * arrays and their cluster assignments in an int per tuple.
+ * 
+ * @author R. Scarberry
+ * @since 2.0.1
+ */
+final class KMeansSupport {
+
+    private KMeansSupport() {
+    }
+
+    /**
+     * Find the center nearest to a tuple. Ties go to the lower index, and if no
+     * distance compares lower than <code>Double.MAX_VALUE</code>, as when they are
+     * all NaN, the first center is returned.
+     * 
+     * @param tuple the tuple.
+     * @param centers the centers.
+     * @param distanceMetric the distance metric.
+     * @param distance if not null, the distance to the nearest center is stored in
+     *   its first element.
+     * 
+     * @return the index of the nearest center.
+     */
+    static int nearestCenter(final double[] tuple, final double[][] centers, 
+            final DistanceMetric distanceMetric, final double[] distance) {
+        int nearest = 0;
+        double min = Double.MAX_VALUE;
+        for (int c = 0; c < centers.length; c++) {
+            double d = distanceMetric.distance(tuple, centers[c]);
+            if (d < min) {
+                min = d;
+                nearest = c;
+            }
+        }
+        if (distance != null) {
+            distance[0] = min;
+        }
+        return nearest;
+    }
+
+    /**
+     * Make clusters from the cluster assignments of the tuples. Empty clusters
+     * are left out, as are tuples with negative assignments.
+     * 
+     * @param assignments the index of the center of each tuple.
+     * @param centers the centers, which are used in the clusters without copying.
+     * 
+     * @return the nonempty clusters, in the order of their centers.
+     */
+    static List<Cluster> clusters(final int[] assignments, final double[][] centers) {
+        return clusters(new int[][] { assignments }, new int[] { 0 }, centers);
+    }
+
+    /**
+     * Make clusters from cluster assignments held in several blocks, such as one
+     * per shard. The member indexes of the tuples of block b start at 
+     * <code>firstIndexes[b]</code>, and the members of each cluster come out 
+     * sorted when the blocks are given in order of their first indexes. Empty 
+     * clusters are left out, as are tuples with negative assignments.
+     * 
+     * @param assignments the blocks of assignments.
+     * @param firstIndexes the member index of the first tuple of each block.
+     * @param centers the centers, which are used in the clusters without copying.
+     * 
+     * @return the nonempty clusters, in the order of their centers.
+     */
+    static List<Cluster> clusters(final int[][] assignments, final int[] firstIndexes, 
+            final double[][] centers) {
+        final int clusterCount = centers.length;
+        final int[] sizes = new int[clusterCount];
+        for (int[] block : assignments) {
+            for (int c : block) {
+                if (c >= 0) {
+                    sizes[c]++;
+                }
+            }
+        }
+        final int[][] members = new int[clusterCount][];
+        for (int c = 0; c < clusterCount; c++) {
+            members[c] = new int[sizes[c]];
+            sizes[c] = 0;
+        }
+        for (int b = 0; b < assignments.length; b++) {
+            final int[] block = assignments[b];
+            final int firstIndex = firstIndexes[b];
+            for (int i = 0; i < block.length; i++) {
+                int c = block[i];
+                if (c >= 0) {
+                    members[c][sizes[c]++] = firstIndex + i;
+                }
+            }
+        }
+        List<Cluster> clusters = new ArrayList<>(clusterCount);
+        for (int c = 0; c < clusterCount; c++) {
+            if (members[c].length > 0) {
+                clusters.add(new Cluster(members[c], centers[c]));
+            }
+        }
+        return clusters;
+    }
+}
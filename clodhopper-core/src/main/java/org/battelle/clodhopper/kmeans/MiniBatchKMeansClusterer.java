@@ -0,0 +1,466 @@
+package org.battelle.clodhopper.kmeans;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+
+import org.battelle.clodhopper.AbstractClusterer;
+import org.battelle.clodhopper.Cluster;
+import org.battelle.clodhopper.distance.DistanceMetric;
+import org.battelle.clodhopper.task.ProgressHandler;
+import org.battelle.clodhopper.task.TaskExecutors;
+import org.battelle.clodhopper.tuple.FilteredTupleList;
+import org.battelle.clodhopper.tuple.TupleBlockReader;
+import org.battelle.clodhopper.tuple.TupleList;
+
+/*=====================================================================
+ * 
+ *                       CLODHOPPER CLUSTERING API
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Copyright (C) 2013 Battelle Memorial Institute 
+ * http://www.battelle.org
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ * 
+ * -------------------------------------------------------------------- 
+ * *
+ * MiniBatchKMeansClusterer.java
+ *
+ *===================================================================*/
+/**
+ * An implementation of mini-batch k-means, which updates the cluster centers 
+ * from small random samples of the tuples rather than from all of them. Each
+ * center has its own learning rate, the inverse of the number of tuples that
+ * have been used to update it so far, so the centers settle down as they 
+ * accumulate evidence. After the centers are updated, a single full pass over
+ * the tuples assigns each to its nearest center and computes the final centers
+ * as the means of the members.
+ * 
+ * <p>Since each iteration reads only one mini-batch, this is appropriate for data
+ * sets, such as those in very large file-mapped tuple lists, for which the full
+ * passes made in every iteration by <code>KMeansClusterer</code> are too costly. 
+ * The clusters are usually slightly worse than those of <code>KMeansClusterer</code>
+ * started from the same seeds.</p>
+ * 
+ * <p>See D. Sculley (2010): "Web-Scale K-Means Clustering", Proceedings of the 
+ * 19th International Conference on World Wide Web, 1177-1178.</p>
+ * 
+ * @author R. Scarberry
+ * @since 2.0.1
+ *
+ */
+public class MiniBatchKMeansClusterer extends AbstractClusterer {
+
+    // Stranded centers are checked for every this many mini-batches.
+    private static final int REASSIGNMENT_INTERVAL = 10;
+
+    private TupleList tuples;
+    private MiniBatchKMeansParams params;
+
+    // The cluster centers, updated by each mini-batch.
+    private double[][] centers;
+    // The number of tuples that have been used to update each center.
+    private long[] centerCounts;
+
+    // Non-null only when using multiple threads.
+    private ExecutorService threadPool;
+
+    /**
+     * Constructor
+     *
+     * @param tuples contains the data to be clustered.
+     * @param params contains the parameters.
+     */
+    public MiniBatchKMeansClusterer(final TupleList tuples, final MiniBatchKMeansParams params) {
+        if (tuples == null || params == null) {
+            throw new NullPointerException();
+        }
+        this.tuples = tuples;
+        this.params = params;
+    }
+
+    @Override
+    public String taskName() {
+        return "mini-batch k-means";
+    }
+
+    @Override
+    protected List<Cluster> doTask() throws Exception {
+
+        List<Cluster> clusters = null;
+
+        try {
+
+            final int tupleCount = tuples.getTupleCount();
+            final int tupleLength = tuples.getTupleLength();
+
+            if (tupleCount == 0) {
+                finishWithError("zero tuples");
+            }
+            if (params.getClusterCount() <= 0) {
+                finishWithError("requested cluster count must be greater than 0: " + params.getClusterCount());
+            }
+
+            final int maxIterations = params.getMaxIterations();
+            final int batchSize = params.getBatchSize();
+            final int workerCount = Math.max(1, Math.min(params.getWorkerThreadCount(), batchSize));
+
+            final ProgressHandler ph = new ProgressHandler(this, maxIterations + 2);
+            ph.postBegin();
+
+            final Random random = new Random(params.getRandomSeed());
+
+            initializeCenters(random);
+            final int clusterCount = centers.length;
+
+            ph.postMessage(String.format("%d initial cluster centers selected", clusterCount));
+            ph.postStep();
+
+            if (workerCount > 1) {
+                threadPool = TaskExecutors.newThreadPool(params.getExecutor(), workerCount);
+            }
+
+            final int[] batch = new int[batchSize];
+            final double[] batchValues = new double[batchSize * tupleLength];
+            final int[] batchAssignments = new int[batchSize];
+            final double[] buffer = new double[tupleLength];
+            final double[][] previousCenters = new double[clusterCount][tupleLength];
+            final DistanceMetric distanceMetric = params.getDistanceMetric().clone();
+
+            final List<BatchAssignmentWorker> batchWorkers = new ArrayList<>(workerCount);
+            for (int w = 0; w < workerCount; w++) {
+                batchWorkers.add(new BatchAssignmentWorker(batchValues, batchAssignments, 
+                        (int) ((long) w * batchSize / workerCount), 
+                        (int) ((long) (w + 1) * batchSize / workerCount)));
+            }
+
+            int iteration = 0;
+            while (iteration < maxIterations) {
+
+                checkForCancel();
+
+                // Sorting the indexes makes reads from file-mapped tuple lists more sequential.
+                for (int i = 0; i < batchSize; i++) {
+                    batch[i] = random.nextInt(tupleCount);
+                }
+                Arrays.sort(batch);
+                for (int i = 0; i < batchSize; i++) {
+                    tuples.getTuple(batch[i], buffer);
+                    System.arraycopy(buffer, 0, batchValues, i * tupleLength, tupleLength);
+                }
+
+                runWorkers(batchWorkers);
+
+                for (int c = 0; c < clusterCount; c++) {
+                    System.arraycopy(centers[c], 0, previousCenters[c], 0, tupleLength);
+                }
+
+                // Move each center toward its tuples with a rate that decreases as it accumulates them.
+                for (int i = 0, offset = 0; i < batchSize; i++, offset += tupleLength) {
+                    final int c = batchAssignments[i];
+                    final double[] center = centers[c];
+                    final double eta = 1.0 / ++centerCounts[c];
+                    for (int j = 0; j < tupleLength; j++) {
+                        center[j] += eta * (batchValues[offset + j] - center[j]);
+                    }
+                }
+
+                iteration++;
+
+                if (iteration % REASSIGNMENT_INTERVAL == 0 && iteration < maxIterations) {
+                    int reassigned = reassignStrandedCenters(batchValues, random);
+                    if (reassigned > 0) {
+                        ph.postMessage(String.format("iteration %d: %d stranded centers reassigned", 
+                                iteration, reassigned));
+                    }
+                }
+
+                double maxMove = 0.0;
+                for (int c = 0; c < clusterCount; c++) {
+                    maxMove = Math.max(maxMove, distanceMetric.distance(previousCenters[c], centers[c]));
+                }
+
+                ph.postStep();
+
+                if (maxMove <= params.getTolerance()) {
+                    ph.postMessage(String.format("centers converged after %d iterations", iteration));
+                    break;
+                }
+            }
+
+            ph.postMessage(String.format("centers updated from %d mini-batches, making final assignments", 
+                    iteration));
+
+            clusters = makeFinalAssignments(workerCount);
+
+            if (clusters.size() < clusterCount) {
+                ph.postMessage(String.format(
+                        "number of clusters was reduced to %d, because of %d clusters which were empty",
+                        clusters.size(), clusterCount - clusters.size()));
+            }
+
+            ph.postStep();
+            ph.postEnd();
+
+        } finally {
+
+            centers = null;
+            centerCounts = null;
+
+            if (threadPool != null) {
+                threadPool.shutdownNow();
+                threadPool = null;
+            }
+        }
+
+        return clusters;
+    }
+
+    /**
+     * Chooses the initial cluster centers by applying the cluster seeder to a 
+     * random sample of the tuples.
+     */
+    private void initializeCenters(Random random) {
+
+        final int tupleCount = tuples.getTupleCount();
+        final int sampleSize = (int) Math.min(tupleCount, 
+                Math.max(3L * params.getBatchSize(), 3L * params.getClusterCount()));
+
+        TupleList sample = tuples;
+        if (sampleSize < tupleCount) {
+            // Floyd's algorithm for sampling without replacement.
+            Set<Integer> chosen = new HashSet<>(2 * sampleSize);
+            for (int i = tupleCount - sampleSize; i < tupleCount; i++) {
+                int n = random.nextInt(i + 1);
+                chosen.add(chosen.contains(n) ? i : n);
+            }
+            int[] indexes = chosen.stream().mapToInt(Integer::intValue).sorted().toArray();
+            sample = new FilteredTupleList(indexes, tuples);
+        }
+
+        TupleList seeds = params.getClusterSeeder().generateSeeds(sample, 
+                Math.min(params.getClusterCount(), sampleSize));
+
+        final int seedCount = seeds.getTupleCount();
+        centers = new double[seedCount][];
+        for (int c = 0; c < seedCount; c++) {
+            centers[c] = seeds.getTuple(c, null);
+        }
+        centerCounts = new long[seedCount];
+    }
+
+    /**
+     * Moves centers that have been updated by too few tuples to randomly-chosen tuples
+     * in the current mini-batch.
+     * 
+     * @return the number of centers moved.
+     */
+    private int reassignStrandedCenters(double[] batchValues, Random random) {
+
+        final int clusterCount = centers.length;
+        final int tupleLength = tuples.getTupleLength();
+        final int batchSize = params.getBatchSize();
+
+        long maxCount = 0;
+        for (int c = 0; c < clusterCount; c++) {
+            maxCount = Math.max(maxCount, centerCounts[c]);
+        }
+        final double threshold = params.getReassignmentRatio() * maxCount;
+
+        // Reassigned centers get the smallest count of the others, so they are not
+        // immediately reassigned again but can still move quickly.
+        long minCount = Long.MAX_VALUE;
+        int reassigned = 0;
+        for (int c = 0; c < clusterCount; c++) {
+            if (centerCounts[c] < threshold) {
+                reassigned++;
+            } else {
+                minCount = Math.min(minCount, centerCounts[c]);
+            }
+        }
+
+        // Don't move more than half of the centers at once.
+        if (reassigned == 0 || reassigned > clusterCount / 2) {
+            return 0;
+        }
+
+        for (int c = 0; c < clusterCount; c++) {
+            if (centerCounts[c] < threshold) {
+                System.arraycopy(batchValues, random.nextInt(batchSize) * tupleLength, centers[c], 0, tupleLength);
+                centerCounts[c] = minCount;
+            }
+        }
+
+        return reassigned;
+    }
+
+    /**
+     * Assigns every tuple to the nearest center and produces the clusters, whose
+     * centers are the means of their members.
+     */
+    private List<Cluster> makeFinalAssignments(int workerCount) throws Exception {
+
+        final int tupleCount = tuples.getTupleCount();
+        final int tupleLength = tuples.getTupleLength();
+        final int clusterCount = centers.length;
+        final int[] assignments = new int[tupleCount];
+
+        workerCount = Math.min(workerCount, tupleCount);
+        final List<FinalAssignmentWorker> workers = new ArrayList<>(workerCount);
+        for (int w = 0; w < workerCount; w++) {
+            workers.add(new FinalAssignmentWorker(assignments, 
+                    (int) ((long) w * tupleCount / workerCount), 
+                    (int) ((long) (w + 1) * tupleCount / workerCount)));
+        }
+
+        runWorkers(workers);
+
+        // Merge the sums and counts of the workers.
+        final double[][] sums = new double[clusterCount][tupleLength];
+        final int[] counts = new int[clusterCount];
+        for (FinalAssignmentWorker worker : workers) {
+            for (int c = 0; c < clusterCount; c++) {
+                counts[c] += worker.counts[c];
+                for (int j = 0; j < tupleLength; j++) {
+                    sums[c][j] += worker.sums[c][j];
+                }
+            }
+        }
+
+        for (int c = 0; c < clusterCount; c++) {
+            if (counts[c] > 0) {
+                double[] center = sums[c];
+                for (int j = 0; j < tupleLength; j++) {
+                    center[j] /= counts[c];
+                }
+            }
+        }
+
+        return KMeansSupport.clusters(assignments, sums);
+    }
+
+    // Runs the workers on the thread pool, or directly if there is only one.
+    private void runWorkers(List<? extends Callable<Void>> workers) throws Exception {
+        if (threadPool != null && workers.size() > 1) {
+            threadPool.invokeAll(workers);
+        } else {
+            for (Callable<Void> worker : workers) {
+                worker.call();
+            }
+        }
+        // Cancellation in a worker is detected here.
+        checkForCancel();
+    }
+
+    // Returns the index of the center nearest to a tuple.
+    private int nearestCenter(double[] tuple, DistanceMetric distanceMetric) {
+        return KMeansSupport.nearestCenter(tuple, centers, distanceMetric, null);
+    }
+
+    /**
+     * The worker class that finds the nearest centers for a range of the tuples
+     * in a mini-batch.
+     */
+    private class BatchAssignmentWorker implements Callable<Void> {
+
+        private final double[] batchValues;
+        private final int[] batchAssignments;
+        private final int start, end;
+        private final double[] buffer;
+        private final DistanceMetric distanceMetric;
+
+        private BatchAssignmentWorker(double[] batchValues, int[] batchAssignments, int start, int end) {
+            this.batchValues = batchValues;
+            this.batchAssignments = batchAssignments;
+            this.start = start;
+            this.end = end;
+            this.buffer = new double[tuples.getTupleLength()];
+            this.distanceMetric = params.getDistanceMetric().clone();
+        }
+
+        @Override
+        public Void call() throws Exception {
+            try {
+                final int tupleLength = buffer.length;
+                for (int i = start; i < end; i++) {
+                    checkForCancel();
+                    System.arraycopy(batchValues, i * tupleLength, buffer, 0, tupleLength);
+                    batchAssignments[i] = nearestCenter(buffer, distanceMetric);
+                }
+            } catch (CancellationException e) {
+                // Will be detected by the main execution thread.
+            }
+            return null;
+        }
+    }
+
+    /**
+     * The worker class that assigns a range of tuples to their nearest centers, 
+     * summing the members of each cluster as it goes.
+     */
+    private class FinalAssignmentWorker implements Callable<Void> {
+
+        private final int[] assignments;
+        private final int startTuple, endTuple;
+        private final double[][] sums;
+        private final int[] counts;
+        private final DistanceMetric distanceMetric;
+
+        private FinalAssignmentWorker(int[] assignments, int startTuple, int endTuple) {
+            this.assignments = assignments;
+            this.startTuple = startTuple;
+            this.endTuple = endTuple;
+            this.sums = new double[centers.length][tuples.getTupleLength()];
+            this.counts = new int[centers.length];
+            this.distanceMetric = params.getDistanceMetric().clone();
+        }
+
+        @Override
+        public Void call() throws Exception {
+            try {
+                final int tupleLength = tuples.getTupleLength();
+                final int tuplesPerBlock = Math.max(1, TupleBlockReader.DEFAULT_BLOCK_SIZE / Math.max(1, tupleLength));
+                final double[] block = new double[Math.min(tuplesPerBlock, endTuple - startTuple) * tupleLength];
+                final double[] buffer = new double[tupleLength];
+                for (int blockStart = startTuple; blockStart < endTuple; blockStart += tuplesPerBlock) {
+                    checkForCancel();
+                    final int blockEnd = Math.min(endTuple, blockStart + tuplesPerBlock);
+                    tuples.getTuples(blockStart, blockEnd - blockStart, block, 0);
+                    for (int i = blockStart, offset = 0; i < blockEnd; i++, offset += tupleLength) {
+                        System.arraycopy(block, offset, buffer, 0, tupleLength);
+                        int c = nearestCenter(buffer, distanceMetric);
+                        assignments[i] = c;
+                        counts[c]++;
+                        double[] sum = sums[c];
+                        for (int j = 0; j < tupleLength; j++) {
+                            sum[j] += buffer[j];
+                        }
+                    }
+                }
+            } catch (CancellationException e) {
+                // Will be detected by the main execution thread.
+            }
+            return null;
+        }
+    }
+}
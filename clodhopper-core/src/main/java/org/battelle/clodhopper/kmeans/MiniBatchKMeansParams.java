@@ -0,0 +1,371 @@
+package org.battelle.clodhopper.kmeans;
+
+import java.util.concurrent.ExecutorService;
+
+import org.battelle.clodhopper.distance.DistanceMetric;
+import org.battelle.clodhopper.distance.EuclideanDistanceMetric;
+import org.battelle.clodhopper.seeding.ClusterSeeder;
+import org.battelle.clodhopper.seeding.KMeansPlusPlusSeeder;
+
+/*=====================================================================
+ * 
+ *                       CLODHOPPER CLUSTERING API
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Copyright (C) 2013 Battelle Memorial Institute 
+ * http://www.battelle.org
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ * 
+ * -------------------------------------------------------------------- 
+ * *
+ * MiniBatchKMeansParams.java
+ *
+ *===================================================================*/
+/**
+ * The parameter class for mini-batch k-means clustering.
+ *
+ * @author R. Scarberry
+ * @since 2.0.1
+ *
+ */
+public class MiniBatchKMeansParams {
+
+    public static final int DEFAULT_BATCH_SIZE = 1024;
+    public static final int DEFAULT_MAX_ITERATIONS = 100;
+    public static final double DEFAULT_REASSIGNMENT_RATIO = 0.01;
+
+    private int clusterCount;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private int maxIterations = DEFAULT_MAX_ITERATIONS;
+    private double reassignmentRatio = DEFAULT_REASSIGNMENT_RATIO;
+    private double tolerance;
+    private long randomSeed = System.nanoTime();
+
+    private DistanceMetric distanceMetric;
+    private ClusterSeeder clusterSeeder;
+    private int workerThreadCount = Runtime.getRuntime().availableProcessors();
+    private ExecutorService executor;
+
+    /**
+     * Constructor
+     */
+    public MiniBatchKMeansParams() {
+        distanceMetric = new EuclideanDistanceMetric();
+        clusterSeeder = new KMeansPlusPlusSeeder(distanceMetric);
+    }
+
+    /**
+     * Get the number of requested clusters.
+     *
+     * @return the number of clusters requested.
+     */
+    public int getClusterCount() {
+        return clusterCount;
+    }
+
+    /**
+     * Set the number of requested clusters.
+     *
+     * @param n the number desired
+     *
+     * @throws IllegalArgumentException if n is not a positive integer.
+     */
+    public void setClusterCount(final int n) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("cluster count must be greater than 0");
+        }
+        this.clusterCount = n;
+    }
+
+    /**
+     * Get the number of tuples randomly drawn for each mini-batch.
+     *
+     * @return the batch size.
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Set the number of tuples randomly drawn for each mini-batch.
+     *
+     * @param n the batch size.
+     *
+     * @throws IllegalArgumentException if n is not a positive integer.
+     */
+    public void setBatchSize(final int n) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("batch size must be greater than 0");
+        }
+        this.batchSize = n;
+    }
+
+    /**
+     * Get the maximum number of mini-batches used to update the centers.
+     *
+     * @return the maximum number of iterations.
+     */
+    public int getMaxIterations() {
+        return maxIterations;
+    }
+
+    /**
+     * Set the maximum number of mini-batches used to update the centers.
+     *
+     * @param n the maximum number of iterations.
+     *
+     * @throws IllegalArgumentException if n is not a positive integer.
+     */
+    public void setMaxIterations(final int n) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("max iterations must be greater than 0");
+        }
+        this.maxIterations = n;
+    }
+
+    /**
+     * Get the reassignment ratio. Periodically, the centers that have been
+     * updated fewer times than this fraction of the most-updated center's count
+     * are moved to randomly-chosen tuples from the current mini-batch, so centers
+     * stranded far from the data are put back to use. A value of 0 disables
+     * reassignment.
+     *
+     * @return the reassignment ratio.
+     */
+    public double getReassignmentRatio() {
+        return reassignmentRatio;
+    }
+
+    /**
+     * Set the reassignment ratio.
+     *
+     * @param ratio a value in [0, 1].
+     *
+     * @throws IllegalArgumentException if not in [0, 1].
+     */
+    public void setReassignmentRatio(final double ratio) {
+        if (!(ratio >= 0.0 && ratio <= 1.0)) {
+            throw new IllegalArgumentException("reassignment ratio not in [0, 1]: " + ratio);
+        }
+        this.reassignmentRatio = ratio;
+    }
+
+    /**
+     * Get the convergence tolerance. Updating of the centers stops early
+     * when no center moves farther than this distance during a mini-batch. The
+     * default of 0 means that all <code>maxIterations</code> mini-batches are used.
+     *
+     * @return the tolerance.
+     */
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    /**
+     * Set the convergence tolerance.
+     *
+     * @param tolerance the tolerance.
+     *
+     * @throws IllegalArgumentException if negative.
+     */
+    public void setTolerance(final double tolerance) {
+        if (!(tolerance >= 0.0)) {
+            throw new IllegalArgumentException("tolerance < 0.0: " + tolerance);
+        }
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * Get the seed for the random generator used to draw the mini-batches.
+     *
+     * @return the random seed.
+     */
+    public long getRandomSeed() {
+        return randomSeed;
+    }
+
+    /**
+     * Set the seed for the random generator used to draw the mini-batches.
+     *
+     * @param seed the random seed.
+     */
+    public void setRandomSeed(final long seed) {
+        this.randomSeed = seed;
+    }
+
+    /**
+     * Get the number of worker threads to be used for concurrent subtasks.
+     *
+     * @return the number of worker threads to use for concurrent subtasks.
+     */
+    public int getWorkerThreadCount() {
+        return workerThreadCount;
+    }
+
+    /**
+     * Set the number of worker threads to be used for concurrent subtasks.
+     *
+     * @param n the number of worker threads to use.
+     *
+     * @throws IllegalArgumentException if less than 1
+     */
+    public void setWorkerThreadCount(final int n) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("worker thread count must be greater than 0");
+        }
+        this.workerThreadCount = n;
+    }
+
+    /**
+     * Get the distance metric to be used during clustering.
+     *
+     * @return the <code>DistanceMetric</code>.
+     */
+    public DistanceMetric getDistanceMetric() {
+        return distanceMetric;
+    }
+
+    /**
+     * Set the distance metric to be used during clustering.
+     *
+     * @param distanceMetric a <code>DistanceMetric</code> instance.
+     *
+     * @throws NullPointerException if null
+     */
+    public void setDistanceMetric(final DistanceMetric distanceMetric) {
+        if (distanceMetric == null) {
+            throw new NullPointerException();
+        }
+        this.distanceMetric = distanceMetric;
+    }
+
+    /**
+     * Get the object used to pick the initial cluster seeds. The seeder is
+     * applied to a random sample of the tuples, not to all of them.
+     *
+     * @return the cluster seeder.
+     */
+    public ClusterSeeder getClusterSeeder() {
+        return clusterSeeder;
+    }
+
+    /**
+     * Set the object used to pick the initial cluster seeds.
+     *
+     * @param seeder an instance of <code>ClusterSeeder</code>.
+     *
+     * @throws NullPointerException if null
+     */
+    public void setClusterSeeder(final ClusterSeeder seeder) {
+        if (seeder == null) {
+            throw new NullPointerException();
+        }
+        this.clusterSeeder = seeder;
+    }
+
+    /**
+     * Get the executor on which the worker threads run.
+     *
+     * @return the executor, or null if none has been set.
+     */
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Set the executor on which the worker threads run, in place of a thread
+     * pool created for each run. See <code>TaskExecutors</code>.
+     *
+     * @param executor the executor, which may be null.
+     */
+    public void setExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * A builder class used for convenience in creating a MiniBatchKMeansParams
+     * object. Each method returns a reference to the builder, so calls can be
+     * chained.
+     *
+     * @author R. Scarberry
+     * @since 2.0.1
+     *
+     */
+    public static class Builder {
+
+        private MiniBatchKMeansParams params;
+
+        public Builder() {
+            params = new MiniBatchKMeansParams();
+        }
+
+        public Builder clusterCount(int clusterCount) {
+            params.setClusterCount(clusterCount);
+            return this;
+        }
+
+        public Builder batchSize(int batchSize) {
+            params.setBatchSize(batchSize);
+            return this;
+        }
+
+        public Builder maxIterations(int maxIterations) {
+            params.setMaxIterations(maxIterations);
+            return this;
+        }
+
+        public Builder reassignmentRatio(double ratio) {
+            params.setReassignmentRatio(ratio);
+            return this;
+        }
+
+        public Builder tolerance(double tolerance) {
+            params.setTolerance(tolerance);
+            return this;
+        }
+
+        public Builder randomSeed(long seed) {
+            params.setRandomSeed(seed);
+            return this;
+        }
+
+        public Builder distanceMetric(DistanceMetric distanceMetric) {
+            params.setDistanceMetric(distanceMetric);
+            return this;
+        }
+
+        public Builder clusterSeeder(ClusterSeeder seeder) {
+            params.setClusterSeeder(seeder);
+            return this;
+        }
+
+        public Builder workerThreadCount(int workerThreadCount) {
+            params.setWorkerThreadCount(workerThreadCount);
+            return this;
+        }
+
+        public Builder executor(ExecutorService executor) {
+            params.setExecutor(executor);
+            return this;
+        }
+
+        public MiniBatchKMeansParams build() {
+            return params;
+        }
+    }
+
+}
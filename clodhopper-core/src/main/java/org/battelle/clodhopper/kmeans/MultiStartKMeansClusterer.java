@@ -0,0 +1,636 @@
+package org.battelle.clodhopper.kmeans;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+
+import org.battelle.clodhopper.AbstractClusterer;
+import org.battelle.clodhopper.Cluster;
+import org.battelle.clodhopper.distance.DistanceMetric;
+import org.battelle.clodhopper.distance.EuclideanDistanceMetric;
+import org.battelle.clodhopper.seeding.ClusterSeeder;
+import org.battelle.clodhopper.seeding.RandomClusterSeeder;
+import org.battelle.clodhopper.task.ProgressHandler;
+import org.battelle.clodhopper.task.TaskExecutors;
+import org.battelle.clodhopper.tuple.TupleBlockReader;
+import org.battelle.clodhopper.tuple.TupleList;
+
+/*=====================================================================
+ * 
+ *                       CLODHOPPER CLUSTERING API
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Copyright (C) 2013 Battelle Memorial Institute 
+ * http://www.battelle.org
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ * 
+ * -------------------------------------------------------------------- 
+ * *
+ * MultiStartKMeansClusterer.java
+ *
+ *===================================================================*/
+/**
+ * Runs k-means several times from different random seeds and returns the 
+ * clusters with the lowest inertia. With a <code>EuclideanDistanceMetric</code>, 
+ * the inertia is the within-cluster sum of squared errors. With any other metric,
+ * for which the squared distances are not an SSE, it is the sum of the distances 
+ * from the tuples to their nearest centers. The restarts advance together: each 
+ * iteration makes one pass over the tuples, divided among the worker threads of a
+ * single pool, and every tuple read is assigned for all the restarts still running. 
+ * 
+ * <p>By default every restart runs until it converges or reaches the iteration
+ * limit, so the result is the best of all the restarts. Early stopping may be 
+ * turned on to save time, but it is a heuristic, not a bound: when a restart's 
+ * inertia has been decreasing by a shrinking amount each iteration, the rest of 
+ * its decrease is estimated by extrapolating geometrically, and the restart is 
+ * stopped if its inertia minus that estimate, multiplied by the early stopping 
+ * margin, is still greater than the lowest inertia of any restart. Since the 
+ * decreases need not shrink geometrically, a stopped restart might have gone on
+ * to win, so the result can be worse than that of running every restart.</p>
+ * 
+ * <p>The restarts differ only in the random generator seed given to the cluster 
+ * seeder, which must therefore be a <code>RandomClusterSeeder</code>; restart i 
+ * uses the seeder's seed plus i. Otherwise, only one run is made. The 
+ * <code>clusterCount</code>, <code>maxIterations</code>, <code>movesGoal</code>, 
+ * <code>workerThreadCount</code>, and <code>distanceMetric</code> of the 
+ * parameters apply to every restart. Unlike <code>KMeansClusterer</code>, empty 
+ * clusters are not replaced. The cluster assignments of every restart are kept,
+ * which takes one int per tuple per restart.</p>
+ * 
+ * @author R. Scarberry
+ * @since 2.0.1
+ *
+ */
+public class MultiStartKMeansClusterer extends AbstractClusterer {
+
+    /**
+     * The default number of iterations a restart runs before it may be stopped early.
+     */
+    public static final int DEFAULT_EARLY_STOPPING_MIN_ITERATIONS = 5;
+    
+    /**
+     * The default factor by which the extrapolated decrease in inertia is multiplied
+     * when early stopping, since k-means often speeds up again after a slow stretch.
+     */
+    public static final double DEFAULT_EARLY_STOPPING_MARGIN = 2.0;
+
+    private TupleList tuples;
+    private KMeansParams params;
+    private int restartCount;
+    
+    private boolean earlyStopping;
+    private int earlyStoppingMinIterations = DEFAULT_EARLY_STOPPING_MIN_ITERATIONS;
+    private double earlyStoppingMargin = DEFAULT_EARLY_STOPPING_MARGIN;
+
+    private List<Restart> restarts;
+    private List<RestartStatistics> restartStatistics;
+    private int bestRestart = -1;
+
+    // Non-null only when using multiple threads.
+    private ExecutorService threadPool;
+
+    /**
+     * Constructor
+     * 
+     * @param tuples contains the data to be clustered.
+     * @param params the parameters for each restart.
+     * @param restartCount the number of restarts.
+     * 
+     * @throws IllegalArgumentException if restartCount is not positive.
+     */
+    public MultiStartKMeansClusterer(TupleList tuples, KMeansParams params, int restartCount) {
+        this(tuples, params, restartCount, false);
+    }
+
+    /**
+     * Constructor
+     * 
+     * @param tuples contains the data to be clustered.
+     * @param params the parameters for each restart.
+     * @param restartCount the number of restarts.
+     * @param earlyStopping whether restarts that appear to be losing are stopped
+     *   early, which is a heuristic that may discard the eventual winner.
+     * 
+     * @throws IllegalArgumentException if restartCount is not positive.
+     */
+    public MultiStartKMeansClusterer(TupleList tuples, KMeansParams params, int restartCount,
+            boolean earlyStopping) {
+        if (tuples == null || params == null) {
+            throw new NullPointerException();
+        }
+        if (restartCount <= 0) {
+            throw new IllegalArgumentException("restart count must be greater than 0");
+        }
+        this.tuples = tuples;
+        this.params = params;
+        this.restartCount = restartCount;
+        this.earlyStopping = earlyStopping;
+    }
+
+    /**
+     * Returns whether restarts that appear to be losing are stopped early.
+     * 
+     * @return true if early stopping is on.
+     */
+    public boolean getEarlyStopping() {
+        return earlyStopping;
+    }
+
+    /**
+     * Set whether restarts that appear to be losing are stopped early. Off by default.
+     * 
+     * @param earlyStopping true to turn early stopping on.
+     */
+    public void setEarlyStopping(boolean earlyStopping) {
+        this.earlyStopping = earlyStopping;
+    }
+
+    /**
+     * Get the number of iterations a restart runs before it may be stopped early.
+     * 
+     * @return the number of iterations.
+     */
+    public int getEarlyStoppingMinIterations() {
+        return earlyStoppingMinIterations;
+    }
+
+    /**
+     * Set the number of iterations a restart runs before it may be stopped early.
+     * 
+     * @param n the number of iterations, which must be at least 2, since the 
+     *   estimate needs two decreases in inertia.
+     *   
+     * @throws IllegalArgumentException if n is less than 2.
+     */
+    public void setEarlyStoppingMinIterations(int n) {
+        if (n < 2) {
+            throw new IllegalArgumentException("early stopping min iterations must be at least 2");
+        }
+        this.earlyStoppingMinIterations = n;
+    }
+
+    /**
+     * Get the factor by which the extrapolated decrease in inertia is multiplied
+     * when deciding whether to stop a restart early.
+     * 
+     * @return the margin.
+     */
+    public double getEarlyStoppingMargin() {
+        return earlyStoppingMargin;
+    }
+
+    /**
+     * Set the factor by which the extrapolated decrease in inertia is multiplied 
+     * when deciding whether to stop a restart early. Larger margins stop fewer 
+     * restarts.
+     * 
+     * @param margin the margin, which must be at least 1.
+     * 
+     * @throws IllegalArgumentException if margin is less than 1 or NaN.
+     */
+    public void setEarlyStoppingMargin(double margin) {
+        if (!(margin >= 1.0)) {
+            throw new IllegalArgumentException("early stopping margin must be at least 1: " + margin);
+        }
+        this.earlyStoppingMargin = margin;
+    }
+
+    @Override
+    public String taskName() {
+        return "multi-start k-means";
+    }
+
+    /**
+     * Get statistics for each of the restarts, once clustering has finished.
+     * 
+     * @return the statistics, or null if clustering has not finished successfully.
+     */
+    public List<RestartStatistics> getRestartStatistics() {
+        return restartStatistics;
+    }
+
+    /**
+     * Get the index of the restart whose clusters were returned.
+     * 
+     * @return the index, or -1 if clustering has not finished successfully.
+     */
+    public int getBestRestart() {
+        return bestRestart;
+    }
+
+    @Override
+    protected List<Cluster> doTask() throws Exception {
+
+        List<Cluster> clusters = null;
+
+        try {
+
+            final int tupleCount = tuples.getTupleCount();
+            if (tupleCount == 0) {
+                finishWithError("zero tuples");
+            }
+            if (params.getClusterCount() <= 0) {
+                finishWithError("requested cluster count must be greater than 0: " + params.getClusterCount());
+            }
+
+            final int maxIterations = params.getMaxIterations();
+            if (maxIterations <= 0) {
+                finishWithError("max iterations must be greater than 0: " + maxIterations);
+            }
+            final ProgressHandler ph = new ProgressHandler(this, restartCount + Math.min(maxIterations, 1000));
+            ph.postBegin();
+
+            ClusterSeeder seeder = params.getClusterSeeder();
+            int runs = restartCount;
+            if (!(seeder instanceof RandomClusterSeeder) && runs > 1) {
+                ph.postMessage("the cluster seeder is not random, so only one run will be made");
+                runs = 1;
+            }
+
+            restarts = new ArrayList<>(runs);
+            if (seeder instanceof RandomClusterSeeder) {
+                // Seed each restart from its own copy of the seeder, since the caller's
+                // seeder may be shared with other clusterers on the same executor.
+                final long baseSeed = ((RandomClusterSeeder) seeder).getRandomGeneratorSeed();
+                for (int r = 0; r < runs; r++) {
+                    checkForCancel();
+                    ClusterSeeder restartSeeder = ((RandomClusterSeeder) seeder).withRandomGeneratorSeed(baseSeed + r);
+                    restarts.add(new Restart(baseSeed + r, restartSeeder.generateSeeds(tuples, params.getClusterCount())));
+                    ph.postStep();
+                }
+            } else {
+                restarts.add(new Restart(0L, seeder.generateSeeds(tuples, params.getClusterCount())));
+                ph.postStep();
+            }
+
+            final int workerCount = Math.max(1, Math.min(params.getWorkerThreadCount(), tupleCount));
+            if (workerCount > 1) {
+                threadPool = TaskExecutors.newThreadPool(params.getExecutor(), workerCount);
+            }
+
+            final List<AssignmentWorker> workers = new ArrayList<>(workerCount);
+            for (int w = 0; w < workerCount; w++) {
+                workers.add(new AssignmentWorker((int) ((long) w * tupleCount / workerCount), 
+                        (int) ((long) (w + 1) * tupleCount / workerCount)));
+            }
+
+            int iteration = 0;
+            int running = restarts.size();
+
+            while (running > 0 && iteration < maxIterations) {
+
+                runWorkers(workers);
+                iteration++;
+
+                double lowestInertia = Double.MAX_VALUE;
+                for (int r = 0; r < restarts.size(); r++) {
+                    Restart restart = restarts.get(r);
+                    if (restart.status == null) {
+                        restart.update(workers, r);
+                    }
+                    if (restart.status != RestartStatistics.Status.STOPPED) {
+                        lowestInertia = Math.min(lowestInertia, restart.inertia);
+                    }
+                }
+
+                running = 0;
+                for (Restart restart : restarts) {
+                    if (restart.status == null) {
+                        if (restart.moves <= params.getMovesGoal()) {
+                            restart.status = RestartStatistics.Status.CONVERGED;
+                        } else if (earlyStopping && restart.isLosing(lowestInertia)) {
+                            restart.status = RestartStatistics.Status.STOPPED;
+                            // Its assignments will not be needed.
+                            restart.assignments = null;
+                        } else {
+                            running++;
+                        }
+                    }
+                }
+
+                ph.postMessage(String.format("iteration %d: %d restarts still running, lowest inertia %f", 
+                        iteration, running, lowestInertia));
+                if (iteration <= 1000) {
+                    ph.postStep();
+                }
+            }
+
+            restartStatistics = new ArrayList<>(restarts.size());
+            double lowestInertia = Double.MAX_VALUE;
+            int best = -1;
+            for (int r = 0; r < restarts.size(); r++) {
+                Restart restart = restarts.get(r);
+                if (restart.status == null) {
+                    restart.status = RestartStatistics.Status.ITERATION_LIMIT;
+                }
+                if (restart.status != RestartStatistics.Status.STOPPED && restart.inertia < lowestInertia) {
+                    lowestInertia = restart.inertia;
+                    best = r;
+                }
+                restartStatistics.add(new RestartStatistics(restart.seed, restart.iterations, restart.inertia,
+                        restart.status));
+            }
+            restartStatistics = Collections.unmodifiableList(restartStatistics);
+
+            if (best < 0) {
+                // No inertia compared lower, which happens when they are all NaN or infinite.
+                // Fall back to the first restart that was not stopped.
+                for (int r = 0; r < restarts.size() && best < 0; r++) {
+                    if (restarts.get(r).status != RestartStatistics.Status.STOPPED) {
+                        best = r;
+                        lowestInertia = restarts.get(r).inertia;
+                    }
+                }
+                if (best < 0) {
+                    finishWithError("no restart produced a usable clustering");
+                }
+            }
+
+            ph.postMessage(String.format("restart %d has the lowest inertia, %f", best, lowestInertia));
+
+            clusters = restarts.get(best).clusters();
+            bestRestart = best;
+
+            ph.postEnd();
+
+        } finally {
+
+            restarts = null;
+
+            if (threadPool != null) {
+                threadPool.shutdownNow();
+                threadPool = null;
+            }
+        }
+
+        return clusters;
+    }
+
+    // Runs the workers on the thread pool, or directly if there is only one.
+    private void runWorkers(List<? extends Callable<Void>> workers) throws Exception {
+        if (threadPool != null) {
+            threadPool.invokeAll(workers);
+        } else {
+            for (Callable<Void> worker : workers) {
+                worker.call();
+            }
+        }
+        // Cancellation in a worker is detected here.
+        checkForCancel();
+    }
+
+    /**
+     * The state of one run of k-means.
+     */
+    private class Restart {
+
+        private final long seed;
+        private final double[][] centers;
+        private int[] assignments;
+        private int iterations;
+        private int moves;
+        private double inertia = Double.MAX_VALUE;
+        // The decreases in inertia in the last two iterations.
+        private double lastDecrease = Double.NaN;
+        private double decreaseBeforeLast = Double.NaN;
+        // Null while running.
+        private RestartStatistics.Status status;
+
+        private Restart(long seed, TupleList seeds) {
+            this.seed = seed;
+            this.centers = new double[seeds.getTupleCount()][];
+            for (int c = 0; c < centers.length; c++) {
+                centers[c] = seeds.getTuple(c, null);
+            }
+            this.assignments = new int[tuples.getTupleCount()];
+            Arrays.fill(assignments, -1);
+        }
+
+        // Merges the results of the workers' pass for this restart and recomputes the centers.
+        private void update(List<AssignmentWorker> workers, int r) {
+            final int tupleLength = tuples.getTupleLength();
+            double newInertia = 0.0;
+            int newMoves = 0;
+            for (AssignmentWorker worker : workers) {
+                newInertia += worker.inertias[r];
+                newMoves += worker.moves[r];
+            }
+            for (int c = 0; c < centers.length; c++) {
+                int count = 0;
+                double[] sums = new double[tupleLength];
+                final int offset = c * tupleLength;
+                for (AssignmentWorker worker : workers) {
+                    count += worker.counts[r][c];
+                    final double[] workerSums = worker.sums[r];
+                    for (int j = 0; j < tupleLength; j++) {
+                        sums[j] += workerSums[offset + j];
+                    }
+                }
+                // Empty clusters keep their centers.
+                if (count > 0) {
+                    for (int j = 0; j < tupleLength; j++) {
+                        sums[j] /= count;
+                    }
+                    centers[c] = sums;
+                }
+            }
+            if (iterations > 0) {
+                decreaseBeforeLast = lastDecrease;
+                lastDecrease = inertia - newInertia;
+            }
+            inertia = newInertia;
+            moves = newMoves;
+            iterations++;
+        }
+
+        // Whether the restart is not expected to beat the lowest inertia. A heuristic, 
+        // since it assumes the decreases in inertia shrink geometrically.
+        private boolean isLosing(double lowestInertia) {
+            if (iterations < earlyStoppingMinIterations || inertia <= lowestInertia) {
+                return false;
+            }
+            if (!(decreaseBeforeLast > 0.0 && lastDecrease < decreaseBeforeLast)) {
+                // The decrease is not shrinking, so there is nothing to extrapolate from.
+                return false;
+            }
+            final double ratio = Math.max(0.0, lastDecrease) / decreaseBeforeLast;
+            final double remainingDecrease = lastDecrease * ratio / (1.0 - ratio);
+            return inertia - earlyStoppingMargin * remainingDecrease > lowestInertia;
+        }
+
+        // Makes the clusters from the final assignments.
+        private List<Cluster> clusters() {
+            return KMeansSupport.clusters(assignments, centers);
+        }
+    }
+
+    /**
+     * The worker class that assigns a range of tuples for every running restart,
+     * reading the tuples only once.
+     */
+    private class AssignmentWorker implements Callable<Void> {
+
+        private final int startTuple, endTuple;
+        private final DistanceMetric distanceMetric;
+        // Whether the inertia sums squared distances, which it does only for the
+        // Euclidean metric, where that is the SSE.
+        private final boolean squared;
+        // For each restart, the member counts, the sums of the members' values, 
+        // clusterIndex * tupleLength + column, the inertia, and the number of moves.
+        private final int[][] counts;
+        private final double[][] sums;
+        private final double[] inertias;
+        private final int[] moves;
+
+        private AssignmentWorker(int startTuple, int endTuple) {
+            this.startTuple = startTuple;
+            this.endTuple = endTuple;
+            this.distanceMetric = params.getDistanceMetric().clone();
+            this.squared = distanceMetric instanceof EuclideanDistanceMetric;
+            final int restartCount = restarts.size();
+            this.counts = new int[restartCount][];
+            this.sums = new double[restartCount][];
+            for (int r = 0; r < restartCount; r++) {
+                final int clusterCount = restarts.get(r).centers.length;
+                counts[r] = new int[clusterCount];
+                sums[r] = new double[clusterCount * tuples.getTupleLength()];
+            }
+            this.inertias = new double[restartCount];
+            this.moves = new int[restartCount];
+        }
+
+        @Override
+        public Void call() throws Exception {
+            try {
+                final int tupleLength = tuples.getTupleLength();
+                final int restartCount = restarts.size();
+                for (int r = 0; r < restartCount; r++) {
+                    Arrays.fill(counts[r], 0);
+                    Arrays.fill(sums[r], 0.0);
+                }
+                Arrays.fill(inertias, 0.0);
+                Arrays.fill(moves, 0);
+
+                TupleBlockReader reader = new TupleBlockReader(tuples, startTuple, endTuple);
+                final double[] tuple = new double[tupleLength];
+                final double[] distance = new double[1];
+                while (reader.hasNext()) {
+                    final int i = reader.nextIndex();
+                    reader.next(tuple);
+                    if ((i & 0xfff) == 0) {
+                        checkForCancel();
+                    }
+                    for (int r = 0; r < restartCount; r++) {
+                        Restart restart = restarts.get(r);
+                        if (restart.status != null) {
+                            continue;
+                        }
+                        final int nearest = KMeansSupport.nearestCenter(tuple, restart.centers, 
+                                distanceMetric, distance);
+                        final double min = distance[0];
+                        if (restart.assignments[i] != nearest) {
+                            restart.assignments[i] = nearest;
+                            moves[r]++;
+                        }
+                        counts[r][nearest]++;
+                        inertias[r] += squared ? min * min : min;
+                        final double[] restartSums = sums[r];
+                        final int offset = nearest * tupleLength;
+                        for (int j = 0; j < tupleLength; j++) {
+                            restartSums[offset + j] += tuple[j];
+                        }
+                    }
+                }
+            } catch (CancellationException e) {
+                // Will be detected by the main execution thread.
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Statistics for one of the restarts of a <code>MultiStartKMeansClusterer</code>.
+     */
+    public static class RestartStatistics {
+
+        /**
+         * How a restart ended.
+         */
+        public enum Status {
+            /** The number of moves fell to the moves goal. */
+            CONVERGED,
+            /** The maximum number of iterations was reached. */
+            ITERATION_LIMIT,
+            /** Stopped early, since it was not expected to have the lowest inertia. Only with early stopping on. */
+            STOPPED
+        }
+
+        private final long seed;
+        private final int iterations;
+        private final double inertia;
+        private final Status status;
+
+        private RestartStatistics(long seed, int iterations, double inertia, Status status) {
+            this.seed = seed;
+            this.iterations = iterations;
+            this.inertia = inertia;
+            this.status = status;
+        }
+
+        /**
+         * Get the random generator seed given to the cluster seeder.
+         * 
+         * @return the seed.
+         */
+        public long getSeed() {
+            return seed;
+        }
+
+        /**
+         * Get the number of iterations the restart ran.
+         * 
+         * @return the number of iterations.
+         */
+        public int getIterations() {
+            return iterations;
+        }
+
+        /**
+         * Get the inertia in the last iteration the restart ran: the sum of the squared
+         * distances from the tuples to their nearest centers with a 
+         * <code>EuclideanDistanceMetric</code>, otherwise the sum of the distances.
+         * 
+         * @return the inertia.
+         */
+        public double getInertia() {
+            return inertia;
+        }
+
+        /**
+         * Get how the restart ended.
+         * 
+         * @return the status.
+         */
+        public Status getStatus() {
+            return status;
+        }
+    }
+}
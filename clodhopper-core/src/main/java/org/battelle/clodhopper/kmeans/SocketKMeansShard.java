@@ -0,0 +1,155 @@
+package org.battelle.clodhopper.kmeans;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+
+/*=====================================================================
+ * 
+ *                       CLODHOPPER CLUSTERING API
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Copyright (C) 2013 Battelle Memorial Institute 
+ * http://www.battelle.org
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ * 
+ * -------------------------------------------------------------------- 
+ * *
+ * SocketKMeansShard.java
+ *
+ *===================================================================*/
+/**
+ * A <code>KMeansShard</code> reached over a socket connection to a 
+ * <code>KMeansShardServer</code>. The shard's size and position are fetched 
+ * once, when connecting. Requests are made one at a time.
+ * 
+ * @author R. Scarberry
+ * @since 2.0.1
+ */
+public class SocketKMeansShard implements KMeansShard {
+
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+    private final int firstTupleIndex;
+    private final int tupleCount;
+    private final int tupleLength;
+
+    /**
+     * Constructor
+     * 
+     * @param host the host of the server.
+     * @param port the port of the server.
+     * 
+     * @throws IOException if the connection fails.
+     */
+    public SocketKMeansShard(String host, int port) throws IOException {
+        this.socket = new Socket(host, port);
+        try {
+            socket.setTcpNoDelay(true);
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            request(KMeansShardServer.INFO);
+            this.firstTupleIndex = in.readInt();
+            this.tupleCount = in.readInt();
+            this.tupleLength = in.readInt();
+            if (firstTupleIndex < 0 || tupleCount < 0 || tupleLength < 0) {
+                throw new IOException(String.format("invalid shard info: first tuple %d, %d tuples of length %d",
+                        firstTupleIndex, tupleCount, tupleLength));
+            }
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public int getFirstTupleIndex() {
+        return firstTupleIndex;
+    }
+
+    @Override
+    public int getTupleCount() {
+        return tupleCount;
+    }
+
+    @Override
+    public int getTupleLength() {
+        return tupleLength;
+    }
+
+    @Override
+    public synchronized double[] sample(int count, long seed) throws IOException {
+        out.writeByte(KMeansShardServer.SAMPLE);
+        out.writeInt(count);
+        out.writeLong(seed);
+        awaitReply();
+        return KMeansShardServer.readDoubles(in, (long) Math.max(0, Math.min(count, tupleCount)) * tupleLength);
+    }
+
+    @Override
+    public synchronized PartialSums assign(double[][] centers) throws IOException {
+        out.writeByte(KMeansShardServer.ASSIGN);
+        out.writeInt(centers.length);
+        for (double[] center : centers) {
+            KMeansShardServer.writeDoubles(out, center);
+        }
+        awaitReply();
+        int[] counts = KMeansShardServer.readInts(in, centers.length);
+        double[] sums = KMeansShardServer.readDoubles(in, (long) centers.length * tupleLength);
+        int moves = in.readInt();
+        double inertia = in.readDouble();
+        return new PartialSums(counts, sums, moves, inertia);
+    }
+
+    @Override
+    public synchronized int[] getAssignments() throws IOException {
+        request(KMeansShardServer.ASSIGNMENTS);
+        return KMeansShardServer.readInts(in, tupleCount);
+    }
+
+    /**
+     * Ends the connection. The server goes on running.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (!socket.isClosed()) {
+            try {
+                request(KMeansShardServer.CLOSE);
+            } finally {
+                socket.close();
+            }
+        }
+    }
+
+    // Sends a request that has no arguments and waits for the reply status.
+    private void request(int code) throws IOException {
+        out.writeByte(code);
+        awaitReply();
+    }
+
+    // Sends what has been written and waits for the reply status.
+    private void awaitReply() throws IOException {
+        out.flush();
+        if (in.readByte() != KMeansShardServer.OK) {
+            throw new IOException("k-means shard request failed: " + in.readUTF());
+        }
+    }
+}
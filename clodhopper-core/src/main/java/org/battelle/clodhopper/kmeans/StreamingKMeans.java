@@ -0,0 +1,309 @@
+package org.battelle.clodhopper.kmeans;
+
+import java.util.List;
+
+import org.battelle.clodhopper.Cluster;
+import org.battelle.clodhopper.distance.DistanceMetric;
+import org.battelle.clodhopper.tuple.ArrayTupleList;
+import org.battelle.clodhopper.tuple.TupleBlockReader;
+import org.battelle.clodhopper.tuple.TupleList;
+
+/*=====================================================================
+ * 
+ *                       CLODHOPPER CLUSTERING API
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Copyright (C) 2013 Battelle Memorial Institute 
+ * http://www.battelle.org
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ * 
+ * -------------------------------------------------------------------- 
+ * *
+ * StreamingKMeans.java
+ *
+ *===================================================================*/
+/**
+ * Sequential k-means for tuples that arrive continuously. Tuples are pushed 
+ * in with <code>accept()</code>, and each is used once to move its nearest center
+ * toward it by 1/n, where n is the number of tuples that have moved that center,
+ * so each center is the running mean of the tuples it has won. Only the centers 
+ * and their counts are kept, so the memory used does not grow with the stream.
+ * 
+ * <p>Since sequential k-means is sensitive to its starting centers, the first
+ * <code>bufferSize</code> tuples are held, the cluster seeder chooses the initial
+ * centers from them, and then they are applied to the centers in order.</p>
+ * 
+ * <p>The current centers can be obtained at any time with <code>getCenters()</code>,
+ * and <code>clusters(TupleList)</code> assigns a materialized set of tuples to 
+ * them to produce ordinary <code>Cluster</code>s. The methods of this class are
+ * synchronized, so tuples may be pushed from multiple threads.</p>
+ * 
+ * <p>See J. MacQueen (1967): "Some Methods for Classification and Analysis of 
+ * Multivariate Observations", Proceedings of the 5th Berkeley Symposium on 
+ * Mathematical Statistics and Probability, 281-297.</p>
+ * 
+ * @author R. Scarberry
+ * @since 2.0.1
+ *
+ */
+public class StreamingKMeans {
+
+    private final int tupleLength;
+    private final StreamingKMeansParams params;
+    private final DistanceMetric distanceMetric;
+
+    // Holds the first tuples until the initial centers are chosen, then null.
+    private ArrayTupleList buffer;
+    private int bufferCount;
+
+    // Null until the initial centers are chosen.
+    private double[][] centers;
+    private long[] centerCounts;
+
+    private long tupleCount;
+
+    /**
+     * Constructor
+     * 
+     * @param tupleLength the length of the tuples in the stream.
+     * @param params the parameters.
+     * 
+     * @throws IllegalArgumentException if the tuple length is negative or the 
+     *   cluster count has not been set.
+     */
+    public StreamingKMeans(final int tupleLength, final StreamingKMeansParams params) {
+        if (params == null) {
+            throw new NullPointerException();
+        }
+        if (tupleLength < 0) {
+            throw new IllegalArgumentException("tuple length < 0: " + tupleLength);
+        }
+        if (params.getClusterCount() <= 0) {
+            throw new IllegalArgumentException("cluster count must be greater than 0");
+        }
+        this.tupleLength = tupleLength;
+        this.params = params;
+        this.distanceMetric = params.getDistanceMetric().clone();
+        this.buffer = new ArrayTupleList(tupleLength, Math.max(params.getBufferSize(), params.getClusterCount()));
+    }
+
+    /**
+     * Get the length of the tuples in the stream.
+     * 
+     * @return the tuple length.
+     */
+    public int getTupleLength() {
+        return tupleLength;
+    }
+
+    /**
+     * Get the number of tuples accepted so far.
+     * 
+     * @return the number of tuples.
+     */
+    public synchronized long getTupleCount() {
+        return tupleCount;
+    }
+
+    /**
+     * Accepts the next tuple of the stream.
+     * 
+     * @param tuple the tuple's values, which are copied.
+     * 
+     * @throws IllegalArgumentException if the tuple is not of the proper length.
+     */
+    public synchronized void accept(final double[] tuple) {
+        if (tuple.length != tupleLength) {
+            throw new IllegalArgumentException(String.format("tuple length %d != %d", tuple.length, tupleLength));
+        }
+        if (centers == null) {
+            buffer.setTuple(bufferCount++, tuple);
+            if (bufferCount == buffer.getTupleCount()) {
+                initializeCenters();
+            }
+        } else {
+            update(tuple);
+        }
+        tupleCount++;
+    }
+
+    /**
+     * Accepts a batch of tuples, in order.
+     * 
+     * @param tuples the tuples.
+     * 
+     * @throws IllegalArgumentException if the tuples are not of the proper length.
+     */
+    public synchronized void accept(final TupleList tuples) {
+        if (tuples.getTupleLength() != tupleLength) {
+            throw new IllegalArgumentException(String.format("tuple length %d != %d", 
+                    tuples.getTupleLength(), tupleLength));
+        }
+        TupleBlockReader reader = new TupleBlockReader(tuples, 0, tuples.getTupleCount());
+        double[] tuple = new double[tupleLength];
+        while (reader.hasNext()) {
+            accept(reader.next(tuple));
+        }
+    }
+
+    /**
+     * Get the number of current centers. This is 0 until the first tuple is
+     * accepted, and it can be less than the cluster count if few tuples or few 
+     * unique tuples have been seen.
+     * 
+     * @return the number of centers.
+     */
+    public synchronized int getCenterCount() {
+        return centers != null ? centers.length : Math.min(bufferCount, params.getClusterCount());
+    }
+
+    /**
+     * Get the current centers. Before the buffer of initial tuples fills, these 
+     * are the first of the tuples buffered so far, up to the cluster count. The
+     * cluster seeder is not called for them, so they are the same from one call
+     * to the next, and they have no effect on the centers it chooses when the
+     * buffer fills.
+     * 
+     * @return copies of the centers, which are empty if no tuples have been accepted.
+     */
+    public synchronized double[][] getCenters() {
+        if (centers == null) {
+            double[][] result = new double[getCenterCount()][];
+            for (int c = 0; c < result.length; c++) {
+                result[c] = buffer.getTuple(c, null);
+            }
+            return result;
+        }
+        double[][] result = new double[centers.length][];
+        for (int c = 0; c < centers.length; c++) {
+            result[c] = centers[c].clone();
+        }
+        return result;
+    }
+
+    /**
+     * Get the number of tuples that have moved each current center. Before the
+     * buffer of initial tuples fills, these are all 0.
+     * 
+     * @return the counts.
+     */
+    public synchronized long[] getCenterCounts() {
+        return centerCounts != null ? centerCounts.clone() : new long[getCenterCount()];
+    }
+
+    /**
+     * Assigns tuples to the nearest current centers and returns the resulting 
+     * clusters. The centers of the clusters are the means of their members, and 
+     * clusters that would be empty are omitted. The tuples are commonly those 
+     * accepted from the stream, but need not be.
+     * 
+     * @param tuples the tuples to assign.
+     * 
+     * @return the clusters.
+     * 
+     * @throws IllegalStateException if no tuples have been accepted yet.
+     * @throws IllegalArgumentException if the tuples are not of the proper length.
+     */
+    public List<Cluster> clusters(final TupleList tuples) {
+        if (tuples.getTupleLength() != tupleLength) {
+            throw new IllegalArgumentException(String.format("tuple length %d != %d", 
+                    tuples.getTupleLength(), tupleLength));
+        }
+        final double[][] currentCenters = getCenters();
+        final int clusterCount = currentCenters.length;
+        if (clusterCount == 0) {
+            throw new IllegalStateException("no tuples have been accepted");
+        }
+        
+        final DistanceMetric metric = params.getDistanceMetric().clone();
+        final int count = tuples.getTupleCount();
+        final int[] assignments = new int[count];
+        final int[] sizes = new int[clusterCount];
+        final double[][] sums = new double[clusterCount][tupleLength];
+        
+        TupleBlockReader reader = new TupleBlockReader(tuples, 0, count);
+        double[] tuple = new double[tupleLength];
+        for (int i = 0; i < count; i++) {
+            reader.next(tuple);
+            int c = nearest(currentCenters, tuple, metric);
+            assignments[i] = c;
+            sizes[c]++;
+            double[] sum = sums[c];
+            for (int j = 0; j < tupleLength; j++) {
+                sum[j] += tuple[j];
+            }
+        }
+        
+        for (int c = 0; c < clusterCount; c++) {
+            if (sizes[c] > 0) {
+                double[] center = sums[c];
+                for (int j = 0; j < tupleLength; j++) {
+                    center[j] /= sizes[c];
+                }
+            }
+        }
+        return KMeansSupport.clusters(assignments, sums);
+    }
+
+    /**
+     * Discards the centers and the buffered tuples, so the next tuple accepted starts a
+     * new stream.
+     */
+    public synchronized void reset() {
+        buffer = new ArrayTupleList(tupleLength, Math.max(params.getBufferSize(), params.getClusterCount()));
+        bufferCount = 0;
+        centers = null;
+        centerCounts = null;
+        tupleCount = 0;
+    }
+
+    // Chooses the initial centers from the full buffer, then applies the buffered tuples to them.
+    private void initializeCenters() {
+        TupleList seeds = seedsFromBuffer();
+        final int seedCount = seeds.getTupleCount();
+        centers = new double[seedCount][];
+        for (int c = 0; c < seedCount; c++) {
+            centers[c] = seeds.getTuple(c, null);
+        }
+        centerCounts = new long[seedCount];
+        double[] tuple = new double[tupleLength];
+        for (int i = 0; i < bufferCount; i++) {
+            update(buffer.getTuple(i, tuple));
+        }
+        buffer = null;
+        bufferCount = 0;
+    }
+
+    // Only called once the buffer is full.
+    private TupleList seedsFromBuffer() {
+        return params.getClusterSeeder().generateSeeds(buffer, Math.min(params.getClusterCount(), bufferCount));
+    }
+
+    // Moves the nearest center toward a tuple.
+    private void update(final double[] tuple) {
+        final int c = nearest(centers, tuple, distanceMetric);
+        final double[] center = centers[c];
+        final double eta = 1.0 / ++centerCounts[c];
+        for (int j = 0; j < tupleLength; j++) {
+            center[j] += eta * (tuple[j] - center[j]);
+        }
+    }
+
+    private static int nearest(final double[][] centers, final double[] tuple, final DistanceMetric metric) {
+        return KMeansSupport.nearestCenter(tuple, centers, metric, null);
+    }
+}
@@ -0,0 +1,198 @@
+package org.battelle.clodhopper.kmeans;
+
+import org.battelle.clodhopper.distance.DistanceMetric;
+import org.battelle.clodhopper.distance.EuclideanDistanceMetric;
+import org.battelle.clodhopper.seeding.ClusterSeeder;
+import org.battelle.clodhopper.seeding.KMeansPlusPlusSeeder;
+
+/*=====================================================================
+ * 
+ *                       CLODHOPPER CLUSTERING API
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Copyright (C) 2013 Battelle Memorial Institute 
+ * http://www.battelle.org
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ * 
+ * -------------------------------------------------------------------- 
+ * *
+ * StreamingKMeansParams.java
+ *
+ *===================================================================*/
+/**
+ * The parameter class for <code>StreamingKMeans</code>.
+ *
+ * @author R. Scarberry
+ * @since 2.0.1
+ *
+ */
+public class StreamingKMeansParams {
+
+    public static final int DEFAULT_BUFFER_SIZE = 1000;
+
+    private int clusterCount;
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+
+    private DistanceMetric distanceMetric;
+    private ClusterSeeder clusterSeeder;
+
+    /**
+     * Constructor
+     */
+    public StreamingKMeansParams() {
+        distanceMetric = new EuclideanDistanceMetric();
+        clusterSeeder = new KMeansPlusPlusSeeder(distanceMetric);
+    }
+
+    /**
+     * Get the number of requested clusters.
+     *
+     * @return the number of clusters requested.
+     */
+    public int getClusterCount() {
+        return clusterCount;
+    }
+
+    /**
+     * Set the number of requested clusters.
+     *
+     * @param n the number desired
+     *
+     * @throws IllegalArgumentException if n is not a positive integer.
+     */
+    public void setClusterCount(final int n) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("cluster count must be greater than 0");
+        }
+        this.clusterCount = n;
+    }
+
+    /**
+     * Get the number of tuples at the start of the stream that are held 
+     * to choose the initial centers with the cluster seeder. 
+     *
+     * @return the buffer size.
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Set the number of tuples at the start of the stream that are held to
+     * choose the initial centers. It should be at least the cluster count,
+     * and preferably several times larger.
+     *
+     * @param n the buffer size.
+     *
+     * @throws IllegalArgumentException if n is not a positive integer.
+     */
+    public void setBufferSize(final int n) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("buffer size must be greater than 0");
+        }
+        this.bufferSize = n;
+    }
+
+    /**
+     * Get the distance metric used to find the nearest centers.
+     *
+     * @return the <code>DistanceMetric</code>.
+     */
+    public DistanceMetric getDistanceMetric() {
+        return distanceMetric;
+    }
+
+    /**
+     * Set the distance metric used to find the nearest centers.
+     *
+     * @param distanceMetric a <code>DistanceMetric</code> instance.
+     *
+     * @throws NullPointerException if null
+     */
+    public void setDistanceMetric(final DistanceMetric distanceMetric) {
+        if (distanceMetric == null) {
+            throw new NullPointerException();
+        }
+        this.distanceMetric = distanceMetric;
+    }
+
+    /**
+     * Get the object used to pick the initial centers from the buffered tuples.
+     *
+     * @return the cluster seeder.
+     */
+    public ClusterSeeder getClusterSeeder() {
+        return clusterSeeder;
+    }
+
+    /**
+     * Set the object used to pick the initial centers from the buffered tuples.
+     *
+     * @param seeder an instance of <code>ClusterSeeder</code>.
+     *
+     * @throws NullPointerException if null
+     */
+    public void setClusterSeeder(final ClusterSeeder seeder) {
+        if (seeder == null) {
+            throw new NullPointerException();
+        }
+        this.clusterSeeder = seeder;
+    }
+
+    /**
+     * A builder class used for convenience in creating a StreamingKMeansParams
+     * object. Each method returns a reference to the builder, so calls can be
+     * chained.
+     *
+     * @author R. Scarberry
+     * @since 2.0.1
+     *
+     */
+    public static class Builder {
+
+        private StreamingKMeansParams params;
+
+        public Builder() {
+            params = new StreamingKMeansParams();
+        }
+
+        public Builder clusterCount(int clusterCount) {
+            params.setClusterCount(clusterCount);
+            return this;
+        }
+
+        public Builder bufferSize(int bufferSize) {
+            params.setBufferSize(bufferSize);
+            return this;
+        }
+
+        public Builder distanceMetric(DistanceMetric distanceMetric) {
+            params.setDistanceMetric(distanceMetric);
+            return this;
+        }
+
+        public Builder clusterSeeder(ClusterSeeder seeder) {
+            params.setClusterSeeder(seeder);
+            return this;
+        }
+
+        public StreamingKMeansParams build() {
+            return params;
+        }
+    }
+
+}
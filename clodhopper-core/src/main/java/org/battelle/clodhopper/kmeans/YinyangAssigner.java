@@ -0,0 +1,267 @@
+package org.battelle.clodhopper.kmeans;
+
+import java.util.Arrays;
+import org.battelle.clodhopper.distance.DistanceMetric;
+import org.battelle.clodhopper.tuple.ArrayTupleList;
+import org.battelle.clodhopper.tuple.TupleMath;
+import org.battelle.clodhopper.util.ArrayIntIterator;
+
+/*=====================================================================
+ * 
+ *                       CLODHOPPER CLUSTERING API
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Copyright (C) 2013 Battelle Memorial Institute 
+ * http://www.battelle.org
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ * 
+ * -------------------------------------------------------------------- 
+ * *
+ * YinyangAssigner.java
+ *
+ *===================================================================*/
+/**
+ * Makes k-means cluster assignments with the Yinyang algorithm. The centers 
+ * are divided into groups of about ten nearby centers when assignments begin.
+ * For every tuple, an upper bound on the distance to its own center and a lower
+ * bound on the distance to the centers of each group are kept, so the extra
+ * memory is one double per tuple per group. A group's centers are only 
+ * examined if its lower bound is less than the distance to the tuple's center.
+ * 
+ * <p>See Y. Ding, Y. Zhao, X. Shen, M. Musuvathi, and T. Mytkowicz (2015): 
+ * "Yinyang K-Means: A Drop-In Replacement of the Classic K-Means with Consistent
+ * Speedup", Proceedings of the 32nd International Conference on Machine 
+ * Learning.</p>
+ * 
+ * @author R. Scarberry
+ * @since 2.0.1
+ */
+class YinyangAssigner extends BoundedAssigner {
+
+    // The approximate number of centers per group.
+    private static final int CENTERS_PER_GROUP = 10;
+    // Iterations of k-means used to group the centers.
+    private static final int GROUPING_ITERATIONS = 5;
+
+    // Upper bound on the distance from each tuple to its center.
+    private final double[] upperBounds;
+    // For each tuple and group, tupleIndex * groupCount + groupIndex, a lower bound on 
+    // the distances from the tuple to the centers in the group other than the tuple's own.
+    private double[] lowerBounds;
+    private int groupCount;
+    private int[] groupOf;
+    private int[][] groupMembers;
+    // The largest distance moved by a center in each group.
+    private double[] groupDrift;
+
+    YinyangAssigner(final int tupleCount, final DistanceMetric distanceMetric) {
+        super(tupleCount, distanceMetric);
+        upperBounds = new double[tupleCount];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void prepareBounds(final double[][] centers) {
+        if (groupOf == null || groupOf.length != centers.length) {
+            groupCenters(centers);
+            if ((long) tupleCount * groupCount > Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException(String.format(
+                        "too many lower bounds for the Yinyang algorithm: %d tuples x %d groups", 
+                        tupleCount, groupCount));
+            }
+            lowerBounds = new double[tupleCount * groupCount];
+            groupDrift = new double[groupCount];
+        }
+        if (drift != null) {
+            Arrays.fill(groupDrift, 0.0);
+            for (int c = 0; c < drift.length; c++) {
+                int g = groupOf[c];
+                if (drift[c] > groupDrift[g]) {
+                    groupDrift[g] = drift[c];
+                }
+            }
+        }
+    }
+
+    // Groups the centers by running a few iterations of k-means on them.
+    private void groupCenters(final double[][] centers) {
+        final int k = centers.length;
+        final int dim = k > 0 ? centers[0].length : 0;
+        groupCount = Math.max(1, k / CENTERS_PER_GROUP);
+        groupOf = new int[k];
+        
+        ArrayTupleList centerTuples = new ArrayTupleList(dim, k);
+        for (int c = 0; c < k; c++) {
+            centerTuples.setTuple(c, centers[c]);
+        }
+        double[][] groupCenters = new double[groupCount][];
+        for (int g = 0; g < groupCount; g++) {
+            groupCenters[g] = centers[(int) ((long) g * k / groupCount)].clone();
+        }
+        
+        for (int iteration = 0; iteration < GROUPING_ITERATIONS; iteration++) {
+            int[] counts = new int[groupCount];
+            for (int c = 0; c < k; c++) {
+                int nearest = 0;
+                double min = Double.MAX_VALUE;
+                for (int g = 0; g < groupCount; g++) {
+                    double d = distanceMetric.distance(centers[c], groupCenters[g]);
+                    if (d < min) {
+                        min = d;
+                        nearest = g;
+                    }
+                }
+                groupOf[c] = nearest;
+                counts[nearest]++;
+            }
+            groupMembers = new int[groupCount][];
+            for (int g = 0; g < groupCount; g++) {
+                groupMembers[g] = new int[counts[g]];
+                counts[g] = 0;
+            }
+            for (int c = 0; c < k; c++) {
+                int g = groupOf[c];
+                groupMembers[g][counts[g]++] = c;
+            }
+            for (int g = 0; g < groupCount; g++) {
+                if (groupMembers[g].length > 0) {
+                    groupCenters[g] = TupleMath.average(centerTuples, new ArrayIntIterator(groupMembers[g]));
+                }
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    int nearest(final int tuple, final int current, final CenterDistances distances) {
+
+        final int base = tuple * groupCount;
+
+        if (keepsWarmStartAssignment(current)) {
+            final double d = distances.distanceTo(current);
+            Arrays.fill(lowerBounds, base, base + groupCount, d);
+            upperBounds[tuple] = d;
+            return current;
+        }
+
+        if (needsFullSearch(current)) {
+            return search(tuple, distances);
+        }
+
+        // Loosen the bounds by how far the centers moved.
+        double upper = upperBounds[tuple] + drift[current];
+        double globalLower = Double.MAX_VALUE;
+        for (int g = 0; g < groupCount; g++) {
+            double lb = lowerBounds[base + g] - groupDrift[g];
+            if (lb < 0.0) {
+                lb = 0.0;
+            }
+            lowerBounds[base + g] = lb;
+            if (lb < globalLower) {
+                globalLower = lb;
+            }
+        }
+
+        if (upper > globalLower) {
+            // Make the upper bound exact and check again.
+            upper = distances.distanceTo(current);
+        }
+        
+        int nearest = current;
+        
+        if (upper > globalLower) {
+            for (int g = 0; g < groupCount; g++) {
+                if (lowerBounds[base + g] >= upper) {
+                    continue;
+                }
+                // The bound does not rule out the group, so find its two nearest centers,
+                // other than the current nearest.
+                int groupNearest = -1;
+                double min = Double.MAX_VALUE;
+                double secondMin = Double.MAX_VALUE;
+                for (int c : groupMembers[g]) {
+                    if (c == nearest || !candidates[c]) {
+                        continue;
+                    }
+                    double d = distances.distanceTo(c);
+                    if (d < min) {
+                        secondMin = min;
+                        min = d;
+                        groupNearest = c;
+                    } else if (d < secondMin) {
+                        secondMin = d;
+                    }
+                }
+                if (min < upper) {
+                    // The previous nearest center now counts toward its group's bound.
+                    final int previous = nearest;
+                    final double previousDistance = upper;
+                    nearest = groupNearest;
+                    upper = min;
+                    lowerBounds[base + g] = secondMin;
+                    final int previousGroup = groupOf[previous];
+                    if (previousDistance < lowerBounds[base + previousGroup]) {
+                        lowerBounds[base + previousGroup] = previousDistance;
+                    }
+                } else {
+                    lowerBounds[base + g] = min;
+                }
+            }
+        }
+
+        upperBounds[tuple] = upper;
+        return nearest;
+    }
+
+    // Computes the distances to all the centers.
+    private int search(final int tuple, final CenterDistances distances) {
+        final int base = tuple * groupCount;
+        int nearest = -1;
+        double min = Double.MAX_VALUE;
+        double[] groupMin = new double[groupCount];
+        // The two smallest distances in each group, so the bound for the nearest center's
+        // group can exclude it.
+        double[] groupSecondMin = new double[groupCount];
+        Arrays.fill(groupMin, Double.MAX_VALUE);
+        Arrays.fill(groupSecondMin, Double.MAX_VALUE);
+        for (int c = 0; c < clusterCount; c++) {
+            if (candidates[c]) {
+                double d = distances.distanceTo(c);
+                int g = groupOf[c];
+                if (d < groupMin[g]) {
+                    groupSecondMin[g] = groupMin[g];
+                    groupMin[g] = d;
+                } else if (d < groupSecondMin[g]) {
+                    groupSecondMin[g] = d;
+                }
+                if (d < min) {
+                    min = d;
+                    nearest = c;
+                }
+            }
+        }
+        for (int g = 0; g < groupCount; g++) {
+            lowerBounds[base + g] = nearest >= 0 && groupOf[nearest] == g ? groupSecondMin[g] : groupMin[g];
+        }
+        upperBounds[tuple] = min;
+        return nearest;
+    }
+}
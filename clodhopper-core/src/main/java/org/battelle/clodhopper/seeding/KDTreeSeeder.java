@@ -1,7 +1,9 @@
 package org.battelle.clodhopper.seeding;
 
 import org.battelle.clodhopper.tuple.ArrayTupleList;
+import org.battelle.clodhopper.tuple.SummarizedTupleList;
 import org.battelle.clodhopper.tuple.TupleList;
+import org.battelle.clodhopper.tuple.TupleListStatistics;
 import org.battelle.clodhopper.tuple.TupleMath;
 import org.battelle.clodhopper.util.ArrayIntIterator;
 import org.battelle.clodhopper.util.Sorting;
@@ -217,8 +219,22 @@ public class KDTreeSeeder extends RandomSeeder {
 			this.tuples = tuples;
 			this.level = level;
 			
-			double[] maxCorner = TupleMath.maxCorner(tuples, new ArrayIntIterator(this.indexes));
-			double[] minCorner = TupleMath.minCorner(tuples, new ArrayIntIterator(this.indexes));
+			// A node containing every tuple can use precomputed statistics, if available.
+			TupleListStatistics stats = numTuples == tuples.getTupleCount() && tuples instanceof SummarizedTupleList ?
+					((SummarizedTupleList) tuples).getStatistics() : null;
+			
+			double[] maxCorner, minCorner;
+			if (stats != null) {
+				maxCorner = new double[tupleLen];
+				minCorner = new double[tupleLen];
+				for (int i=0; i<tupleLen; i++) {
+					maxCorner[i] = stats.getMaximum(i);
+					minCorner[i] = stats.getMinimum(i);
+				}
+			} else {
+				maxCorner = TupleMath.maxCorner(tuples, new ArrayIntIterator(this.indexes));
+				minCorner = TupleMath.minCorner(tuples, new ArrayIntIterator(this.indexes));
+			}
 			
 			rect = new HyperRect(tupleLen);
 			
@@ -254,7 +270,8 @@ public class KDTreeSeeder extends RandomSeeder {
 				this.splitValue = median;
 			}
 			
-			this.center = TupleMath.average(tuples, new ArrayIntIterator(this.indexes));
+			this.center = stats != null ? stats.getMeans() : 
+					TupleMath.average(tuples, new ArrayIntIterator(this.indexes));
 		}
 		
 		public static KDTreeNode createKDTree(TupleList tuples, int[] indexes, int splits) {
@@ -52,6 +52,11 @@ public class KMeansPlusPlusSeeder extends RandomSeeder {
 		this(System.nanoTime(), new Random(), distMetric);
 	}
 	
+	@Override
+	public RandomClusterSeeder withRandomGeneratorSeed(long seed) {
+		return new KMeansPlusPlusSeeder(seed, new Random(), distMetric);
+	}
+	
 	@Override
 	public TupleList generateSeeds(TupleList tuples, int seedCount) {
 
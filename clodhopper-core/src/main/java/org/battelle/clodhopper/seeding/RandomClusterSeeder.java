@@ -35,4 +35,18 @@ public interface RandomClusterSeeder extends ClusterSeeder {
 	
 	void setRandomGeneratorSeed(long seed);
 	
+	/**
+	 * Get a copy of this seeder that uses the specified seed and its own
+	 * random number generator, leaving this seeder untouched. This lets
+	 * several runs be seeded at once without mutating a seeder the
+	 * caller may be sharing.
+	 * 
+	 * @param seed the seed for the copy.
+	 * 
+	 * @return a new <code>RandomClusterSeeder</code>.
+	 * 
+	 * @since 2.0.1
+	 */
+	RandomClusterSeeder withRandomGeneratorSeed(long seed);
+	
 }
@@ -62,6 +62,11 @@ public class RandomSeeder implements RandomClusterSeeder {
 		this.seed = seed;
 	}
 	
+	@Override
+	public RandomClusterSeeder withRandomGeneratorSeed(long seed) {
+		return new RandomSeeder(seed, new Random());
+	}
+	
 	@Override
 	public TupleList generateSeeds(TupleList tuples, int seedCount) {
 
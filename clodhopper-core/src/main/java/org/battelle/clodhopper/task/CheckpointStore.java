@@ -0,0 +1,318 @@
+package org.battelle.clodhopper.task;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.Externalizable;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*=====================================================================
+ * 
+ *                       CLODHOPPER CLUSTERING API
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Copyright (C) 2013 Battelle Memorial Institute 
+ * http://www.battelle.org
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ * 
+ * -------------------------------------------------------------------- 
+ * *
+ * CheckpointStore.java
+ *
+ *===================================================================*/
+/**
+ * A directory in which a long-running task saves its state from time to time, so
+ * that a later run of the same task, on the same data, can resume where it left off
+ * rather than starting over. 
+ * 
+ * <p>The state is an <code>Externalizable</code> object. It is serialized when
+ * <code>save()</code> is called, so the task may go on changing it, and the bytes are
+ * written to the directory on a background thread. Each checkpoint is written to a 
+ * temporary file which is then renamed, so a task killed in the middle of a write 
+ * leaves the previous checkpoint intact. Once a checkpoint has been written, the
+ * older ones are deleted.</p>
+ * 
+ * <p>A directory should be used by one task at a time. Checkpoints are left in place
+ * when a task finishes; call <code>clear()</code> to remove them.</p>
+ * 
+ * @author R. Scarberry
+ * @since 2.0.1
+ */
+public class CheckpointStore implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CheckpointStore.class);
+
+    // Identifies a checkpoint file.
+    private static final int MAGIC = 0x434b5054;
+
+    private static final String PREFIX = "checkpoint-";
+    private static final String SUFFIX = ".ckpt";
+
+    private final File directory;
+
+    // Sequence number of the next checkpoint to be saved.
+    private long nextSequence;
+
+    // Runs the writes, one at a time, in the order they were requested.
+    private ExecutorService writer;
+    private Future<?> lastWrite;
+
+    // The first failure of a background write, reported by flush().
+    private IOException writeError;
+
+    /**
+     * Constructor
+     * 
+     * @param directory the directory holding the checkpoints, which is created 
+     *   if it does not exist.
+     * 
+     * @throws IOException if the directory cannot be created.
+     */
+    public CheckpointStore(File directory) throws IOException {
+        if (directory == null) {
+            throw new NullPointerException();
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("cannot create checkpoint directory: " + directory);
+        }
+        this.directory = directory;
+        File latest = latestFile();
+        if (latest != null) {
+            nextSequence = sequenceOf(latest) + 1;
+        }
+    }
+
+    /**
+     * Get the directory holding the checkpoints.
+     * 
+     * @return the directory.
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Does the directory hold a checkpoint?
+     * 
+     * @return true if there is a checkpoint from which to resume.
+     */
+    public boolean hasCheckpoint() {
+        return latestFile() != null;
+    }
+
+    /**
+     * Save the state of a task. The state is serialized before this method returns,
+     * but it is written to the directory in the background.
+     * 
+     * @param state the state to save.
+     * 
+     * @throws IOException if the state cannot be serialized.
+     */
+    public void save(Externalizable state) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeUTF(state.getClass().getName());
+            state.writeExternal(out);
+        }
+        final byte[] data = bytes.toByteArray();
+        synchronized (this) {
+            final long sequence = nextSequence++;
+            if (writer == null) {
+                writer = Executors.newSingleThreadExecutor(r -> {
+                    Thread t = new Thread(r, "clodhopper-checkpoint");
+                    t.setDaemon(true);
+                    return t;
+                });
+            }
+            lastWrite = writer.submit(() -> {
+                try {
+                    write(sequence, data);
+                } catch (IOException e) {
+                    LOGGER.error("error writing checkpoint " + sequence + " to " + directory, e);
+                    synchronized (CheckpointStore.this) {
+                        if (writeError == null) {
+                            writeError = e;
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Read the latest checkpoint into a state object, which must be of the same class
+     * as the state that was saved.
+     * 
+     * @param state the object into which the state is read.
+     * 
+     * @return true if a checkpoint was read, false if there are none.
+     * 
+     * @throws IOException if the checkpoint cannot be read or was saved from an 
+     *   object of a different class.
+     */
+    public boolean restoreLatest(Externalizable state) throws IOException {
+        flush();
+        File latest = latestFile();
+        if (latest == null) {
+            return false;
+        }
+        byte[] data = Files.readAllBytes(latest.toPath());
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("not a checkpoint: " + latest);
+            }
+            String className = in.readUTF();
+            if (!className.equals(state.getClass().getName())) {
+                throw new IOException(String.format("checkpoint %s holds a %s, not a %s", 
+                        latest, className, state.getClass().getName()));
+            }
+            state.readExternal(in);
+        } catch (ClassNotFoundException e) {
+            throw new IOException(e);
+        }
+        return true;
+    }
+
+    /**
+     * Wait for the checkpoints saved so far to be written.
+     * 
+     * @throws IOException if any of them could not be written.
+     */
+    public void flush() throws IOException {
+        Future<?> pending;
+        synchronized (this) {
+            pending = lastWrite;
+        }
+        if (pending != null) {
+            try {
+                pending.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("interrupted while waiting for checkpoint to be written");
+            } catch (ExecutionException e) {
+                throw new IOException(e.getCause());
+            }
+        }
+        synchronized (this) {
+            if (writeError != null) {
+                IOException e = writeError;
+                writeError = null;
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Delete all the checkpoints in the directory, after waiting for any that
+     * are being written.
+     * 
+     * @throws IOException if the pending checkpoints could not be written.
+     */
+    public void clear() throws IOException {
+        try {
+            flush();
+        } finally {
+            File[] files = directory.listFiles((dir, name) -> name.startsWith(PREFIX));
+            if (files != null) {
+                for (File f : files) {
+                    f.delete();
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits for pending checkpoints to be written and stops the background thread.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            synchronized (this) {
+                if (writer != null) {
+                    writer.shutdown();
+                    writer = null;
+                }
+            }
+        }
+    }
+
+    private void write(long sequence, byte[] data) throws IOException {
+        File target = new File(directory, String.format("%s%016d%s", PREFIX, sequence, SUFFIX));
+        File temp = new File(directory, target.getName() + ".tmp");
+        Files.write(temp.toPath(), data);
+        try {
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        // Only the newest checkpoint is needed. This also removes any temporary file
+        // left by a write that was cut short.
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(PREFIX));
+        if (files != null) {
+            for (File f : files) {
+                if (sequenceOf(f) < sequence) {
+                    f.delete();
+                }
+            }
+        }
+    }
+
+    // The checkpoint with the greatest sequence number, or null if there are none.
+    private File latestFile() {
+        File latest = null;
+        long latestSequence = -1L;
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(PREFIX) && name.endsWith(SUFFIX));
+        if (files != null) {
+            for (File f : files) {
+                long sequence = sequenceOf(f);
+                if (sequence > latestSequence) {
+                    latest = f;
+                    latestSequence = sequence;
+                }
+            }
+        }
+        return latest;
+    }
+
+    private static long sequenceOf(File f) {
+        String name = f.getName();
+        if (name.startsWith(PREFIX) && name.endsWith(SUFFIX)) {
+            try {
+                return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+            } catch (NumberFormatException e) {
+                // Not one of ours.
+            }
+        }
+        return -1L;
+    }
+}
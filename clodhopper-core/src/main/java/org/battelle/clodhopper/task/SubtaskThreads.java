@@ -0,0 +1,67 @@
+package org.battelle.clodhopper.task;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/*=====================================================================
+ * 
+ *                       CLODHOPPER CLUSTERING API
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Copyright (C) 2013 Battelle Memorial Institute 
+ * http://www.battelle.org
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ * 
+ * -------------------------------------------------------------------- 
+ * *
+ * SubtaskThreads.java
+ *
+ *===================================================================*/
+/**
+ * Creates the thread pools tasks use for their subtasks when no shared executor 
+ * is given. This version, for Java 8 and later, creates a fixed pool of platform
+ * threads. The Java 21 layer of the multi-release jar replaces it with one that 
+ * runs each subtask on a virtual thread.
+ * 
+ * @author R. Scarberry
+ * @since 2.0.1
+ */
+final class SubtaskThreads {
+
+    private SubtaskThreads() {
+    }
+
+    /**
+     * Create a thread pool for one run of a task.
+     * 
+     * @param threadCount the number of subtasks the task runs at once.
+     * 
+     * @return the thread pool, which the task shuts down when done.
+     */
+    static ExecutorService newThreadPool(int threadCount) {
+        return Executors.newFixedThreadPool(threadCount);
+    }
+
+    /**
+     * Returns whether subtasks run on virtual threads.
+     * 
+     * @return false for this version.
+     */
+    static boolean isVirtual() {
+        return false;
+    }
+}
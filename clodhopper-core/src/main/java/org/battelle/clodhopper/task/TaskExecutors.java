@@ -0,0 +1,240 @@
+package org.battelle.clodhopper.task;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/*=====================================================================
+ * 
+ *                       CLODHOPPER CLUSTERING API
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Copyright (C) 2013 Battelle Memorial Institute 
+ * http://www.battelle.org
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ * 
+ * -------------------------------------------------------------------- 
+ * *
+ * TaskExecutors.java
+ *
+ *===================================================================*/
+/**
+ * Supplies the thread pools used by tasks for their concurrent subtasks. A task
+ * can be given an <code>ExecutorService</code>, such as a <code>ForkJoinPool</code>,
+ * through its parameters, and if it is not, the library-wide default set with 
+ * <code>setDefaultExecutor()</code> is used. If there is neither, a task creates
+ * a thread pool of its own for each run, as it always has. On Java 21 and later,
+ * where the multi-release jar supplies its own version of the pool factory, those
+ * pools run each subtask on a virtual thread.
+ * 
+ * <p>A shared executor is never shut down by a task. A task sees it through a
+ * view whose futures are cooperative: a thread waiting for a subtask that has
+ * not yet started runs the subtask itself. Subtasks, including the nested runs
+ * made by X-means and G-means, can therefore wait on one another in the same
+ * bounded pool without deadlock, and without creating threads.</p>
+ * 
+ * @author R. Scarberry
+ * @since 2.0.1
+ */
+public final class TaskExecutors {
+
+    private static ExecutorService defaultExecutor;
+
+    private TaskExecutors() {
+    }
+
+    /**
+     * Set the executor used by tasks whose parameters do not specify one.
+     * 
+     * @param executor the executor, or null for tasks to create their own
+     *   thread pools.
+     */
+    public static synchronized void setDefaultExecutor(ExecutorService executor) {
+        defaultExecutor = executor;
+    }
+
+    /**
+     * Get the executor used by tasks whose parameters do not specify one.
+     * 
+     * @return the executor, which is null if tasks create their own thread pools.
+     */
+    public static synchronized ExecutorService getDefaultExecutor() {
+        return defaultExecutor;
+    }
+
+    /**
+     * Returns whether the thread pools created for each run of a task use virtual
+     * threads, which they do when running on Java 21 or later.
+     * 
+     * @return true if virtual threads are used.
+     */
+    public static boolean usesVirtualThreads() {
+        return SubtaskThreads.isVirtual();
+    }
+
+    /**
+     * Get a thread pool for one run of a task. The caller should shut it down
+     * when done, as with a pool from <code>Executors.newFixedThreadPool()</code>.
+     * 
+     * @param executor the executor specified in the task's parameters, which may be null.
+     * @param threadCount the number of threads for a new pool, if one is created.
+     * 
+     * @return a new thread pool if neither <code>executor</code> nor the default
+     *   executor is set, otherwise a view of the shared executor.
+     */
+    public static ExecutorService newThreadPool(ExecutorService executor, int threadCount) {
+        if (executor == null) {
+            executor = getDefaultExecutor();
+        }
+        if (executor == null) {
+            return SubtaskThreads.newThreadPool(threadCount);
+        }
+        return new SharedExecutorView(executor);
+    }
+
+    /**
+     * A view of a shared executor. Shutting it down cancels the subtasks 
+     * submitted through it, but leaves the shared executor running.
+     */
+    private static class SharedExecutorView extends AbstractExecutorService {
+
+        private final ExecutorService executor;
+        // Submitted through this view and not yet done.
+        private final Set<Runnable> pending = ConcurrentHashMap.newKeySet();
+        private volatile boolean shutdown;
+
+        private SharedExecutorView(ExecutorService executor) {
+            this.executor = executor;
+        }
+
+        @Override
+        protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
+            return new CooperativeTask<>(this, callable);
+        }
+
+        @Override
+        protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+            return new CooperativeTask<>(this, Executors.callable(runnable, value));
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            if (shutdown) {
+                throw new RejectedExecutionException("shut down");
+            }
+            if (!(command instanceof CooperativeTask)) {
+                executor.execute(command);
+                return;
+            }
+            pending.add(command);
+            try {
+                executor.execute(command);
+            } catch (RejectedExecutionException e) {
+                taskDone(command);
+                throw e;
+            }
+        }
+
+        @Override
+        public void shutdown() {
+            shutdown = true;
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            shutdown = true;
+            List<Runnable> cancelled = new ArrayList<>();
+            for (Runnable task : pending) {
+                if (((CooperativeTask<?>) task).cancel(true)) {
+                    cancelled.add(task);
+                }
+            }
+            return cancelled;
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return shutdown;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return shutdown && pending.isEmpty();
+        }
+
+        @Override
+        public synchronized boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            final long deadline = System.nanoTime() + unit.toNanos(timeout);
+            while (!isTerminated()) {
+                final long remaining = deadline - System.nanoTime();
+                if (remaining <= 0L) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+            return true;
+        }
+
+        private synchronized void taskDone(Runnable task) {
+            pending.remove(task);
+            notifyAll();
+        }
+    }
+
+    /**
+     * A future whose waiting threads run it themselves if it has not been started.
+     * When the shared executor gets to it, it is then skipped, since a 
+     * <code>FutureTask</code> only runs once.
+     */
+    private static class CooperativeTask<T> extends FutureTask<T> {
+
+        private final SharedExecutorView view;
+
+        private CooperativeTask(SharedExecutorView view, Callable<T> callable) {
+            super(callable);
+            this.view = view;
+        }
+
+        @Override
+        public T get() throws InterruptedException, ExecutionException {
+            run();
+            return super.get();
+        }
+
+        @Override
+        public T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            run();
+            return super.get(timeout, unit);
+        }
+
+        @Override
+        protected void done() {
+            view.taskDone(this);
+        }
+    }
+}
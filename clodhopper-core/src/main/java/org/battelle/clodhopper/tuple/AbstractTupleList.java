@@ -76,6 +76,25 @@ public abstract class AbstractTupleList implements TupleList {
         return tupleLength;
     }
 
+    /**
+     * {@inheritDoc}
+     * 
+     * <p>This implementation calls <code>getTuple</code> for each tuple in the 
+     * range. Subclasses should override it if they can copy a range more 
+     * efficiently.</p>
+     */
+    @Override
+    public double[] getTuples(final int start, final int count, final double[] dest, final int offset) {
+        checkTupleRange(start, count);
+        double[] result = tuplesDestination(count, dest, offset);
+        double[] buffer = new double[tupleLength];
+        for (int i = 0, off = offset; i < count; i++, off += tupleLength) {
+            getTuple(start + i, buffer);
+            System.arraycopy(buffer, 0, result, off, tupleLength);
+        }
+        return result;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -102,6 +121,74 @@ public abstract class AbstractTupleList implements TupleList {
         }
     }
 
+    /**
+     * Checks a range of tuple indexes, throwing an IndexOutOfBoundsException if
+     * any part of it is out of range.
+     *
+     * @param start the first index in the range.
+     * @param count the number of indexes in the range.
+     */
+    protected void checkTupleRange(final int start, final int count) {
+        if (count < 0 || start < 0 || start > tupleCount - count) {
+            throw new IndexOutOfBoundsException(String.format("tuple range [%d - %d] not in [%d - %d]", 
+                    start, start + count - 1, 0, tupleCount - 1));
+        }
+    }
+
+    /**
+     * Returns the array into which to copy the values of count tuples for 
+     * <code>getTuples</code>, allocating one if dest is null.
+     *
+     * @param count the number of tuples.
+     * @param dest the destination array supplied by the caller, which may be null.
+     * @param offset the offset in dest at which the first value goes.
+     * 
+     * @return dest or a newly allocated array.
+     * 
+     * @throws IllegalArgumentException if dest is too short to hold the values.
+     */
+    protected double[] tuplesDestination(final int count, final double[] dest, final int offset) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("offset < 0: " + offset);
+        }
+        final long required = offset + (long) count * tupleLength;
+        if (dest == null) {
+            return new double[(int) required];
+        }
+        if (dest.length < required) {
+            throw new IllegalArgumentException(
+                    String.format("destination array of insufficient length: %d < %d", dest.length, required));
+        }
+        return dest;
+    }
+
+    /**
+     * Counterpart of <code>tuplesDestination</code> for lists that also
+     * implement {@link FloatTupleList}.
+     *
+     * @param count the number of tuples.
+     * @param dest the destination array supplied by the caller, which may be null.
+     * @param offset the offset in dest at which the first value goes.
+     * 
+     * @return dest or a newly allocated array.
+     * 
+     * @throws IllegalArgumentException if dest is too short to hold the values.
+     */
+    protected float[] floatTuplesDestination(final int count, final float[] dest, final int offset) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("offset < 0: " + offset);
+        }
+        final long required = offset + (long) count * tupleLength;
+        if (dest == null) {
+            return new float[(int) required];
+        }
+        if (dest.length < required) {
+            throw new IllegalArgumentException(
+                    String.format("destination array of insufficient length: %d < %d", dest.length, required));
+        }
+        return dest;
+    }
+
     /**
      * Checks the column index, throwing an IndexOutOfBoundsException if it is
      * invalid.
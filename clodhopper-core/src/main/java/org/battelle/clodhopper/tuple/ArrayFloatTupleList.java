@@ -0,0 +1,266 @@
+package org.battelle.clodhopper.tuple;
+
+import java.io.*;
+
+/*=====================================================================
+ * 
+ *                       CLODHOPPER CLUSTERING API
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Copyright (C) 2013 Battelle Memorial Institute 
+ * http://www.battelle.org
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ * 
+ * -------------------------------------------------------------------- 
+ * *
+ * ArrayFloatTupleList.java
+ *
+ *===================================================================*/
+/**
+ * <p>
+ * A <tt>FloatTupleList</tt> which maintains the coordinate data in a 
+ * one-dimensional array of floats. It uses half the memory of an 
+ * <tt>ArrayTupleList</tt> with the same dimensions.</p>
+ *
+ * @author R. Scarberry
+ * @since 2.0.1
+ */
+public class ArrayFloatTupleList extends AbstractTupleList implements FloatTupleList {
+
+    private final float[] values;
+
+    /**
+     * Constructs a new <tt>ArrayFloatTupleList</tt> with all values initialized to
+     * zero.
+     *
+     * @param tupleLength the length of each tuple
+     * @param tupleCount the number of tuples
+     */
+    public ArrayFloatTupleList(final int tupleLength, final int tupleCount) {
+        super(tupleLength, tupleCount);
+        this.values = new float[tupleLength * tupleCount];
+    }
+
+    /**
+     * Constructs a new <tt>ArrayFloatTupleList</tt> using the provided array of
+     * values. This array is not copied, so any changes made directly to this
+     * array will change the data in this tuple list.
+     *
+     * @param tupleLength the length of each tuple
+     * @param tupleCount the number of tuples
+     * @param values an array containing the tuple values, which should have a
+     * length at least tupleLength * tupleCount.
+     *
+     * @throws IllegalArgumentException if either tupleLength or tupleCount is
+     * negative or if values has insufficient length.
+     */
+    public ArrayFloatTupleList(final int tupleLength, 
+        final int tupleCount,
+        final float[] values) {
+        
+        super(tupleLength, tupleCount);
+        if (values.length < tupleLength * tupleCount) {
+            throw new IllegalArgumentException(String.format("values.length < %d: %d", tupleLength * tupleCount, values.length));
+        }
+        this.values = values;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setTuple(final int n, final double[] values) {
+        checkTupleIndex(n);
+        checkValuesLength(values);
+        for (int i = 0, j = n * tupleLength; i < tupleLength; i++, j++) {
+            this.values[j] = (float) values[i];
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setFloatTuple(final int n, final float[] values) {
+        checkTupleIndex(n);
+        checkValuesLength(values.length);
+        System.arraycopy(values, 0, this.values, n * tupleLength, tupleLength);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double[] getTuple(final int n, final double[] reuseBuffer) {
+        checkTupleIndex(n);
+        double[] result = reuseBuffer != null && reuseBuffer.length >= tupleLength ? reuseBuffer
+                : new double[tupleLength];
+        for (int i = 0, j = n * tupleLength; i < tupleLength; i++, j++) {
+            result[i] = this.values[j];
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public float[] getFloatTuple(final int n, final float[] reuseBuffer) {
+        checkTupleIndex(n);
+        float[] result = reuseBuffer != null && reuseBuffer.length >= tupleLength ? reuseBuffer
+                : new float[tupleLength];
+        System.arraycopy(this.values, n * tupleLength, result, 0, tupleLength);
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double[] getTuples(final int start, final int count, final double[] dest, final int offset) {
+        checkTupleRange(start, count);
+        double[] result = tuplesDestination(count, dest, offset);
+        final int len = count * tupleLength;
+        for (int i = 0, j = start * tupleLength; i < len; i++, j++) {
+            result[offset + i] = this.values[j];
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public float[] getFloatTuples(final int start, final int count, final float[] dest, final int offset) {
+        checkTupleRange(start, count);
+        float[] result = floatTuplesDestination(count, dest, offset);
+        System.arraycopy(this.values, start * tupleLength, result, offset, count * tupleLength);
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getTupleValue(final int n, final int col) {
+        checkTupleIndex(n);
+        checkColumnIndex(col);
+        return this.values[n * tupleLength + col];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double[] getColumn(final int col, final double[] columnBuffer) {
+        checkColumnIndex(col);
+        int len = columnBuffer != null ? columnBuffer.length : 0;
+        double[] result = len >= tupleCount ? columnBuffer : new double[tupleCount];
+        for (int i = 0, currentNdx = col; i < tupleCount; i++, currentNdx += tupleLength) {
+            result[i] = this.values[currentNdx];
+        }
+        return result;
+    }
+
+    private void checkValuesLength(final int length) {
+        if (length < tupleLength) {
+            throw new IllegalArgumentException(
+                    String.format("values array of insufficient length: %d < %d", length, tupleLength));
+        }
+    }
+
+    /**
+     * Loads an instance of of <code>ArrayFloatTupleList</code> from a file
+     * containing binary float tuple data. The file format is two ints 
+     * specifying the tuple length and tuple count, then the tuple data
+     * itself as floats.
+     *
+     * @param f the file containing the data.
+     *
+     * @return an <code>ArrayFloatTupleList</code> object
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    public static ArrayFloatTupleList loadFromFile(final File f) throws IOException {
+        ArrayFloatTupleList tuples = null;
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(f)));
+            int tupleLength = in.readInt();
+            int tupleCount = in.readInt();
+            tuples = new ArrayFloatTupleList(tupleLength, tupleCount);
+            float[] values = tuples.values;
+            for (int i = 0; i < values.length; i++) {
+                values[i] = in.readFloat();
+            }
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException ioe) {
+                }
+            }
+        }
+        return tuples;
+    }
+
+    /**
+     * Saves tuple data to a file in the format that can be reloaded using
+     * the <code>loadFromFile</code> method or opened with 
+     * <code>FileMappedFloatTupleList</code>. Values are narrowed to floats.
+     *
+     * @param tuples the tuple list to save.
+     * @param f the file in which to save it.
+     *
+     * @throws IOException if an IO error occurs.
+     */
+    public static void saveToFile(final TupleList tuples, final File f) throws IOException {
+        final int tupleLength = tuples.getTupleLength();
+        final int tupleCount = tuples.getTupleCount();
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(f)));
+            out.writeInt(tupleLength);
+            out.writeInt(tupleCount);
+            if (tuples instanceof FloatTupleList) {
+                FloatTupleList floatTuples = (FloatTupleList) tuples;
+                float[] buffer = new float[tupleLength];
+                for (int i = 0; i < tupleCount; i++) {
+                    floatTuples.getFloatTuple(i, buffer);
+                    for (int j = 0; j < tupleLength; j++) {
+                        out.writeFloat(buffer[j]);
+                    }
+                }
+            } else {
+                double[] buffer = new double[tupleLength];
+                for (int i = 0; i < tupleCount; i++) {
+                    tuples.getTuple(i, buffer);
+                    for (int j = 0; j < tupleLength; j++) {
+                        out.writeFloat((float) buffer[j]);
+                    }
+                }
+            }
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException ioe) {
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,363 @@
+package org.battelle.clodhopper.tuple;
+
+import java.util.Arrays;
+
+/*=====================================================================
+ * 
+ *                       CLODHOPPER CLUSTERING API
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Copyright (C) 2013 Battelle Memorial Institute 
+ * http://www.battelle.org
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ * 
+ * -------------------------------------------------------------------- 
+ * *
+ * CSRTupleList.java
+ *
+ *===================================================================*/
+/**
+ * Implements a <code>SparseTupleList</code> in compressed sparse row (CSR) 
+ * format. The nonzero values of all tuples are stored in one array, with a
+ * parallel array of their column indexes, and an array of row pointers giving
+ * the position of the first nonzero value of each tuple.
+ * 
+ * <p>Replacing a tuple with <code>setTuple</code> may have to shift the values
+ * of all subsequent tuples, so large lists should be populated with a 
+ * {@link CSRTupleList.Builder}. Like <code>ArrayTupleList</code>, this class does
+ * not coordinate writes with concurrent reads.</p>
+ *
+ * @author R. Scarberry
+ * @since 2.0.1
+ *
+ */
+public class CSRTupleList extends AbstractTupleList implements SparseTupleList {
+
+    // Length tupleCount + 1. The nonzero values of tuple n are at 
+    // [rowPointers[n] - rowPointers[n+1]) in columnIndexes and values.
+    private final int[] rowPointers;
+    private int[] columnIndexes;
+    private double[] values;
+    // Largest number of nonzeros in a tuple, or -1 if it must be recomputed.
+    private int maxNonZeroCount;
+
+    /**
+     * Constructs a new <tt>CSRTupleList</tt> with all values initialized to
+     * zero.
+     *
+     * @param tupleLength the length of each tuple
+     * @param tupleCount the number of tuples
+     */
+    public CSRTupleList(final int tupleLength, final int tupleCount) {
+        super(tupleLength, tupleCount);
+        this.rowPointers = new int[tupleCount + 1];
+        this.columnIndexes = new int[0];
+        this.values = new double[0];
+    }
+
+    /**
+     * Constructs a new <tt>CSRTupleList</tt> using the provided arrays, which
+     * are not copied.
+     *
+     * @param tupleLength the length of each tuple
+     * @param tupleCount the number of tuples
+     * @param rowPointers an array of length tupleCount + 1. The nonzero values of
+     *   tuple n are at indexes <code>rowPointers[n]</code> through 
+     *   <code>rowPointers[n+1] - 1</code> of columnIndexes and values.
+     * @param columnIndexes the column indexes of the nonzero values, ascending within
+     *   each tuple.
+     * @param values the nonzero values.
+     *
+     * @throws IllegalArgumentException if the arrays are inconsistent.
+     */
+    public CSRTupleList(final int tupleLength, final int tupleCount, final int[] rowPointers,
+            final int[] columnIndexes, final double[] values) {
+        super(tupleLength, tupleCount);
+        if (rowPointers.length != tupleCount + 1 || rowPointers[0] != 0) {
+            throw new IllegalArgumentException("invalid row pointers");
+        }
+        final int nnz = rowPointers[tupleCount];
+        if (columnIndexes.length < nnz || values.length < nnz) {
+            throw new IllegalArgumentException(String.format(
+                    "column indexes and values must have length of at least %d", nnz));
+        }
+        for (int n = 0; n < tupleCount; n++) {
+            final int start = rowPointers[n];
+            final int end = rowPointers[n + 1];
+            if (end < start) {
+                throw new IllegalArgumentException("row pointers must be nondecreasing");
+            }
+            for (int i = start; i < end; i++) {
+                int col = columnIndexes[i];
+                if (col < 0 || col >= tupleLength || (i > start && col <= columnIndexes[i - 1])) {
+                    throw new IllegalArgumentException(String.format(
+                            "column indexes of tuple %d are not ascending in [0 - %d]", n, tupleLength - 1));
+                }
+            }
+        }
+        this.rowPointers = rowPointers;
+        this.columnIndexes = columnIndexes;
+        this.values = values;
+        this.maxNonZeroCount = -1;
+    }
+
+    /**
+     * Get the total number of nonzero values stored.
+     * 
+     * @return the number of nonzero values.
+     */
+    public int getNonZeroCount() {
+        return rowPointers[tupleCount];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getNonZeroCount(final int n) {
+        checkTupleIndex(n);
+        return rowPointers[n + 1] - rowPointers[n];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getMaxNonZeroCount() {
+        if (maxNonZeroCount < 0) {
+            int max = 0;
+            for (int n = 0; n < tupleCount; n++) {
+                max = Math.max(max, rowPointers[n + 1] - rowPointers[n]);
+            }
+            maxNonZeroCount = max;
+        }
+        return maxNonZeroCount;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getSparseTuple(final int n, final int[] indexBuffer, final double[] valueBuffer) {
+        checkTupleIndex(n);
+        final int start = rowPointers[n];
+        final int nnz = rowPointers[n + 1] - start;
+        if (indexBuffer.length < nnz || valueBuffer.length < nnz) {
+            throw new IllegalArgumentException(String.format("buffers must have length of at least %d", nnz));
+        }
+        System.arraycopy(columnIndexes, start, indexBuffer, 0, nnz);
+        System.arraycopy(values, start, valueBuffer, 0, nnz);
+        return nnz;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setTuple(final int n, final double[] values) {
+        checkTupleIndex(n);
+        checkValuesLength(values);
+        int nnz = 0;
+        for (int i = 0; i < tupleLength; i++) {
+            if (values[i] != 0.0) {
+                nnz++;
+            }
+        }
+        int[] indexes = new int[nnz];
+        double[] nonZeros = new double[nnz];
+        for (int i = 0, j = 0; i < tupleLength; i++) {
+            if (values[i] != 0.0) {
+                indexes[j] = i;
+                nonZeros[j++] = values[i];
+            }
+        }
+        replaceTuple(n, indexes, nonZeros, nnz);
+    }
+
+    /**
+     * Set the nonzero values of a tuple. 
+     * 
+     * @param n the 0-indexed identifier of the tuple.
+     * @param indexes the column indexes of the nonzero values in ascending order.
+     * @param values the nonzero values.
+     * @param nnz the number of nonzero values.
+     *
+     * @throws IndexOutOfBoundsException if n is outside the range [0 -
+     * (getTupleCount() - 1)]
+     * @throws IllegalArgumentException if the indexes are not ascending or are out of range.
+     */
+    public void setSparseTuple(final int n, final int[] indexes, final double[] values, final int nnz) {
+        checkTupleIndex(n);
+        checkSparseIndexes(indexes, nnz, tupleLength);
+        replaceTuple(n, indexes, values, nnz);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double[] getTuple(final int n, final double[] reuseBuffer) {
+        checkTupleIndex(n);
+        double[] result = reuseBuffer != null && reuseBuffer.length >= tupleLength ? reuseBuffer
+                : new double[tupleLength];
+        Arrays.fill(result, 0, tupleLength, 0.0);
+        final int end = rowPointers[n + 1];
+        for (int i = rowPointers[n]; i < end; i++) {
+            result[columnIndexes[i]] = values[i];
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getTupleValue(final int n, final int col) {
+        checkTupleIndex(n);
+        checkColumnIndex(col);
+        int i = Arrays.binarySearch(columnIndexes, rowPointers[n], rowPointers[n + 1], col);
+        return i >= 0 ? values[i] : 0.0;
+    }
+
+    // Replaces the nonzeros of tuple n, shifting those of later tuples if the count changes.
+    private void replaceTuple(final int n, final int[] indexes, final double[] nonZeros, final int nnz) {
+        final int start = rowPointers[n];
+        final int oldNnz = rowPointers[n + 1] - start;
+        final int delta = nnz - oldNnz;
+        if (delta != 0) {
+            final int total = rowPointers[tupleCount];
+            final int tail = total - (start + oldNnz);
+            if (total + delta > columnIndexes.length) {
+                int capacity = Math.max(total + delta, columnIndexes.length + (columnIndexes.length >> 1));
+                columnIndexes = Arrays.copyOf(columnIndexes, capacity);
+                values = Arrays.copyOf(values, capacity);
+            }
+            System.arraycopy(columnIndexes, start + oldNnz, columnIndexes, start + nnz, tail);
+            System.arraycopy(values, start + oldNnz, values, start + nnz, tail);
+            for (int i = n + 1; i <= tupleCount; i++) {
+                rowPointers[i] += delta;
+            }
+        }
+        System.arraycopy(indexes, 0, columnIndexes, start, nnz);
+        System.arraycopy(nonZeros, 0, values, start, nnz);
+        if (maxNonZeroCount >= 0) {
+            maxNonZeroCount = nnz >= maxNonZeroCount ? nnz : oldNnz == maxNonZeroCount ? -1 : maxNonZeroCount;
+        }
+    }
+
+    private static void checkSparseIndexes(final int[] indexes, final int nnz, final int tupleLength) {
+        for (int i = 0; i < nnz; i++) {
+            int col = indexes[i];
+            if (col < 0 || col >= tupleLength || (i > 0 && col <= indexes[i - 1])) {
+                throw new IllegalArgumentException(String.format(
+                        "column indexes are not ascending in [0 - %d]", tupleLength - 1));
+            }
+        }
+    }
+
+    /**
+     * Builds a <code>CSRTupleList</code> by appending tuples in order, which
+     * costs time proportional to the number of nonzero values.
+     */
+    public static class Builder {
+
+        private final int tupleLength;
+        private int tupleCount;
+        private int[] rowPointers = new int[16];
+        private int[] columnIndexes = new int[16];
+        private double[] values = new double[16];
+
+        /**
+         * Constructor
+         * 
+         * @param tupleLength the length of the tuples.
+         */
+        public Builder(final int tupleLength) {
+            if (tupleLength < 0) {
+                throw new IllegalArgumentException("tupleLength < 0: " + tupleLength);
+            }
+            this.tupleLength = tupleLength;
+        }
+
+        /**
+         * Appends a tuple given as a dense array of values.
+         * 
+         * @param tuple the values, of length at least the tuple length.
+         * 
+         * @return this builder.
+         */
+        public Builder addTuple(final double[] tuple) {
+            if (tuple.length < tupleLength) {
+                throw new IllegalArgumentException(String.format("values.length < %d: %d", tupleLength, tuple.length));
+            }
+            int nnz = rowPointers[tupleCount];
+            for (int i = 0; i < tupleLength; i++) {
+                if (tuple[i] != 0.0) {
+                    ensureCapacity(nnz + 1);
+                    columnIndexes[nnz] = i;
+                    values[nnz++] = tuple[i];
+                }
+            }
+            return endTuple(nnz);
+        }
+
+        /**
+         * Appends a tuple given as its nonzero values.
+         * 
+         * @param indexes the column indexes of the nonzero values in ascending order.
+         * @param nonZeros the nonzero values.
+         * @param nnz the number of nonzero values.
+         * 
+         * @return this builder.
+         */
+        public Builder addSparseTuple(final int[] indexes, final double[] nonZeros, final int nnz) {
+            checkSparseIndexes(indexes, nnz, tupleLength);
+            final int start = rowPointers[tupleCount];
+            ensureCapacity(start + nnz);
+            System.arraycopy(indexes, 0, columnIndexes, start, nnz);
+            System.arraycopy(nonZeros, 0, values, start, nnz);
+            return endTuple(start + nnz);
+        }
+
+        /**
+         * Builds the tuple list from the tuples added so far.
+         * 
+         * @return a new <code>CSRTupleList</code>.
+         */
+        public CSRTupleList build() {
+            final int nnz = rowPointers[tupleCount];
+            return new CSRTupleList(tupleLength, tupleCount, Arrays.copyOf(rowPointers, tupleCount + 1),
+                    Arrays.copyOf(columnIndexes, nnz), Arrays.copyOf(values, nnz));
+        }
+
+        private Builder endTuple(final int nnz) {
+            if (tupleCount + 2 > rowPointers.length) {
+                rowPointers = Arrays.copyOf(rowPointers, 2 * rowPointers.length);
+            }
+            rowPointers[++tupleCount] = nnz;
+            return this;
+        }
+
+        private void ensureCapacity(final int capacity) {
+            if (capacity > columnIndexes.length) {
+                int newCapacity = Math.max(capacity, 2 * columnIndexes.length);
+                columnIndexes = Arrays.copyOf(columnIndexes, newCapacity);
+                values = Arrays.copyOf(values, newCapacity);
+            }
+        }
+    }
+}
@@ -0,0 +1,417 @@
+package org.battelle.clodhopper.tuple;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/*=====================================================================
+ * 
+ *                       CLODHOPPER CLUSTERING API
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Copyright (C) 2013 Battelle Memorial Institute 
+ * http://www.battelle.org
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ * 
+ * -------------------------------------------------------------------- 
+ * *
+ * ColumnarFileTupleList.java
+ *
+ *===================================================================*/
+/**
+ * A read-only <code>TupleList</code> backed by a file in a self-describing, 
+ * column-major binary format that records the statistics of the data in a
+ * footer. The statistics are available as soon as the file is opened, so 
+ * bounding boxes, means, and unique tuple counts need no pass over the data.
+ * The data section is memory-mapped and read in place.
+ * 
+ * <p>The format, with all values big-endian, is:</p>
+ * <ul>
+ * <li>a 32-byte header: the 8 ASCII bytes <tt>CLDHCOLS</tt>, the int format
+ * version, the int tuple length, the int tuple count, an int of reserved 
+ * flags, and the long file position of the footer;</li>
+ * <li>the data: each column's values as doubles, one column after another;</li>
+ * <li>the footer: the int unique tuple count, then for each column its 
+ * minimum, maximum, mean, and variance as doubles and the CRC-32 of its data 
+ * as a long, then the CRC-32 of the preceding footer bytes as a long.</li>
+ * </ul>
+ * 
+ * <p>The footer checksum is always verified on opening. The column checksums
+ * require reading all the data, so they are only verified on request.</p>
+ * 
+ * <p>Since the data is stored by column, <code>getColumn</code> is a bulk read,
+ * while reading a tuple gathers one value from each column.</p>
+ *
+ * @author R. Scarberry
+ * @since 2.0.1
+ */
+public class ColumnarFileTupleList extends AbstractTupleList implements SummarizedTupleList, Closeable {
+
+    /**
+     * The current version of the file format.
+     */
+    public static final int FORMAT_VERSION = 1;
+    
+    /**
+     * The length of the file header in bytes.
+     */
+    public static final int HEADER_LENGTH = 32;
+
+    private static final byte[] MAGIC = "CLDHCOLS".getBytes(StandardCharsets.US_ASCII);
+    
+    // Bytes in the footer for each column: 4 doubles and a long.
+    private static final int COLUMN_FOOTER_LENGTH = 40;
+    
+    private static final int IO_BUFFER_BYTES = 1 << 20;
+
+    private final File file;
+    private final TupleListStatistics statistics;
+    private final long[] columnChecksums;
+    // The mapped data. Each segment holds whole columns when they fit.
+    private final MappedValues values;
+
+    /**
+     * Opens an existing file without verifying the checksums of the data.
+     * 
+     * @param file the file.
+     * 
+     * @return a <code>ColumnarFileTupleList</code> that reads from the file.
+     * 
+     * @throws IOException if an IO error occurs, or if the file is not in the
+     *   expected format.
+     */
+    public static ColumnarFileTupleList openExisting(final File file) throws IOException {
+        return openExisting(file, false);
+    }
+
+    /**
+     * Opens an existing file.
+     * 
+     * @param file the file.
+     * @param verifyChecksums if true, the data is read to verify the checksum of 
+     *   every column.
+     * 
+     * @return a <code>ColumnarFileTupleList</code> that reads from the file.
+     * 
+     * @throws IOException if an IO error occurs, or if the file is not in the
+     *   expected format or a checksum does not match.
+     */
+    public static ColumnarFileTupleList openExisting(final File file, final boolean verifyChecksums) 
+            throws IOException {
+        return new ColumnarFileTupleList(file, verifyChecksums, MappedValues.MAX_SEGMENT_BYTES);
+    }
+    
+    // Package-private so tests can exercise multiple segments with small files.
+    ColumnarFileTupleList(final File file, final boolean verifyChecksums, final long maxSegmentBytes) 
+            throws IOException {
+        super(0, 0);
+        if (file == null) {
+            throw new NullPointerException();
+        }
+        this.file = file;
+        
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+            readFully(channel, header, 0L);
+            header.flip();
+            byte[] magic = new byte[MAGIC.length];
+            header.get(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException(file.getName() + " is not a columnar tuple file");
+            }
+            final int version = header.getInt();
+            if (version < 1 || version > FORMAT_VERSION) {
+                throw new IOException("unsupported columnar tuple file version: " + version);
+            }
+            final int tlen = header.getInt();
+            final int tcount = header.getInt();
+            header.getInt(); // Reserved flags.
+            final long footerPosition = header.getLong();
+            if (tlen < 0 || tcount < 0) {
+                throw new IOException(String.format("invalid tuple file header: tuple length = %d, tuple count = %d", 
+                        tlen, tcount));
+            }
+            if (footerPosition != HEADER_LENGTH + 8L * tlen * tcount) {
+                throw new IOException("invalid footer position: " + footerPosition);
+            }
+            
+            final int footerLength = 4 + COLUMN_FOOTER_LENGTH * tlen + 8;
+            if (channel.size() < footerPosition + footerLength) {
+                throw new IOException(String.format("tuple file is truncated: %d < %d", 
+                        channel.size(), footerPosition + footerLength));
+            }
+            ByteBuffer footer = ByteBuffer.allocate(footerLength);
+            readFully(channel, footer, footerPosition);
+            
+            CRC32 crc = new CRC32();
+            crc.update(footer.array(), 0, footerLength - 8);
+            footer.flip();
+            if (footer.getLong(footerLength - 8) != crc.getValue()) {
+                throw new IOException("footer checksum mismatch in " + file.getName());
+            }
+            
+            final int uniqueCount = footer.getInt();
+            final double[] minimums = new double[tlen];
+            final double[] maximums = new double[tlen];
+            final double[] means = new double[tlen];
+            final double[] variances = new double[tlen];
+            columnChecksums = new long[tlen];
+            for (int col = 0; col < tlen; col++) {
+                minimums[col] = footer.getDouble();
+                maximums[col] = footer.getDouble();
+                means[col] = footer.getDouble();
+                variances[col] = footer.getDouble();
+                columnChecksums[col] = footer.getLong();
+            }
+            try {
+                statistics = new TupleListStatistics(tcount, minimums, maximums, means, variances, uniqueCount);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("invalid statistics in " + file.getName(), e);
+            }
+            
+            if (verifyChecksums) {
+                verifyColumnChecksums(channel, tlen, tcount);
+            }
+            
+            // Segments hold whole columns if possible, so column reads stay within a segment.
+            int perSegment = MappedValues.valuesPerSegment(maxSegmentBytes, 8, 0);
+            if (tcount > 0 && tcount <= perSegment) {
+                perSegment -= perSegment % tcount;
+            }
+            values = new MappedValues(channel, HEADER_LENGTH, (long) tlen * tcount, false, 
+                    ByteOrder.BIG_ENDIAN, perSegment);
+            
+            this.tupleLength = tlen;
+            this.tupleCount = tcount;
+        }
+    }
+
+    private void verifyColumnChecksums(final FileChannel channel, final int tlen, final int tcount) 
+            throws IOException {
+        ByteBuffer bb = ByteBuffer.allocateDirect(IO_BUFFER_BYTES);
+        CRC32 crc = new CRC32();
+        long position = HEADER_LENGTH;
+        for (int col = 0; col < tlen; col++) {
+            crc.reset();
+            long remaining = 8L * tcount;
+            while (remaining > 0) {
+                bb.clear();
+                bb.limit((int) Math.min(remaining, bb.capacity()));
+                readFully(channel, bb, position);
+                bb.flip();
+                position += bb.remaining();
+                remaining -= bb.remaining();
+                crc.update(bb);
+            }
+            if (crc.getValue() != columnChecksums[col]) {
+                throw new IOException(String.format("checksum mismatch for column %d in %s", col, file.getName()));
+            }
+        }
+    }
+
+    /**
+     * Get the file backing this instance.
+     *
+     * @return a file instance.
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TupleListStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Returns the CRC-32 checksum of a column's data as recorded in the file.
+     * 
+     * @param col the column index.
+     * 
+     * @return the checksum.
+     */
+    public long getColumnChecksum(final int col) {
+        checkColumnIndex(col);
+        return columnChecksums[col];
+    }
+
+    /**
+     * Get whether or not the mapping of the file is still available.
+     *
+     * @return true if the file is open.
+     */
+    public boolean isOpen() {
+        return values.isOpen();
+    }
+
+    /**
+     * Releases the mapping of the file. The statistics remain available.
+     */
+    @Override
+    public void close() {
+        values.close();
+    }
+
+    /**
+     * Always throws an <code>UnsupportedOperationException</code>, since 
+     * instances are read-only.
+     */
+    @Override
+    public void setTuple(final int n, final double[] values) {
+        throw new UnsupportedOperationException("read-only");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double[] getTuple(final int n, final double[] reuseBuffer) {
+        checkTupleIndex(n);
+        double[] result = reuseBuffer != null && reuseBuffer.length >= tupleLength ? reuseBuffer
+                : new double[tupleLength];
+        for (int col = 0; col < tupleLength; col++) {
+            result[col] = values.get((long) col * tupleCount + n);
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getTupleValue(final int n, final int col) {
+        checkTupleIndex(n);
+        checkColumnIndex(col);
+        return values.get((long) col * tupleCount + n);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double[] getColumn(final int col, final double[] columnBuffer) {
+        checkColumnIndex(col);
+        int len = columnBuffer != null ? columnBuffer.length : 0;
+        double[] result = len >= tupleCount ? columnBuffer : new double[tupleCount];
+        values.get((long) col * tupleCount, tupleCount, result, 0);
+        return result;
+    }
+
+    /**
+     * Saves tuple data to a file in the format read by this class, computing the 
+     * statistics and checksums as the columns are written. If the tuples are a 
+     * <code>SummarizedTupleList</code>, its unique tuple count is reused; 
+     * otherwise the tuples are sorted to count them.
+     *
+     * @param tuples the tuple list to save.
+     * @param f the file in which to save it.
+     *
+     * @throws IOException if an IO error occurs.
+     */
+    public static void saveToFile(final TupleList tuples, final File f) throws IOException {
+        
+        final int tlen = tuples.getTupleLength();
+        final int tcount = tuples.getTupleCount();
+        final long footerPosition = HEADER_LENGTH + 8L * tlen * tcount;
+        
+        final int uniqueCount = tuples instanceof SummarizedTupleList ? 
+                ((SummarizedTupleList) tuples).getStatistics().getUniqueTupleCount() : 
+                TupleMath.uniqueTupleCount(tuples);
+
+        try (FileChannel channel = FileChannel.open(f.toPath(), StandardOpenOption.CREATE, 
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+            header.put(MAGIC);
+            header.putInt(FORMAT_VERSION);
+            header.putInt(tlen);
+            header.putInt(tcount);
+            header.putInt(0);
+            header.putLong(footerPosition);
+            header.flip();
+            writeFully(channel, header);
+
+            final double[] minimums = new double[tlen];
+            final double[] maximums = new double[tlen];
+            final double[] means = new double[tlen];
+            final double[] variances = new double[tlen];
+            final long[] checksums = new long[tlen];
+            
+            ByteBuffer bb = ByteBuffer.allocateDirect(IO_BUFFER_BYTES);
+            CRC32 crc = new CRC32();
+            double[] column = null;
+            
+            for (int col = 0; col < tlen; col++) {
+                column = tuples.getColumn(col, column);
+                TupleListStatistics.summarizeColumn(column, tcount, col, minimums, maximums, means, variances);
+                crc.reset();
+                for (int start = 0; start < tcount; start += IO_BUFFER_BYTES / 8) {
+                    int n = Math.min(IO_BUFFER_BYTES / 8, tcount - start);
+                    bb.clear();
+                    bb.asDoubleBuffer().put(column, start, n);
+                    bb.limit(8 * n);
+                    crc.update(bb.duplicate());
+                    writeFully(channel, bb);
+                }
+                checksums[col] = crc.getValue();
+            }
+            
+            ByteBuffer footer = ByteBuffer.allocate(4 + COLUMN_FOOTER_LENGTH * tlen + 8);
+            footer.putInt(uniqueCount);
+            for (int col = 0; col < tlen; col++) {
+                footer.putDouble(minimums[col]);
+                footer.putDouble(maximums[col]);
+                footer.putDouble(means[col]);
+                footer.putDouble(variances[col]);
+                footer.putLong(checksums[col]);
+            }
+            crc.reset();
+            crc.update(footer.array(), 0, footer.position());
+            footer.putLong(crc.getValue());
+            footer.flip();
+            writeFully(channel, footer);
+        }
+    }
+
+    private static void readFully(final FileChannel channel, final ByteBuffer bb, long position) throws IOException {
+        while (bb.hasRemaining()) {
+            int n = channel.read(bb, position);
+            if (n < 0) {
+                throw new EOFException();
+            }
+            position += n;
+        }
+    }
+
+    private static void writeFully(final FileChannel channel, final ByteBuffer bb) throws IOException {
+        while (bb.hasRemaining()) {
+            channel.write(bb);
+        }
+    }
+}
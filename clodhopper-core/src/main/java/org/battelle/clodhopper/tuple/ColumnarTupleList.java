@@ -0,0 +1,177 @@
+package org.battelle.clodhopper.tuple;
+
+/*=====================================================================
+ * 
+ *                       CLODHOPPER CLUSTERING API
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Copyright (C) 2013 Battelle Memorial Institute 
+ * http://www.battelle.org
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ * 
+ * -------------------------------------------------------------------- 
+ * *
+ * ColumnarTupleList.java
+ *
+ *===================================================================*/
+/**
+ * Implements a <code>TupleList</code> that stores its values in a single array
+ * in column-major order: all the values for column 0, followed by all the values 
+ * for column 1, and so on. <code>getColumn</code> is a single array copy, and 
+ * code that processes one dimension at a time, such as kd-tree construction 
+ * and per-column statistics, reads the values sequentially. Reading a whole
+ * tuple is correspondingly slower than with an <code>ArrayTupleList</code>.
+ *
+ * @author R. Scarberry
+ * @since 2.0.1
+ */
+public class ColumnarTupleList extends AbstractTupleList {
+
+    private final double[] values;
+
+    /**
+     * Constructs a new <tt>ColumnarTupleList</tt> with all values initialized to
+     * zero.
+     *
+     * @param tupleLength the length of each tuple
+     * @param tupleCount the number of tuples
+     */
+    public ColumnarTupleList(final int tupleLength, final int tupleCount) {
+        super(tupleLength, tupleCount);
+        this.values = new double[tupleLength * tupleCount];
+    }
+
+    /**
+     * Constructs a new <tt>ColumnarTupleList</tt> using the provided array of
+     * values in column-major order. This array is not copied, so any changes 
+     * made directly to this array will change the data in this tuple list.
+     *
+     * @param tupleLength the length of each tuple
+     * @param tupleCount the number of tuples
+     * @param values an array containing the tuple values, which should have a
+     * length at least tupleLength * tupleCount.
+     *
+     * @throws IllegalArgumentException if either tupleLength or tupleCount is
+     * negative or if values has insufficient length.
+     */
+    public ColumnarTupleList(final int tupleLength, final int tupleCount, final double[] values) {
+        super(tupleLength, tupleCount);
+        if (values.length < tupleLength * tupleCount) {
+            throw new IllegalArgumentException(String.format("values.length < %d: %d", tupleLength * tupleCount, values.length));
+        }
+        this.values = values;
+    }
+
+    /**
+     * Creates a column-major copy of a <code>TupleList</code>.
+     * 
+     * @param tuples the tuples to copy.
+     * 
+     * @return a new <code>ColumnarTupleList</code>.
+     */
+    public static ColumnarTupleList copyOf(final TupleList tuples) {
+        final int tupleLength = tuples.getTupleLength();
+        final int tupleCount = tuples.getTupleCount();
+        ColumnarTupleList result = new ColumnarTupleList(tupleLength, tupleCount);
+        final double[] dest = result.values;
+        // Read the source in row order, which is sequential for most implementations, 
+        // and scatter the values to their columns.
+        final double[] buffer = new double[tupleLength];
+        final TupleBlockReader reader = new TupleBlockReader(tuples, 0, tupleCount);
+        for (int n = 0; n < tupleCount; n++) {
+            reader.next(buffer);
+            for (int col = 0, i = n; col < tupleLength; col++, i += tupleCount) {
+                dest[i] = buffer[col];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Creates a row-major copy of this tuple list.
+     * 
+     * @return a new <code>ArrayTupleList</code> containing the same values.
+     */
+    public ArrayTupleList toArrayTupleList() {
+        final double[] rowMajor = new double[tupleLength * tupleCount];
+        for (int col = 0, i = 0; col < tupleLength; col++) {
+            for (int n = 0, j = col; n < tupleCount; n++, j += tupleLength) {
+                rowMajor[j] = values[i++];
+            }
+        }
+        return new ArrayTupleList(tupleLength, tupleCount, rowMajor);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setTuple(final int n, final double[] values) {
+        checkTupleIndex(n);
+        checkValuesLength(values);
+        for (int col = 0, i = n; col < tupleLength; col++, i += tupleCount) {
+            this.values[i] = values[col];
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double[] getTuple(final int n, final double[] reuseBuffer) {
+        checkTupleIndex(n);
+        double[] result = reuseBuffer != null && reuseBuffer.length >= tupleLength ? reuseBuffer
+                : new double[tupleLength];
+        for (int col = 0, i = n; col < tupleLength; col++, i += tupleCount) {
+            result[col] = this.values[i];
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getTupleValue(final int n, final int col) {
+        checkTupleIndex(n);
+        checkColumnIndex(col);
+        return this.values[col * tupleCount + n];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double[] getColumn(final int col, final double[] columnBuffer) {
+        checkColumnIndex(col);
+        int len = columnBuffer != null ? columnBuffer.length : 0;
+        double[] result = len >= tupleCount ? columnBuffer : new double[tupleCount];
+        System.arraycopy(this.values, col * tupleCount, result, 0, tupleCount);
+        return result;
+    }
+
+    // The backing array. Used by code in this package that scans columns
+    // without copying them.
+    double[] values() {
+        return values;
+    }
+
+    // The index in values() of the value of tuple 0 in column col.
+    int columnOffset(final int col) {
+        return col * tupleCount;
+    }
+}
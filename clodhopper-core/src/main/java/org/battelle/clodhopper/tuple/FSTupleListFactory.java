@@ -44,6 +44,7 @@ public class FSTupleListFactory implements TupleListFactory {
 
     private static final String SINGLE_FILE_PREFIX = "__tuples_s__";
     private static final String TUPLE_FILE_EXTENSION = ".tpl";
+    private static final String FLOAT_TUPLE_FILE_EXTENSION = ".ftpl";
     private static final String MULTI_FILE_DIRECTORY = "multi";
 
     // Half a gig
@@ -52,8 +53,11 @@ public class FSTupleListFactory implements TupleListFactory {
     public static final long DEFAULT_SINGLE_FILE_THRESHOLD = 4L * 1024L * 1024L * 1024L;
     // Half a gig
     public static final long DEFAULT_SINGLE_FILE_SIZE = 512L * 1024L * 1024L;
+    // Off-heap storage is not used unless requested.
+    public static final long DEFAULT_OFF_HEAP_THRESHOLD = 0L;
 
     private final long ramThreshold;
+    private final long offHeapThreshold;
     private final long singleFileThreshold;
     private final long singleFileSize;
 
@@ -63,6 +67,7 @@ public class FSTupleListFactory implements TupleListFactory {
     private final Map<String, Object> tupleListMap = new HashMap<String, Object>();
     private final Object singleFileSentinel = new Object();
     private final Object multiFileSentinel = new Object();
+    private final Object floatFileSentinel = new Object();
 
     /**
      * Constructor. The default RAM and file thresholds are used.
@@ -94,6 +99,34 @@ public class FSTupleListFactory implements TupleListFactory {
      */
     public FSTupleListFactory(final File directory, final long ramThreshold,
         final long singleFileThreshold, final long singleFileSize) throws TupleListFactoryException {
+        this(directory, ramThreshold, DEFAULT_OFF_HEAP_THRESHOLD, singleFileThreshold, singleFileSize);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param directory root directory for the factory. All tuple data for this
+     * factory exists under this directory.
+     * @param ramThreshold the threshold for storing tuple data in RAM. If the
+     * memory required by a tuple list is less than this threshold, the factory
+     * returns a memory resident tuple list class.
+     * @param offHeapThreshold the threshold for storing tuple data in direct memory
+     * outside the Java heap. If the memory required by a tuple list exceeds the RAM
+     * threshold but not this threshold, the factory returns an 
+     * <code>OffHeapTupleList</code>. If not greater than the RAM threshold, off-heap
+     * tuple lists are never returned.
+     * @param singleFileThreshold the threshold for being able to store the data
+     * for a tuple list in a single file. If the space required for a tuple list
+     * exceeds this threshold, its data is spread over multiple files.
+     * @param singleFileSize the maximum file size for tuple lists that span
+     * multiple files.
+     *
+     * @throws TupleListFactoryException if a problem occurs.
+     * 
+     * @since 2.0.1
+     */
+    public FSTupleListFactory(final File directory, final long ramThreshold, final long offHeapThreshold,
+        final long singleFileThreshold, final long singleFileSize) throws TupleListFactoryException {
 
         if (directory == null) {
             throw new NullPointerException();
@@ -104,6 +137,7 @@ public class FSTupleListFactory implements TupleListFactory {
 
         this.directory = directory;
         this.ramThreshold = ramThreshold;
+        this.offHeapThreshold = offHeapThreshold;
         this.singleFileThreshold = singleFileThreshold;
         this.singleFileSize = singleFileSize;
 
@@ -180,6 +214,31 @@ public class FSTupleListFactory implements TupleListFactory {
             }
         }
 
+        File[] floatFiles = this.directory.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File f) {
+                if (f.isFile()) {
+                    String name = f.getName();
+                    return name.startsWith(SINGLE_FILE_PREFIX) && name.endsWith(FLOAT_TUPLE_FILE_EXTENSION);
+                }
+                return false;
+            }
+        });
+
+        for (int i = 0; i < floatFiles.length; i++) {
+            File f = floatFiles[i];
+            try {
+                if (FileMappedFloatTupleList.validateFile(f)) {
+                    String fname = f.getName();
+                    String tupleName = fname.substring(SINGLE_FILE_PREFIX.length(),
+                            fname.length() - FLOAT_TUPLE_FILE_EXTENSION.length());
+                    tupleListMap.put(tupleName, floatFileSentinel);
+                }
+            } catch (IOException ioe) {
+                ioe.printStackTrace();
+            }
+        }
+
         File[] multiDirs = this.multiDirectory().listFiles();
         for (int i = 0; i < multiDirs.length; i++) {
             File dir = multiDirs[i];
@@ -214,6 +273,8 @@ public class FSTupleListFactory implements TupleListFactory {
         long dataLen = 8L * tupleLength * tupleCount;
         if (dataLen <= this.ramThreshold) {
             tuples = new ArrayTupleList(tupleLength, tupleCount);
+        } else if (dataLen <= this.offHeapThreshold) {
+            tuples = new OffHeapTupleList(tupleLength, tupleCount);
         } else if (dataLen <= this.singleFileThreshold) {
             try {
                 tuples = FileMappedTupleList.createNew(singleFileForTuples(name), tupleLength, tupleCount);
@@ -234,6 +295,54 @@ public class FSTupleListFactory implements TupleListFactory {
         return tuples;
     }
 
+    /**
+     * Create a new <code>FloatTupleList</code> and associate it with a name. The
+     * name must be unique in this factory. The tuple list is memory resident if
+     * its data fits within the RAM threshold. Otherwise it is backed by a single
+     * memory-mapped file, since <code>FileMappedFloatTupleList</code> is not
+     * limited to 2 GB.
+     *
+     * @param name the name to be associated with the tuple list.
+     * @param tupleLength the length of the tuples.
+     * @param tupleCount the number of tuples.
+     *
+     * @return a <code>FloatTupleList</code>
+     *
+     * @throws TupleListFactoryException if something goes wrong such as another
+     * <code>TupleList</code> already being associated with the name, or if an
+     * I/O error occurs.
+     * 
+     * @since 2.0.1
+     */
+    public synchronized FloatTupleList createNewFloatTupleList(final String name, 
+        final int tupleLength, final int tupleCount) throws TupleListFactoryException {
+
+        if (name == null) {
+            throw new NullPointerException();
+        }
+
+        if (tupleListMap.containsKey(name)) {
+            throw new TupleListFactoryException("tuples already exist for name " + name);
+        }
+
+        FloatTupleList tuples = null;
+
+        long dataLen = 4L * tupleLength * tupleCount;
+        if (dataLen <= this.ramThreshold) {
+            tuples = new ArrayFloatTupleList(tupleLength, tupleCount);
+        } else {
+            try {
+                tuples = FileMappedFloatTupleList.createNew(floatFileForTuples(name), tupleLength, tupleCount);
+            } catch (IOException ioe) {
+                throw new TupleListFactoryException(ioe);
+            }
+        }
+
+        tupleListMap.put(name, tuples);
+
+        return tuples;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -249,6 +358,8 @@ public class FSTupleListFactory implements TupleListFactory {
                 File f = singleFileForTuples(name);
                 if (f.length() <= this.ramThreshold) {
                     tuples = ArrayTupleList.loadFromFile(f);
+                } else if (f.length() <= this.offHeapThreshold) {
+                    tuples = OffHeapTupleList.loadFromFile(f);
                 } else {
                     tuples = FileMappedTupleList.openExisting(f);
                 }
@@ -256,10 +367,20 @@ public class FSTupleListFactory implements TupleListFactory {
             } else if (o == this.multiFileSentinel) {
                 tuples = MultiFileMappedTupleList.openExisting(multiDirForTuples(name));
                 tupleListMap.put(name, tuples);
+            } else if (o == this.floatFileSentinel) {
+                File f = floatFileForTuples(name);
+                if (f.length() <= this.ramThreshold) {
+                    tuples = ArrayFloatTupleList.loadFromFile(f);
+                } else {
+                    tuples = FileMappedFloatTupleList.openExisting(f);
+                }
+                tupleListMap.put(name, tuples);
             } else if (o instanceof TupleList) {
                 tuples = (TupleList) o;
                 if (tuples instanceof FileMappedTupleList) {
                     ((FileMappedTupleList) tuples).open();
+                } else if (tuples instanceof FileMappedFloatTupleList) {
+                    ((FileMappedFloatTupleList) tuples).open();
                 } else if (tuples instanceof MultiFileMappedTupleList) {
                     ((MultiFileMappedTupleList) tuples).open();
                 }
@@ -280,11 +401,51 @@ public class FSTupleListFactory implements TupleListFactory {
         final int tupleLength = original.getTupleLength();
         final int tupleCount = original.getTupleCount();
 
+        // Copies of single-precision tuples remain single-precision.
+        if (original instanceof FloatTupleList) {
+            FloatTupleList floatOriginal = (FloatTupleList) original;
+            FloatTupleList copy = createNewFloatTupleList(nameForCopy, tupleLength, tupleCount);
+            float[] buffer = new float[tupleLength];
+            for (int i = 0; i < tupleCount; i++) {
+                copy.setFloatTuple(i, floatOriginal.getFloatTuple(i, buffer));
+            }
+            return copy;
+        }
+
+        final long dataLen = 8L * tupleLength * tupleCount;
+
+        if (dataLen <= this.ramThreshold) {
+            // Fill the new array with a single bulk read.
+            ArrayTupleList copy = (ArrayTupleList) createNewTupleList(nameForCopy, tupleLength, tupleCount);
+            original.getTuples(0, tupleCount, copy.values(), 0);
+            return copy;
+        }
+
+        if (dataLen > this.offHeapThreshold && dataLen <= this.singleFileThreshold) {
+            // Write the file in bulk, then map it, rather than filling a new mapping a tuple at a time.
+            if (nameForCopy == null) {
+                throw new NullPointerException();
+            }
+            if (tupleListMap.containsKey(nameForCopy)) {
+                throw new TupleListFactoryException("tuples already exist for name " + nameForCopy);
+            }
+            try {
+                File f = singleFileForTuples(nameForCopy);
+                ArrayTupleList.saveToFile(original, f);
+                TupleList copy = FileMappedTupleList.openExisting(f);
+                tupleListMap.put(nameForCopy, copy);
+                return copy;
+            } catch (IOException ioe) {
+                throw new TupleListFactoryException(ioe);
+            }
+        }
+
         TupleList copy = createNewTupleList(nameForCopy, tupleLength, tupleCount);
 
         double[] buffer = new double[tupleLength];
+        TupleBlockReader reader = new TupleBlockReader(original, 0, tupleCount);
         for (int i = 0; i < tupleCount; i++) {
-            copy.setTuple(i, original.getTuple(i, buffer));
+            copy.setTuple(i, reader.next(buffer));
         }
 
         return copy;
@@ -309,6 +470,13 @@ public class FSTupleListFactory implements TupleListFactory {
                 if (!f.delete()) {
                     throw new TupleListFactoryException("could not delete file for tuples associated with name " + name);
                 }
+            } else if (tuples instanceof FileMappedFloatTupleList) {
+                FileMappedFloatTupleList fmTupleList = (FileMappedFloatTupleList) tuples;
+                File f = fmTupleList.getFile();
+                fmTupleList.close();
+                if (!f.delete()) {
+                    throw new TupleListFactoryException("could not delete file for tuples associated with name " + name);
+                }
             } else if (tuples instanceof MultiFileMappedTupleList) {
                 MultiFileMappedTupleList mfmTupleList = (MultiFileMappedTupleList) tuples;
                 File dir = mfmTupleList.getDirectory();
@@ -316,6 +484,8 @@ public class FSTupleListFactory implements TupleListFactory {
                 if (!dir.delete()) {
                     throw new TupleListFactoryException("could not delete directory for tuples associated with name " + name);
                 }
+            } else if (tuples instanceof OffHeapTupleList) {
+                ((OffHeapTupleList) tuples).close();
             }
             tupleListMap.remove(name);
         } catch (TupleListFactoryException tle) {
@@ -345,10 +515,19 @@ public class FSTupleListFactory implements TupleListFactory {
             } else if (tuples instanceof MultiFileMappedTupleList) {
                 ((MultiFileMappedTupleList) tuples).close();
                 tupleListMap.put(name, multiFileSentinel);
+            } else if (tuples instanceof FileMappedFloatTupleList) {
+                ((FileMappedFloatTupleList) tuples).close();
+                tupleListMap.put(name, floatFileSentinel);
+            } else if (tuples instanceof FloatTupleList) {
+                ArrayFloatTupleList.saveToFile(tuples, floatFileForTuples(name));
+                tupleListMap.put(name, floatFileSentinel);
             } else {
                 File f = singleFileForTuples(name);
                 ArrayTupleList.saveToFile(tuples, f);
                 tupleListMap.put(name, singleFileSentinel);
+                if (tuples instanceof OffHeapTupleList) {
+                    ((OffHeapTupleList) tuples).close();
+                }
             }
 
         } catch (IOException ioe) {
@@ -395,6 +574,12 @@ public class FSTupleListFactory implements TupleListFactory {
         return new File(directory, SINGLE_FILE_PREFIX + name + TUPLE_FILE_EXTENSION);
     }
 
+    // Returns a file object for single-precision tuples.
+    //
+    private File floatFileForTuples(final String name) {
+        return new File(directory, SINGLE_FILE_PREFIX + name + FLOAT_TUPLE_FILE_EXTENSION);
+    }
+
     // Returns the directory file to be used for tuples spanning multiple files.
     //
     private File multiDirForTuples(final String name) {
@@ -0,0 +1,481 @@
+package org.battelle.clodhopper.tuple;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*=====================================================================
+ * 
+ *                       CLODHOPPER CLUSTERING API
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Copyright (C) 2013 Battelle Memorial Institute 
+ * http://www.battelle.org
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ * 
+ * -------------------------------------------------------------------- 
+ * *
+ * FileMappedFloatTupleList.java
+ *
+ *===================================================================*/
+/**
+ * Implements a <code>FloatTupleList</code> backed by a single binary data file.
+ * The data section of the file is memory-mapped in segments of up to 2 GB
+ * each, so files larger than 2 GB are supported. Every segment holds a whole
+ * number of tuples, so a tuple never straddles two segments.
+ * 
+ * <p>Reads are served directly from the mapped segments using absolute
+ * gets, so any number of threads may read concurrently without locking and
+ * without system calls. Concurrent writes to the same tuple are not
+ * coordinated by this class.</p>
+ * 
+ * <p>The file format is the same as that of <code>FileMappedTupleList</code>, 
+ * two ints for the tuple length and the tuple count, except that the tuple 
+ * values which follow are big-endian floats instead of doubles.</p>
+ *
+ * @author R. Scarberry
+ * @since 2.0.1
+ *
+ */
+public class FileMappedFloatTupleList extends AbstractTupleList implements FloatTupleList {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FileMappedFloatTupleList.class);
+
+    private static final int HEADER_LENGTH = FileMappedTupleList.HEADER_LENGTH;
+    private static final long DEFAULT_MAX_SEGMENT_BYTES = FileMappedTupleList.DEFAULT_MAX_SEGMENT_BYTES;
+    
+    private final File file;
+    private final long maxSegmentBytes;
+    
+    // The mapped segments of the data section. Only retained so they can be
+    // forced to disk when closing.
+    private MappedByteBuffer[] mappedSegments;
+    // Float views of mappedSegments. Null when closed. The reference is
+    // volatile, so readers never need to synchronize.
+    private volatile FloatBuffer[] segments;
+    // Number of tuples in each segment. The last one may contain fewer.
+    private int tuplesPerSegment;
+
+    /**
+     * Constructor.
+     *
+     * @param file the file in which to store the tuples.
+     * @param tupleLength the tuple length.
+     * @param tupleCount the tuple count.
+     *
+     * @throws IOException if an IO error occurs.
+     */
+    protected FileMappedFloatTupleList(final File file, final int tupleLength, final int tupleCount) throws IOException {
+        this(file, tupleLength, tupleCount, DEFAULT_MAX_SEGMENT_BYTES);
+    }
+    
+    // Package-private so tests can exercise multiple segments with small files.
+    FileMappedFloatTupleList(final File file, final int tupleLength, final int tupleCount, 
+            final long maxSegmentBytes) throws IOException {
+        super(tupleLength, tupleCount);
+        if (file == null) {
+            throw new NullPointerException();
+        }
+        this.file = file;
+        this.maxSegmentBytes = checkMaxSegmentBytes(maxSegmentBytes);
+        initEmptyFile();
+        open();
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param file the file containing the tuples.
+     * @throws IOException if an IO error occurs.
+     */
+    protected FileMappedFloatTupleList(final File file) throws IOException {
+        this(file, DEFAULT_MAX_SEGMENT_BYTES);
+    }
+    
+    // Package-private so tests can exercise multiple segments with small files.
+    FileMappedFloatTupleList(final File file, final long maxSegmentBytes) throws IOException {
+        super(0, 0);
+        if (file == null) {
+            throw new NullPointerException();
+        }
+        this.file = file;
+        this.maxSegmentBytes = checkMaxSegmentBytes(maxSegmentBytes);
+        open();
+    }
+
+    /**
+     * Factory method that creates a new <code>TupleList</code> backed by the
+     * specified file.
+     *
+     * @param file the file for storing the data.
+     * @param tupleLength the tuple length.
+     * @param tupleCount the tuple count.
+     * @return an instance of <code>FileMappedFloatTupleList</code>.
+     * @throws IOException if an IO problem occurs.
+     */
+    public static FileMappedFloatTupleList createNew(final File file, final int tupleLength, final int tupleCount)
+            throws IOException {
+        return new FileMappedFloatTupleList(file, tupleLength, tupleCount);
+    }
+
+    /**
+     * Factory method that opens a <code>TupleList</code> backed by an existing
+     * data file.
+     *
+     * @param file the file containing the tuples.
+     * @return an instance of <code>FileMappedFloatTupleList</code>.
+     * @throws IOException if an IO error occurs.
+     */
+    public static FileMappedFloatTupleList openExisting(final File file) throws IOException {
+        return new FileMappedFloatTupleList(file);
+    }
+
+    /**
+     * Get the file backing this instance.
+     *
+     * @return a file instance.
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Checks a file to see whether it contains valid tuple data.
+     *
+     * @param f the file to check.
+     * @return true if the file validates, false otherwise.
+     * @throws IOException if an IO error occurs.
+     */
+    public static boolean validateFile(final File f) throws IOException {
+        if (f.exists() && f.isFile()) {
+            DataInputStream in = null;
+            try {
+                in = new DataInputStream(new FileInputStream(f));
+                int tupleLen = in.readInt();
+                int tupleCount = in.readInt();
+                return f.length() == expectedFileLength(tupleLen, tupleCount);
+            } finally {
+                if (in != null) {
+                    try {
+                        in.close();
+                    } catch (IOException e) {
+                    }
+                }
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Computes the length a file should have to hold the specified float tuples,
+     * including the header.
+     * 
+     * @param tupleLength the tuple length.
+     * @param tupleCount the tuple count.
+     * 
+     * @return the file length in bytes.
+     */
+    public static long expectedFileLength(final int tupleLength, final int tupleCount) {
+        return HEADER_LENGTH + 4L * ((long) tupleLength) * tupleCount;
+    }
+
+    private static long checkMaxSegmentBytes(final long maxSegmentBytes) {
+        if (maxSegmentBytes <= 0 || maxSegmentBytes > DEFAULT_MAX_SEGMENT_BYTES) {
+            throw new IllegalArgumentException("maxSegmentBytes not in [1 - " 
+                    + DEFAULT_MAX_SEGMENT_BYTES + "]: " + maxSegmentBytes);
+        }
+        return maxSegmentBytes;
+    }
+    
+    private void initEmptyFile() throws IOException {
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(this.file, "rw");
+            // Truncate first, so everything past the header reads back as zeros.
+            raf.setLength(0L);
+            raf.writeInt(this.tupleLength);
+            raf.writeInt(this.tupleCount);
+            raf.setLength(expectedFileLength(this.tupleLength, this.tupleCount));
+        } finally {
+            if (raf != null) {
+                try {
+                    raf.close();
+                } catch (IOException e) {
+                    LOGGER.error("error closing output stream", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get whether or not the backing file is open.
+     *
+     * @return true if the file is open.
+     */
+    public boolean isOpen() {
+        return segments != null;
+    }
+
+    /**
+     * Opens the backing file. If the file is already open, this method does
+     * nothing.
+     *
+     * @throws IOException if an IO error occurs.
+     */
+    public synchronized void open() throws IOException {
+        if (!isOpen()) {
+            RandomAccessFile raf = null;
+            try {
+                raf = new RandomAccessFile(this.file, "rw");
+                int tlen = raf.readInt();
+                int tcount = raf.readInt();
+                if (tlen < 0 || tcount < 0) {
+                    throw new IOException(String.format("invalid tuple file header: tuple length = %d, tuple count = %d", 
+                            tlen, tcount));
+                }
+                long expectedLen = expectedFileLength(tlen, tcount);
+                if (raf.length() < expectedLen) {
+                    throw new IOException(String.format("tuple file is truncated: %d < %d", raf.length(), expectedLen));
+                }
+                
+                final long tupleBytes = 4L * tlen;
+                if (tupleBytes > maxSegmentBytes) {
+                    throw new IOException("tuple length too large to map: " + tlen);
+                }
+                
+                int perSegment = tupleBytes > 0 ? (int) (maxSegmentBytes / tupleBytes) : Math.max(1, tcount);
+                int segmentCount = tcount > 0 ? (int) ((tcount + (long) perSegment - 1) / perSegment) : 0;
+                
+                MappedByteBuffer[] mapped = new MappedByteBuffer[segmentCount];
+                FloatBuffer[] views = new FloatBuffer[segmentCount];
+                
+                FileChannel channel = raf.getChannel();
+                for (int i = 0; i < segmentCount; i++) {
+                    long firstTuple = (long) i * perSegment;
+                    long tuplesThisSegment = Math.min(perSegment, tcount - firstTuple);
+                    mapped[i] = channel.map(FileChannel.MapMode.READ_WRITE, 
+                            HEADER_LENGTH + firstTuple * tupleBytes, tuplesThisSegment * tupleBytes);
+                    views[i] = mapped[i].asFloatBuffer();
+                }
+                
+                this.tupleLength = tlen;
+                this.tupleCount = tcount;
+                this.tuplesPerSegment = perSegment;
+                this.mappedSegments = mapped;
+                // Publish last, since the volatile write makes the other fields visible to readers.
+                this.segments = views;
+                
+            } finally {
+                // The mappings remain valid after the channel is closed.
+                if (raf != null) {
+                    try {
+                        raf.close();
+                    } catch (IOException e) {
+                        LOGGER.error("error closing file", e);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Close the backing file if it is open. Changes made to the data are forced
+     * to the storage device.
+     * Unlike {@link FileMappedTupleList}, this list has no finalizer, so callers
+     * should close it, directly or through {@link FSTupleListFactory}, when done.
+     *
+     * @throws IOException if an IO error occurs.
+     */
+    public synchronized void close() throws IOException {
+        if (isOpen()) {
+            segments = null;
+            for (MappedByteBuffer mbb : mappedSegments) {
+                mbb.force();
+            }
+            mappedSegments = null;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setTuple(final int n, final double[] values) {
+        checkTupleIndex(n);
+        checkValuesLength(values);
+        final FloatBuffer segment = segmentFor(n);
+        final int offset = segmentOffset(n);
+        for (int i = 0; i < this.tupleLength; i++) {
+            segment.put(offset + i, (float) values[i]);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setFloatTuple(final int n, final float[] values) {
+        checkTupleIndex(n);
+        if (values.length < tupleLength) {
+            throw new IllegalArgumentException(
+                    String.format("values array of insufficient length: %d < %d", values.length, tupleLength));
+        }
+        final FloatBuffer segment = segmentFor(n);
+        final int offset = segmentOffset(n);
+        for (int i = 0; i < this.tupleLength; i++) {
+            segment.put(offset + i, values[i]);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double[] getTuple(final int n, final double[] reuseBuffer) {
+        checkTupleIndex(n);
+        final FloatBuffer segment = segmentFor(n);
+        double[] result = reuseBuffer != null && reuseBuffer.length >= tupleLength ? reuseBuffer
+                : new double[tupleLength];
+        final int offset = segmentOffset(n);
+        for (int i = 0; i < this.tupleLength; i++) {
+            result[i] = segment.get(offset + i);
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public float[] getFloatTuple(final int n, final float[] reuseBuffer) {
+        checkTupleIndex(n);
+        final FloatBuffer segment = segmentFor(n);
+        float[] result = reuseBuffer != null && reuseBuffer.length >= tupleLength ? reuseBuffer
+                : new float[tupleLength];
+        final int offset = segmentOffset(n);
+        for (int i = 0; i < this.tupleLength; i++) {
+            result[i] = segment.get(offset + i);
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double[] getTuples(final int start, final int count, final double[] dest, final int offset) {
+        checkTupleRange(start, count);
+        final FloatBuffer[] segs = openSegments();
+        double[] result = tuplesDestination(count, dest, offset);
+        int n = start;
+        int off = offset;
+        final int end = start + count;
+        while (n < end) {
+            final int segmentIndex = n / tuplesPerSegment;
+            final int segmentEnd = (int) Math.min(end, (long) (segmentIndex + 1) * tuplesPerSegment);
+            final FloatBuffer segment = segs[segmentIndex];
+            final int from = segmentOffset(n);
+            final int to = from + (segmentEnd - n) * tupleLength;
+            for (int i = from; i < to; i++) {
+                result[off++] = segment.get(i);
+            }
+            n = segmentEnd;
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public float[] getFloatTuples(final int start, final int count, final float[] dest, final int offset) {
+        checkTupleRange(start, count);
+        final FloatBuffer[] segs = openSegments();
+        float[] result = floatTuplesDestination(count, dest, offset);
+        int n = start;
+        int off = offset;
+        final int end = start + count;
+        while (n < end) {
+            final int segmentIndex = n / tuplesPerSegment;
+            final int segmentEnd = (int) Math.min(end, (long) (segmentIndex + 1) * tuplesPerSegment);
+            final int len = (segmentEnd - n) * tupleLength;
+            // A duplicate has its own position, so a relative bulk get on it
+            // does not interfere with concurrent readers.
+            final FloatBuffer view = segs[segmentIndex].duplicate();
+            view.position(segmentOffset(n));
+            view.get(result, off, len);
+            off += len;
+            n = segmentEnd;
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getTupleValue(final int n, final int col) {
+        checkTupleIndex(n);
+        checkColumnIndex(col);
+        return segmentFor(n).get(segmentOffset(n) + col);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double[] getColumn(final int col, final double[] columnBuffer) {
+        checkColumnIndex(col);
+        final FloatBuffer[] segs = openSegments();
+        int len = columnBuffer != null ? columnBuffer.length : 0;
+        double[] result = len >= tupleCount ? columnBuffer : new double[tupleCount];
+        int n = 0;
+        for (FloatBuffer segment : segs) {
+            final int lim = segment.limit();
+            for (int i = col; i < lim; i += tupleLength) {
+                result[n++] = segment.get(i);
+            }
+        }
+        return result;
+    }
+
+    // Returns the segments, ensuring the file is open.
+    private FloatBuffer[] openSegments() {
+        final FloatBuffer[] segs = segments;
+        if (segs == null) {
+            throw new IllegalStateException("not open");
+        }
+        return segs;
+    }
+    
+    // Returns the segment containing tuple n.
+    private FloatBuffer segmentFor(final int n) {
+        return openSegments()[n / tuplesPerSegment];
+    }
+
+    // Returns the offset in floats of tuple n within its segment.
+    private int segmentOffset(final int n) {
+        return (n % tuplesPerSegment) * tupleLength;
+    }
+}
@@ -1,14 +1,13 @@
 package org.battelle.clodhopper.tuple;
 
-import java.io.BufferedOutputStream;
 import java.io.DataInputStream;
-import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.RandomAccessFile;
-import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -42,7 +41,17 @@ import org.slf4j.LoggerFactory;
  *===================================================================*/
 /**
  * Implements a <code>TupleList</code> backed by a single binary data file.
- * Reads and writes of the data are accomplished via random access of the file.
+ * The data section of the file is memory-mapped in segments of up to 2 GB
+ * each, so files larger than 2 GB are supported. Every segment holds a whole
+ * number of tuples, so a tuple never straddles two segments.
+ * 
+ * <p>Reads are served directly from the mapped segments using absolute
+ * gets, so any number of threads may read concurrently without locking and
+ * without system calls. Concurrent writes to the same tuple are not
+ * coordinated by this class.</p>
+ * 
+ * <p>The file format is two ints, the tuple length and the tuple count,
+ * followed by the tuple values as doubles in big-endian order.</p>
  *
  * @author R. Scarberry
  * @since 1.0
@@ -52,9 +61,25 @@ public class FileMappedTupleList extends AbstractTupleList {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(FileMappedTupleList.class);
 
+    /**
+     * The length of the file header in bytes: the tuple length and tuple count.
+     */
+    public static final int HEADER_LENGTH = 8;
+    
+    // The largest region that can be mapped in one MappedByteBuffer.
+    static final long DEFAULT_MAX_SEGMENT_BYTES = Integer.MAX_VALUE;
+    
     private final File file;
-    private RandomAccessFile randomAccessFile;
-    private ByteBuffer ioBuffer;
+    private final long maxSegmentBytes;
+    
+    // The mapped segments of the data section. Only retained so they can be
+    // forced to disk when closing.
+    private MappedByteBuffer[] mappedSegments;
+    // Double views of mappedSegments. Null when closed. The reference is
+    // volatile, so readers never need to synchronize.
+    private volatile DoubleBuffer[] segments;
+    // Number of tuples in each segment. The last one may contain fewer.
+    private int tuplesPerSegment;
 
     /**
      * Constructor.
@@ -66,11 +91,18 @@ public class FileMappedTupleList extends AbstractTupleList {
      * @throws IOException if an IO error occurs.
      */
     protected FileMappedTupleList(final File file, final int tupleLength, final int tupleCount) throws IOException {
+        this(file, tupleLength, tupleCount, DEFAULT_MAX_SEGMENT_BYTES);
+    }
+    
+    // Package-private so tests can exercise multiple segments with small files.
+    FileMappedTupleList(final File file, final int tupleLength, final int tupleCount, 
+            final long maxSegmentBytes) throws IOException {
         super(tupleLength, tupleCount);
         if (file == null) {
             throw new NullPointerException();
         }
         this.file = file;
+        this.maxSegmentBytes = checkMaxSegmentBytes(maxSegmentBytes);
         initEmptyFile();
         open();
     }
@@ -82,11 +114,17 @@ public class FileMappedTupleList extends AbstractTupleList {
      * @throws IOException if an IO error occurs.
      */
     protected FileMappedTupleList(final File file) throws IOException {
+        this(file, DEFAULT_MAX_SEGMENT_BYTES);
+    }
+    
+    // Package-private so tests can exercise multiple segments with small files.
+    FileMappedTupleList(final File file, final long maxSegmentBytes) throws IOException {
         super(0, 0);
         if (file == null) {
             throw new NullPointerException();
         }
         this.file = file;
+        this.maxSegmentBytes = checkMaxSegmentBytes(maxSegmentBytes);
         open();
     }
 
@@ -140,8 +178,7 @@ public class FileMappedTupleList extends AbstractTupleList {
                 in = new DataInputStream(new FileInputStream(f));
                 int tupleLen = in.readInt();
                 int tupleCount = in.readInt();
-                long expectedFileLen = 8L * ((long) tupleLen) * tupleCount;
-                return f.length() == expectedFileLen;
+                return f.length() == expectedFileLength(tupleLen, tupleCount);
             } finally {
                 if (in != null) {
                     try {
@@ -153,22 +190,41 @@ public class FileMappedTupleList extends AbstractTupleList {
         }
         return false;
     }
+    
+    /**
+     * Computes the length a file should have to hold the specified tuples,
+     * including the header.
+     * 
+     * @param tupleLength the tuple length.
+     * @param tupleCount the tuple count.
+     * 
+     * @return the file length in bytes.
+     */
+    public static long expectedFileLength(final int tupleLength, final int tupleCount) {
+        return HEADER_LENGTH + 8L * ((long) tupleLength) * tupleCount;
+    }
 
+    private static long checkMaxSegmentBytes(final long maxSegmentBytes) {
+        if (maxSegmentBytes <= 0 || maxSegmentBytes > DEFAULT_MAX_SEGMENT_BYTES) {
+            throw new IllegalArgumentException("maxSegmentBytes not in [1 - " 
+                    + DEFAULT_MAX_SEGMENT_BYTES + "]: " + maxSegmentBytes);
+        }
+        return maxSegmentBytes;
+    }
+    
     private void initEmptyFile() throws IOException {
-        DataOutputStream out = null;
+        RandomAccessFile raf = null;
         try {
-            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(this.file)));
-            out.writeInt(this.tupleLength);
-            out.writeInt(this.tupleCount);
-            for (int i = 0; i < this.tupleCount; i++) {
-                for (int j = 0; j < this.tupleLength; j++) {
-                    out.writeDouble(0.0);
-                }
-            }
+            raf = new RandomAccessFile(this.file, "rw");
+            // Truncate first, so everything past the header reads back as zeros.
+            raf.setLength(0L);
+            raf.writeInt(this.tupleLength);
+            raf.writeInt(this.tupleCount);
+            raf.setLength(expectedFileLength(this.tupleLength, this.tupleCount));
         } finally {
-            if (out != null) {
+            if (raf != null) {
                 try {
-                    out.close();
+                    raf.close();
                 } catch (IOException e) {
                     LOGGER.error("error closing output stream", e);
                 }
@@ -181,8 +237,8 @@ public class FileMappedTupleList extends AbstractTupleList {
      *
      * @return true if the file is open.
      */
-    public synchronized boolean isOpen() {
-        return randomAccessFile != null;
+    public boolean isOpen() {
+        return segments != null;
     }
 
     /**
@@ -193,21 +249,54 @@ public class FileMappedTupleList extends AbstractTupleList {
      */
     public synchronized void open() throws IOException {
         if (!isOpen()) {
-            boolean ok = false;
+            RandomAccessFile raf = null;
             try {
-                randomAccessFile = new RandomAccessFile(this.file, "rw");
-                int tlen = randomAccessFile.readInt();
-                int tcount = randomAccessFile.readInt();
-                ioBuffer = ByteBuffer.allocate(8 * tlen);
+                raf = new RandomAccessFile(this.file, "rw");
+                int tlen = raf.readInt();
+                int tcount = raf.readInt();
+                if (tlen < 0 || tcount < 0) {
+                    throw new IOException(String.format("invalid tuple file header: tuple length = %d, tuple count = %d", 
+                            tlen, tcount));
+                }
+                long expectedLen = expectedFileLength(tlen, tcount);
+                if (raf.length() < expectedLen) {
+                    throw new IOException(String.format("tuple file is truncated: %d < %d", raf.length(), expectedLen));
+                }
+                
+                final long tupleBytes = 8L * tlen;
+                if (tupleBytes > maxSegmentBytes) {
+                    throw new IOException("tuple length too large to map: " + tlen);
+                }
+                
+                int perSegment = tupleBytes > 0 ? (int) (maxSegmentBytes / tupleBytes) : Math.max(1, tcount);
+                int segmentCount = tcount > 0 ? (int) ((tcount + (long) perSegment - 1) / perSegment) : 0;
+                
+                MappedByteBuffer[] mapped = new MappedByteBuffer[segmentCount];
+                DoubleBuffer[] views = new DoubleBuffer[segmentCount];
+                
+                FileChannel channel = raf.getChannel();
+                for (int i = 0; i < segmentCount; i++) {
+                    long firstTuple = (long) i * perSegment;
+                    long tuplesThisSegment = Math.min(perSegment, tcount - firstTuple);
+                    mapped[i] = channel.map(FileChannel.MapMode.READ_WRITE, 
+                            HEADER_LENGTH + firstTuple * tupleBytes, tuplesThisSegment * tupleBytes);
+                    views[i] = mapped[i].asDoubleBuffer();
+                }
+                
                 this.tupleLength = tlen;
                 this.tupleCount = tcount;
-                ok = true;
+                this.tuplesPerSegment = perSegment;
+                this.mappedSegments = mapped;
+                // Publish last, since the volatile write makes the other fields visible to readers.
+                this.segments = views;
+                
             } finally {
-                if (!ok) {
+                // The mappings remain valid after the channel is closed.
+                if (raf != null) {
                     try {
-                        close();
+                        raf.close();
                     } catch (IOException e) {
-                        LOGGER.error("error closing output stream", e);
+                        LOGGER.error("error closing file", e);
                     }
                 }
             }
@@ -215,15 +304,18 @@ public class FileMappedTupleList extends AbstractTupleList {
     }
 
     /**
-     * Close the backing file if it is open.
+     * Close the backing file if it is open. Changes made to the data are forced
+     * to the storage device.
      *
      * @throws IOException if an IO error occurs.
      */
     public synchronized void close() throws IOException {
         if (isOpen()) {
-            randomAccessFile.close();
-            randomAccessFile = null;
-            ioBuffer = null;
+            segments = null;
+            for (MappedByteBuffer mbb : mappedSegments) {
+                mbb.force();
+            }
+            mappedSegments = null;
         }
     }
 
@@ -234,17 +326,10 @@ public class FileMappedTupleList extends AbstractTupleList {
     public void setTuple(final int n, final double[] values) {
         checkTupleIndex(n);
         checkValuesLength(values);
-        checkOpen();
-        try {
-            randomAccessFile.seek(filePos(n));
-            ioBuffer.clear();
-            for (int i = 0; i < this.tupleLength; i++) {
-                ioBuffer.putDouble(values[i]);
-            }
-            ioBuffer.flip();
-            randomAccessFile.getChannel().write(ioBuffer);
-        } catch (IOException e) {
-            LOGGER.error("error setting tuple values", e);
+        final DoubleBuffer segment = segmentFor(n);
+        final int offset = segmentOffset(n);
+        for (int i = 0; i < this.tupleLength; i++) {
+            segment.put(offset + i, values[i]);
         }
     }
 
@@ -254,19 +339,40 @@ public class FileMappedTupleList extends AbstractTupleList {
     @Override
     public double[] getTuple(final int n, final double[] reuseBuffer) {
         checkTupleIndex(n);
-        checkOpen();
+        final DoubleBuffer segment = segmentFor(n);
         double[] result = reuseBuffer != null && reuseBuffer.length >= tupleLength ? reuseBuffer
                 : new double[tupleLength];
-        try {
-            randomAccessFile.seek(filePos(n));
-            ioBuffer.clear();
-            randomAccessFile.getChannel().read(ioBuffer);
-            ioBuffer.flip();
-            for (int i = 0; i < this.tupleLength; i++) {
-                result[i] = ioBuffer.getDouble();
-            }
-        } catch (IOException e) {
-            LOGGER.error("error reading tuple values", e);
+        final int offset = segmentOffset(n);
+        // Absolute gets do not touch the buffer's position, so this is safe
+        // for any number of concurrent readers.
+        for (int i = 0; i < this.tupleLength; i++) {
+            result[i] = segment.get(offset + i);
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double[] getTuples(final int start, final int count, final double[] dest, final int offset) {
+        checkTupleRange(start, count);
+        final DoubleBuffer[] segs = openSegments();
+        double[] result = tuplesDestination(count, dest, offset);
+        int n = start;
+        int off = offset;
+        final int end = start + count;
+        while (n < end) {
+            final int segmentIndex = n / tuplesPerSegment;
+            final int segmentEnd = (int) Math.min(end, (long) (segmentIndex + 1) * tuplesPerSegment);
+            final int len = (segmentEnd - n) * tupleLength;
+            // A duplicate has its own position, so a relative bulk get on it
+            // does not interfere with concurrent readers.
+            final DoubleBuffer view = segs[segmentIndex].duplicate();
+            view.position(segmentOffset(n));
+            view.get(result, off, len);
+            off += len;
+            n = segmentEnd;
         }
         return result;
     }
@@ -278,25 +384,45 @@ public class FileMappedTupleList extends AbstractTupleList {
     public double getTupleValue(final int n, final int col) {
         checkTupleIndex(n);
         checkColumnIndex(col);
-        checkOpen();
-        try {
-            randomAccessFile.seek(filePos(n) + 8L * col);
-            return randomAccessFile.readDouble();
-        } catch (IOException e) {
-            LOGGER.error("error reading tuple value", e);
+        return segmentFor(n).get(segmentOffset(n) + col);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double[] getColumn(final int col, final double[] columnBuffer) {
+        checkColumnIndex(col);
+        final DoubleBuffer[] segs = openSegments();
+        int len = columnBuffer != null ? columnBuffer.length : 0;
+        double[] result = len >= tupleCount ? columnBuffer : new double[tupleCount];
+        int n = 0;
+        for (DoubleBuffer segment : segs) {
+            final int lim = segment.limit();
+            for (int i = col; i < lim; i += tupleLength) {
+                result[n++] = segment.get(i);
+            }
         }
-        return 0.0;
+        return result;
     }
 
-    // Ensures file is open.
-    private void checkOpen() {
-        if (!isOpen()) {
+    // Returns the segments, ensuring the file is open.
+    private DoubleBuffer[] openSegments() {
+        final DoubleBuffer[] segs = segments;
+        if (segs == null) {
             throw new IllegalStateException("not open");
         }
+        return segs;
+    }
+    
+    // Returns the segment containing tuple n.
+    private DoubleBuffer segmentFor(final int n) {
+        return openSegments()[n / tuplesPerSegment];
     }
 
-    private long filePos(final int n) {
-        return 8L + n * ioBuffer.capacity();
+    // Returns the offset in doubles of tuple n within its segment.
+    private int segmentOffset(final int n) {
+        return (n % tuplesPerSegment) * tupleLength;
     }
 
     protected void finalize() {
@@ -58,6 +58,27 @@ public class FilteredTupleList extends AbstractTupleList {
 		return filteredTuples.getTuple(indexes[n], reuseBuffer);
 	}
 
+	@Override
+	public double[] getTuples(int start, int count, double[] dest, int offset) {
+		checkTupleRange(start, count);
+		double[] result = tuplesDestination(count, dest, offset);
+		final int end = start + count;
+		int n = start;
+		int off = offset;
+		while (n < end) {
+			// Find the run of tuples that are consecutive in the wrapped list,
+			// so each run can be read with one call.
+			int runEnd = n + 1;
+			while (runEnd < end && indexes[runEnd] == indexes[runEnd - 1] + 1) {
+				runEnd++;
+			}
+			filteredTuples.getTuples(indexes[n], runEnd - n, result, off);
+			off += (runEnd - n)*tupleLength;
+			n = runEnd;
+		}
+		return result;
+	}
+
 	@Override
 	public double getTupleValue(int n, int col) {
 		return filteredTuples.getTupleValue(indexes[n], col);
@@ -0,0 +1,87 @@
+package org.battelle.clodhopper.tuple;
+
+/*=====================================================================
+ * 
+ *                       CLODHOPPER CLUSTERING API
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Copyright (C) 2013 Battelle Memorial Institute 
+ * http://www.battelle.org
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ * 
+ * -------------------------------------------------------------------- 
+ * *
+ * FloatTupleList.java
+ *
+ *===================================================================*/
+/**
+ * A <code>FloatTupleList</code> is a <code>TupleList</code> that stores its
+ * values in single precision. The methods inherited from <code>TupleList</code>
+ * widen the values to doubles. Code that can work with floats directly should
+ * use <code>getFloatTuple</code> to avoid the conversion.
+ *
+ * @author R. Scarberry
+ * @since 2.0.1
+ *
+ */
+public interface FloatTupleList extends TupleList {
+
+    /**
+     * Set the values of a tuple.
+     *
+     * @param n the 0-indexed identifier of the tuple.
+     * @param values an array containing the values.
+     *
+     * @throws IndexOutOfBoundsException if n is outside the range [0 -
+     * (getTupleCount() - 1)]
+     * @throws IllegalArgumentException if values.length is less than
+     * getTupleLength().
+     */
+    void setFloatTuple(int n, float[] values);
+
+    /**
+     * Get the values for a tuple without widening them to doubles.
+     *
+     * @param n the 0-indexed identifier of the tuple.
+     * @param reuseBuffer an array into which to copy the values. If null, this
+     * method allocates and returns a new array containing the values.
+     *
+     * @return the array containing the values.
+     */
+    float[] getFloatTuple(int n, float[] reuseBuffer);
+
+    /**
+     * Get the values for a contiguous range of tuples without widening them to
+     * doubles. The layout of the values in dest is the same as for 
+     * <code>getTuples</code>.
+     *
+     * @param start the 0-indexed identifier of the first tuple.
+     * @param count the number of tuples.
+     * @param dest the array into which to copy the values. If null, a new array
+     * of length <code>offset + count * getTupleLength()</code> is allocated.
+     * @param offset the offset in dest at which to copy the first value.
+     *
+     * @return the array containing the values.
+     *
+     * @throws IndexOutOfBoundsException if the range of tuples is not within
+     * [0 - (getTupleCount() - 1)]
+     * @throws IllegalArgumentException if dest is non-null but too short to 
+     * hold the values.
+     */
+    float[] getFloatTuples(int start, int count, float[] dest, int offset);
+
+}
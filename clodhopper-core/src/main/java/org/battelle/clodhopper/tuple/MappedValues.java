@@ -0,0 +1,183 @@
+package org.battelle.clodhopper.tuple;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/*=====================================================================
+ * 
+ *                       CLODHOPPER CLUSTERING API
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Copyright (C) 2013 Battelle Memorial Institute 
+ * http://www.battelle.org
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ * 
+ * -------------------------------------------------------------------- 
+ * *
+ * MappedValues.java
+ *
+ *===================================================================*/
+/**
+ * A read-only sequence of double or float values mapped from a region of a 
+ * file, in segments of up to 2 GB, and addressed by a long index. Float values
+ * are widened when read. Used by the tuple lists that read existing file
+ * formats in place.
+ * 
+ * <p>Reads use absolute gets or duplicates of the segment buffers, so any 
+ * number of threads may read concurrently.</p>
+ * 
+ * @author R. Scarberry
+ * @since 2.0.1
+ */
+final class MappedValues {
+
+    // The largest region that can be mapped in one MappedByteBuffer.
+    static final long MAX_SEGMENT_BYTES = Integer.MAX_VALUE;
+
+    private final int valuesPerSegment;
+    
+    // One of these is used, depending on the precision. The references are volatile
+    // and set to null on close, so readers never need to synchronize.
+    private volatile DoubleBuffer[] doubleSegments;
+    private volatile FloatBuffer[] floatSegments;
+
+    /**
+     * Constructor.
+     * 
+     * @param channel the channel from which to map the values. The mappings 
+     *   remain valid after it is closed.
+     * @param position the file position of the first value.
+     * @param valueCount the number of values.
+     * @param singlePrecision true if the values are floats, false for doubles.
+     * @param byteOrder the byte order of the values.
+     * @param valuesPerSegment the number of values in each segment but the last.
+     * 
+     * @throws IOException if an IO error occurs.
+     */
+    MappedValues(final FileChannel channel, final long position, final long valueCount,
+            final boolean singlePrecision, final ByteOrder byteOrder, final int valuesPerSegment) 
+            throws IOException {
+        final int valueBytes = singlePrecision ? 4 : 8;
+        if (valuesPerSegment <= 0 || (long) valuesPerSegment * valueBytes > MAX_SEGMENT_BYTES) {
+            throw new IllegalArgumentException("invalid valuesPerSegment: " + valuesPerSegment);
+        }
+        final int segmentCount = (int) ((valueCount + valuesPerSegment - 1) / valuesPerSegment);
+        DoubleBuffer[] doubles = singlePrecision ? null : new DoubleBuffer[segmentCount];
+        FloatBuffer[] floats = singlePrecision ? new FloatBuffer[segmentCount] : null;
+        for (int i = 0; i < segmentCount; i++) {
+            long first = (long) i * valuesPerSegment;
+            long n = Math.min(valuesPerSegment, valueCount - first);
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 
+                    position + first * valueBytes, n * valueBytes);
+            mapped.order(byteOrder);
+            if (singlePrecision) {
+                floats[i] = mapped.asFloatBuffer();
+            } else {
+                doubles[i] = mapped.asDoubleBuffer();
+            }
+        }
+        this.valuesPerSegment = valuesPerSegment;
+        this.floatSegments = floats;
+        // Publish last, since the volatile write makes the other fields visible to readers.
+        this.doubleSegments = doubles;
+    }
+
+    /**
+     * Returns the largest number of values per segment for which a segment does 
+     * not exceed <code>MAX_SEGMENT_BYTES</code> and, if <code>multipleOf</code>
+     * is positive, which is a multiple of it.
+     */
+    static int valuesPerSegment(final long maxSegmentBytes, final int valueBytes, final int multipleOf) 
+            throws IOException {
+        long perSegment = Math.min(maxSegmentBytes, MAX_SEGMENT_BYTES) / valueBytes;
+        if (multipleOf > 0) {
+            if (multipleOf > perSegment) {
+                throw new IOException("tuple length too large to map: " + multipleOf);
+            }
+            perSegment -= perSegment % multipleOf;
+        }
+        return (int) Math.max(1L, perSegment);
+    }
+
+    boolean isOpen() {
+        return doubleSegments != null || floatSegments != null;
+    }
+
+    /**
+     * Releases the mappings. The mapped memory is freed when the buffers are
+     * garbage collected.
+     */
+    void close() {
+        doubleSegments = null;
+        floatSegments = null;
+    }
+
+    /**
+     * Returns the value at the specified index.
+     */
+    double get(final long index) {
+        final int segmentIndex = (int) (index / valuesPerSegment);
+        final int segmentOffset = (int) (index % valuesPerSegment);
+        final DoubleBuffer[] doubles = doubleSegments;
+        if (doubles != null) {
+            return doubles[segmentIndex].get(segmentOffset);
+        }
+        final FloatBuffer[] floats = floatSegments;
+        if (floats == null) {
+            throw new IllegalStateException("not open");
+        }
+        return floats[segmentIndex].get(segmentOffset);
+    }
+
+    /**
+     * Copies <code>len</code> consecutive values, starting with the value at 
+     * index <code>first</code>, into <code>dest</code>.
+     */
+    void get(final long first, final int len, final double[] dest, final int offset) {
+        final DoubleBuffer[] doubles = doubleSegments;
+        final FloatBuffer[] floats = floatSegments;
+        if (doubles == null && floats == null) {
+            throw new IllegalStateException("not open");
+        }
+        long index = first;
+        int off = offset;
+        final long end = first + len;
+        while (index < end) {
+            final int segmentIndex = (int) (index / valuesPerSegment);
+            final int segmentOffset = (int) (index % valuesPerSegment);
+            final int n = (int) Math.min(end - index, valuesPerSegment - segmentOffset);
+            if (doubles != null) {
+                // A duplicate has its own position, so a relative bulk get on it
+                // does not interfere with concurrent readers.
+                DoubleBuffer view = doubles[segmentIndex].duplicate();
+                view.position(segmentOffset);
+                view.get(dest, off, n);
+            } else {
+                final FloatBuffer segment = floats[segmentIndex];
+                for (int i = 0; i < n; i++) {
+                    dest[off + i] = segment.get(segmentOffset + i);
+                }
+            }
+            index += n;
+            off += n;
+        }
+    }
+}
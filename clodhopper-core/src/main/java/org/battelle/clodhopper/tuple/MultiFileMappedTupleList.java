@@ -33,7 +33,7 @@ import java.util.Comparator;
  *
  *===================================================================*/
 
-public class MultiFileMappedTupleList extends AbstractTupleList {
+public class MultiFileMappedTupleList extends AbstractTupleList implements PartitionedTupleList {
 
     public static final String FILE_EXTENSION = ".tps";
     public static final String FILE_PREFIX = "_part_";
@@ -58,6 +58,10 @@ public class MultiFileMappedTupleList extends AbstractTupleList {
     
     private MultiFileMappedTupleList(File directory) throws IOException {
         super(0, 0);
+        if (directory == null) {
+            throw new NullPointerException();
+        }
+        this.directory = directory;
         open(true);
     }
     
@@ -76,20 +80,81 @@ public class MultiFileMappedTupleList extends AbstractTupleList {
     @Override
     public void setTuple(int n, double[] values) {
         super.checkTupleIndex(n);
-        tupleLists[n/tuplesPerDivision].setTuple(n%tuplesPerDivision, values);
+        final int division = divisionFor(n);
+        tupleLists[division].setTuple(n - division*tuplesPerDivision, values);
     }
 
     @Override
     public double[] getTuple(int n, double[] reuseBuffer) {
         super.checkTupleIndex(n);
-        return tupleLists[n/tuplesPerDivision].getTuple(n%tuplesPerDivision, reuseBuffer);
+        final int division = divisionFor(n);
+        return tupleLists[division].getTuple(n - division*tuplesPerDivision, reuseBuffer);
+    }
+
+    @Override
+    public double[] getTuples(int start, int count, double[] dest, int offset) {
+        super.checkTupleRange(start, count);
+        double[] result = super.tuplesDestination(count, dest, offset);
+        final int end = start + count;
+        int n = start;
+        int off = offset;
+        while (n < end) {
+            final int division = divisionFor(n);
+            final int divisionStart = division*tuplesPerDivision;
+            final int divisionEnd = divisionStart + tupleLists[division].getTupleCount();
+            final int m = Math.min(end, divisionEnd) - n;
+            tupleLists[division].getTuples(n - divisionStart, m, result, off);
+            off += m*tupleLength;
+            n += m;
+        }
+        return result;
     }
 
     @Override
     public double getTupleValue(int n, int col) {
         super.checkTupleIndex(n);
         super.checkColumnIndex(col);
-        return tupleLists[n/tuplesPerDivision].getTupleValue(n%tuplesPerDivision, col);
+        final int division = divisionFor(n);
+        return tupleLists[division].getTupleValue(n - division*tuplesPerDivision, col);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * <p>Each partition is one of the files in the directory.</p>
+     */
+    @Override
+    public int getPartitionCount() {
+        return tupleLists.length;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getPartitionStart(int partition) {
+        if (partition < 0 || partition >= tupleLists.length) {
+            throw new IndexOutOfBoundsException(String.format("partition not in [0 - %d]: %d", 
+                    tupleLists.length - 1, partition));
+        }
+        return partition*tuplesPerDivision;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getPartitionTupleCount(int partition) {
+        if (partition < 0 || partition >= tupleLists.length) {
+            throw new IndexOutOfBoundsException(String.format("partition not in [0 - %d]: %d", 
+                    tupleLists.length - 1, partition));
+        }
+        return tupleLists[partition].getTupleCount();
+    }
+
+    // The last division holds any remainder, so it may be larger than the others.
+    private int divisionFor(int n) {
+        return Math.min(n/tuplesPerDivision, tupleLists.length - 1);
     }
 
     private void initEmptyDirectory(int divisions) throws IOException {
@@ -116,7 +181,7 @@ public class MultiFileMappedTupleList extends AbstractTupleList {
         int tuplesSoFar = 0;
         
         for (int i=0; i<divisions; i++) {
-            int tuplesThisDivision = Math.min(tuplesPerFile, this.tupleCount - tuplesSoFar);
+            int tuplesThisDivision = i < divisions - 1 ? tuplesPerFile : this.tupleCount - tuplesSoFar;
             String filename = FILE_PREFIX + i + FILE_EXTENSION;
             FileMappedTupleList.createNew(new File(this.directory, filename), this.tupleLength, tuplesThisDivision);
             tuplesSoFar += tuplesThisDivision;
@@ -156,7 +221,7 @@ public class MultiFileMappedTupleList extends AbstractTupleList {
             }
         }
         // This is always set, though.
-        this.tuplesPerDivision = this.tupleCount/this.tupleLists.length;
+        this.tuplesPerDivision = this.tupleLists.length > 0 ? this.tupleLists[0].getTupleCount() : 0;
     }
     
     public void close() throws IOException {
@@ -221,8 +286,7 @@ public class MultiFileMappedTupleList extends AbstractTupleList {
                 int tupleLength = in.readInt();
                 int tupleCount = in.readInt();
                 
-                long expectedFlen = 8L * ((long) tupleLength) * tupleCount;
-                if (flen == expectedFlen) {
+                if (flen == FileMappedTupleList.expectedFileLength(tupleLength, tupleCount)) {
                     return new int[] { tupleLength, tupleCount };
                 }
             } finally {
@@ -0,0 +1,211 @@
+package org.battelle.clodhopper.tuple;
+
+/*=====================================================================
+ * 
+ *                       CLODHOPPER CLUSTERING API
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Copyright (C) 2013 Battelle Memorial Institute 
+ * http://www.battelle.org
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ * 
+ * -------------------------------------------------------------------- 
+ * *
+ * NormalizedTupleList.java
+ *
+ *===================================================================*/
+/**
+ * A read-only view of a <code>TupleList</code> in which every tuple is scaled to 
+ * unit Euclidean length. The length of each tuple is computed once, when the view is
+ * created, and the values are scaled as they are read, so the underlying tuples are
+ * neither copied nor modified. Tuples of all zeros are left as zeros.
+ * 
+ * <p>Use <code>normalize()</code> to create a view, so that the view of a 
+ * <code>SparseTupleList</code> is sparse as well.</p>
+ * 
+ * @author R. Scarberry
+ * @since 2.0.1
+ */
+public class NormalizedTupleList extends AbstractTupleList {
+
+    protected final TupleList tuples;
+    // The reciprocals of the tuple lengths, or 0 for zero tuples.
+    protected final double[] scales;
+
+    /**
+     * Constructor
+     * 
+     * @param tuples the tuples to view.
+     */
+    public NormalizedTupleList(final TupleList tuples) {
+        super(tuples.getTupleLength(), tuples.getTupleCount());
+        this.tuples = tuples;
+        this.scales = new double[tupleCount];
+        if (tuples instanceof SparseTupleList) {
+            SparseTupleList sparseTuples = (SparseTupleList) tuples;
+            final int maxNonZeroCount = sparseTuples.getMaxNonZeroCount();
+            int[] indexes = new int[maxNonZeroCount];
+            double[] values = new double[maxNonZeroCount];
+            for (int n = 0; n < tupleCount; n++) {
+                final int nnz = sparseTuples.getSparseTuple(n, indexes, values);
+                scales[n] = scale(values, nnz);
+            }
+        } else {
+            TupleBlockReader reader = new TupleBlockReader(tuples, 0, tupleCount);
+            double[] buffer = new double[tupleLength];
+            while (reader.hasNext()) {
+                final int n = reader.nextIndex();
+                scales[n] = scale(reader.next(buffer), tupleLength);
+            }
+        }
+    }
+
+    /**
+     * Creates a normalized view of a list of tuples. The view is a 
+     * <code>SparseTupleList</code> if the tuples are.
+     * 
+     * @param tuples the tuples to view.
+     * 
+     * @return the view.
+     */
+    public static NormalizedTupleList normalize(final TupleList tuples) {
+        if (tuples instanceof SparseTupleList) {
+            return new Sparse((SparseTupleList) tuples);
+        }
+        return new NormalizedTupleList(tuples);
+    }
+
+    /**
+     * Get the tuples being viewed.
+     * 
+     * @return the underlying tuples.
+     */
+    public TupleList getUnderlyingTuples() {
+        return tuples;
+    }
+
+    /**
+     * Get the Euclidean length of one of the underlying tuples.
+     * 
+     * @param n the 0-indexed identifier of the tuple.
+     * 
+     * @return the length, which is 0 for a tuple of all zeros.
+     */
+    public double getNorm(final int n) {
+        checkTupleIndex(n);
+        return scales[n] > 0.0 ? 1.0 / scales[n] : 0.0;
+    }
+
+    /**
+     * Always throws an <code>UnsupportedOperationException</code>, since the 
+     * view is read-only.
+     */
+    @Override
+    public void setTuple(final int n, final double[] values) {
+        throw new UnsupportedOperationException("read-only");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double[] getTuple(final int n, final double[] reuseBuffer) {
+        double[] result = tuples.getTuple(n, reuseBuffer);
+        final double scale = scales[n];
+        for (int j = 0; j < tupleLength; j++) {
+            result[j] *= scale;
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double[] getTuples(final int start, final int count, final double[] dest, final int offset) {
+        checkTupleRange(start, count);
+        double[] result = tuples.getTuples(start, count, dest, offset);
+        for (int i = 0, off = offset; i < count; i++) {
+            final double scale = scales[start + i];
+            for (int j = 0; j < tupleLength; j++) {
+                result[off++] *= scale;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getTupleValue(final int n, final int col) {
+        return tuples.getTupleValue(n, col) * scales[n];
+    }
+
+    // Returns the reciprocal of the length of a tuple, given its nonzero values.
+    private static double scale(final double[] values, final int count) {
+        double sum = 0.0;
+        for (int i = 0; i < count; i++) {
+            sum += values[i] * values[i];
+        }
+        return sum > 0.0 ? 1.0 / Math.sqrt(sum) : 0.0;
+    }
+
+    /**
+     * The normalized view of a <code>SparseTupleList</code>.
+     */
+    public static class Sparse extends NormalizedTupleList implements SparseTupleList {
+
+        /**
+         * Constructor
+         * 
+         * @param tuples the sparse tuples to view.
+         */
+        public Sparse(final SparseTupleList tuples) {
+            super(tuples);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int getNonZeroCount(final int n) {
+            return ((SparseTupleList) tuples).getNonZeroCount(n);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int getMaxNonZeroCount() {
+            return ((SparseTupleList) tuples).getMaxNonZeroCount();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int getSparseTuple(final int n, final int[] indexBuffer, final double[] valueBuffer) {
+            final int nnz = ((SparseTupleList) tuples).getSparseTuple(n, indexBuffer, valueBuffer);
+            final double scale = scales[n];
+            for (int i = 0; i < nnz; i++) {
+                valueBuffer[i] *= scale;
+            }
+            return nnz;
+        }
+    }
+}
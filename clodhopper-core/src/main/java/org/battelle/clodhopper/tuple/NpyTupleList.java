@@ -0,0 +1,402 @@
+package org.battelle.clodhopper.tuple;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/*=====================================================================
+ * 
+ *                       CLODHOPPER CLUSTERING API
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Copyright (C) 2013 Battelle Memorial Institute 
+ * http://www.battelle.org
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ * 
+ * -------------------------------------------------------------------- 
+ * *
+ * NpyTupleList.java
+ *
+ *===================================================================*/
+/**
+ * A read-only <code>TupleList</code> backed by a NumPy <tt>.npy</tt> file. The
+ * data section of the file is memory-mapped and read in place, so opening
+ * even a very large file costs no copying or parsing.
+ * 
+ * <p>The array must have one or two dimensions and a dtype of float64 or
+ * float32 in either byte order. A two-dimensional array of shape
+ * <tt>(count, length)</tt> is viewed as <tt>count</tt> tuples of length 
+ * <tt>length</tt>, and a one-dimensional array as tuples of length 1. Both C
+ * and Fortran ordering are supported, although C ordering allows bulk reads of 
+ * tuples and Fortran ordering allows bulk reads of columns. Float32 values are
+ * widened when read.</p>
+ * 
+ * <p>As with <code>FileMappedTupleList</code>, reads use absolute gets, so any
+ * number of threads may read concurrently. Calls to <code>setTuple</code> throw
+ * an <code>UnsupportedOperationException</code>. To modify the data, copy it
+ * into another <code>TupleList</code>, for instance with a 
+ * <code>TupleListFactory</code>.</p>
+ * 
+ * <p><code>saveToFile</code> writes any <code>TupleList</code> as a C-ordered,
+ * little-endian <tt>.npy</tt> file that NumPy loads with <tt>numpy.load</tt>.</p>
+ *
+ * @author R. Scarberry
+ * @since 2.0.1
+ */
+public class NpyTupleList extends AbstractTupleList implements Closeable {
+
+    // The first six bytes of every .npy file.
+    private static final byte[] MAGIC = { (byte) 0x93, 'N', 'U', 'M', 'P', 'Y' };
+    
+    // NumPy aligns the start of the data section to this many bytes.
+    private static final int HEADER_ALIGNMENT = 64;
+
+    // The largest region that can be mapped in one MappedByteBuffer.
+    static final long DEFAULT_MAX_SEGMENT_BYTES = MappedValues.MAX_SEGMENT_BYTES;
+
+    private static final Pattern DESCR_PATTERN = Pattern.compile("'descr'\\s*:\\s*'([<>|=]?)([a-zA-Z])(\\d+)'");
+    private static final Pattern FORTRAN_PATTERN = Pattern.compile("'fortran_order'\\s*:\\s*(True|False)");
+    private static final Pattern SHAPE_PATTERN = Pattern.compile("'shape'\\s*:\\s*\\(([^)]*)\\)");
+
+    private final File file;
+    private final boolean fortranOrder;
+    private final boolean singlePrecision;
+    private final ByteOrder byteOrder;
+    
+    // The mapped data section. For C ordering, each segment holds whole tuples.
+    private final MappedValues values;
+
+    /**
+     * Opens an existing <tt>.npy</tt> file.
+     * 
+     * @param file the file.
+     * 
+     * @return a <code>NpyTupleList</code> that reads from the file.
+     * 
+     * @throws IOException if an IO error occurs or the file is not a supported
+     *   <tt>.npy</tt> file.
+     */
+    public static NpyTupleList openExisting(final File file) throws IOException {
+        return new NpyTupleList(file, DEFAULT_MAX_SEGMENT_BYTES);
+    }
+    
+    // Package-private so tests can exercise multiple segments with small files.
+    NpyTupleList(final File file, final long maxSegmentBytes) throws IOException {
+        super(0, 0);
+        if (file == null) {
+            throw new NullPointerException();
+        }
+        this.file = file;
+        
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+
+            ByteBuffer preamble = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, preamble, 0L);
+            for (int i = 0; i < MAGIC.length; i++) {
+                if (preamble.get(i) != MAGIC[i]) {
+                    throw new IOException(file.getName() + " is not a .npy file");
+                }
+            }
+            
+            final int major = preamble.get(6);
+            long headerStart;
+            long headerLength;
+            if (major == 1) {
+                headerStart = 10;
+                headerLength = preamble.getShort(8) & 0xffff;
+            } else if (major == 2 || major == 3) {
+                headerStart = 12;
+                headerLength = preamble.getInt(8) & 0xffffffffL;
+            } else {
+                throw new IOException("unsupported .npy version: " + major);
+            }
+            if (headerLength > channel.size()) {
+                throw new IOException("invalid .npy header length: " + headerLength);
+            }
+            
+            ByteBuffer headerBytes = ByteBuffer.allocate((int) headerLength);
+            readFully(channel, headerBytes, headerStart);
+            final String header = new String(headerBytes.array(), StandardCharsets.UTF_8);
+            
+            Matcher m = DESCR_PATTERN.matcher(header);
+            if (!m.find()) {
+                throw new IOException("missing descr in .npy header: " + header);
+            }
+            final String dtype = m.group(2) + m.group(3);
+            if (dtype.equals("f8")) {
+                singlePrecision = false;
+            } else if (dtype.equals("f4")) {
+                singlePrecision = true;
+            } else {
+                throw new IOException("unsupported dtype (only f4 and f8 are supported): " + m.group());
+            }
+            byteOrder = m.group(1).equals(">") ? ByteOrder.BIG_ENDIAN 
+                    : m.group(1).equals("<") ? ByteOrder.LITTLE_ENDIAN : ByteOrder.nativeOrder();
+            
+            m = FORTRAN_PATTERN.matcher(header);
+            if (!m.find()) {
+                throw new IOException("missing fortran_order in .npy header: " + header);
+            }
+            fortranOrder = m.group(1).equals("True");
+            
+            m = SHAPE_PATTERN.matcher(header);
+            if (!m.find()) {
+                throw new IOException("missing shape in .npy header: " + header);
+            }
+            List<Long> shape = new ArrayList<>();
+            for (String dim : m.group(1).split(",")) {
+                if (dim.trim().length() > 0) {
+                    shape.add(Long.parseLong(dim.trim()));
+                }
+            }
+            if (shape.isEmpty() || shape.size() > 2) {
+                throw new IOException("only 1 and 2 dimensional arrays are supported: " + m.group());
+            }
+            final long count = shape.get(0);
+            final long length = shape.size() == 2 ? shape.get(1) : 1L;
+            if (count > Integer.MAX_VALUE || length > Integer.MAX_VALUE) {
+                throw new IOException("array too large for a TupleList: " + m.group());
+            }
+
+            final int valueBytes = singlePrecision ? 4 : 8;
+            final long dataStart = headerStart + headerLength;
+            final long valueCount = count * length;
+            if (channel.size() < dataStart + valueBytes * valueCount) {
+                throw new IOException(String.format(".npy file is truncated: %d < %d", 
+                        channel.size(), dataStart + valueBytes * valueCount));
+            }
+            
+            values = new MappedValues(channel, dataStart, valueCount, singlePrecision, byteOrder,
+                    MappedValues.valuesPerSegment(maxSegmentBytes, valueBytes, fortranOrder ? 0 : (int) length));
+
+            this.tupleCount = (int) count;
+            this.tupleLength = (int) length;
+        }
+    }
+
+    /**
+     * Get the file backing this instance.
+     *
+     * @return a file instance.
+     */
+    public File getFile() {
+        return file;
+    }
+    
+    /**
+     * Returns whether the values in the file are single-precision.
+     * 
+     * @return true for a dtype of float32, false for float64.
+     */
+    public boolean isSinglePrecision() {
+        return singlePrecision;
+    }
+    
+    /**
+     * Returns whether the values are stored in Fortran (column-major) order.
+     * 
+     * @return true for Fortran ordering, false for C ordering.
+     */
+    public boolean isFortranOrder() {
+        return fortranOrder;
+    }
+
+    /**
+     * Get whether or not the mapping of the file is still available.
+     *
+     * @return true if the file is open.
+     */
+    public boolean isOpen() {
+        return values.isOpen();
+    }
+
+    /**
+     * Releases the mappings of the file. The mapped memory is freed when the
+     * buffers are garbage collected.
+     */
+    @Override
+    public void close() {
+        values.close();
+    }
+
+    /**
+     * Always throws an <code>UnsupportedOperationException</code>, since 
+     * instances are read-only.
+     */
+    @Override
+    public void setTuple(final int n, final double[] values) {
+        throw new UnsupportedOperationException("read-only");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double[] getTuple(final int n, final double[] reuseBuffer) {
+        checkTupleIndex(n);
+        double[] result = reuseBuffer != null && reuseBuffer.length >= tupleLength ? reuseBuffer
+                : new double[tupleLength];
+        readValues(n, 1, result, 0);
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double[] getTuples(final int start, final int count, final double[] dest, final int offset) {
+        checkTupleRange(start, count);
+        double[] result = tuplesDestination(count, dest, offset);
+        readValues(start, count, result, offset);
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getTupleValue(final int n, final int col) {
+        checkTupleIndex(n);
+        checkColumnIndex(col);
+        return values.get(valueIndex(n, col));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double[] getColumn(final int col, final double[] columnBuffer) {
+        checkColumnIndex(col);
+        int len = columnBuffer != null ? columnBuffer.length : 0;
+        double[] result = len >= tupleCount ? columnBuffer : new double[tupleCount];
+        if (fortranOrder) {
+            // The column is contiguous.
+            values.get((long) col * tupleCount, tupleCount, result, 0);
+        } else {
+            for (int i = 0; i < tupleCount; i++) {
+                result[i] = values.get(valueIndex(i, col));
+            }
+        }
+        return result;
+    }
+
+    // Copies count tuples starting at tuple start into dest in row-major order.
+    private void readValues(final int start, final int count, final double[] dest, final int offset) {
+        if (!fortranOrder) {
+            // The tuples are contiguous.
+            values.get((long) start * tupleLength, count * tupleLength, dest, offset);
+        } else {
+            for (int i = 0, k = offset; i < count; i++) {
+                for (int j = 0; j < tupleLength; j++) {
+                    dest[k++] = values.get(valueIndex(start + i, j));
+                }
+            }
+        }
+    }
+
+    private long valueIndex(final int n, final int col) {
+        return fortranOrder ? (long) col * tupleCount + n : (long) n * tupleLength + col;
+    }
+
+    /**
+     * Saves tuple data to a <tt>.npy</tt> file. The array has shape 
+     * <tt>(tupleCount, tupleLength)</tt>, C ordering, and little-endian values. 
+     * The dtype is float32 if the tuples are a <code>FloatTupleList</code>, and
+     * float64 otherwise.
+     *
+     * @param tuples the tuple list to save.
+     * @param f the file in which to save it.
+     *
+     * @throws IOException if an IO error occurs.
+     */
+    public static void saveToFile(final TupleList tuples, final File f) throws IOException {
+        
+        final int tupleLength = tuples.getTupleLength();
+        final int tupleCount = tuples.getTupleCount();
+        final boolean single = tuples instanceof FloatTupleList;
+        
+        String dict = String.format("{'descr': '<%s', 'fortran_order': False, 'shape': (%d, %d), }", 
+                single ? "f4" : "f8", tupleCount, tupleLength);
+        // Pad with spaces and a terminating newline so the data is aligned.
+        StringBuilder sb = new StringBuilder(dict);
+        while ((10 + sb.length() + 1) % HEADER_ALIGNMENT != 0) {
+            sb.append(' ');
+        }
+        sb.append('\n');
+        final byte[] header = sb.toString().getBytes(StandardCharsets.ISO_8859_1);
+        
+        try (FileChannel channel = FileChannel.open(f.toPath(), StandardOpenOption.CREATE, 
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            final int bufferBytes = 1 << 20;
+            ByteBuffer bb = ByteBuffer.allocateDirect(bufferBytes).order(ByteOrder.LITTLE_ENDIAN);
+            bb.put(MAGIC);
+            bb.put((byte) 1);
+            bb.put((byte) 0);
+            bb.putShort((short) header.length);
+            bb.put(header);
+            bb.flip();
+            writeFully(channel, bb);
+            
+            final int valueBytes = single ? 4 : 8;
+            final int tuplesPerBlock = Math.max(1, bufferBytes / (valueBytes * Math.max(1, tupleLength)));
+            final double[] doubleBlock = single ? null : new double[tuplesPerBlock * tupleLength];
+            final float[] floatBlock = single ? new float[tuplesPerBlock * tupleLength] : null;
+
+            for (int start = 0; start < tupleCount; start += tuplesPerBlock) {
+                int count = Math.min(tuplesPerBlock, tupleCount - start);
+                int n = count * tupleLength;
+                ByteBuffer out = valueBytes * n <= bb.capacity() ? bb 
+                        : ByteBuffer.allocateDirect(valueBytes * n).order(ByteOrder.LITTLE_ENDIAN);
+                out.clear();
+                if (single) {
+                    out.asFloatBuffer().put(((FloatTupleList) tuples).getFloatTuples(start, count, floatBlock, 0), 0, n);
+                } else {
+                    out.asDoubleBuffer().put(tuples.getTuples(start, count, doubleBlock, 0), 0, n);
+                }
+                out.limit(valueBytes * n);
+                writeFully(channel, out);
+            }
+        }
+    }
+
+    private static void readFully(final FileChannel channel, final ByteBuffer bb, long position) throws IOException {
+        while (bb.hasRemaining()) {
+            int n = channel.read(bb, position);
+            if (n < 0) {
+                throw new EOFException();
+            }
+            position += n;
+        }
+    }
+
+    private static void writeFully(final FileChannel channel, final ByteBuffer bb) throws IOException {
+        while (bb.hasRemaining()) {
+            channel.write(bb);
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package org.battelle.clodhopper.tuple;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+
+/*=====================================================================
+ * 
+ *                       CLODHOPPER CLUSTERING API
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Copyright (C) 2013 Battelle Memorial Institute 
+ * http://www.battelle.org
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ * 
+ * -------------------------------------------------------------------- 
+ * *
+ * OffHeapTupleList.java
+ *
+ *===================================================================*/
+/**
+ * Implements a <code>TupleList</code> that keeps its data outside the Java heap
+ * in direct <code>ByteBuffer</code>s. The data is split into chunks of whole 
+ * tuples, so the total number of values is not limited to what fits in a single
+ * array, and large data sets do not add to garbage collection pauses.
+ * 
+ * <p>Reads use absolute gets, so any number of threads may read concurrently 
+ * without locking. Concurrent writes to the same tuple are not coordinated by 
+ * this class.</p>
+ * 
+ * <p>Instances must be closed when no longer needed. After <code>close</code> 
+ * is called, accessing the data throws an <code>IllegalStateException</code>.
+ * The direct memory is reclaimed once the buffers are garbage collected.</p>
+ *
+ * @author R. Scarberry
+ * @since 2.0.1
+ *
+ */
+public class OffHeapTupleList extends AbstractTupleList implements Closeable {
+
+    /**
+     * The default maximum size of a chunk in bytes.
+     */
+    public static final long DEFAULT_MAX_CHUNK_BYTES = 256L * 1024L * 1024L;
+
+    // Double views of the direct buffers. Null when closed. The reference is
+    // volatile, so readers never need to synchronize.
+    private volatile DoubleBuffer[] chunks;
+    // Number of tuples in each chunk. The last one may contain fewer.
+    private final int tuplesPerChunk;
+
+    /**
+     * Constructor. All values are initially 0.
+     * 
+     * @param tupleLength the tuple length.
+     * @param tupleCount the tuple count.
+     */
+    public OffHeapTupleList(final int tupleLength, final int tupleCount) {
+        this(tupleLength, tupleCount, DEFAULT_MAX_CHUNK_BYTES);
+    }
+    
+    /**
+     * Constructor. All values are initially 0.
+     * 
+     * @param tupleLength the tuple length.
+     * @param tupleCount the tuple count.
+     * @param maxChunkBytes the maximum size of a chunk of direct memory in bytes. It
+     *   must be large enough to hold at least one tuple and no larger than 
+     *   <code>Integer.MAX_VALUE</code>.
+     */
+    public OffHeapTupleList(final int tupleLength, final int tupleCount, final long maxChunkBytes) {
+        super(tupleLength, tupleCount);
+        final long tupleBytes = 8L * tupleLength;
+        if (maxChunkBytes > Integer.MAX_VALUE || maxChunkBytes < Math.max(1L, tupleBytes)) {
+            throw new IllegalArgumentException("invalid maximum chunk size: " + maxChunkBytes);
+        }
+        this.tuplesPerChunk = tupleBytes > 0 ? (int) (maxChunkBytes / tupleBytes) : Math.max(1, tupleCount);
+        final int chunkCount = tupleCount > 0 ? (int) ((tupleCount + (long) tuplesPerChunk - 1) / tuplesPerChunk) : 0;
+        DoubleBuffer[] buffers = new DoubleBuffer[chunkCount];
+        for (int i = 0; i < chunkCount; i++) {
+            long tuplesThisChunk = Math.min(tuplesPerChunk, tupleCount - (long) i * tuplesPerChunk);
+            // Native order, since the data never leaves this process.
+            buffers[i] = ByteBuffer.allocateDirect((int) (tuplesThisChunk * tupleBytes))
+                    .order(ByteOrder.nativeOrder()).asDoubleBuffer();
+        }
+        this.chunks = buffers;
+    }
+    
+    /**
+     * Creates a new <code>OffHeapTupleList</code> containing the data in a file
+     * of the format used by <code>ArrayTupleList</code> and <code>FileMappedTupleList</code>.
+     * 
+     * @param f the file.
+     * 
+     * @return a new <code>OffHeapTupleList</code>
+     * 
+     * @throws IOException if an IO error occurs.
+     */
+    public static OffHeapTupleList loadFromFile(final File f) throws IOException {
+        FileMappedTupleList fileTuples = FileMappedTupleList.openExisting(f);
+        try {
+            final int tupleLength = fileTuples.getTupleLength();
+            final int tupleCount = fileTuples.getTupleCount();
+            OffHeapTupleList tuples = new OffHeapTupleList(tupleLength, tupleCount);
+            final int tuplesPerBlock = Math.max(1, TupleBlockReader.DEFAULT_BLOCK_SIZE / Math.max(1, tupleLength));
+            final double[] block = new double[tuplesPerBlock * tupleLength];
+            for (int n = 0; n < tupleCount; n += tuplesPerBlock) {
+                int count = Math.min(tuplesPerBlock, tupleCount - n);
+                fileTuples.getTuples(n, count, block, 0);
+                tuples.setTuples(n, count, block, 0);
+            }
+            return tuples;
+        } finally {
+            fileTuples.close();
+        }
+    }
+
+    /**
+     * Get whether or not the data is still available.
+     *
+     * @return true if <code>close</code> has not been called.
+     */
+    public boolean isOpen() {
+        return chunks != null;
+    }
+
+    /**
+     * Releases the direct memory. Subsequent attempts to access the data
+     * throw an <code>IllegalStateException</code>.
+     */
+    @Override
+    public void close() {
+        chunks = null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setTuple(final int n, final double[] values) {
+        checkTupleIndex(n);
+        checkValuesLength(values);
+        final DoubleBuffer chunk = chunkFor(n);
+        final int offset = chunkOffset(n);
+        for (int i = 0; i < tupleLength; i++) {
+            chunk.put(offset + i, values[i]);
+        }
+    }
+
+    /**
+     * Sets the values for a contiguous range of tuples, taking them from an 
+     * array laid out as for <code>getTuples</code>.
+     * 
+     * @param start the 0-indexed identifier of the first tuple.
+     * @param count the number of tuples.
+     * @param values the values.
+     * @param offset the offset in values of the first value.
+     */
+    public void setTuples(final int start, final int count, final double[] values, final int offset) {
+        checkTupleRange(start, count);
+        if (offset < 0 || values.length - offset < (long) count * tupleLength) {
+            throw new IllegalArgumentException("values array of insufficient length");
+        }
+        final DoubleBuffer[] chnks = openChunks();
+        int n = start;
+        int off = offset;
+        final int end = start + count;
+        while (n < end) {
+            final int chunkIndex = n / tuplesPerChunk;
+            final int chunkEnd = (int) Math.min(end, (long) (chunkIndex + 1) * tuplesPerChunk);
+            final int len = (chunkEnd - n) * tupleLength;
+            // A duplicate has its own position, so a relative bulk put on it
+            // does not interfere with concurrent readers.
+            final DoubleBuffer view = chnks[chunkIndex].duplicate();
+            view.position(chunkOffset(n));
+            view.put(values, off, len);
+            off += len;
+            n = chunkEnd;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double[] getTuple(final int n, final double[] reuseBuffer) {
+        checkTupleIndex(n);
+        final DoubleBuffer chunk = chunkFor(n);
+        double[] result = reuseBuffer != null && reuseBuffer.length >= tupleLength ? reuseBuffer
+                : new double[tupleLength];
+        final int offset = chunkOffset(n);
+        for (int i = 0; i < tupleLength; i++) {
+            result[i] = chunk.get(offset + i);
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double[] getTuples(final int start, final int count, final double[] dest, final int offset) {
+        checkTupleRange(start, count);
+        final DoubleBuffer[] chnks = openChunks();
+        double[] result = tuplesDestination(count, dest, offset);
+        int n = start;
+        int off = offset;
+        final int end = start + count;
+        while (n < end) {
+            final int chunkIndex = n / tuplesPerChunk;
+            final int chunkEnd = (int) Math.min(end, (long) (chunkIndex + 1) * tuplesPerChunk);
+            final int len = (chunkEnd - n) * tupleLength;
+            final DoubleBuffer view = chnks[chunkIndex].duplicate();
+            view.position(chunkOffset(n));
+            view.get(result, off, len);
+            off += len;
+            n = chunkEnd;
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getTupleValue(final int n, final int col) {
+        checkTupleIndex(n);
+        checkColumnIndex(col);
+        return chunkFor(n).get(chunkOffset(n) + col);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double[] getColumn(final int col, final double[] columnBuffer) {
+        checkColumnIndex(col);
+        final DoubleBuffer[] chnks = openChunks();
+        int len = columnBuffer != null ? columnBuffer.length : 0;
+        double[] result = len >= tupleCount ? columnBuffer : new double[tupleCount];
+        int n = 0;
+        for (DoubleBuffer chunk : chnks) {
+            final int lim = chunk.limit();
+            for (int i = col; i < lim; i += tupleLength) {
+                result[n++] = chunk.get(i);
+            }
+        }
+        return result;
+    }
+
+    // Returns the chunks, ensuring the list has not been closed.
+    private DoubleBuffer[] openChunks() {
+        final DoubleBuffer[] chnks = chunks;
+        if (chnks == null) {
+            throw new IllegalStateException("closed");
+        }
+        return chnks;
+    }
+
+    // Returns the chunk containing tuple n.
+    private DoubleBuffer chunkFor(final int n) {
+        return openChunks()[n / tuplesPerChunk];
+    }
+
+    // Returns the offset in doubles of tuple n within its chunk.
+    private int chunkOffset(final int n) {
+        return (n % tuplesPerChunk) * tupleLength;
+    }
+}
@@ -0,0 +1,67 @@
+package org.battelle.clodhopper.tuple;
+
+/*=====================================================================
+ * 
+ *                       CLODHOPPER CLUSTERING API
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Copyright (C) 2013 Battelle Memorial Institute 
+ * http://www.battelle.org
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ * 
+ * -------------------------------------------------------------------- 
+ * *
+ * PartitionedTupleList.java
+ *
+ *===================================================================*/
+/**
+ * A <code>TupleList</code> whose tuples are stored in separate partitions, 
+ * such as files, each holding a contiguous range of tuple indexes. Code that 
+ * scans the tuples can give each thread whole partitions, so every partition 
+ * is read sequentially by one thread.
+ * 
+ * @author R. Scarberry
+ * @since 2.0.1
+ */
+public interface PartitionedTupleList extends TupleList {
+
+    /**
+     * Returns the number of partitions.
+     * 
+     * @return the number of partitions.
+     */
+    int getPartitionCount();
+
+    /**
+     * Returns the index of the first tuple in a partition.
+     * 
+     * @param partition the index of the partition.
+     * 
+     * @return the tuple index.
+     */
+    int getPartitionStart(int partition);
+
+    /**
+     * Returns the number of tuples in a partition.
+     * 
+     * @param partition the index of the partition.
+     * 
+     * @return the number of tuples.
+     */
+    int getPartitionTupleCount(int partition);
+
+}
@@ -0,0 +1,84 @@
+package org.battelle.clodhopper.tuple;
+
+/*=====================================================================
+ * 
+ *                       CLODHOPPER CLUSTERING API
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Copyright (C) 2013 Battelle Memorial Institute 
+ * http://www.battelle.org
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ * 
+ * -------------------------------------------------------------------- 
+ * *
+ * SparseTupleList.java
+ *
+ *===================================================================*/
+/**
+ * A <code>SparseTupleList</code> is a <code>TupleList</code> whose tuples are
+ * mostly zeros and which stores only the nonzero values. The methods inherited
+ * from <code>TupleList</code> expand tuples to dense arrays. Code that can work
+ * with the nonzero values directly, such as a 
+ * {@link org.battelle.clodhopper.distance.SparseDistanceMetric}, should use 
+ * <code>getSparseTuple</code>, whose cost is proportional to the number of 
+ * nonzero values rather than the tuple length.
+ *
+ * @author R. Scarberry
+ * @since 2.0.1
+ *
+ */
+public interface SparseTupleList extends TupleList {
+
+    /**
+     * Get the number of nonzero values stored for a tuple.
+     *
+     * @param n the 0-indexed identifier of the tuple.
+     *
+     * @return the number of nonzero values.
+     *
+     * @throws IndexOutOfBoundsException if n is outside the range [0 -
+     * (getTupleCount() - 1)]
+     */
+    int getNonZeroCount(int n);
+
+    /**
+     * Get the largest number of nonzero values stored for any tuple. Buffers
+     * of this length are large enough for any call to <code>getSparseTuple</code>.
+     *
+     * @return the maximum number of nonzero values.
+     */
+    int getMaxNonZeroCount();
+
+    /**
+     * Get the nonzero values of a tuple along with their column indexes. The
+     * column indexes are in ascending order.
+     *
+     * @param n the 0-indexed identifier of the tuple.
+     * @param indexBuffer an array to receive the column indexes. It must be at least
+     * <code>getNonZeroCount(n)</code> in length.
+     * @param valueBuffer an array to receive the values. It must be at least
+     * <code>getNonZeroCount(n)</code> in length.
+     *
+     * @return the number of nonzero values copied into the buffers.
+     *
+     * @throws IndexOutOfBoundsException if n is outside the range [0 -
+     * (getTupleCount() - 1)]
+     * @throws IllegalArgumentException if either buffer is too short.
+     */
+    int getSparseTuple(int n, int[] indexBuffer, double[] valueBuffer);
+
+}
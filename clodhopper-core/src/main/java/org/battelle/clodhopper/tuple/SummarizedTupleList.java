@@ -0,0 +1,50 @@
+package org.battelle.clodhopper.tuple;
+
+/*=====================================================================
+ * 
+ *                       CLODHOPPER CLUSTERING API
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Copyright (C) 2013 Battelle Memorial Institute 
+ * http://www.battelle.org
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ * 
+ * -------------------------------------------------------------------- 
+ * *
+ * SummarizedTupleList.java
+ *
+ *===================================================================*/
+/**
+ * A <code>TupleList</code> whose summary statistics are known without reading
+ * its data, for instance because they were stored with it. Methods such as 
+ * <code>TupleMath.boundingBox(TupleList)</code> and 
+ * <code>TupleMath.uniqueTupleCount</code> use them in place of a pass over 
+ * the tuples, so implementations must not permit the data to change.
+ * 
+ * @author R. Scarberry
+ * @since 2.0.1
+ */
+public interface SummarizedTupleList extends TupleList {
+
+    /**
+     * Returns the statistics of the tuples.
+     * 
+     * @return the statistics.
+     */
+    TupleListStatistics getStatistics();
+    
+}
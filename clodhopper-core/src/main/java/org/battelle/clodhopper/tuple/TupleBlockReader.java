@@ -0,0 +1,147 @@
+package org.battelle.clodhopper.tuple;
+
+import java.util.NoSuchElementException;
+
+/*=====================================================================
+ * 
+ *                       CLODHOPPER CLUSTERING API
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Copyright (C) 2013 Battelle Memorial Institute 
+ * http://www.battelle.org
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ * 
+ * -------------------------------------------------------------------- 
+ * *
+ * TupleBlockReader.java
+ *
+ *===================================================================*/
+/**
+ * Reads a contiguous range of tuples from a <code>TupleList</code> sequentially,
+ * fetching them in blocks with <code>TupleList.getTuples</code> rather than 
+ * one at a time. <code>next(buffer)</code> is a drop-in replacement for 
+ * <code>getTuple(i, buffer)</code> in loops that visit every tuple in order.
+ * 
+ * <p>Instances are not thread-safe. Multiple threads reading from the same
+ * <code>TupleList</code> should each use their own reader.</p>
+ * 
+ * @author R. Scarberry
+ * @since 2.0.1
+ */
+public class TupleBlockReader {
+
+    /**
+     * The default number of values read in each block.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 8192;
+
+    private final TupleList tuples;
+    private final int tupleLength;
+    private final int endTuple;
+    private final int tuplesPerBlock;
+    private final double[] block;
+    
+    // Index of the next tuple to be returned.
+    private int nextTuple;
+    // Range of tuples currently in block.
+    private int blockStart;
+    private int blockEnd;
+
+    /**
+     * Constructor
+     * 
+     * @param tuples the tuples to read.
+     * @param startTuple the index of the first tuple to read.
+     * @param endTuple one past the index of the last tuple to read.
+     */
+    public TupleBlockReader(final TupleList tuples, final int startTuple, final int endTuple) {
+        this(tuples, startTuple, endTuple, DEFAULT_BLOCK_SIZE);
+    }
+    
+    /**
+     * Constructor
+     * 
+     * @param tuples the tuples to read.
+     * @param startTuple the index of the first tuple to read.
+     * @param endTuple one past the index of the last tuple to read.
+     * @param blockSize the approximate number of values to read in each block. At
+     *   least one tuple is always read.
+     */
+    public TupleBlockReader(final TupleList tuples, final int startTuple, final int endTuple, 
+            final int blockSize) {
+        if (startTuple < 0 || endTuple < startTuple || endTuple > tuples.getTupleCount()) {
+            throw new IndexOutOfBoundsException(String.format("tuple range [%d - %d) not in [%d - %d)", 
+                    startTuple, endTuple, 0, tuples.getTupleCount()));
+        }
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("blockSize <= 0: " + blockSize);
+        }
+        this.tuples = tuples;
+        this.tupleLength = tuples.getTupleLength();
+        this.endTuple = endTuple;
+        this.tuplesPerBlock = Math.max(1, Math.min(blockSize / Math.max(1, tupleLength), 
+                endTuple - startTuple));
+        this.block = new double[tuplesPerBlock * tupleLength];
+        this.nextTuple = startTuple;
+        this.blockStart = this.blockEnd = startTuple;
+    }
+
+    /**
+     * Returns true if more tuples remain to be read.
+     * 
+     * @return boolean
+     */
+    public boolean hasNext() {
+        return nextTuple < endTuple;
+    }
+    
+    /**
+     * Returns the index of the tuple that will be returned by the next 
+     * call to <code>next</code>.
+     * 
+     * @return the index.
+     */
+    public int nextIndex() {
+        return nextTuple;
+    }
+
+    /**
+     * Copies the values of the next tuple into a buffer.
+     * 
+     * @param reuseBuffer a buffer to receive the values. If null or too short, 
+     *   a new buffer is allocated.
+     *   
+     * @return the buffer containing the values.
+     * 
+     * @throws NoSuchElementException if no tuples remain.
+     */
+    public double[] next(final double[] reuseBuffer) {
+        if (nextTuple >= endTuple) {
+            throw new NoSuchElementException();
+        }
+        if (nextTuple >= blockEnd) {
+            blockStart = nextTuple;
+            blockEnd = Math.min(endTuple, blockStart + tuplesPerBlock);
+            tuples.getTuples(blockStart, blockEnd - blockStart, block, 0);
+        }
+        double[] result = reuseBuffer != null && reuseBuffer.length >= tupleLength ? reuseBuffer
+                : new double[tupleLength];
+        System.arraycopy(block, (nextTuple - blockStart) * tupleLength, result, 0, tupleLength);
+        nextTuple++;
+        return result;
+    }
+}
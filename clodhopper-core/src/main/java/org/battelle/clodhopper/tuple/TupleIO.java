@@ -2,10 +2,17 @@ package org.battelle.clodhopper.tuple;
 
 import org.battelle.clodhopper.task.*;
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import org.battelle.clodhopper.util.DataConversion;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -307,6 +314,517 @@ public class TupleIO {
         return tuples;
     }
 
+    /**
+     * Loads numeric data contained in a csv file into a TupleList using a 
+     * number of threads equal to the number of available processors.
+     *
+     * @param file the file containing the data.
+     * @param nameForTuples the name to assign to the TupleList within its
+     * factory.
+     * @param factory the TupleListFactory, which will manage the TupleList.
+     * @param future if non-null, this will be checked periodically to see if
+     * loading the data should be cancelled. If null, it is ignored.
+     * @param ph a <code>ProgressHandler</code> instance which can be null. If
+     * non-null, progress indications are posted for the load.
+     *
+     * @return a TupleList containing the data.
+     *
+     * @throws IOException if some kind if IO error occurs.
+     * @throws CancellationException if loading is cancelled.
+     * 
+     * @since 2.0.1
+     */
+    public static TupleList loadCSVParallel(
+        final File file,
+        final String nameForTuples,
+        final TupleListFactory factory,
+        final Future<?> future,
+        final ProgressHandler ph) throws IOException, CancellationException {
+        return loadCSVParallel(file, null, ",", 0, nameForTuples, factory, 
+                Runtime.getRuntime().availableProcessors(), future, ph);
+    }
+
+    /**
+     * Loads numeric data contained in a csv file into a TupleList, parsing
+     * the file concurrently. The file is split into byte ranges at line 
+     * boundaries. Worker threads count the rows in their ranges, the 
+     * <code>TupleList</code> is created, and then the workers parse their
+     * ranges directly into it. Numbers are parsed from the raw bytes without
+     * creating strings.
+     * 
+     * <p>The rules for locating the numeric data are the same as for 
+     * <code>loadCSV</code>, and the result is identical. Lines must end with
+     * either a line feed or a carriage return followed by a line feed.
+     * Byte-level parsing requires a character set in which ASCII characters
+     * are single bytes. For other character sets, such as UTF-16, and for
+     * delimiters that are not ASCII, this method simply calls 
+     * <code>loadCSV</code>.</p>
+     *
+     * @param file the file containing the data.
+     * @param charSet the character set of the file. If null, the default
+     * character set is used.
+     * @param delimiter the delimiter, which is a comma by definition for csv
+     * files. As with <code>loadCSV</code>, each character of the string is 
+     * treated as a delimiter.
+     * @param startColumn the starting column in case some columns at the
+     * beginning of each row should be ignored.
+     * @param nameForTuples the name to assign to the TupleList within its
+     * factory.
+     * @param factory the TupleListFactory, which will manage the TupleList.
+     * The TupleList it creates must support concurrent calls to 
+     * <code>setTuple</code> for different tuples.
+     * @param threadCount the number of threads to use.
+     * @param future if non-null, this will be checked periodically to see if
+     * loading the data should be cancelled. If null, it is ignored.
+     * @param ph a <code>ProgressHandler</code> instance which can be null. If
+     * non-null, progress indications are posted for the load.
+     *
+     * @return a TupleList containing the data.
+     *
+     * @throws IOException if some kind if IO error occurs.
+     * @throws CancellationException if loading is cancelled.
+     * 
+     * @since 2.0.1
+     */
+    public static TupleList loadCSVParallel(
+        final File file,
+        final String charSet,
+        final String delimiter,
+        final int startColumn,
+        final String nameForTuples,
+        final TupleListFactory factory,
+        final int threadCount,
+        final Future<?> future,
+        final ProgressHandler ph) throws IOException, CancellationException {
+        return loadCSVParallel(file, charSet, delimiter, startColumn, nameForTuples, factory,
+                threadCount, null, future, ph);
+    }
+
+    /**
+     * Loads numeric data contained in a csv file into a TupleList, parsing
+     * the file concurrently as <code>loadCSVParallel</code> does above, with
+     * the chunks run on a shared executor, as with the executor in the 
+     * parameters of the clusterers.
+     *
+     * @param file the file containing the data.
+     * @param charSet the character set of the file. If null, the default
+     * character set is used.
+     * @param delimiter the delimiter. Each character of the string is 
+     * treated as a delimiter.
+     * @param startColumn the starting column in case some columns at the
+     * beginning of each row should be ignored.
+     * @param nameForTuples the name to assign to the TupleList within its
+     * factory.
+     * @param factory the TupleListFactory, which will manage the TupleList.
+     * The TupleList it creates must support concurrent calls to 
+     * <code>setTuple</code> for different tuples.
+     * @param threadCount the number of chunks run at once, which is the 
+     * number of threads if a pool is created.
+     * @param executor the executor on which to parse the chunks. If null,
+     * the default executor of <code>TaskExecutors</code> is used, and if that
+     * is not set either, a pool of <code>threadCount</code> threads is created
+     * for the load.
+     * @param future if non-null, this will be checked periodically to see if
+     * loading the data should be cancelled. If null, it is ignored.
+     * @param ph a <code>ProgressHandler</code> instance which can be null. If
+     * non-null, progress indications are posted for the load.
+     *
+     * @return a TupleList containing the data.
+     *
+     * @throws IOException if some kind if IO error occurs.
+     * @throws CancellationException if loading is cancelled.
+     * 
+     * @since 2.0.1
+     */
+    public static TupleList loadCSVParallel(
+        final File file,
+        final String charSet,
+        final String delimiter,
+        final int startColumn,
+        final String nameForTuples,
+        final TupleListFactory factory,
+        final int threadCount,
+        final ExecutorService executor,
+        final Future<?> future,
+        final ProgressHandler ph) throws IOException, CancellationException {
+
+        if (threadCount <= 0) {
+            throw new IllegalArgumentException("threadCount <= 0: " + threadCount);
+        }
+
+        final Charset cs = charSet != null ? Charset.forName(charSet) : Charset.defaultCharset();
+        final boolean[] delimiters = byteDelimiters(delimiter);
+
+        if (delimiters == null || !(cs.equals(StandardCharsets.UTF_8) || 
+                cs.equals(StandardCharsets.ISO_8859_1) || cs.equals(StandardCharsets.US_ASCII))) {
+            return loadCSV(file, cs.name(), delimiter, startColumn, 0, nameForTuples, factory, future, ph);
+        }
+
+        TupleList tuples = null;
+        ExecutorService threadPool = null;
+        boolean ok = false;
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+
+            // The header, if any, and the first data row are parsed the same way loadCSV parses them.
+            final CSVHeader header = parseCSVHeader(channel, cs, delimiter, startColumn, future);
+            if (header == null) {
+                throw new IOException("no numeric data found in " + file.getName());
+            }
+
+            final long[] boundaries = chunkBoundaries(channel, header.dataStart, 4 * threadCount);
+            final int chunkCount = boundaries.length - 1;
+
+            if (ph != null) {
+                ph.subsection(1.0, 2 * chunkCount);
+                ph.postBegin();
+            }
+
+            threadPool = TaskExecutors.newThreadPool(executor, Math.min(threadCount, chunkCount));
+
+            // Pass 1: count the rows in each chunk, so every chunk knows the index of its first row.
+            final int[] rowCounts = new int[chunkCount];
+            List<Future<?>> counts = new ArrayList<>(chunkCount);
+            for (int i = 0; i < chunkCount; i++) {
+                final int chunk = i;
+                counts.add(threadPool.submit(() -> {
+                    scanLines(channel, boundaries[chunk], boundaries[chunk + 1], future, 
+                            (bytes, start, end, position) -> {
+                                rowCounts[chunk]++;
+                                return true;
+                            });
+                    return null;
+                }));
+            }
+            awaitChunks(counts, ph);
+
+            final int[] firstRows = new int[chunkCount];
+            long rows = 0;
+            for (int i = 0; i < chunkCount; i++) {
+                firstRows[i] = (int) rows;
+                rows += rowCounts[i];
+            }
+            if (rows > Integer.MAX_VALUE) {
+                throw new IOException("too many rows: " + rows);
+            }
+
+            final int cols = header.columnBits.cardinality();
+            final TupleList target = factory.createNewTupleList(nameForTuples, cols, (int) rows);
+            tuples = target;
+
+            // Pass 2: parse each chunk directly into the tuple list.
+            List<Future<?>> parses = new ArrayList<>(chunkCount);
+            for (int i = 0; i < chunkCount; i++) {
+                final int chunk = i;
+                parses.add(threadPool.submit(() -> {
+                    final double[] buffer = new double[cols];
+                    final int[] row = { firstRows[chunk] };
+                    scanLines(channel, boundaries[chunk], boundaries[chunk + 1], future, 
+                            (bytes, start, end, position) -> {
+                                parseCSVLine(bytes, start, end, delimiters, header, buffer, row[0]);
+                                target.setTuple(row[0]++, buffer);
+                                return true;
+                            });
+                    return null;
+                }));
+            }
+            awaitChunks(parses, ph);
+
+            ok = true;
+
+        } finally {
+
+            if (threadPool != null) {
+                threadPool.shutdownNow();
+            }
+
+            // If it did not succeed, clean up the TupleList if it was created.
+            if (!ok && tuples != null) {
+                try {
+                    factory.closeTupleList(tuples);
+                    factory.deleteTupleList(tuples);
+                } catch (TupleListFactoryException tlfe) {
+                    LOGGER.error("error closing tuple list", tlfe);
+                }
+            }
+
+            if (ph != null) {
+                ph.postEnd();
+            }
+        }
+
+        return tuples;
+    }
+
+    // Returns a table of the bytes that are delimiters, or null if any delimiter is not ASCII.
+    private static boolean[] byteDelimiters(final String delimiter) {
+        boolean[] delimiters = new boolean[256];
+        for (int i = 0; i < delimiter.length(); i++) {
+            char c = delimiter.charAt(i);
+            if (c >= 128) {
+                return null;
+            }
+            delimiters[c] = true;
+        }
+        return delimiters;
+    }
+
+    // Waits for the chunk tasks to finish, posting a progress step for each.
+    private static void awaitChunks(final List<Future<?>> chunkFutures, final ProgressHandler ph) 
+        throws IOException, CancellationException {
+        try {
+            for (Future<?> f : chunkFutures) {
+                f.get();
+                if (ph != null) {
+                    ph.postStep();
+                }
+            }
+        } catch (InterruptedException e) {
+            throw new CancellationException();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof CancellationException) {
+                throw (CancellationException) cause;
+            } else if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    // Called for each nonblank line by scanLines(). The line occupies [start - end) of bytes
+    // and begins at the given position in the file. Returns false to stop scanning.
+    private interface LineHandler {
+        boolean line(byte[] bytes, int start, int end, long position) throws IOException;
+    }
+
+    // The size of the buffer used by each thread for reading lines.
+    private static final int LINE_BUFFER_SIZE = 1 << 20;
+
+    // Reads the lines in [begin - end) of the file, which must begin at a line 
+    // boundary, passing each nonblank line to the handler.
+    private static void scanLines(final FileChannel channel, final long begin, final long end,
+        final Future<?> future, final LineHandler handler) throws IOException, CancellationException {
+
+        byte[] bytes = new byte[(int) Math.min(LINE_BUFFER_SIZE, Math.max(1L, end - begin))];
+        // Bytes [0 - filled) of the buffer hold the file contents starting at bufferPosition.
+        long bufferPosition = begin;
+        int filled = 0;
+        int lineStart = 0;
+
+        while (true) {
+
+            if (future != null && future.isCancelled()) {
+                throw new CancellationException();
+            }
+
+            // Move any partial line to the front of the buffer, growing it if the line fills it.
+            if (lineStart > 0) {
+                System.arraycopy(bytes, lineStart, bytes, 0, filled - lineStart);
+                filled -= lineStart;
+                bufferPosition += lineStart;
+                lineStart = 0;
+            } else if (filled == bytes.length) {
+                bytes = Arrays.copyOf(bytes, 2 * bytes.length);
+            }
+
+            int toRead = (int) Math.min(bytes.length - filled, end - (bufferPosition + filled));
+            boolean atEnd = toRead <= 0;
+            if (!atEnd) {
+                ByteBuffer bb = ByteBuffer.wrap(bytes, filled, toRead);
+                while (bb.hasRemaining()) {
+                    // Positional reads may be issued concurrently on the same channel.
+                    int n = channel.read(bb, bufferPosition + bb.position());
+                    if (n < 0) {
+                        break;
+                    }
+                }
+                int n = bb.position() - filled;
+                atEnd = n == 0;
+                filled += n;
+            }
+
+            int i = lineStart;
+            for (; i < filled; i++) {
+                if (bytes[i] == '\n') {
+                    if (!isBlank(bytes, lineStart, i) && !handler.line(bytes, lineStart, i, bufferPosition + lineStart)) {
+                        return;
+                    }
+                    lineStart = i + 1;
+                }
+            }
+
+            if (atEnd) {
+                // The last line may not be terminated.
+                if (lineStart < filled && !isBlank(bytes, lineStart, filled)) {
+                    handler.line(bytes, lineStart, filled, bufferPosition + lineStart);
+                }
+                return;
+            }
+        }
+    }
+
+    private static boolean isBlank(final byte[] bytes, final int start, final int end) {
+        for (int i = start; i < end; i++) {
+            if ((bytes[i] & 0xff) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Splits [dataStart - channel.size()) into roughly equal ranges that begin at line boundaries.
+    private static long[] chunkBoundaries(final FileChannel channel, final long dataStart, 
+        final int maxChunks) throws IOException {
+
+        final long size = channel.size();
+        // Not worth splitting into very small pieces.
+        final long minChunkSize = 1L << 20;
+        final int chunks = (int) Math.max(1L, Math.min(maxChunks, (size - dataStart) / minChunkSize));
+
+        long[] boundaries = new long[chunks + 1];
+        boundaries[0] = dataStart;
+        int count = 1;
+        ByteBuffer bb = ByteBuffer.allocate(8192);
+
+        for (int i = 1; i < chunks; i++) {
+            long pos = Math.max(boundaries[count - 1], dataStart + (size - dataStart) * i / chunks);
+            // Advance to just past the next line feed.
+            boolean found = false;
+            while (!found && pos < size) {
+                bb.clear();
+                int n = channel.read(bb, pos);
+                if (n <= 0) {
+                    break;
+                }
+                for (int j = 0; j < n; j++) {
+                    if (bb.get(j) == '\n') {
+                        pos += j + 1;
+                        found = true;
+                        break;
+                    }
+                }
+                if (!found) {
+                    pos += n;
+                }
+            }
+            if (pos > boundaries[count - 1] && pos < size) {
+                boundaries[count++] = pos;
+            }
+        }
+
+        boundaries[count++] = size;
+        return Arrays.copyOf(boundaries, count);
+    }
+
+    // Parses the numeric columns of a data line into buffer.
+    private static void parseCSVLine(final byte[] bytes, int start, int end, final boolean[] delimiters, 
+        final CSVHeader header, final double[] buffer, final int row) throws IOException {
+
+        // Trim the line, as loadCSV does.
+        while (start < end && (bytes[start] & 0xff) <= ' ') {
+            start++;
+        }
+        while (end > start && (bytes[end - 1] & 0xff) <= ' ') {
+            end--;
+        }
+
+        final BitSet colBits = header.columnBits;
+        int tokenCount = 0;
+        int colIndex = 0;
+        int i = start;
+
+        try {
+            while (i < end) {
+                // Adjacent delimiters are treated as one, like StringTokenizer.
+                while (i < end && delimiters[bytes[i] & 0xff]) {
+                    i++;
+                }
+                if (i == end) {
+                    break;
+                }
+                int tokenStart = i;
+                while (i < end && !delimiters[bytes[i] & 0xff]) {
+                    i++;
+                }
+                if (colBits.get(tokenCount) && colIndex < buffer.length) {
+                    buffer[colIndex++] = DataConversion.parseDouble(bytes, tokenStart, i);
+                }
+                tokenCount++;
+            }
+        } catch (NumberFormatException nfe) {
+            throw new IOException(String.format("unparseable element on row %d: %s", row,
+                new String(bytes, start, end - start, StandardCharsets.ISO_8859_1)));
+        }
+
+        if (tokenCount != header.tokenCount) {
+            throw new IOException(String.format(
+                "incorrect number of entries on row %d: %d expected, found %d", row, header.tokenCount, tokenCount));
+        }
+    }
+
+    // Finds the first line with numeric data, applying the same rules as parseCSVInfo(). 
+    // Returns null if no such line is found.
+    private static CSVHeader parseCSVHeader(final FileChannel channel, final Charset charSet,
+        final String delimiter, final int startColumn, final Future<?> future) 
+        throws IOException, CancellationException {
+
+        final CSVHeader[] header = new CSVHeader[1];
+
+        scanLines(channel, 0L, channel.size(), future, (bytes, start, end, position) -> {
+
+            String line = new String(bytes, start, end - start, charSet).trim();
+            StringTokenizer tokenizer = new StringTokenizer(line, delimiter);
+            int tokenCount = tokenizer.countTokens();
+
+            if (tokenCount > startColumn) {
+
+                BitSet bits = new BitSet(tokenCount);
+
+                for (int i = 0; i < startColumn; i++) {
+                    tokenizer.nextToken();
+                }
+
+                for (int i = startColumn; i < tokenCount; i++) {
+                    try {
+                        Double.parseDouble(tokenizer.nextToken());
+                        bits.set(i);
+                    } catch (NumberFormatException nfe) {
+                        // Not a numeric column.
+                    }
+                }
+
+                if (bits.cardinality() > 0) {
+                    header[0] = new CSVHeader(position, tokenCount, bits);
+                    return false;
+                }
+            }
+
+            return true;
+        });
+
+        return header[0];
+    }
+
+    // Describes where the data starts in a csv file and which columns are numeric.
+    private static class CSVHeader {
+
+        // File position of the first line of data.
+        private final long dataStart;
+        // The number of entries on each line.
+        private final int tokenCount;
+        // Set bits indicate the columns containing numeric data.
+        private final BitSet columnBits;
+
+        private CSVHeader(final long dataStart, final int tokenCount, final BitSet columnBits) {
+            this.dataStart = dataStart;
+            this.tokenCount = tokenCount;
+            this.columnBits = columnBits;
+        }
+    }
+
     /**
      * Parse a csv file to determine the number of rows and which columns
      * contain numeric data.
@@ -525,4 +1043,68 @@ public class TupleIO {
         }
     }
 
+
+    /**
+     * Opens a NumPy <tt>.npy</tt> file as a read-only <code>TupleList</code>. 
+     * The data section of the file is memory-mapped, so nothing is copied or
+     * parsed. See <code>NpyTupleList</code> for the supported arrays.
+     * 
+     * @param file the <tt>.npy</tt> file.
+     * 
+     * @return a <code>NpyTupleList</code> reading from the file.
+     * 
+     * @throws IOException if an IO error occurs or the file is not a supported
+     *   <tt>.npy</tt> file.
+     *   
+     * @since 2.0.1
+     */
+    public static NpyTupleList loadNpy(final File file) throws IOException {
+        return NpyTupleList.openExisting(file);
+    }
+
+    /**
+     * Loads a <code>TupleList</code> from a NumPy <tt>.npy</tt> file and adds it
+     * to a <code>TupleListFactory</code> for management. Unlike the list returned
+     * by <code>loadNpy(File)</code>, the result is independent of the file and 
+     * may be modified.
+     * 
+     * @param file the <tt>.npy</tt> file.
+     * @param nameForTuples the name to associate with the <code>TupleList</code>.
+     * @param factory the factory to manage the instance.
+     * 
+     * @return a <code>TupleList</code> instance.
+     * 
+     * @throws IOException if an IO error occurs or the file is not a supported
+     *   <tt>.npy</tt> file.
+     *   
+     * @since 2.0.1
+     */
+    public static TupleList loadNpy(final File file, final String nameForTuples, 
+        final TupleListFactory factory) throws IOException {
+        NpyTupleList npy = NpyTupleList.openExisting(file);
+        try {
+            return factory.copyTupleList(nameForTuples, npy);
+        } catch (TupleListFactoryException tlfe) {
+            throw new IOException(tlfe);
+        } finally {
+            npy.close();
+        }
+    }
+
+    /**
+     * Saves the values from a <code>TupleList</code> to a NumPy <tt>.npy</tt> 
+     * file as a C-ordered array of shape <tt>(tupleCount, tupleLength)</tt>. 
+     * The dtype is float32 for a <code>FloatTupleList</code> and float64 
+     * otherwise.
+     * 
+     * @param file the file to which to save the data.
+     * @param tuples the TupleList containing the data.
+     * 
+     * @throws IOException if an IO error occurs.
+     * 
+     * @since 2.0.1
+     */
+    public static void saveNpy(final File file, final TupleList tuples) throws IOException {
+        NpyTupleList.saveToFile(tuples, file);
+    }
 }
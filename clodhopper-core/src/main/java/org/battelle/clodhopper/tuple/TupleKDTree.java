@@ -160,7 +160,9 @@ public class TupleKDTree {
         }
         final IntComparator[] comparators = new IntComparator[tupleLen];
         for (int dim = 0; dim < tupleLen; dim++) {
-            comparators[dim] = new TupleIndexComparator(tuples, dim);
+            comparators[dim] = tuples instanceof ColumnarTupleList ? 
+                    new ColumnarIndexComparator((ColumnarTupleList) tuples, dim) : 
+                    new TupleIndexComparator(tuples, dim);
         }
         generateBalanced(kd, tupleIndices, 0, tupleIndices.length - 1, 0, comparators);
         return kd;
@@ -1038,4 +1040,26 @@ public class TupleKDTree {
         }
     }
 
+    /**
+     * Used in place of <code>TupleIndexComparator</code> for column-major tuples, 
+     * reading the values for the dimension directly from the backing array.
+     */
+    private static class ColumnarIndexComparator implements IntComparator {
+
+        private final double[] values;
+        private final int offset;
+
+        private ColumnarIndexComparator(ColumnarTupleList tupleData, int dim) {
+            this.values = tupleData.values();
+            this.offset = tupleData.columnOffset(dim);
+        }
+
+        @Override
+        public int compare(int n1, int n2) {
+            double v1 = values[offset + n1];
+            double v2 = values[offset + n2];
+            return v1 < v2 ? -1 : v1 > v2 ? +1 : 0;
+        }
+    }
+
 }
@@ -76,6 +76,30 @@ public interface TupleList {
      */
     double[] getTuple(int n, double[] reuseBuffer);
 
+    /**
+     * Get the values for a contiguous range of tuples. The values are copied
+     * into the destination array in row-major order, so tuple 
+     * <code>start + i</code> occupies the elements beginning at
+     * <code>offset + i * getTupleLength()</code>. Reading a range with one call is 
+     * usually much cheaper than calling <code>getTuple</code> for each tuple.
+     *
+     * @param start the 0-indexed identifier of the first tuple.
+     * @param count the number of tuples.
+     * @param dest the array into which to copy the values. If null, a new array
+     * of length <code>offset + count * getTupleLength()</code> is allocated.
+     * @param offset the offset in dest at which to copy the first value.
+     *
+     * @return the array containing the values.
+     *
+     * @throws IndexOutOfBoundsException if the range of tuples is not within
+     * [0 - (getTupleCount() - 1)]
+     * @throws IllegalArgumentException if dest is non-null but too short to 
+     * hold the values.
+     * 
+     * @since 2.0.1
+     */
+    double[] getTuples(int start, int count, double[] dest, int offset);
+
     /**
      * Get the values for the tuple column.
      *
@@ -0,0 +1,230 @@
+package org.battelle.clodhopper.tuple;
+
+import java.util.Arrays;
+
+/*=====================================================================
+ * 
+ *                       CLODHOPPER CLUSTERING API
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Copyright (C) 2013 Battelle Memorial Institute 
+ * http://www.battelle.org
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ * 
+ * -------------------------------------------------------------------- 
+ * *
+ * TupleListStatistics.java
+ *
+ *===================================================================*/
+/**
+ * Summary statistics of the data in a <code>TupleList</code>: the minimum, 
+ * maximum, mean, and variance of every column, and the number of unique
+ * tuples. Instances are immutable.
+ * 
+ * <p>As elsewhere in this package, NaNs are ignored. The statistics of a column
+ * are NaN if all of its values are NaN. The variance is the population 
+ * variance computed by <code>TupleMath.meanAndVariance</code>.</p>
+ * 
+ * <p>Computing the statistics takes a pass over every column and a sort of the
+ * tuples to count the unique ones. Tuple lists that implement 
+ * <code>SummarizedTupleList</code> supply statistics computed in advance, which 
+ * <code>TupleMath</code> and the clustering algorithms use in place of scanning
+ * the data.</p>
+ * 
+ * @author R. Scarberry
+ * @since 2.0.1
+ */
+public final class TupleListStatistics {
+
+    private final int tupleCount;
+    private final double[] minimums;
+    private final double[] maximums;
+    private final double[] means;
+    private final double[] variances;
+    private final int uniqueTupleCount;
+
+    /**
+     * Constructor.
+     * 
+     * @param tupleCount the number of tuples.
+     * @param minimums the minimum of each column.
+     * @param maximums the maximum of each column.
+     * @param means the mean of each column.
+     * @param variances the variance of each column.
+     * @param uniqueTupleCount the number of unique tuples.
+     * 
+     * @throws IllegalArgumentException if the arrays are not of the same length,
+     *   or if a count is invalid.
+     */
+    public TupleListStatistics(final int tupleCount, final double[] minimums, final double[] maximums,
+            final double[] means, final double[] variances, final int uniqueTupleCount) {
+        final int len = minimums.length;
+        if (maximums.length != len || means.length != len || variances.length != len) {
+            throw new IllegalArgumentException("column statistics arrays must be the same length");
+        }
+        if (tupleCount < 0 || uniqueTupleCount < 0 || uniqueTupleCount > tupleCount) {
+            throw new IllegalArgumentException(String.format("invalid counts: tupleCount = %d, uniqueTupleCount = %d", 
+                    tupleCount, uniqueTupleCount));
+        }
+        this.tupleCount = tupleCount;
+        this.minimums = minimums.clone();
+        this.maximums = maximums.clone();
+        this.means = means.clone();
+        this.variances = variances.clone();
+        this.uniqueTupleCount = uniqueTupleCount;
+    }
+
+    /**
+     * Computes the statistics for a <code>TupleList</code>. If the tuple list is
+     * a <code>SummarizedTupleList</code>, its statistics are returned without
+     * reading the data.
+     * 
+     * @param tuples the tuples.
+     * 
+     * @return the statistics.
+     */
+    public static TupleListStatistics compute(final TupleList tuples) {
+        if (tuples instanceof SummarizedTupleList) {
+            return ((SummarizedTupleList) tuples).getStatistics();
+        }
+        final int tupleLength = tuples.getTupleLength();
+        final double[] minimums = new double[tupleLength];
+        final double[] maximums = new double[tupleLength];
+        final double[] means = new double[tupleLength];
+        final double[] variances = new double[tupleLength];
+        double[] column = null;
+        for (int col = 0; col < tupleLength; col++) {
+            column = tuples.getColumn(col, column);
+            summarizeColumn(column, tuples.getTupleCount(), col, minimums, maximums, means, variances);
+        }
+        return new TupleListStatistics(tuples.getTupleCount(), minimums, maximums, means, variances,
+                TupleMath.uniqueTupleCount(tuples));
+    }
+
+    // Computes the statistics for the first count values of a column, storing them at
+    // index col of the arrays.
+    static void summarizeColumn(final double[] column, final int count, final int col, 
+            final double[] minimums, final double[] maximums, final double[] means, final double[] variances) {
+        double min = Double.NaN, max = Double.NaN;
+        for (int i = 0; i < count; i++) {
+            double d = column[i];
+            if (!Double.isNaN(d)) {
+                if (Double.isNaN(min) || d < min) {
+                    min = d;
+                }
+                if (Double.isNaN(max) || d > max) {
+                    max = d;
+                }
+            }
+        }
+        double[] meanAndVariance = TupleMath.meanAndVariance(
+                count == column.length ? column : Arrays.copyOf(column, count));
+        minimums[col] = min;
+        maximums[col] = max;
+        means[col] = meanAndVariance[0];
+        variances[col] = meanAndVariance[1];
+    }
+
+    /**
+     * Returns the number of tuples.
+     * 
+     * @return the tuple count.
+     */
+    public int getTupleCount() {
+        return tupleCount;
+    }
+    
+    /**
+     * Returns the number of columns.
+     * 
+     * @return the tuple length.
+     */
+    public int getTupleLength() {
+        return minimums.length;
+    }
+
+    /**
+     * Returns the number of unique tuples.
+     * 
+     * @return the unique tuple count.
+     */
+    public int getUniqueTupleCount() {
+        return uniqueTupleCount;
+    }
+
+    /**
+     * Returns the minimum value of a column.
+     * 
+     * @param col the column index.
+     * 
+     * @return the minimum.
+     */
+    public double getMinimum(final int col) {
+        return minimums[col];
+    }
+
+    /**
+     * Returns the maximum value of a column.
+     * 
+     * @param col the column index.
+     * 
+     * @return the maximum.
+     */
+    public double getMaximum(final int col) {
+        return maximums[col];
+    }
+
+    /**
+     * Returns the mean of a column.
+     * 
+     * @param col the column index.
+     * 
+     * @return the mean.
+     */
+    public double getMean(final int col) {
+        return means[col];
+    }
+
+    /**
+     * Returns the variance of a column.
+     * 
+     * @param col the column index.
+     * 
+     * @return the variance.
+     */
+    public double getVariance(final int col) {
+        return variances[col];
+    }
+
+    /**
+     * Returns the means of all the columns, which is the average of the tuples.
+     * 
+     * @return a new array containing the means.
+     */
+    public double[] getMeans() {
+        return means.clone();
+    }
+
+    /**
+     * Returns the minimum-sized <code>HyperRect</code> containing all the tuples.
+     * 
+     * @return a new <code>HyperRect</code>.
+     */
+    public HyperRect boundingBox() {
+        return new HyperRect(minimums, maximums);
+    }
+}
@@ -8,7 +8,6 @@ import java.util.Random;
 
 import org.battelle.clodhopper.util.IntComparator;
 import org.battelle.clodhopper.util.IntIterator;
-import org.battelle.clodhopper.util.IntervalIntIterator;
 import org.battelle.clodhopper.util.Sorting;
 
 /*=====================================================================
@@ -64,6 +63,10 @@ public final class TupleMath {
      */
     public static double[] minCorner(TupleList tuples, IntIterator ids) {
 
+        if (tuples instanceof ColumnarTupleList) {
+            return columnarCorner((ColumnarTupleList) tuples, ids, true);
+        }
+
         final int len = tuples.getTupleLength();
 
         double[] result = new double[len];
@@ -102,6 +105,10 @@ public final class TupleMath {
      */
     public static double[] maxCorner(TupleList tuples, IntIterator ids) {
 
+        if (tuples instanceof ColumnarTupleList) {
+            return columnarCorner((ColumnarTupleList) tuples, ids, false);
+        }
+
         final int len = tuples.getTupleLength();
 
         double[] result = new double[len];
@@ -126,6 +133,32 @@ public final class TupleMath {
         return result;
     }
     
+    // Computes the min or max corner one column at a time, so the values are
+    // read in storage order.
+    private static double[] columnarCorner(ColumnarTupleList tuples, IntIterator ids, boolean min) {
+        
+        final int len = tuples.getTupleLength();
+        final double[] values = tuples.values();
+        
+        double[] result = new double[len];
+        Arrays.fill(result, Double.NaN);
+
+        for (int i = 0; i < len; i++) {
+            final int offset = tuples.columnOffset(i);
+            double v = Double.NaN;
+            ids.gotoFirst();
+            while (ids.hasNext()) {
+                double d = values[offset + ids.getNext()];
+                if (!Double.isNaN(d) && (Double.isNaN(v) || (min ? d < v : d > v))) {
+                    v = d;
+                }
+            }
+            result[i] = v;
+        }
+        
+        return result;
+    }
+    
     /**
      * Computes a <code>HyperRect</code> that forms the minimum-sized bounding box for
      * the data in the supplied <code>TupleList</code>.
@@ -135,7 +168,53 @@ public final class TupleMath {
      * @return an instance of <code>HyperRect</code>. 
      */
     public static HyperRect boundingBox(final TupleList tuples) {
-        return boundingBox(tuples, new IntervalIntIterator(0, tuples.getTupleCount()));
+        
+        Objects.requireNonNull(tuples);
+        
+        if (tuples instanceof SummarizedTupleList) {
+            // Known without reading the data.
+            return ((SummarizedTupleList) tuples).getStatistics().boundingBox();
+        }
+
+        final int tupleLen = tuples.getTupleLength();
+        final double[] minCorner = new double[tupleLen];
+        final double[] maxCorner = new double[tupleLen];
+        final double[] buffer = new double[tupleLen];
+        
+        Arrays.fill(minCorner, Double.NaN);
+        Arrays.fill(maxCorner, Double.NaN);
+        
+        if (tuples instanceof ColumnarTupleList) {
+            // Scan one column at a time, which is sequential for this layout.
+            final ColumnarTupleList columnarTuples = (ColumnarTupleList) tuples;
+            final int tupleCount = tuples.getTupleCount();
+            final double[] values = columnarTuples.values();
+            for (int i = 0; i < tupleLen; i++) {
+                final int offset = columnarTuples.columnOffset(i);
+                double min = Double.NaN, max = Double.NaN;
+                for (int n = 0; n < tupleCount; n++) {
+                    double d = values[offset + n];
+                    if (!Double.isNaN(d)) {
+                        if (Double.isNaN(min) || d < min) {
+                            min = d;
+                        }
+                        if (Double.isNaN(max) || d > max) {
+                            max = d;
+                        }
+                    }
+                }
+                minCorner[i] = min;
+                maxCorner[i] = max;
+            }
+        } else {
+            // All tuples are visited in order, so read them in blocks.
+            TupleBlockReader reader = new TupleBlockReader(tuples, 0, tuples.getTupleCount());
+            while (reader.hasNext()) {
+                extendBounds(reader.next(buffer), minCorner, maxCorner);
+            }
+        }
+        
+        return new HyperRect(minCorner, maxCorner);
     }
     
     /**
@@ -165,21 +244,27 @@ public final class TupleMath {
         while(ids.hasNext()) {
             int id = ids.getNext();
             tuples.getTuple(id, buffer);
-            for (int i=0; i<tupleLen; i++) {
-                double d = buffer[i];
-                if (!Double.isNaN(d)) {
-                    if (Double.isNaN(minCorner[i]) || d < minCorner[i]) {
-                        minCorner[i] = d;
-                    }
-                    if (Double.isNaN(maxCorner[i]) || d > maxCorner[i]) {
-                        maxCorner[i] = d;
-                    }
-                }
-            }
+            extendBounds(buffer, minCorner, maxCorner);
         }
         
         return new HyperRect(minCorner, maxCorner);
     }
+    
+    // Extends the corners of a bounding box to contain the non-NaN values of a tuple.
+    private static void extendBounds(final double[] tuple, final double[] minCorner, final double[] maxCorner) {
+        final int tupleLen = minCorner.length;
+        for (int i=0; i<tupleLen; i++) {
+            double d = tuple[i];
+            if (!Double.isNaN(d)) {
+                if (Double.isNaN(minCorner[i]) || d < minCorner[i]) {
+                    minCorner[i] = d;
+                }
+                if (Double.isNaN(maxCorner[i]) || d > maxCorner[i]) {
+                    maxCorner[i] = d;
+                }
+            }
+        }
+    }
 
     /**
      * Computes the mean of a specified set of tuples.
@@ -192,13 +277,54 @@ public final class TupleMath {
     public static double[] average(TupleList tuples, IntIterator ids) {
         final int len = tuples.getTupleLength();
         double[] result = new double[len];
-        double[] buffer = new double[len];
         int count = 0;
         ids.gotoFirst();
-        while (ids.hasNext()) {
-            tuples.getTuple(ids.getNext(), buffer);
-            addTo(result, buffer);
-            count++;
+        if (tuples instanceof SparseTupleList) {
+            // Only the nonzero values contribute, so the cost is proportional to their number.
+            SparseTupleList sparseTuples = (SparseTupleList) tuples;
+            final int maxNonZeroCount = sparseTuples.getMaxNonZeroCount();
+            int[] indexes = new int[maxNonZeroCount];
+            double[] values = new double[maxNonZeroCount];
+            while (ids.hasNext()) {
+                int nnz = sparseTuples.getSparseTuple(ids.getNext(), indexes, values);
+                for (int i = 0; i < nnz; i++) {
+                    result[indexes[i]] += values[i];
+                }
+                count++;
+            }
+        } else if (tuples instanceof ColumnarTupleList) {
+            // Sum one column at a time, so the values are read in storage order.
+            ColumnarTupleList columnarTuples = (ColumnarTupleList) tuples;
+            final double[] values = columnarTuples.values();
+            for (int i = 0; i < len; i++) {
+                final int offset = columnarTuples.columnOffset(i);
+                double sum = 0.0;
+                count = 0;
+                ids.gotoFirst();
+                while (ids.hasNext()) {
+                    sum += values[offset + ids.getNext()];
+                    count++;
+                }
+                result[i] = sum;
+            }
+        } else if (tuples instanceof FloatTupleList) {
+            // Accumulate single-precision data without widening every tuple to a double[].
+            FloatTupleList floatTuples = (FloatTupleList) tuples;
+            float[] buffer = new float[len];
+            while (ids.hasNext()) {
+                floatTuples.getFloatTuple(ids.getNext(), buffer);
+                for (int i = 0; i < len; i++) {
+                    result[i] += buffer[i];
+                }
+                count++;
+            }
+        } else {
+            double[] buffer = new double[len];
+            while (ids.hasNext()) {
+                tuples.getTuple(ids.getNext(), buffer);
+                addTo(result, buffer);
+                count++;
+            }
         }
         if (count > 0) {
             divideBy(result, count);
@@ -462,6 +588,10 @@ public final class TupleMath {
 
     public static int uniqueTupleCount(TupleList tuples) {
 
+        if (tuples instanceof SummarizedTupleList) {
+            return ((SummarizedTupleList) tuples).getStatistics().getUniqueTupleCount();
+        }
+
         final int tupleCount = tuples.getTupleCount();
 
         int[] indexes = new int[tupleCount];
@@ -481,7 +611,7 @@ public final class TupleMath {
             double[] buffer1 = new double[tupleLength];
             double[] buffer2 = new double[tupleLength];
 
-            tuples.getTuple(0, buffer1);
+            tuples.getTuple(indexes[0], buffer1);
 
             double[] lastBuf = buffer1;
             double[] nextBuf = buffer2;
@@ -503,6 +633,10 @@ public final class TupleMath {
 
     public static int checkUniqueTupleCount(TupleList tuples, final int minRequired) {
 
+        if (tuples instanceof SummarizedTupleList) {
+            return Math.min(minRequired, ((SummarizedTupleList) tuples).getStatistics().getUniqueTupleCount());
+        }
+
         final int tupleCount = tuples.getTupleCount();
 
         int[] indexes = new int[tupleCount];
@@ -522,7 +656,7 @@ public final class TupleMath {
             double[] buffer1 = new double[tupleLength];
             double[] buffer2 = new double[tupleLength];
 
-            tuples.getTuple(0, buffer1);
+            tuples.getTuple(indexes[0], buffer1);
 
             double[] lastBuf = buffer1;
             double[] nextBuf = buffer2;
@@ -1,5 +1,7 @@
 package org.battelle.clodhopper.util;
 
+import java.nio.charset.StandardCharsets;
+
 /*=====================================================================
  * 
  *                       CLODHOPPER CLUSTERING API
@@ -551,4 +553,113 @@ public final class DataConversion {
         toBytes(source, 0, destBytes, 0, source.length);
     }
 
+    // Powers of ten that are exactly representable as doubles.
+    private static final double[] EXACT_POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    // Mantissas no larger than this are exactly representable as doubles.
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    /**
+     * Parses a double from ASCII characters in a byte array without allocating
+     * any objects in the common case. The result is the same as that of 
+     * <code>Double.parseDouble</code> on the equivalent string, including its 
+     * tolerance of leading and trailing whitespace. Plain decimal numbers with
+     * no more than 15 significant digits and small exponents are converted
+     * directly; anything else, such as &quot;NaN&quot; or a number with many
+     * digits, is passed to <code>Double.parseDouble</code>.
+     *
+     * @param bytes the array containing the characters.
+     * @param start the index of the first character.
+     * @param end one past the index of the last character.
+     * 
+     * @return the parsed value.
+     * 
+     * @throws NumberFormatException if the characters do not form a number.
+     * 
+     * @since 2.0.1
+     */
+    public static double parseDouble(final byte[] bytes, int start, int end) {
+        
+        while (start < end && (bytes[start] & 0xff) <= ' ') {
+            start++;
+        }
+        while (end > start && (bytes[end - 1] & 0xff) <= ' ') {
+            end--;
+        }
+        
+        int i = start;
+        boolean negative = false;
+        if (i < end && (bytes[i] == '-' || bytes[i] == '+')) {
+            negative = bytes[i] == '-';
+            i++;
+        }
+        
+        long mantissa = 0L;
+        int significantDigits = 0;
+        int digitCount = 0;
+        int exponent = 0;
+        
+        while (i < end && bytes[i] >= '0' && bytes[i] <= '9') {
+            mantissa = 10L * mantissa + (bytes[i++] - '0');
+            if (mantissa != 0L) {
+                significantDigits++;
+            }
+            digitCount++;
+        }
+        if (i < end && bytes[i] == '.') {
+            i++;
+            while (i < end && bytes[i] >= '0' && bytes[i] <= '9') {
+                mantissa = 10L * mantissa + (bytes[i++] - '0');
+                if (mantissa != 0L) {
+                    significantDigits++;
+                }
+                digitCount++;
+                exponent--;
+            }
+        }
+        
+        boolean fastPath = digitCount > 0 && significantDigits <= 15;
+        
+        if (fastPath && i < end && (bytes[i] == 'e' || bytes[i] == 'E')) {
+            i++;
+            boolean negativeExponent = false;
+            if (i < end && (bytes[i] == '-' || bytes[i] == '+')) {
+                negativeExponent = bytes[i] == '-';
+                i++;
+            }
+            int exponentDigits = 0;
+            int explicitExponent = 0;
+            while (i < end && bytes[i] >= '0' && bytes[i] <= '9' && exponentDigits < 4) {
+                explicitExponent = 10 * explicitExponent + (bytes[i++] - '0');
+                exponentDigits++;
+            }
+            fastPath = exponentDigits > 0;
+            exponent += negativeExponent ? -explicitExponent : explicitExponent;
+        }
+        
+        // Anything left over, such as a type suffix, needs the full parser.
+        if (fastPath && i == end && mantissa <= MAX_EXACT_MANTISSA) {
+            double value;
+            if (mantissa == 0L) {
+                value = 0.0;
+            } else if (exponent >= 0 && exponent < EXACT_POWERS_OF_TEN.length) {
+                value = mantissa * EXACT_POWERS_OF_TEN[exponent];
+            } else if (exponent < 0 && -exponent < EXACT_POWERS_OF_TEN.length) {
+                value = mantissa / EXACT_POWERS_OF_TEN[-exponent];
+            } else {
+                value = Double.NaN;
+            }
+            // With an exact mantissa and an exact power of ten, the single rounding
+            // step of the multiplication or division gives the correctly rounded result.
+            if (!Double.isNaN(value)) {
+                return negative ? -value : value;
+            }
+        }
+        
+        return Double.parseDouble(new String(bytes, start, end - start, StandardCharsets.ISO_8859_1));
+    }
+
 }
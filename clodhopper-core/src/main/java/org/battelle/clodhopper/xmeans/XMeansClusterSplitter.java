@@ -155,6 +155,7 @@ public class XMeansClusterSplitter extends AbstractClusterSplitter {
         		.clusterCount(howMany)
         		.movesGoal(0)
         		.workerThreadCount(1) // Perform the split themselves in parallel, but use single-threaded kmeans on each split.
+        		.executor(params.getExecutor())
         		.clusterSeeder(params.getClusterSeeder())
         		.build();
         
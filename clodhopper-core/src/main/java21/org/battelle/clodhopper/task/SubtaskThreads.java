@@ -0,0 +1,73 @@
+package org.battelle.clodhopper.task;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/*=====================================================================
+ * 
+ *                       CLODHOPPER CLUSTERING API
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Copyright (C) 2013 Battelle Memorial Institute 
+ * http://www.battelle.org
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ * 
+ * -------------------------------------------------------------------- 
+ * *
+ * SubtaskThreads.java
+ *
+ *===================================================================*/
+/**
+ * Creates the thread pools tasks use for their subtasks when no shared executor 
+ * is given. This is the Java 21 version, which runs each subtask on a new virtual 
+ * thread, so the controlling thread blocked in <code>invokeAll()</code> and the 
+ * workers hold no platform threads while they wait. Shutting the pool down, as
+ * every task does when it ends or is cancelled, interrupts the subtasks still 
+ * running, so none outlives the run that started it.
+ * 
+ * @author R. Scarberry
+ * @since 2.0.1
+ */
+final class SubtaskThreads {
+
+    private static final ThreadFactory FACTORY = Thread.ofVirtual().name("clodhopper-subtask-", 0).factory();
+
+    private SubtaskThreads() {
+    }
+
+    /**
+     * Create a thread pool for one run of a task.
+     * 
+     * @param threadCount the number of subtasks the task runs at once, which
+     *   does not limit the number of virtual threads.
+     * 
+     * @return the thread pool, which the task shuts down when done.
+     */
+    static ExecutorService newThreadPool(int threadCount) {
+        return Executors.newThreadPerTaskExecutor(FACTORY);
+    }
+
+    /**
+     * Returns whether subtasks run on virtual threads.
+     * 
+     * @return true for this version.
+     */
+    static boolean isVirtual() {
+        return true;
+    }
+}
@@ -142,6 +142,76 @@ public class DistanceComputationTest {
         }
     }
     
+    @Test
+    public void testFloatDistancesMatchWidenedDistances() {
+        for (int i = 0; i < tuples.length; i++) {
+            float[] floatTuple = new float[tuples[i].length];
+            double[] widened = new double[tuples[i].length];
+            for (int k = 0; k < floatTuple.length; k++) {
+                floatTuple[k] = (float) tuples[i][k];
+                widened[k] = floatTuple[k];
+            }
+            for (int j = 0; j < tuples.length; j++) {
+                for (DistanceMetric dm : metrics) {
+                    if (dm.getClass() == CosineDistanceMetric.class && (isZeroTuple(tuples[i]) || isZeroTuple(tuples[j]))) {
+                        continue;
+                    }
+                    if (dm instanceof FloatDistanceMetric) {
+                        double dist1 = ((FloatDistanceMetric) dm).distance(floatTuple, tuples[j]);
+                        double dist2 = dm.distance(widened, tuples[j]);
+                        assertTrue("failed for metric: " + dm.getClass().getSimpleName(),
+                                Math.abs(dist1 - dist2) <= EPSILON);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSparseDistancesMatchDenseDistances() {
+        Random random = new Random(seed);
+        final int tupleLen = tuples[0].length;
+        // Zero out most of the values, so the sparse code paths have something to skip.
+        double[][] sparse = new double[tuples.length][];
+        int[][] indexes = new int[tuples.length][tupleLen];
+        double[][] values = new double[tuples.length][tupleLen];
+        int[] nnz = new int[tuples.length];
+        for (int i = 0; i < tuples.length; i++) {
+            sparse[i] = tuples[i].clone();
+            for (int k = 0; k < tupleLen; k++) {
+                if (random.nextInt(3) != 0) {
+                    sparse[i][k] = 0.0;
+                }
+                if (sparse[i][k] != 0.0) {
+                    indexes[i][nnz[i]] = k;
+                    values[i][nnz[i]++] = sparse[i][k];
+                }
+            }
+        }
+        for (int i = 0; i < tuples.length; i++) {
+            for (int j = 0; j < tuples.length; j++) {
+                for (DistanceMetric dm : metrics) {
+                    if (!(dm instanceof SparseDistanceMetric)) {
+                        continue;
+                    }
+                    SparseDistanceMetric sdm = (SparseDistanceMetric) dm;
+                    if (dm.getClass() == CosineDistanceMetric.class && 
+                            (isZeroTuple(sparse[i]) || isZeroTuple(sparse[j]) || isZeroTuple(tuples[j]))) {
+                        continue;
+                    }
+                    double dense = dm.distance(sparse[i], tuples[j]);
+                    double sparseDense = sdm.distance(indexes[i], values[i], nnz[i], tuples[j], sdm.denseNorm(tuples[j]));
+                    assertTrue("sparse/dense failed for metric: " + dm.getClass().getSimpleName(),
+                            Math.abs(dense - sparseDense) <= 1.0e-9);
+                    double dense2 = dm.distance(sparse[i], sparse[j]);
+                    double sparseSparse = sdm.distance(indexes[i], values[i], nnz[i], indexes[j], values[j], nnz[j]);
+                    assertTrue("sparse/sparse failed for metric: " + dm.getClass().getSimpleName(),
+                            Math.abs(dense2 - sparseSparse) <= 1.0e-9);
+                }
+            }
+        }
+    }
+
     public static boolean isZeroTuple(double[] tuple) {
         for (int i = 0; i < tuple.length; i++) {
             if (Math.abs(tuple[i]) >= EPSILON) {
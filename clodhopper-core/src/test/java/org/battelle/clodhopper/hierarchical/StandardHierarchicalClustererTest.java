@@ -0,0 +1,101 @@
+package org.battelle.clodhopper.hierarchical;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.battelle.clodhopper.task.CheckpointStore;
+import org.battelle.clodhopper.task.TaskAdapter;
+import org.battelle.clodhopper.task.TaskEvent;
+import org.battelle.clodhopper.task.TaskOutcome;
+import org.battelle.clodhopper.tuple.TupleList;
+import org.battelle.clodhopper.tuple.TupleMath;
+import org.junit.Test;
+
+/*=====================================================================
+ * 
+ *                       CLODHOPPER CLUSTERING API
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Copyright (C) 2013 Battelle Memorial Institute 
+ * http://www.battelle.org
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ * 
+ * -------------------------------------------------------------------- 
+ * *
+ * StandardHierarchicalClustererTest.java
+ *
+ *===================================================================*/
+public class StandardHierarchicalClustererTest {
+
+    @Test
+    public void testResumeFromCheckpoint() throws Exception {
+
+        TupleList tuples = TupleMath.generateRandomGaussianTuples(5, 600, 8, new Random(1357L), 0.2, 0.4);
+        HierarchicalParams params = new HierarchicalParams.Builder()
+                .linkage(HierarchicalParams.Linkage.MEAN)
+                .clusterCount(8)
+                .workerThreadCount(3)
+                .build();
+
+        StandardHierarchicalClusterer uninterrupted = new StandardHierarchicalClusterer(tuples, params);
+        uninterrupted.run();
+        assertTrue(uninterrupted.getTaskOutcome() == TaskOutcome.SUCCESS);
+
+        File directory = Files.createTempDirectory("checkpoints").toFile();
+        CheckpointStore store = new CheckpointStore(directory);
+        try {
+            // Of the 599 merges, the last checkpoint is taken after 500.
+            StandardHierarchicalClusterer first = new StandardHierarchicalClusterer(tuples, params);
+            first.setCheckpointStore(store);
+            first.setCheckpointInterval(100);
+            first.run();
+            assertTrue(first.getTaskOutcome() == TaskOutcome.SUCCESS);
+            assertTrue(store.hasCheckpoint());
+
+            final List<String> messages = new ArrayList<>();
+            StandardHierarchicalClusterer resumed = new StandardHierarchicalClusterer(tuples, params);
+            resumed.setCheckpointStore(store);
+            resumed.addTaskListener(new TaskAdapter() {
+                @Override
+                public void taskMessage(TaskEvent e) {
+                    messages.add(e.getMessage());
+                }
+            });
+            resumed.run();
+            assertTrue(resumed.getTaskOutcome() == TaskOutcome.SUCCESS);
+            assertTrue(messages.contains("resuming from the checkpoint saved after 500 merges"));
+
+            Dendrogram expected = uninterrupted.getDendrogram();
+            Dendrogram actual = resumed.getDendrogram();
+            for (int level = 0; level < expected.getLeafLevel(); level++) {
+                assertEquals(expected.getLeftChildID(level), actual.getLeftChildID(level));
+                assertEquals(expected.getRightChildID(level), actual.getRightChildID(level));
+                assertEquals(expected.getNode(level).distance(), actual.getNode(level).distance(), 0.0);
+            }
+            assertEquals(uninterrupted.get().size(), resumed.get().size());
+        } finally {
+            store.clear();
+            store.close();
+            directory.delete();
+        }
+    }
+}
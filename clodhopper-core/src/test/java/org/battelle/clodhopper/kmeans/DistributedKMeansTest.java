@@ -0,0 +1,230 @@
+package org.battelle.clodhopper.kmeans;
+
+import static org.junit.Assert.*;
+
+import java.io.DataOutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.battelle.clodhopper.Cluster;
+import org.battelle.clodhopper.distance.EuclideanDistanceMetric;
+import org.battelle.clodhopper.seeding.KMeansPlusPlusSeeder;
+import org.battelle.clodhopper.task.TaskOutcome;
+import org.battelle.clodhopper.tuple.ArrayTupleList;
+import org.battelle.clodhopper.tuple.TupleList;
+import org.battelle.clodhopper.tuple.TupleMath;
+import org.junit.Test;
+
+/*=====================================================================
+ * 
+ *                       CLODHOPPER CLUSTERING API
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Copyright (C) 2013 Battelle Memorial Institute 
+ * http://www.battelle.org
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ * 
+ * -------------------------------------------------------------------- 
+ * *
+ * DistributedKMeansTest.java
+ *
+ *===================================================================*/
+public class DistributedKMeansTest {
+
+    // Uneven shard boundaries.
+    private static final int[] SHARD_STARTS = { 0, 1000, 1700, 3500 };
+
+    @Test
+    public void testLocalShardsMatchKMeans() throws Exception {
+        TupleList tuples = TupleMath.generateRandomGaussianTuples(5, 5000, 9, new Random(4040L), 0.1, 0.2);
+        KMeansParams params = params(tuples, 9);
+
+        List<KMeansShard> shards = new ArrayList<>();
+        for (int s = 0; s < SHARD_STARTS.length; s++) {
+            shards.add(worker(tuples, s));
+        }
+        // The order of the shards should not matter.
+        shards.add(shards.remove(0));
+
+        assertClustersMatchKMeans(tuples, params, shards);
+    }
+
+    @Test
+    public void testSocketShardsMatchKMeans() throws Exception {
+        TupleList tuples = TupleMath.generateRandomGaussianTuples(4, 4000, 6, new Random(5050L), 0.1, 0.2);
+        KMeansParams params = params(tuples, 6);
+
+        List<KMeansShardServer> servers = new ArrayList<>();
+        List<KMeansShard> shards = new ArrayList<>();
+        try {
+            for (int s = 0; s < SHARD_STARTS.length; s++) {
+                KMeansShardServer server = new KMeansShardServer(worker(tuples, s), 
+                        new ServerSocket(0, 1, InetAddress.getLoopbackAddress()));
+                servers.add(server);
+                Thread thread = new Thread(server);
+                thread.setDaemon(true);
+                thread.start();
+                shards.add(new SocketKMeansShard(InetAddress.getLoopbackAddress().getHostAddress(), server.getPort()));
+            }
+            assertClustersMatchKMeans(tuples, params, shards);
+        } finally {
+            for (KMeansShard shard : shards) {
+                shard.close();
+            }
+            for (KMeansShardServer server : servers) {
+                server.close();
+            }
+        }
+    }
+
+    @Test
+    public void testServerRejectsBadLengths() throws Exception {
+        TupleList tuples = TupleMath.generateRandomGaussianTuples(3, 2000, 4, new Random(9090L), 0.1, 0.2);
+        KMeansShardServer server = new KMeansShardServer(worker(tuples, 0), 
+                new ServerSocket(0, 1, InetAddress.getLoopbackAddress()));
+        Thread thread = new Thread(server);
+        thread.setDaemon(true);
+        thread.start();
+        try {
+            // A negative cluster count, a huge cluster count, and a center longer than the tuples.
+            int[][] requests = { { -1 }, { Integer.MAX_VALUE }, { 1, Integer.MAX_VALUE } };
+            for (int[] request : requests) {
+                try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+                    DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+                    out.writeByte(KMeansShardServer.ASSIGN);
+                    for (int value : request) {
+                        out.writeInt(value);
+                    }
+                    out.flush();
+                    // The server drops the connection without replying.
+                    assertEquals(-1, socket.getInputStream().read());
+                }
+            }
+            // It goes on serving well-formed requests.
+            try (SocketKMeansShard shard = new SocketKMeansShard(
+                    InetAddress.getLoopbackAddress().getHostAddress(), server.getPort())) {
+                assertEquals(SHARD_STARTS[1], shard.getTupleCount());
+                assertEquals(3, shard.sample(3, 1L).length / tuples.getTupleLength());
+            }
+        } finally {
+            server.close();
+        }
+    }
+
+    @Test
+    public void testGapBetweenShards() throws Exception {
+        TupleList tuples = TupleMath.generateRandomGaussianTuples(3, 4000, 4, new Random(6060L), 0.1, 0.2);
+        List<KMeansShard> shards = new ArrayList<>();
+        shards.add(worker(tuples, 0));
+        shards.add(worker(tuples, 2));
+        DistributedKMeansClusterer clusterer = new DistributedKMeansClusterer(shards, params(tuples, 4));
+        clusterer.run();
+        assertTrue(clusterer.getTaskOutcome() == TaskOutcome.ERROR);
+    }
+
+    @Test
+    public void testSampledSeedingIsReproducible() throws Exception {
+        // More tuples than SEED_SAMPLE_SIZE, so the seeder only sees a sample.
+        final int tupleCount = DistributedKMeansClusterer.SEED_SAMPLE_SIZE + 5000;
+        TupleList tuples = TupleMath.generateRandomGaussianTuples(4, tupleCount, 8, new Random(7070L), 0.1, 0.2);
+        final int[] shardStarts = { 0, 6000, 15000 };
+
+        List<List<Cluster>> results = new ArrayList<>();
+        for (int run = 0; run < 2; run++) {
+            List<KMeansShard> shards = new ArrayList<>();
+            for (int s = 0; s < shardStarts.length; s++) {
+                int end = s + 1 < shardStarts.length ? shardStarts[s + 1] : tupleCount;
+                shards.add(worker(tuples, shardStarts[s], end));
+            }
+            KMeansParams params = new KMeansParams.Builder()
+                    .clusterCount(8)
+                    .clusterSeeder(new KMeansPlusPlusSeeder(123L, new Random(), new EuclideanDistanceMetric()))
+                    .build();
+            DistributedKMeansClusterer clusterer = new DistributedKMeansClusterer(shards, params);
+            clusterer.run();
+            assertTrue(clusterer.getTaskOutcome() == TaskOutcome.SUCCESS);
+            results.add(clusterer.get());
+        }
+
+        KMeansTest.assertClustersEqual(results.get(0), results.get(1), 0.0);
+    }
+
+    @Test
+    public void testZeroMaxIterations() throws Exception {
+        TupleList tuples = TupleMath.generateRandomGaussianTuples(3, 4000, 4, new Random(8080L), 0.1, 0.2);
+        List<KMeansShard> shards = new ArrayList<>();
+        for (int s = 0; s < SHARD_STARTS.length; s++) {
+            shards.add(worker(tuples, s));
+        }
+        // KMeansParams rejects 0, but a subclass can get around the check.
+        final KMeansParams params = params(tuples, 4);
+        KMeansParams zeroIterationParams = new KMeansParams() {
+            @Override
+            public int getMaxIterations() {
+                return 0;
+            }
+        };
+        zeroIterationParams.setClusterCount(4);
+        zeroIterationParams.setClusterSeeder(params.getClusterSeeder());
+        DistributedKMeansClusterer clusterer = new DistributedKMeansClusterer(shards, zeroIterationParams);
+        clusterer.run();
+        assertTrue(clusterer.getTaskOutcome() == TaskOutcome.ERROR);
+    }
+
+    private static void assertClustersMatchKMeans(TupleList tuples, KMeansParams params, 
+            List<KMeansShard> shards) throws Exception {
+        KMeansClusterer kmeans = new KMeansClusterer(tuples, params);
+        kmeans.run();
+        assertTrue(kmeans.getTaskOutcome() == TaskOutcome.SUCCESS);
+
+        DistributedKMeansClusterer distributed = new DistributedKMeansClusterer(shards, params);
+        distributed.run();
+        assertTrue(distributed.getTaskOutcome() == TaskOutcome.SUCCESS);
+
+        KMeansTest.assertClustersEqual(kmeans.get(), distributed.get(), 1.0e-9);
+    }
+
+    // Both clusterers must start from the same centers, so the seeds are generated 
+    // once from all the tuples.
+    private static KMeansParams params(TupleList tuples, int clusterCount) {
+        final TupleList seeds = new KMeansPlusPlusSeeder(99L, new Random(), new EuclideanDistanceMetric())
+                .generateSeeds(tuples, clusterCount);
+        return new KMeansParams.Builder()
+                .clusterCount(clusterCount)
+                .workerThreadCount(2)
+                .clusterSeeder((t, seedCount) -> seeds)
+                .build();
+    }
+
+    private static KMeansShardWorker worker(TupleList tuples, int shard) {
+        final int start = SHARD_STARTS[shard];
+        final int end = shard + 1 < SHARD_STARTS.length ? SHARD_STARTS[shard + 1] : tuples.getTupleCount();
+        return worker(tuples, start, end);
+    }
+
+    private static KMeansShardWorker worker(TupleList tuples, int start, int end) {
+        ArrayTupleList shardTuples = new ArrayTupleList(tuples.getTupleLength(), end - start);
+        for (int i = start; i < end; i++) {
+            shardTuples.setTuple(i - start, tuples.getTuple(i, null));
+        }
+        return new KMeansShardWorker(shardTuples, start, new EuclideanDistanceMetric());
+    }
+}
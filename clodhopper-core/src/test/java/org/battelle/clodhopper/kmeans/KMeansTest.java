@@ -6,12 +6,24 @@ import org.battelle.clodhopper.Cluster;
 import org.battelle.clodhopper.Clusterer;
 import org.battelle.clodhopper.kmeans.KMeansClusterer;
 import org.battelle.clodhopper.kmeans.KMeansParams;
+import org.battelle.clodhopper.distance.CosineDistanceMetric;
+import org.battelle.clodhopper.distance.DistanceMetric;
+import org.battelle.clodhopper.distance.EuclideanDistanceMetric;
+import org.battelle.clodhopper.distance.TriangleInequalityMetric;
+import org.battelle.clodhopper.seeding.RandomSeeder;
 import org.battelle.clodhopper.task.*;
+import org.battelle.clodhopper.tuple.ArrayTupleList;
+import org.battelle.clodhopper.tuple.CSRTupleList;
+import org.battelle.clodhopper.tuple.MultiFileMappedTupleList;
 import org.battelle.clodhopper.tuple.TupleList;
 import org.battelle.clodhopper.tuple.TupleMath;
 import org.junit.Test;
+import java.io.File;
+import java.nio.file.Files;
 import java.util.*;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
 
 /*=====================================================================
  * 
@@ -107,4 +119,423 @@ public class KMeansTest {
 		}
 	}
 
+	@Test
+	public void testSparseTuplesMatchDense() throws Exception {
+		
+		int tupleLength = 200;
+		int tupleCount = 300;
+		int clusterCount = 5;
+		Random random = new Random(1234L);
+		
+		// Each cluster has its own handful of nonzero columns.
+		CSRTupleList.Builder builder = new CSRTupleList.Builder(tupleLength);
+		ArrayTupleList denseTuples = new ArrayTupleList(tupleLength, tupleCount);
+		double[] buffer = new double[tupleLength];
+		for (int i = 0; i < tupleCount; i++) {
+			Arrays.fill(buffer, 0.0);
+			int firstColumn = (i % clusterCount) * 10;
+			for (int j = 0; j < 10; j++) {
+				buffer[firstColumn + j] = 1.0 + 0.1 * random.nextGaussian();
+			}
+			buffer[random.nextInt(tupleLength)] += 0.1;
+			builder.addTuple(buffer);
+			denseTuples.setTuple(i, buffer);
+		}
+		CSRTupleList sparseTuples = builder.build();
+		assertTrue(sparseTuples.getMaxNonZeroCount() <= 11);
+		
+		List<Cluster> denseClusters = runKMeans(denseTuples, clusterCount);
+		List<Cluster> sparseClusters = runKMeans(sparseTuples, clusterCount);
+		
+		assertEquals(denseClusters.size(), sparseClusters.size());
+		for (int c = 0; c < denseClusters.size(); c++) {
+			Cluster dense = denseClusters.get(c);
+			Cluster sparse = sparseClusters.get(c);
+			assertEquals(dense.getMemberCount(), sparse.getMemberCount());
+			for (int i = 0; i < dense.getMemberCount(); i++) {
+				assertEquals(dense.getMember(i), sparse.getMember(i));
+			}
+			assertArrayEquals(dense.getCenter(), sparse.getCenter(), 1.0e-12);
+		}
+	}
+	
+	private static List<Cluster> runKMeans(TupleList tuples, int clusterCount) throws Exception {
+		KMeansParams params = new KMeansParams.Builder()
+				.clusterCount(clusterCount)
+				.workerThreadCount(2)
+				.clusterSeeder(new RandomSeeder(5678L, new Random()))
+				.build();
+		KMeansClusterer kmeans = new KMeansClusterer(tuples, params);
+		kmeans.run();
+		assertTrue(kmeans.getTaskOutcome() == TaskOutcome.SUCCESS);
+		return kmeans.get();
+	}
+
+	@Test
+	public void testElkanMatchesStandard() throws Exception {
+		
+		TupleList tuples = TupleMath.generateRandomGaussianTuples(10, 3000, 12, new Random(5678L), 0.2, 0.3);
+		
+		CountingMetric standardMetric = new CountingMetric();
+		List<Cluster> standard = runKMeans(tuples, 12, KMeansParams.Algorithm.STANDARD, standardMetric);
+		CountingMetric elkanMetric = new CountingMetric();
+		List<Cluster> elkan = runKMeans(tuples, 12, KMeansParams.Algorithm.ELKAN, elkanMetric);
+		
+		assertClustersEqual(standard, elkan);
+		System.out.printf("distances computed: standard = %d, elkan = %d\n", 
+				standardMetric.count.get(), elkanMetric.count.get());
+		assertTrue(elkanMetric.count.get() < standardMetric.count.get());
+	}
+	
+	@Test
+	public void testHamerlyAndYinyangMatchStandard() throws Exception {
+		
+		// Enough clusters for the Yinyang algorithm to form several groups.
+		TupleList tuples = TupleMath.generateRandomGaussianTuples(4, 6000, 40, new Random(4321L), 0.2, 0.3);
+		
+		CountingMetric standardMetric = new CountingMetric();
+		List<Cluster> standard = runKMeans(tuples, 40, KMeansParams.Algorithm.STANDARD, standardMetric);
+		CountingMetric hamerlyMetric = new CountingMetric();
+		List<Cluster> hamerly = runKMeans(tuples, 40, KMeansParams.Algorithm.HAMERLY, hamerlyMetric);
+		CountingMetric yinyangMetric = new CountingMetric();
+		List<Cluster> yinyang = runKMeans(tuples, 40, KMeansParams.Algorithm.YINYANG, yinyangMetric);
+		
+		assertClustersEqual(standard, hamerly);
+		assertClustersEqual(standard, yinyang);
+		System.out.printf("distances computed: standard = %d, hamerly = %d, yinyang = %d\n", 
+				standardMetric.count.get(), hamerlyMetric.count.get(), yinyangMetric.count.get());
+		assertTrue(hamerlyMetric.count.get() < standardMetric.count.get());
+		assertTrue(yinyangMetric.count.get() < standardMetric.count.get());
+	}
+	
+	@Test
+	public void testSphericalKMeans() throws Exception {
+		
+		int tupleLength = 200;
+		int tupleCount = 600;
+		int clusterCount = 6;
+		Random random = new Random(2468L);
+		
+		// Each group of 100 has its own nonzero columns, and the tuples vary widely in length.
+		CSRTupleList.Builder builder = new CSRTupleList.Builder(tupleLength);
+		ArrayTupleList denseTuples = new ArrayTupleList(tupleLength, tupleCount);
+		ArrayTupleList rescaledTuples = new ArrayTupleList(tupleLength, tupleCount);
+		double[] buffer = new double[tupleLength];
+		for (int i = 0; i < tupleCount; i++) {
+			Arrays.fill(buffer, 0.0);
+			int firstColumn = (i * clusterCount / tupleCount) * 20;
+			double length = 1.0 + 9.0 * random.nextDouble();
+			for (int j = 0; j < 20; j++) {
+				buffer[firstColumn + j] = length * (1.0 + 0.3 * random.nextGaussian());
+			}
+			buffer[random.nextInt(tupleLength)] += length;
+			builder.addTuple(buffer);
+			denseTuples.setTuple(i, buffer);
+			double scale = 0.01 + random.nextDouble();
+			for (int j = 0; j < tupleLength; j++) {
+				buffer[j] *= scale;
+			}
+			rescaledTuples.setTuple(i, buffer);
+		}
+		CSRTupleList sparseTuples = builder.build();
+		
+		List<Cluster> dense = runKMeans(denseTuples, new KMeansParams.Builder().clusterCount(clusterCount)
+				.distanceMetric(new CosineDistanceMetric()).spherical(true));
+		List<Cluster> sparse = runKMeans(sparseTuples, new KMeansParams.Builder().clusterCount(clusterCount)
+				.distanceMetric(new CosineDistanceMetric()).spherical(true));
+		assertClustersEqual(dense, sparse, 1.0e-12);
+		
+		// Only the directions of the tuples matter.
+		List<Cluster> rescaled = runKMeans(rescaledTuples, new KMeansParams.Builder().clusterCount(clusterCount)
+				.distanceMetric(new CosineDistanceMetric()).spherical(true));
+		assertClustersEqual(dense, rescaled, 1.0e-9);
+		
+		// The centers have unit length, and each tuple is most similar to its own center.
+		CosineDistanceMetric cosine = new CosineDistanceMetric();
+		for (Cluster cluster : dense) {
+			assertEquals(1.0, Math.sqrt(TupleMath.dotProduct(cluster.getCenter(), cluster.getCenter())), 1.0e-12);
+			for (int i = 0; i < cluster.getMemberCount(); i++) {
+				denseTuples.getTuple(cluster.getMember(i), buffer);
+				double d = cosine.distance(buffer, cluster.getCenter());
+				for (Cluster other : dense) {
+					assertTrue(d <= cosine.distance(buffer, other.getCenter()) + 1.0e-12);
+				}
+			}
+		}
+		
+		// The algorithms that rely on distance bounds are refused.
+		KMeansParams params = new KMeansParams.Builder().clusterCount(clusterCount)
+				.algorithm(KMeansParams.Algorithm.HAMERLY).spherical(true).build();
+		KMeansClusterer kmeans = new KMeansClusterer(denseTuples, params);
+		kmeans.run();
+		assertTrue(kmeans.getTaskOutcome() == TaskOutcome.ERROR);
+	}
+	
+	@Test
+	public void testElkanRefusesNonMetric() {
+		
+		try {
+			new KMeansParams.Builder().clusterCount(3).distanceMetric(new CosineDistanceMetric())
+				.algorithm(KMeansParams.Algorithm.ELKAN).build();
+			fail("expected IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+			// Expected.
+		}
+		
+		KMeansParams params = new KMeansParams();
+		params.setClusterCount(3);
+		params.setAlgorithm(KMeansParams.Algorithm.ELKAN);
+		params.setDistanceMetric(new CosineDistanceMetric());
+		KMeansClusterer kmeans = new KMeansClusterer(
+				TupleMath.generateRandomGaussianTuples(5, 100, 3, new Random(), 0.2, 0.3), params);
+		kmeans.run();
+		assertTrue(kmeans.getTaskOutcome() == TaskOutcome.ERROR);
+	}
+	
+	@Test
+	public void testIncrementalCentersMatchExact() throws Exception {
+		
+		TupleList tuples = TupleMath.generateRandomGaussianTuples(8, 4000, 10, new Random(1357L), 0.2, 0.3);
+		
+		List<Cluster> exact = runKMeans(tuples, new KMeansParams.Builder().clusterCount(10));
+		List<Cluster> incremental = runKMeans(tuples, new KMeansParams.Builder().clusterCount(10)
+				.exactCenterInterval(4));
+		
+		// Only rounding differs between the centers.
+		assertClustersEqual(exact, incremental, 1.0e-9);
+	}
+	
+	@Test
+	public void testSharedExecutor() throws Exception {
+		
+		TupleList tuples = TupleMath.generateRandomGaussianTuples(6, 4000, 9, new Random(2468L), 0.2, 0.3);
+		
+		List<Cluster> ownPool = runKMeans(tuples, new KMeansParams.Builder().clusterCount(9));
+		ForkJoinPool shared = new ForkJoinPool(2);
+		try {
+			List<Cluster> sharedPool = runKMeans(tuples, new KMeansParams.Builder().clusterCount(9)
+					.executor(shared));
+			assertClustersEqual(ownPool, sharedPool);
+			assertFalse(shared.isShutdown());
+		} finally {
+			shared.shutdownNow();
+		}
+	}
+	
+	@Test
+	public void testChunkedAssignmentsAreRepeatable() throws Exception {
+		
+		TupleList tuples = TupleMath.generateRandomGaussianTuples(5, 20000, 6, new Random(8642L), 0.2, 0.3);
+		
+		// The chunks are claimed by the workers in a different order each time, but the sums
+		// are combined in chunk order, so the results should not differ at all.
+		List<Cluster> first = runKMeans(tuples, new KMeansParams.Builder().clusterCount(6));
+		for (int run = 0; run < 3; run++) {
+			assertClustersEqual(first, runKMeans(tuples, new KMeansParams.Builder().clusterCount(6)));
+		}
+		
+		// A single worker sees different chunk boundaries, so only rounding may differ.
+		List<Cluster> single = runKMeans(tuples, new KMeansParams.Builder().clusterCount(6), 1);
+		assertClustersEqual(first, single, 1.0e-9);
+	}
+	
+	@Test
+	public void testWarmStartFromPreviousClusters() throws Exception {
+		
+		TupleList tuples = TupleMath.generateRandomGaussianTuples(6, 5000, 8, new Random(2222L), 0.1, 0.2);
+		// The earlier clustering saw all but the last 5 percent of the tuples.
+		final int previousCount = 4750;
+		TupleList previousTuples = new ArrayTupleList(tuples.getTupleLength(), previousCount, 
+				tuples.getTuples(0, previousCount, null, 0));
+		List<Cluster> previous = runKMeans(previousTuples, new KMeansParams.Builder().clusterCount(8));
+		
+		CountingMetric coldMetric = new CountingMetric();
+		runKMeans(tuples, new KMeansParams.Builder().clusterCount(8).distanceMetric(coldMetric));
+		
+		CountingMetric warmMetric = new CountingMetric();
+		KMeansParams params = new KMeansParams.Builder().clusterCount(8).workerThreadCount(3)
+				.distanceMetric(warmMetric).build();
+		KMeansClusterer kmeans = new KMeansClusterer(tuples, params, previous);
+		kmeans.run();
+		assertTrue(kmeans.getTaskOutcome() == TaskOutcome.SUCCESS);
+		
+		int memberCount = 0;
+		for (Cluster c : kmeans.get()) {
+			memberCount += c.getMemberCount();
+		}
+		assertEquals(tuples.getTupleCount(), memberCount);
+		System.out.printf("distances computed: cold start = %d, warm start = %d\n", 
+				coldMetric.count.get(), warmMetric.count.get());
+		assertTrue(warmMetric.count.get() < coldMetric.count.get());
+	}
+	
+	@Test
+	public void testBoundedWarmStartKeepsAssignments() throws Exception {
+		
+		TupleList tuples = TupleMath.generateRandomGaussianTuples(6, 5000, 8, new Random(3333L), 0.1, 0.2);
+		final int tupleCount = tuples.getTupleCount();
+		
+		for (KMeansParams.Algorithm algorithm : new KMeansParams.Algorithm[] { 
+				KMeansParams.Algorithm.ELKAN, KMeansParams.Algorithm.HAMERLY, KMeansParams.Algorithm.YINYANG }) {
+			List<Cluster> previous = runKMeans(tuples, new KMeansParams.Builder().clusterCount(8).algorithm(algorithm));
+			
+			// Resuming from converged clusters of the same tuples should take about one 
+			// distance per tuple, not one per tuple and center.
+			CountingMetric warmMetric = new CountingMetric();
+			KMeansParams params = new KMeansParams.Builder().clusterCount(8).workerThreadCount(3)
+					.algorithm(algorithm).distanceMetric(warmMetric).build();
+			KMeansClusterer kmeans = new KMeansClusterer(tuples, params, previous);
+			kmeans.run();
+			assertTrue(kmeans.getTaskOutcome() == TaskOutcome.SUCCESS);
+			
+			System.out.printf("%s warm start: %d distances for %d tuples\n", algorithm, 
+					warmMetric.count.get(), tupleCount);
+			assertTrue(warmMetric.count.get() < 2L * tupleCount);
+			assertClustersEqual(previous, kmeans.get(), 1.0e-12);
+		}
+	}
+	
+	@Test
+	public void testResumeFromCheckpoint() throws Exception {
+		
+		TupleList tuples = TupleMath.generateRandomGaussianTuples(8, 20000, 10, new Random(4321L), 0.3, 0.4);
+		List<Cluster> uninterrupted = runKMeans(tuples, new KMeansParams.Builder().clusterCount(10));
+		
+		File directory = Files.createTempDirectory("checkpoints").toFile();
+		CheckpointStore store = new CheckpointStore(directory);
+		try {
+			// A run cut short after 5 iterations leaves the checkpoint from iteration 4.
+			KMeansClusterer first = newKMeans(tuples, new KMeansParams.Builder().clusterCount(10)
+					.maxIterations(5), 3);
+			first.setCheckpointStore(store);
+			first.setCheckpointInterval(2);
+			first.run();
+			assertTrue(first.getTaskOutcome() == TaskOutcome.SUCCESS);
+			assertTrue(store.hasCheckpoint());
+			
+			final List<String> messages = new ArrayList<>();
+			KMeansClusterer resumed = newKMeans(tuples, new KMeansParams.Builder().clusterCount(10), 3);
+			resumed.setCheckpointStore(store);
+			resumed.addTaskListener(new TaskAdapter() {
+				@Override
+				public void taskMessage(TaskEvent e) {
+					messages.add(e.getMessage());
+				}
+			});
+			resumed.run();
+			assertTrue(resumed.getTaskOutcome() == TaskOutcome.SUCCESS);
+			
+			// The first 4 iterations are not repeated.
+			assertTrue(messages.contains("resuming from the checkpoint saved after iteration 4"));
+			for (String message : messages) {
+				assertFalse(message.startsWith("iteration 4:"));
+			}
+			assertClustersEqual(uninterrupted, resumed.get());
+		} finally {
+			store.clear();
+			store.close();
+			directory.delete();
+		}
+	}
+	
+	@Test
+	public void testOutOfCoreMatchesInMemory() throws Exception {
+		
+		TupleList tuples = TupleMath.generateRandomGaussianTuples(6, 3000, 7, new Random(9090L), 0.2, 0.3);
+		
+		File directory = Files.createTempDirectory("kmeans").toFile();
+		MultiFileMappedTupleList fileTuples = MultiFileMappedTupleList.createNew(directory, 
+				tuples.getTupleLength(), tuples.getTupleCount(), 5);
+		try {
+			double[] buffer = new double[tuples.getTupleLength()];
+			for (int i = 0; i < tuples.getTupleCount(); i++) {
+				fileTuples.setTuple(i, tuples.getTuple(i, buffer));
+			}
+			
+			List<Cluster> inMemory = runKMeans(tuples, new KMeansParams.Builder().clusterCount(7));
+			List<Cluster> outOfCore = runKMeans(fileTuples, new KMeansParams.Builder().clusterCount(7)
+					.outOfCore(true));
+			
+			// The sums are divided differently among the workers, so only rounding differs.
+			assertClustersEqual(inMemory, outOfCore, 1.0e-9);
+		} finally {
+			fileTuples.close();
+			for (File f : directory.listFiles()) {
+				f.delete();
+			}
+			directory.delete();
+		}
+	}
+	
+	static void assertClustersEqual(List<Cluster> expected, List<Cluster> actual) {
+		assertClustersEqual(expected, actual, 0.0);
+	}
+	
+	static void assertClustersEqual(List<Cluster> expected, List<Cluster> actual, double centerDelta) {
+		assertEquals(expected.size(), actual.size());
+		for (int c = 0; c < expected.size(); c++) {
+			Cluster c1 = expected.get(c);
+			Cluster c2 = actual.get(c);
+			assertEquals(c1.getMemberCount(), c2.getMemberCount());
+			for (int i = 0; i < c1.getMemberCount(); i++) {
+				assertEquals(c1.getMember(i), c2.getMember(i));
+			}
+			assertArrayEquals(c1.getCenter(), c2.getCenter(), centerDelta);
+		}
+	}
+	
+	static List<Cluster> runKMeans(TupleList tuples, int clusterCount, KMeansParams.Algorithm algorithm,
+			DistanceMetric distanceMetric) throws Exception {
+		return runKMeans(tuples, new KMeansParams.Builder()
+				.clusterCount(clusterCount)
+				.distanceMetric(distanceMetric)
+				.algorithm(algorithm));
+	}
+	
+	static List<Cluster> runKMeans(TupleList tuples, KMeansParams.Builder builder) throws Exception {
+		return runKMeans(tuples, builder, 3);
+	}
+	
+	static List<Cluster> runKMeans(TupleList tuples, KMeansParams.Builder builder, int workerThreadCount) 
+			throws Exception {
+		KMeansClusterer kmeans = newKMeans(tuples, builder, workerThreadCount);
+		kmeans.run();
+		assertTrue(kmeans.getTaskOutcome() == TaskOutcome.SUCCESS);
+		return kmeans.get();
+	}
+	
+	static KMeansClusterer newKMeans(TupleList tuples, KMeansParams.Builder builder, int workerThreadCount) {
+		// Seeds spread through the tuples, so every run starts from the same centers.
+		KMeansParams params = builder
+				.workerThreadCount(workerThreadCount)
+				.clusterSeeder((t, seedCount) -> {
+					final int stride = t.getTupleCount() / seedCount;
+					ArrayTupleList seeds = new ArrayTupleList(t.getTupleLength(), seedCount);
+					for (int i = 0; i < seedCount; i++) {
+						seeds.setTuple(i, t.getTuple(i * stride, null));
+					}
+					return seeds;
+				})
+				.build();
+		return new KMeansClusterer(tuples, params);
+	}
+	
+	// Euclidean distance, counting the distances computed by all clones.
+	static class CountingMetric implements TriangleInequalityMetric {
+		
+		final AtomicLong count = new AtomicLong();
+		private final EuclideanDistanceMetric metric = new EuclideanDistanceMetric();
+		
+		@Override
+		public double distance(double[] tuple1, double[] tuple2) {
+			count.incrementAndGet();
+			return metric.distance(tuple1, tuple2);
+		}
+		
+		@Override
+		public DistanceMetric clone() {
+			// Clones share the count.
+			return this;
+		}
+	}
 }
@@ -0,0 +1,128 @@
+package org.battelle.clodhopper.kmeans;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.Random;
+
+import org.battelle.clodhopper.Cluster;
+import org.battelle.clodhopper.distance.EuclideanDistanceMetric;
+import org.battelle.clodhopper.seeding.KMeansPlusPlusSeeder;
+import org.battelle.clodhopper.task.TaskOutcome;
+import org.battelle.clodhopper.tuple.ArrayTupleList;
+import org.battelle.clodhopper.tuple.TupleList;
+import org.battelle.clodhopper.tuple.TupleMath;
+import org.junit.Test;
+
+/*=====================================================================
+ * 
+ *                       CLODHOPPER CLUSTERING API
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Copyright (C) 2013 Battelle Memorial Institute 
+ * http://www.battelle.org
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ * 
+ * -------------------------------------------------------------------- 
+ * *
+ * MiniBatchKMeansTest.java
+ *
+ *===================================================================*/
+public class MiniBatchKMeansTest {
+
+    @Test
+    public void testMiniBatchNearStandard() throws Exception {
+
+        final int clusterCount = 8;
+        TupleList tuples = TupleMath.generateRandomGaussianTuples(6, 20000, clusterCount, 
+                new Random(2468L), 0.03, 0.05);
+
+        // Both clusterers start from the same centers.
+        final TupleList seeds = new KMeansPlusPlusSeeder(11L, new Random(), new EuclideanDistanceMetric())
+                .generateSeeds(tuples, clusterCount);
+        MiniBatchKMeansParams params = new MiniBatchKMeansParams.Builder()
+                .clusterCount(clusterCount)
+                .clusterSeeder((t, seedCount) -> seeds)
+                .batchSize(500)
+                .maxIterations(60)
+                .randomSeed(1357L)
+                .workerThreadCount(3)
+                .build();
+        MiniBatchKMeansClusterer miniBatch = new MiniBatchKMeansClusterer(tuples, params);
+        miniBatch.run();
+        assertTrue(miniBatch.getTaskOutcome() == TaskOutcome.SUCCESS);
+        List<Cluster> miniBatchClusters = miniBatch.get();
+
+        int memberCount = 0;
+        for (Cluster c : miniBatchClusters) {
+            memberCount += c.getMemberCount();
+            assertArrayEquals(TupleMath.average(tuples, c.getMembers()), c.getCenter(), 1.0e-9);
+        }
+        assertEquals(tuples.getTupleCount(), memberCount);
+
+        KMeansParams kmeansParams = new KMeansParams.Builder().clusterCount(clusterCount)
+                .clusterSeeder((t, seedCount) -> seeds).build();
+        KMeansClusterer kmeans = new KMeansClusterer(tuples, kmeansParams);
+        kmeans.run();
+        assertTrue(kmeans.getTaskOutcome() == TaskOutcome.SUCCESS);
+
+        double miniBatchError = sumOfSquaredErrors(tuples, miniBatchClusters);
+        double kmeansError = sumOfSquaredErrors(tuples, kmeans.get());
+        System.out.printf("sum of squared errors: mini-batch = %f, k-means = %f\n", miniBatchError, kmeansError);
+        assertTrue(miniBatchError <= 1.1 * kmeansError);
+    }
+
+    @Test
+    public void testSameSeedSameClusters() throws Exception {
+
+        TupleList tuples = TupleMath.generateRandomGaussianTuples(3, 2000, 4, new Random(97L), 0.1, 0.2);
+
+        List<Cluster> first = runMiniBatch(tuples, 99L);
+        List<Cluster> second = runMiniBatch(tuples, 99L);
+
+        KMeansTest.assertClustersEqual(first, second);
+    }
+
+    private static List<Cluster> runMiniBatch(TupleList tuples, long seed) throws Exception {
+        MiniBatchKMeansParams params = new MiniBatchKMeansParams.Builder()
+                .clusterCount(4)
+                .batchSize(100)
+                .randomSeed(seed)
+                .tolerance(1.0e-4)
+                // The sample is drawn with the same seed, so its first tuples are too.
+                .clusterSeeder((t, seedCount) -> new ArrayTupleList(t.getTupleLength(), seedCount, 
+                        t.getTuples(0, seedCount, null, 0)))
+                .build();
+        MiniBatchKMeansClusterer clusterer = new MiniBatchKMeansClusterer(tuples, params);
+        clusterer.run();
+        assertTrue(clusterer.getTaskOutcome() == TaskOutcome.SUCCESS);
+        return clusterer.get();
+    }
+
+    static double sumOfSquaredErrors(TupleList tuples, List<Cluster> clusters) {
+        EuclideanDistanceMetric metric = new EuclideanDistanceMetric();
+        double[] buffer = new double[tuples.getTupleLength()];
+        double sum = 0.0;
+        for (Cluster c : clusters) {
+            for (int i = 0; i < c.getMemberCount(); i++) {
+                double d = metric.distance(tuples.getTuple(c.getMember(i), buffer), c.getCenter());
+                sum += d * d;
+            }
+        }
+        return sum;
+    }
+}
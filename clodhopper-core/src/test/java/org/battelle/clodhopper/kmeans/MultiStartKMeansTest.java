@@ -0,0 +1,198 @@
+package org.battelle.clodhopper.kmeans;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.Random;
+
+import org.battelle.clodhopper.Cluster;
+import org.battelle.clodhopper.distance.DistanceMetric;
+import org.battelle.clodhopper.distance.EuclideanDistanceMetric;
+import org.battelle.clodhopper.seeding.KMeansPlusPlusSeeder;
+import org.battelle.clodhopper.task.TaskOutcome;
+import org.battelle.clodhopper.tuple.TupleList;
+import org.battelle.clodhopper.tuple.TupleMath;
+import org.junit.Test;
+
+/*=====================================================================
+ * 
+ *                       CLODHOPPER CLUSTERING API
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Copyright (C) 2013 Battelle Memorial Institute 
+ * http://www.battelle.org
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ * 
+ * -------------------------------------------------------------------- 
+ * *
+ * MultiStartKMeansTest.java
+ *
+ *===================================================================*/
+public class MultiStartKMeansTest {
+
+    @Test
+    public void testBestOfRestarts() throws Exception {
+
+        TupleList tuples = TupleMath.generateRandomGaussianTuples(5, 6000, 12, new Random(777L), 0.1, 0.2);
+
+        KMeansParams params = new KMeansParams.Builder()
+                .clusterCount(12)
+                .workerThreadCount(3)
+                .clusterSeeder(new KMeansPlusPlusSeeder(100L, new Random(), new EuclideanDistanceMetric()))
+                .build();
+        MultiStartKMeansClusterer clusterer = new MultiStartKMeansClusterer(tuples, params, 8);
+        clusterer.run();
+        assertTrue(clusterer.getTaskOutcome() == TaskOutcome.SUCCESS);
+        // The restarts are seeded from copies, so the caller's seeder is left as it was.
+        assertEquals(100L, ((KMeansPlusPlusSeeder) params.getClusterSeeder()).getRandomGeneratorSeed());
+
+        List<MultiStartKMeansClusterer.RestartStatistics> statistics = clusterer.getRestartStatistics();
+        assertEquals(8, statistics.size());
+        
+        double lowestInertia = Double.MAX_VALUE;
+        for (int r = 0; r < statistics.size(); r++) {
+            MultiStartKMeansClusterer.RestartStatistics s = statistics.get(r);
+            System.out.printf("restart %d: seed = %d, iterations = %d, inertia = %f, %s\n", 
+                    r, s.getSeed(), s.getIterations(), s.getInertia(), s.getStatus());
+            assertEquals(100L + r, s.getSeed());
+            // Early stopping is off by default, so every restart runs to the end.
+            assertTrue(s.getStatus() != MultiStartKMeansClusterer.RestartStatistics.Status.STOPPED);
+            if (s.getStatus() != MultiStartKMeansClusterer.RestartStatistics.Status.STOPPED) {
+                lowestInertia = Math.min(lowestInertia, s.getInertia());
+            }
+        }
+        assertEquals(lowestInertia, statistics.get(clusterer.getBestRestart()).getInertia(), 0.0);
+
+        List<Cluster> clusters = clusterer.get();
+        int memberCount = 0;
+        for (Cluster c : clusters) {
+            memberCount += c.getMemberCount();
+        }
+        assertEquals(tuples.getTupleCount(), memberCount);
+        // The best restart converged, so its clusters have the inertia reported.
+        assertEquals(lowestInertia, MiniBatchKMeansTest.sumOfSquaredErrors(tuples, clusters), 1.0e-6 * lowestInertia);
+    }
+
+    @Test
+    public void testEarlyStopping() throws Exception {
+
+        TupleList tuples = TupleMath.generateRandomGaussianTuples(5, 6000, 12, new Random(777L), 0.1, 0.2);
+
+        KMeansParams params = new KMeansParams.Builder()
+                .clusterCount(12)
+                .workerThreadCount(3)
+                .clusterSeeder(new KMeansPlusPlusSeeder(100L, new Random(), new EuclideanDistanceMetric()))
+                .build();
+
+        MultiStartKMeansClusterer full = new MultiStartKMeansClusterer(tuples, params, 8);
+        full.run();
+        assertTrue(full.getTaskOutcome() == TaskOutcome.SUCCESS);
+
+        MultiStartKMeansClusterer early = new MultiStartKMeansClusterer(tuples, params, 8, true);
+        early.setEarlyStoppingMargin(3.0);
+        early.run();
+        assertTrue(early.getTaskOutcome() == TaskOutcome.SUCCESS);
+
+        int fullIterations = 0;
+        for (MultiStartKMeansClusterer.RestartStatistics s : full.getRestartStatistics()) {
+            fullIterations += s.getIterations();
+        }
+        int earlyIterations = 0;
+        for (MultiStartKMeansClusterer.RestartStatistics s : early.getRestartStatistics()) {
+            earlyIterations += s.getIterations();
+        }
+        System.out.printf("restart iterations: all run = %d, early stopping = %d\n", fullIterations, earlyIterations);
+        assertTrue(earlyIterations <= fullIterations);
+
+        // Early stopping is a heuristic, so its best can only be as good as the best of all.
+        double fullBest = full.getRestartStatistics().get(full.getBestRestart()).getInertia();
+        double earlyBest = early.getRestartStatistics().get(early.getBestRestart()).getInertia();
+        assertTrue(earlyBest >= fullBest);
+
+        try {
+            early.setEarlyStoppingMargin(0.5);
+            fail("margins less than 1 should be rejected");
+        } catch (IllegalArgumentException e) {
+            // Expected.
+        }
+    }
+
+    @Test
+    public void testZeroMaxIterations() throws Exception {
+
+        TupleList tuples = TupleMath.generateRandomGaussianTuples(5, 500, 4, new Random(778L), 0.1, 0.2);
+
+        KMeansParams params = new KMeansParams.Builder()
+                .clusterCount(4)
+                .clusterSeeder(new KMeansPlusPlusSeeder(100L, new Random(), new EuclideanDistanceMetric()))
+                .build();
+        try {
+            params.setMaxIterations(0);
+            fail("max iterations of 0 should be rejected by the parameters");
+        } catch (IllegalArgumentException e) {
+            // Expected.
+        }
+
+        // Parameters that get around the check must still end in an error, not an exception.
+        KMeansParams zeroIterationParams = new KMeansParams() {
+            @Override
+            public int getMaxIterations() {
+                return 0;
+            }
+        };
+        zeroIterationParams.setClusterCount(4);
+        zeroIterationParams.setClusterSeeder(params.getClusterSeeder());
+        MultiStartKMeansClusterer clusterer = new MultiStartKMeansClusterer(tuples, zeroIterationParams, 3);
+        clusterer.run();
+        assertTrue(clusterer.getTaskOutcome() == TaskOutcome.ERROR);
+    }
+
+    @Test
+    public void testNonFiniteInertia() throws Exception {
+
+        TupleList tuples = TupleMath.generateRandomGaussianTuples(5, 500, 4, new Random(779L), 0.1, 0.2);
+
+        // Every inertia is NaN, so none compares lower than another.
+        DistanceMetric nanMetric = new DistanceMetric() {
+            @Override
+            public double distance(double[] tuple1, double[] tuple2) {
+                return Double.NaN;
+            }
+            @Override
+            public DistanceMetric clone() {
+                return this;
+            }
+        };
+
+        KMeansParams params = new KMeansParams.Builder()
+                .clusterCount(4)
+                .maxIterations(3)
+                .distanceMetric(nanMetric)
+                .clusterSeeder(new KMeansPlusPlusSeeder(100L, new Random(), new EuclideanDistanceMetric()))
+                .build();
+        MultiStartKMeansClusterer clusterer = new MultiStartKMeansClusterer(tuples, params, 3);
+        clusterer.run();
+        assertTrue(clusterer.getTaskOutcome() == TaskOutcome.SUCCESS);
+        assertEquals(0, clusterer.getBestRestart());
+
+        int memberCount = 0;
+        for (Cluster c : clusterer.get()) {
+            memberCount += c.getMemberCount();
+        }
+        assertEquals(tuples.getTupleCount(), memberCount);
+    }
+}
@@ -0,0 +1,156 @@
+package org.battelle.clodhopper.kmeans;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.Random;
+
+import org.battelle.clodhopper.Cluster;
+import org.battelle.clodhopper.distance.EuclideanDistanceMetric;
+import org.battelle.clodhopper.seeding.KMeansPlusPlusSeeder;
+import org.battelle.clodhopper.tuple.FilteredTupleList;
+import org.battelle.clodhopper.tuple.TupleList;
+import org.battelle.clodhopper.tuple.TupleMath;
+import org.junit.Test;
+
+/*=====================================================================
+ * 
+ *                       CLODHOPPER CLUSTERING API
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Copyright (C) 2013 Battelle Memorial Institute 
+ * http://www.battelle.org
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ * 
+ * -------------------------------------------------------------------- 
+ * *
+ * StreamingKMeansTest.java
+ *
+ *===================================================================*/
+public class StreamingKMeansTest {
+
+    @Test
+    public void testStreamNearStandard() throws Exception {
+
+        final int clusterCount = 6;
+        TupleList generated = TupleMath.generateRandomGaussianTuples(5, 12000, clusterCount, 
+                new Random(8642L), 0.03, 0.05);
+        
+        // Stream the tuples in random order.
+        Random random = new Random(3L);
+        int[] order = new int[generated.getTupleCount()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        for (int i = order.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+        }
+        TupleList tuples = new FilteredTupleList(order, generated);
+
+        // The stream and k-means start from the same centers.
+        final TupleList seeds = new KMeansPlusPlusSeeder(5L, new Random(), new EuclideanDistanceMetric())
+                .generateSeeds(tuples, clusterCount);
+        StreamingKMeansParams params = new StreamingKMeansParams.Builder()
+                .clusterCount(clusterCount)
+                .bufferSize(200)
+                .clusterSeeder((t, seedCount) -> seeds)
+                .build();
+        StreamingKMeans streaming = new StreamingKMeans(tuples.getTupleLength(), params);
+        
+        double[] tuple = new double[tuples.getTupleLength()];
+        for (int i = 0; i < 100; i++) {
+            streaming.accept(tuples.getTuple(i, tuple));
+        }
+        // Before the buffer fills, the centers come from the buffered tuples.
+        assertEquals(clusterCount, streaming.getCenters().length);
+        for (int i = 100; i < tuples.getTupleCount(); i++) {
+            streaming.accept(tuples.getTuple(i, tuple));
+        }
+        assertEquals(tuples.getTupleCount(), streaming.getTupleCount());
+        
+        long total = 0;
+        for (long count : streaming.getCenterCounts()) {
+            total += count;
+        }
+        assertEquals(tuples.getTupleCount(), total);
+
+        List<Cluster> streamingClusters = streaming.clusters(tuples);
+        int memberCount = 0;
+        for (Cluster c : streamingClusters) {
+            memberCount += c.getMemberCount();
+        }
+        assertEquals(tuples.getTupleCount(), memberCount);
+        
+        KMeansParams kmeansParams = new KMeansParams.Builder().clusterCount(clusterCount)
+                .clusterSeeder((t, seedCount) -> seeds).build();
+        KMeansClusterer kmeans = new KMeansClusterer(tuples, kmeansParams);
+        kmeans.run();
+        
+        double streamingError = MiniBatchKMeansTest.sumOfSquaredErrors(tuples, streamingClusters);
+        double kmeansError = MiniBatchKMeansTest.sumOfSquaredErrors(tuples, kmeans.get());
+        System.out.printf("sum of squared errors: streaming = %f, k-means = %f\n", streamingError, kmeansError);
+        assertTrue(streamingError <= 1.1 * kmeansError);
+    }
+    
+    @Test
+    public void testCentersBeforeBufferFills() throws Exception {
+
+        TupleList tuples = TupleMath.generateRandomGaussianTuples(3, 500, 4, new Random(9753L), 0.05, 0.1);
+        final int[] seederCalls = new int[1];
+        final KMeansPlusPlusSeeder seeder = new KMeansPlusPlusSeeder(11L, new Random(), new EuclideanDistanceMetric());
+        StreamingKMeansParams params = new StreamingKMeansParams.Builder()
+                .clusterCount(4)
+                .bufferSize(100)
+                .clusterSeeder((t, seedCount) -> {
+                    seederCalls[0]++;
+                    return seeder.generateSeeds(t, seedCount);
+                })
+                .build();
+        StreamingKMeans streaming = new StreamingKMeans(tuples.getTupleLength(), params);
+        assertEquals(0, streaming.getCenters().length);
+
+        double[] tuple = new double[tuples.getTupleLength()];
+        for (int i = 0; i < 50; i++) {
+            streaming.accept(tuples.getTuple(i, tuple));
+        }
+        // Until the buffer fills, the centers are the first buffered tuples, and 
+        // asking for them neither calls the seeder nor changes the answer.
+        double[][] first = streaming.getCenters();
+        double[][] second = streaming.getCenters();
+        assertEquals(4, first.length);
+        for (int c = 0; c < first.length; c++) {
+            assertArrayEquals(tuples.getTuple(c, null), first[c], 0.0);
+            assertArrayEquals(first[c], second[c], 0.0);
+        }
+        assertEquals(0, seederCalls[0]);
+
+        for (int i = 50; i < 100; i++) {
+            streaming.accept(tuples.getTuple(i, tuple));
+        }
+        assertEquals(1, seederCalls[0]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWrongTupleLength() {
+        StreamingKMeans streaming = new StreamingKMeans(3, 
+                new StreamingKMeansParams.Builder().clusterCount(2).build());
+        streaming.accept(new double[4]);
+    }
+}
@@ -0,0 +1,172 @@
+package org.battelle.clodhopper.task;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+/*=====================================================================
+ * 
+ *                       CLODHOPPER CLUSTERING API
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Copyright (C) 2013 Battelle Memorial Institute 
+ * http://www.battelle.org
+ * 
+ * -------------------------------------------------------------------- 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ * 
+ * -------------------------------------------------------------------- 
+ * *
+ * TaskExecutorsTest.java
+ *
+ *===================================================================*/
+public class TaskExecutorsTest {
+
+    @Test
+    public void testNestedSubtasksOnOneThread() throws Exception {
+        // With one thread, the nested invokeAll() calls would deadlock if 
+        // waiting threads did not run the subtasks themselves.
+        final ExecutorService shared = Executors.newFixedThreadPool(1);
+        try {
+            ExecutorService outer = TaskExecutors.newThreadPool(shared, 3);
+            List<Callable<Integer>> outerTasks = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                final int base = 10 * i;
+                outerTasks.add(() -> {
+                    ExecutorService inner = TaskExecutors.newThreadPool(shared, 3);
+                    try {
+                        List<Callable<Integer>> innerTasks = new ArrayList<>();
+                        for (int j = 0; j < 3; j++) {
+                            final int value = base + j;
+                            innerTasks.add(() -> value);
+                        }
+                        int sum = 0;
+                        for (Future<Integer> f : inner.invokeAll(innerTasks)) {
+                            sum += f.get();
+                        }
+                        return sum;
+                    } finally {
+                        inner.shutdownNow();
+                    }
+                });
+            }
+            int total = 0;
+            for (Future<Integer> f : outer.invokeAll(outerTasks)) {
+                total += f.get();
+            }
+            outer.shutdownNow();
+            assertEquals(3 + 33 + 63, total);
+            assertTrue(outer.isShutdown());
+            assertTrue(outer.awaitTermination(1, TimeUnit.SECONDS));
+            // Shutting down the views leaves the shared executor running.
+            assertFalse(shared.isShutdown());
+            assertEquals(Integer.valueOf(7), shared.submit(() -> 7).get());
+        } finally {
+            shared.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testDefaultExecutor() throws Exception {
+        assertNull(TaskExecutors.getDefaultExecutor());
+        ExecutorService own = TaskExecutors.newThreadPool(null, 2);
+        own.shutdownNow();
+        assertTrue(own.awaitTermination(1, TimeUnit.SECONDS));
+
+        final ExecutorService shared = Executors.newFixedThreadPool(2);
+        TaskExecutors.setDefaultExecutor(shared);
+        try {
+            ExecutorService view = TaskExecutors.newThreadPool(null, 2);
+            assertEquals("done", view.submit(() -> "done").get());
+            view.shutdown();
+            assertTrue(view.isShutdown());
+            assertFalse(shared.isShutdown());
+        } finally {
+            TaskExecutors.setDefaultExecutor(null);
+            shared.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testVirtualThreadsOnJava21() {
+        // "1.8" on Java 8, then "9", "10", and so on.
+        String version = System.getProperty("java.specification.version");
+        int feature = Integer.parseInt(version.startsWith("1.") ? version.substring(2) : version);
+        assertEquals(feature >= 21, TaskExecutors.usesVirtualThreads());
+    }
+
+    @Test
+    public void testCancelInterruptsSubtasks() throws Exception {
+        final int subtaskCount = 3;
+        final CountDownLatch started = new CountDownLatch(subtaskCount);
+        final CountDownLatch interrupted = new CountDownLatch(subtaskCount);
+        final AtomicReference<ExecutorService> poolReference = new AtomicReference<>();
+
+        AbstractTask<Void> task = new AbstractTask<Void>() {
+            @Override
+            public String taskName() {
+                return "blocked subtasks";
+            }
+
+            @Override
+            protected Void doTask() throws Exception {
+                ExecutorService threadPool = TaskExecutors.newThreadPool(null, subtaskCount);
+                poolReference.set(threadPool);
+                try {
+                    List<Callable<Void>> subtasks = new ArrayList<>();
+                    for (int i = 0; i < subtaskCount; i++) {
+                        subtasks.add(() -> {
+                            started.countDown();
+                            try {
+                                Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+                            } catch (InterruptedException e) {
+                                interrupted.countDown();
+                            }
+                            return null;
+                        });
+                    }
+                    threadPool.invokeAll(subtasks);
+                    checkForCancel();
+                } finally {
+                    threadPool.shutdownNow();
+                }
+                return null;
+            }
+        };
+
+        Thread thread = new Thread(task);
+        thread.start();
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        // Interrupting the controller blocked in invokeAll() must interrupt every subtask.
+        assertTrue(task.cancel(true));
+        thread.join(TimeUnit.SECONDS.toMillis(10));
+        assertFalse(thread.isAlive());
+        assertTrue(task.getTaskOutcome() == TaskOutcome.CANCELLED);
+        assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+        assertTrue(poolReference.get().isShutdown());
+        assertTrue(poolReference.get().awaitTermination(10, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,117 @@
+package org.battelle.clodhopper.tuple;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.util.Random;
+
+import org.junit.*;
+
+public class BlockReadTest {
+
+    private File tempFile;
+    private File tempFloatFile;
+    private File tempDir;
+    
+    @Before
+    public void setup() throws Exception {
+        tempFile = File.createTempFile("blockReadTuples", "tmp");
+        tempFile.deleteOnExit();
+        tempFloatFile = File.createTempFile("blockReadFloatTuples", "tmp");
+        tempFloatFile.deleteOnExit();
+        tempDir = File.createTempFile("blockReadDir", "tmp");
+        tempDir.delete();
+    }
+    
+    @After
+    public void teardown() {
+        File[] files = tempDir.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                f.delete();
+            }
+        }
+        tempDir.delete();
+    }
+    
+    @Test
+    public void testBlockReadsMatchTupleReads() throws Exception {
+        
+        Random random = new Random();
+        int tlen = 3 + random.nextInt(10);
+        int tcount = 100 + random.nextInt(100);
+        
+        ArrayTupleList arrayTuples = new ArrayTupleList(tlen, tcount);
+        ArrayFloatTupleList floatTuples = new ArrayFloatTupleList(tlen, tcount);
+        // Small segments and several files, so reads have to span them.
+        FileMappedTupleList fmTuples = new FileMappedTupleList(tempFile, tlen, tcount, 8L * tlen * 7);
+        FileMappedFloatTupleList fmFloatTuples = new FileMappedFloatTupleList(tempFloatFile, tlen, tcount, 4L * tlen * 7);
+        MultiFileMappedTupleList multiTuples = MultiFileMappedTupleList.createNew(tempDir, tlen, tcount, 3);
+        
+        double[] buffer = new double[tlen];
+        for (int i=0; i<tcount; i++) {
+            for (int j=0; j<tlen; j++) {
+                buffer[j] = random.nextDouble();
+            }
+            arrayTuples.setTuple(i, buffer);
+            floatTuples.setTuple(i, buffer);
+            fmTuples.setTuple(i, buffer);
+            fmFloatTuples.setTuple(i, buffer);
+            multiTuples.setTuple(i, buffer);
+        }
+        
+        // Every other run of 5 tuples, so the filtered list has runs of consecutive indexes.
+        int[] indexes = new int[tcount/2];
+        for (int i=0; i<indexes.length; i++) {
+            indexes[i] = (i/5)*10 + i%5;
+        }
+        FilteredTupleList filteredTuples = new FilteredTupleList(indexes, arrayTuples);
+        
+        TupleList[] lists = new TupleList[] { arrayTuples, floatTuples, fmTuples, fmFloatTuples, multiTuples, filteredTuples };
+        for (TupleList tuples : lists) {
+            int count = tuples.getTupleCount();
+            for (int trial=0; trial<20; trial++) {
+                int start = random.nextInt(count);
+                int n = random.nextInt(count - start + 1);
+                int offset = random.nextInt(3);
+                double[] values = tuples.getTuples(start, n, null, offset);
+                assertEquals(offset + n*tlen, values.length);
+                for (int i=0; i<n; i++) {
+                    tuples.getTuple(start + i, buffer);
+                    for (int j=0; j<tlen; j++) {
+                        assertTrue(values[offset + i*tlen + j] == buffer[j]);
+                    }
+                }
+            }
+            TupleBlockReader reader = new TupleBlockReader(tuples, 0, count, 2*tlen + 1);
+            double[] buffer2 = new double[tlen];
+            for (int i=0; i<count; i++) {
+                assertTrue(reader.hasNext());
+                assertEquals(i, reader.nextIndex());
+                reader.next(buffer2);
+                tuples.getTuple(i, buffer);
+                assertArrayEquals(buffer, buffer2, 0.0);
+            }
+            assertFalse(reader.hasNext());
+        }
+        
+        float[] floatValues = fmFloatTuples.getFloatTuples(0, tcount, null, 0);
+        for (int i=0; i<floatValues.length; i++) {
+            assertTrue(floatValues[i] == floatTuples.getTupleValue(i/tlen, i%tlen));
+        }
+        
+        fmTuples.close();
+        fmFloatTuples.close();
+        multiTuples.close();
+    }
+    
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testRangeChecked() {
+        new ArrayTupleList(2, 10).getTuples(5, 6, null, 0);
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testDestinationLengthChecked() {
+        new ArrayTupleList(2, 10).getTuples(0, 5, new double[9], 0);
+    }
+}
@@ -0,0 +1,63 @@
+package org.battelle.clodhopper.tuple;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.*;
+
+public class CSRTupleListTest {
+
+    @Test
+    public void testSetTupleMatchesArray() {
+        
+        Random random = new Random();
+        int tlen = 20 + random.nextInt(20);
+        int tcount = 50 + random.nextInt(50);
+        
+        CSRTupleList sparseTuples = new CSRTupleList(tlen, tcount);
+        ArrayTupleList arrayTuples = new ArrayTupleList(tlen, tcount);
+        
+        // Set tuples in random order, several times, so rows both grow and shrink.
+        double[] buffer = new double[tlen];
+        for (int trial=0; trial<3*tcount; trial++) {
+            int n = random.nextInt(tcount);
+            for (int j=0; j<tlen; j++) {
+                buffer[j] = random.nextInt(5) == 0 ? random.nextDouble() : 0.0;
+            }
+            sparseTuples.setTuple(n, buffer);
+            arrayTuples.setTuple(n, buffer);
+        }
+        
+        assertTrue(FSTupleListFactoryTest.tupleListsEqual(arrayTuples, sparseTuples));
+        
+        int maxNonZeroCount = 0;
+        int[] indexes = new int[tlen];
+        double[] values = new double[tlen];
+        for (int i=0; i<tcount; i++) {
+            int nnz = sparseTuples.getSparseTuple(i, indexes, values);
+            assertEquals(nnz, sparseTuples.getNonZeroCount(i));
+            maxNonZeroCount = Math.max(maxNonZeroCount, nnz);
+            for (int k=0; k<nnz; k++) {
+                assertTrue(values[k] != 0.0);
+                assertTrue(values[k] == arrayTuples.getTupleValue(i, indexes[k]));
+            }
+            for (int j=0; j<tlen; j++) {
+                assertTrue(sparseTuples.getTupleValue(i, j) == arrayTuples.getTupleValue(i, j));
+            }
+        }
+        assertEquals(maxNonZeroCount, sparseTuples.getMaxNonZeroCount());
+        
+        CSRTupleList.Builder builder = new CSRTupleList.Builder(tlen);
+        for (int i=0; i<tcount; i++) {
+            int nnz = sparseTuples.getSparseTuple(i, indexes, values);
+            builder.addSparseTuple(indexes, values, nnz);
+        }
+        assertTrue(FSTupleListFactoryTest.tupleListsEqual(arrayTuples, builder.build()));
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testIndexesMustAscend() {
+        new CSRTupleList(5, 1).setSparseTuple(0, new int[] { 3, 1 }, new double[] { 1.0, 2.0 }, 2);
+    }
+}
@@ -0,0 +1,111 @@
+package org.battelle.clodhopper.tuple;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Random;
+
+import org.battelle.clodhopper.seeding.KDTreeSeeder;
+import org.junit.*;
+
+public class ColumnarFileTupleListTest {
+
+    private static ArrayTupleList randomTuples(int tlen, int tcount) {
+        Random random = new Random();
+        ArrayTupleList tuples = new ArrayTupleList(tlen, tcount);
+        double[] buffer = new double[tlen];
+        for (int i=0; i<tcount; i++) {
+            if (i % 10 == 9) {
+                // Some duplicates for the unique count.
+                tuples.getTuple(i - 1, buffer);
+            } else {
+                for (int j=0; j<tlen; j++) {
+                    buffer[j] = random.nextGaussian();
+                }
+            }
+            tuples.setTuple(i, buffer);
+        }
+        return tuples;
+    }
+
+    @Test
+    public void testSaveAndOpen() throws IOException {
+        
+        ArrayTupleList expected = randomTuples(6, 500);
+        File f = File.createTempFile("tuples", ".cols");
+        f.deleteOnExit();
+        ColumnarFileTupleList.saveToFile(expected, f);
+        
+        ColumnarFileTupleList columnar = ColumnarFileTupleList.openExisting(f, true);
+        assertTrue(FSTupleListFactoryTest.tupleListsEqual(expected, columnar));
+        assertArrayEquals(expected.getColumn(4, null), columnar.getColumn(4, null), 0.0);
+        
+        // Small segments, so columns are split across segments.
+        ColumnarFileTupleList segmented = new ColumnarFileTupleList(f, false, 8L*77);
+        assertTrue(FSTupleListFactoryTest.tupleListsEqual(expected, segmented));
+        assertArrayEquals(expected.getColumn(5, null), segmented.getColumn(5, null), 0.0);
+        
+        TupleListStatistics computed = TupleListStatistics.compute(expected);
+        TupleListStatistics stored = columnar.getStatistics();
+        assertEquals(450, computed.getUniqueTupleCount());
+        assertEquals(computed.getUniqueTupleCount(), stored.getUniqueTupleCount());
+        assertEquals(450, TupleMath.uniqueTupleCount(columnar));
+        assertEquals(100, TupleMath.checkUniqueTupleCount(columnar, 100));
+        
+        HyperRect box = TupleMath.boundingBox(expected);
+        HyperRect storedBox = TupleMath.boundingBox(columnar);
+        for (int j=0; j<6; j++) {
+            assertEquals(computed.getMinimum(j), stored.getMinimum(j), 0.0);
+            assertEquals(computed.getMaximum(j), stored.getMaximum(j), 0.0);
+            assertEquals(computed.getMean(j), stored.getMean(j), 0.0);
+            assertEquals(computed.getVariance(j), stored.getVariance(j), 0.0);
+            assertEquals(box.getMinCornerCoord(j), storedBox.getMinCornerCoord(j), 0.0);
+            assertEquals(box.getMaxCornerCoord(j), storedBox.getMaxCornerCoord(j), 0.0);
+        }
+        
+        // The seeds must be the same whether or not statistics are stored.
+        TupleList seeds1 = new KDTreeSeeder(42L, new Random()).generateSeeds(expected, 8);
+        TupleList seeds2 = new KDTreeSeeder(42L, new Random()).generateSeeds(columnar, 8);
+        assertTrue(FSTupleListFactoryTest.tupleListsEqual(seeds1, seeds2));
+        
+        columnar.close();
+        assertFalse(columnar.isOpen());
+    }
+    
+    @Test
+    public void testChecksums() throws IOException {
+        
+        File f = File.createTempFile("tuples", ".cols");
+        f.deleteOnExit();
+        ColumnarFileTupleList.saveToFile(randomTuples(3, 100), f);
+        
+        // Corrupt a value in the second column.
+        try (RandomAccessFile raf = new RandomAccessFile(f, "rw")) {
+            raf.seek(ColumnarFileTupleList.HEADER_LENGTH + 8L*100 + 8L*17);
+            raf.writeDouble(12345.0);
+        }
+        
+        // Not detected unless the data checksums are verified.
+        ColumnarFileTupleList.openExisting(f).close();
+        try {
+            ColumnarFileTupleList.openExisting(f, true);
+            fail("expected IOException");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("column 1"));
+        }
+        
+        // Corrupt the footer.
+        try (RandomAccessFile raf = new RandomAccessFile(f, "rw")) {
+            raf.seek(ColumnarFileTupleList.HEADER_LENGTH + 8L*300);
+            raf.writeInt(7);
+        }
+        try {
+            ColumnarFileTupleList.openExisting(f);
+            fail("expected IOException");
+        } catch (IOException e) {
+            // Expected.
+        }
+    }
+}
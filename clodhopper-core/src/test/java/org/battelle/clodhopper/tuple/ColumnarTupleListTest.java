@@ -0,0 +1,64 @@
+package org.battelle.clodhopper.tuple;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.battelle.clodhopper.Cluster;
+import org.battelle.clodhopper.ClusterStats;
+import org.battelle.clodhopper.util.ArrayIntIterator;
+import org.junit.*;
+
+public class ColumnarTupleListTest {
+
+    @Test
+    public void testMatchesRowMajor() {
+        
+        Random random = new Random();
+        int tlen = 3 + random.nextInt(10);
+        int tcount = 50 + random.nextInt(100);
+        
+        ArrayTupleList arrayTuples = new ArrayTupleList(tlen, tcount);
+        double[] buffer = new double[tlen];
+        for (int i=0; i<tcount; i++) {
+            for (int j=0; j<tlen; j++) {
+                buffer[j] = random.nextDouble();
+            }
+            arrayTuples.setTuple(i, buffer);
+        }
+        
+        ColumnarTupleList columnarTuples = ColumnarTupleList.copyOf(arrayTuples);
+        assertTrue(FSTupleListFactoryTest.tupleListsEqual(arrayTuples, columnarTuples));
+        assertTrue(FSTupleListFactoryTest.tupleListsEqual(arrayTuples, columnarTuples.toArrayTupleList()));
+        
+        for (int j=0; j<tlen; j++) {
+            assertArrayEquals(arrayTuples.getColumn(j, null), columnarTuples.getColumn(j, null), 0.0);
+        }
+        
+        // Statistics computed one column at a time must agree with those computed by rows.
+        int[] ids = new int[tcount/3];
+        for (int i=0; i<ids.length; i++) {
+            ids[i] = 3*i;
+        }
+        assertArrayEquals(TupleMath.minCorner(arrayTuples, new ArrayIntIterator(ids)), 
+                TupleMath.minCorner(columnarTuples, new ArrayIntIterator(ids)), 0.0);
+        assertArrayEquals(TupleMath.maxCorner(arrayTuples, new ArrayIntIterator(ids)), 
+                TupleMath.maxCorner(columnarTuples, new ArrayIntIterator(ids)), 0.0);
+        double[] average = TupleMath.average(arrayTuples, new ArrayIntIterator(ids));
+        assertArrayEquals(average, TupleMath.average(columnarTuples, new ArrayIntIterator(ids)), 1.0e-12);
+        
+        HyperRect box1 = TupleMath.boundingBox(arrayTuples);
+        HyperRect box2 = TupleMath.boundingBox(columnarTuples);
+        for (int j=0; j<tlen; j++) {
+            assertTrue(box1.getMinCornerCoord(j) == box2.getMinCornerCoord(j));
+            assertTrue(box1.getMaxCornerCoord(j) == box2.getMaxCornerCoord(j));
+        }
+        
+        Cluster cluster = new Cluster(ids, average);
+        double[][] mv1 = ClusterStats.computeMeanAndVariance(arrayTuples, cluster);
+        double[][] mv2 = ClusterStats.computeMeanAndVariance(columnarTuples, cluster);
+        for (int j=0; j<tlen; j++) {
+            assertArrayEquals(mv1[j], mv2[j], 1.0e-12);
+        }
+    }
+}
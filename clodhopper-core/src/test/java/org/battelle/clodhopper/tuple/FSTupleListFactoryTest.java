@@ -132,6 +132,171 @@ public class FSTupleListFactoryTest {
         
     }
 
+    @Test
+    public void testFloatTupleLists() throws Exception {
+        
+        FSTupleListFactory factory = new FSTupleListFactory(dir, 24L*1024L, 48L*1024L, 24L*1024L);
+        
+        Random random = new Random();
+        
+        FloatTupleList small = factory.createNewFloatTupleList("small", 10, 512);
+        assertTrue(small instanceof ArrayFloatTupleList);
+        
+        FloatTupleList large = factory.createNewFloatTupleList("large", 10, 1024);
+        assertTrue(large instanceof FileMappedFloatTupleList);
+        
+        float[] buffer = new float[10];
+        for (int i=0; i<large.getTupleCount(); i++) {
+            for (int j=0; j<buffer.length; j++) {
+                buffer[j] = random.nextFloat();
+            }
+            large.setFloatTuple(i, buffer);
+            if (i < small.getTupleCount()) {
+                small.setFloatTuple(i, buffer);
+            }
+        }
+        
+        TupleList largeCopy = factory.copyTupleList("largeCopy", large);
+        assertTrue(largeCopy instanceof FloatTupleList);
+        assertTrue(tupleListsEqual(large, largeCopy));
+        
+        factory.closeAll();
+        
+        // A new factory on the same directory must find the saved tuple lists.
+        factory = new FSTupleListFactory(dir, 24L*1024L, 48L*1024L, 24L*1024L);
+        assertTrue(factory.hasTuplesFor("small"));
+        assertTrue(factory.hasTuplesFor("large"));
+        
+        TupleList smallReopened = factory.openExistingTupleList("small");
+        assertTrue(smallReopened instanceof ArrayFloatTupleList);
+        assertTrue(tupleListsEqual(small, smallReopened));
+        
+        TupleList largeReopened = factory.openExistingTupleList("large");
+        assertTrue(largeReopened instanceof FileMappedFloatTupleList);
+        int[] firstIndexes = new int[small.getTupleCount()];
+        for (int i=0; i<firstIndexes.length; i++) {
+            firstIndexes[i] = i;
+        }
+        assertTrue(tupleListsEqual(smallReopened, new FilteredTupleList(firstIndexes, largeReopened)));
+        
+        factory.closeAll();
+    }
+    
+    @Test
+    public void testOffHeapTupleLists() throws Exception {
+        
+        FSTupleListFactory factory = new FSTupleListFactory(dir, 24L*1024L, 48L*1024L, 96L*1024L, 24L*1024L);
+        
+        Random random = new Random();
+        
+        TupleList offHeap = factory.createNewTupleList("offHeap", 10, 400);
+        assertTrue(offHeap instanceof OffHeapTupleList);
+        
+        TupleList fileMapped = factory.createNewTupleList("fileMapped", 10, 800);
+        assertTrue(fileMapped instanceof FileMappedTupleList);
+        
+        double[] buffer = new double[10];
+        for (int i=0; i<offHeap.getTupleCount(); i++) {
+            for (int j=0; j<buffer.length; j++) {
+                buffer[j] = random.nextDouble();
+            }
+            offHeap.setTuple(i, buffer);
+        }
+        
+        ArrayTupleList expected = new ArrayTupleList(10, 400, offHeap.getTuples(0, 400, null, 0));
+        
+        factory.closeTupleList(offHeap);
+        assertFalse(((OffHeapTupleList) offHeap).isOpen());
+        
+        TupleList reopened = factory.openExistingTupleList("offHeap");
+        assertTrue(reopened instanceof OffHeapTupleList);
+        assertTrue(tupleListsEqual(expected, reopened));
+        
+        factory.deleteTupleList(reopened);
+        assertFalse(((OffHeapTupleList) reopened).isOpen());
+        
+        factory.closeAll();
+    }
+    
+    @Test
+    public void testBulkLoadSaveAndCopy() throws Exception {
+
+        Random random = new Random();
+        ArrayTupleList original = new ArrayTupleList(7, 5000);
+        double[] buffer = new double[7];
+        for (int i=0; i<original.getTupleCount(); i++) {
+            for (int j=0; j<buffer.length; j++) {
+                buffer[j] = random.nextGaussian();
+            }
+            original.setTuple(i, buffer);
+        }
+
+        File f = new File(dir, "bulk.dat");
+        ArrayTupleList.saveToFile(original, f);
+        assertEquals(8L + 8L*7*5000, f.length());
+        assertTrue(tupleListsEqual(original, ArrayTupleList.loadFromFile(f)));
+        assertTrue(tupleListsEqual(original, ArrayTupleList.loadFromFile(f, 3)));
+        
+        // Saving something other than an ArrayTupleList reads it in blocks.
+        ArrayTupleList.saveToFile(ColumnarTupleList.copyOf(original), f);
+        assertTrue(tupleListsEqual(original, ArrayTupleList.loadFromFile(f)));
+
+        FSTupleListFactory factory = new FSTupleListFactory(dir, 24L*1024L, 1024L*1024L, 24L*1024L);
+        
+        TupleList small = new ArrayTupleList(7, 100, original.getTuples(0, 100, null, 0));
+        TupleList smallCopy = factory.copyTupleList("smallCopy", small);
+        assertTrue(smallCopy instanceof ArrayTupleList);
+        assertTrue(tupleListsEqual(small, smallCopy));
+        
+        TupleList bigCopy = factory.copyTupleList("bigCopy", original);
+        assertTrue(bigCopy instanceof FileMappedTupleList);
+        assertTrue(tupleListsEqual(original, bigCopy));
+        
+        factory.closeTupleList(bigCopy);
+        assertTrue(tupleListsEqual(original, factory.openExistingTupleList("bigCopy")));
+
+        factory.closeAll();
+    }
+
+    @Test
+    public void testOffHeapChunks() {
+        
+        Random random = new Random();
+        int tlen = 3 + random.nextInt(10);
+        int tcount = 100 + random.nextInt(100);
+        
+        // Small chunks so several are used.
+        OffHeapTupleList tuples = new OffHeapTupleList(tlen, tcount, 8L * tlen * 9);
+        ArrayTupleList arrayTuples = new ArrayTupleList(tlen, tcount);
+        
+        double[] buffer = new double[tlen];
+        for (int i=0; i<tcount; i++) {
+            for (int j=0; j<tlen; j++) {
+                buffer[j] = random.nextDouble();
+            }
+            tuples.setTuple(i, buffer);
+            arrayTuples.setTuple(i, buffer);
+        }
+        
+        assertTrue(tupleListsEqual(arrayTuples, tuples));
+        for (int j=0; j<tlen; j++) {
+            assertArrayEquals(arrayTuples.getColumn(j, null), tuples.getColumn(j, null), 0.0);
+        }
+        
+        tuples.setTuples(5, 20, arrayTuples.getTuples(50, 20, null, 0), 0);
+        for (int i=0; i<20; i++) {
+            assertArrayEquals(arrayTuples.getTuple(50 + i, null), tuples.getTuple(5 + i, null), 0.0);
+        }
+        
+        tuples.close();
+        try {
+            tuples.getTuple(0, buffer);
+            fail("closed tuples must not be readable");
+        } catch (IllegalStateException e) {
+            // Expected.
+        }
+    }
+    
     public static boolean tupleListsEqual(TupleList tuples1, TupleList tuples2) {
         final int tupleLength = tuples1.getTupleLength();
         final int tupleCount = tuples1.getTupleCount();
@@ -4,6 +4,7 @@ import static org.junit.Assert.*;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 import org.battelle.clodhopper.tuple.ArrayTupleList;
 import org.battelle.clodhopper.tuple.FileMappedTupleList;
@@ -87,4 +88,95 @@ public class FileMappedTupleListTest {
 		fmTuples.close();
 	}
 
+	@Test
+	public void testMultipleSegments() throws Exception {
+		
+		Random random = new Random();
+		int tlen = 3 + random.nextInt(10);
+		int tcount = 200 + random.nextInt(100);
+		
+		// Small segments, so the data is spread over a number of mappings. The segment
+		// size is deliberately not a multiple of the tuple size.
+		long segmentBytes = 8L * tlen * 7 + 5;
+		
+		TupleList arrayTuples = new ArrayTupleList(tlen, tcount);
+		FileMappedTupleList fmTuples = new FileMappedTupleList(tempFile, tlen, tcount, segmentBytes);
+		
+		double[] buffer = new double[tlen];
+		for (int i=0; i<tcount; i++) {
+			for (int j=0; j<tlen; j++) {
+				buffer[j] = random.nextDouble();
+			}
+			arrayTuples.setTuple(i, buffer);
+			fmTuples.setTuple(i, buffer);
+		}
+		
+		fmTuples.close();
+		
+		assertTrue(FileMappedTupleList.validateFile(tempFile));
+		
+		fmTuples = new FileMappedTupleList(tempFile, segmentBytes);
+		assertTrue(FSTupleListFactoryTest.tupleListsEqual(arrayTuples, fmTuples));
+		
+		for (int j=0; j<tlen; j++) {
+			double[] col1 = arrayTuples.getColumn(j, null);
+			double[] col2 = fmTuples.getColumn(j, null);
+			for (int i=0; i<tcount; i++) {
+				assertTrue(col1[i] == col2[i]);
+				assertTrue(col1[i] == fmTuples.getTupleValue(i, j));
+			}
+		}
+		
+		fmTuples.close();
+	}
+	
+	@Test
+	public void testConcurrentReads() throws Exception {
+		
+		final Random random = new Random();
+		final int tlen = 8;
+		final int tcount = 5000;
+		
+		final TupleList arrayTuples = new ArrayTupleList(tlen, tcount);
+		final FileMappedTupleList fmTuples = FileMappedTupleList.createNew(tempFile, tlen, tcount);
+		
+		double[] buffer = new double[tlen];
+		for (int i=0; i<tcount; i++) {
+			for (int j=0; j<tlen; j++) {
+				buffer[j] = random.nextDouble();
+			}
+			arrayTuples.setTuple(i, buffer);
+			fmTuples.setTuple(i, buffer);
+		}
+		
+		final int threadCount = 4;
+		final ExecutorService threadPool = Executors.newFixedThreadPool(threadCount);
+		try {
+			List<Callable<Boolean>> readers = new ArrayList<>();
+			for (int t=0; t<threadCount; t++) {
+				final long seed = random.nextLong();
+				readers.add(() -> {
+					Random r = new Random(seed);
+					double[] buf1 = new double[tlen];
+					double[] buf2 = new double[tlen];
+					for (int k=0; k<20000; k++) {
+						int n = r.nextInt(tcount);
+						arrayTuples.getTuple(n, buf1);
+						fmTuples.getTuple(n, buf2);
+						if (!Arrays.equals(buf1, buf2)) {
+							return Boolean.FALSE;
+						}
+					}
+					return Boolean.TRUE;
+				});
+			}
+			for (Future<Boolean> f : threadPool.invokeAll(readers)) {
+				assertTrue(f.get());
+			}
+		} finally {
+			threadPool.shutdown();
+			fmTuples.close();
+		}
+	}
+
 }
@@ -0,0 +1,76 @@
+package org.battelle.clodhopper.tuple;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.util.Random;
+
+import org.junit.*;
+
+public class FloatTupleListTest {
+
+    private File tempFile;
+    
+    @Before
+    public void setup() throws Exception {
+        tempFile = File.createTempFile("fileMappedFloatTuples", "tmp");
+        tempFile.deleteOnExit();
+    }
+    
+    @Test
+    public void testFileMappedMatchesArray() throws Exception {
+        
+        Random random = new Random();
+        int tlen = 5 + random.nextInt(20);
+        int tcount = 200 + random.nextInt(100);
+        
+        ArrayFloatTupleList arrayTuples = new ArrayFloatTupleList(tlen, tcount);
+        // Small segments so several mappings are used.
+        FileMappedFloatTupleList fmTuples = new FileMappedFloatTupleList(tempFile, tlen, tcount, 4L * tlen * 11);
+        
+        float[] buffer = new float[tlen];
+        for (int i=0; i<tcount; i++) {
+            for (int j=0; j<tlen; j++) {
+                buffer[j] = random.nextFloat();
+            }
+            arrayTuples.setFloatTuple(i, buffer);
+            fmTuples.setFloatTuple(i, buffer);
+        }
+        
+        fmTuples.close();
+        assertTrue(FileMappedFloatTupleList.validateFile(tempFile));
+        
+        fmTuples = FileMappedFloatTupleList.openExisting(tempFile);
+        assertTrue(fmTuples.getTupleCount() == tcount);
+        assertTrue(fmTuples.getTupleLength() == tlen);
+        assertTrue(FSTupleListFactoryTest.tupleListsEqual(arrayTuples, fmTuples));
+        
+        float[] floatBuffer1 = new float[tlen];
+        float[] floatBuffer2 = new float[tlen];
+        for (int i=0; i<tcount; i++) {
+            arrayTuples.getFloatTuple(i, floatBuffer1);
+            fmTuples.getFloatTuple(i, floatBuffer2);
+            for (int j=0; j<tlen; j++) {
+                assertTrue(floatBuffer1[j] == floatBuffer2[j]);
+                assertTrue(floatBuffer1[j] == fmTuples.getTupleValue(i, j));
+            }
+        }
+        
+        fmTuples.close();
+        
+        // Saved array tuples must be readable by the file mapped implementation.
+        ArrayFloatTupleList.saveToFile(arrayTuples, tempFile);
+        fmTuples = FileMappedFloatTupleList.openExisting(tempFile);
+        assertTrue(FSTupleListFactoryTest.tupleListsEqual(arrayTuples, fmTuples));
+        fmTuples.close();
+    }
+    
+    @Test
+    public void testValuesAreNarrowed() {
+        ArrayFloatTupleList tuples = new ArrayFloatTupleList(2, 1);
+        tuples.setTuple(0, new double[] { 0.1, Math.PI });
+        double[] values = tuples.getTuple(0, null);
+        assertTrue(values[0] == (float) 0.1);
+        assertTrue(values[1] == (float) Math.PI);
+    }
+}
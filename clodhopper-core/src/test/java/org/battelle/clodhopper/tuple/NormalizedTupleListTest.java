@@ -0,0 +1,62 @@
+package org.battelle.clodhopper.tuple;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.*;
+
+public class NormalizedTupleListTest {
+
+    @Test
+    public void testDenseAndSparseViews() {
+        
+        Random random = new Random(97531L);
+        int tlen = 30;
+        int tcount = 40;
+        
+        ArrayTupleList arrayTuples = new ArrayTupleList(tlen, tcount);
+        CSRTupleList.Builder builder = new CSRTupleList.Builder(tlen);
+        double[] buffer = new double[tlen];
+        for (int i=0; i<tcount; i++) {
+            for (int j=0; j<tlen; j++) {
+                // Tuple 0 is all zeros.
+                buffer[j] = i > 0 && random.nextInt(4) == 0 ? 10.0 * random.nextGaussian() : 0.0;
+            }
+            arrayTuples.setTuple(i, buffer);
+            builder.addTuple(buffer);
+        }
+        
+        NormalizedTupleList dense = NormalizedTupleList.normalize(arrayTuples);
+        NormalizedTupleList sparse = NormalizedTupleList.normalize(builder.build());
+        assertFalse(dense instanceof SparseTupleList);
+        assertTrue(sparse instanceof SparseTupleList);
+        
+        double[] all = dense.getTuples(0, tcount, null, 0);
+        int[] indexes = new int[tlen];
+        double[] values = new double[tlen];
+        for (int i=0; i<tcount; i++) {
+            double[] tuple = dense.getTuple(i, null);
+            double sum = 0.0;
+            for (int j=0; j<tlen; j++) {
+                sum += tuple[j] * tuple[j];
+                assertEquals(tuple[j], all[i*tlen + j], 0.0);
+                assertEquals(tuple[j], dense.getTupleValue(i, j), 0.0);
+                assertEquals(arrayTuples.getTupleValue(i, j), tuple[j] * dense.getNorm(i), 1.0e-12);
+            }
+            assertEquals(i == 0 ? 0.0 : 1.0, sum, 1.0e-12);
+            assertArrayEquals(tuple, sparse.getTuple(i, null), 0.0);
+            int nnz = ((SparseTupleList) sparse).getSparseTuple(i, indexes, values);
+            for (int k=0; k<nnz; k++) {
+                assertEquals(tuple[indexes[k]], values[k], 0.0);
+            }
+        }
+        
+        try {
+            dense.setTuple(0, buffer);
+            fail("expected UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            // Expected.
+        }
+    }
+}
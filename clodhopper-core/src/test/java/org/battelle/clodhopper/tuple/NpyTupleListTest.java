@@ -0,0 +1,118 @@
+package org.battelle.clodhopper.tuple;
+
+import static org.junit.Assert.*;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.*;
+
+public class NpyTupleListTest {
+
+    private static ArrayTupleList randomTuples(int tlen, int tcount) {
+        Random random = new Random();
+        ArrayTupleList tuples = new ArrayTupleList(tlen, tcount);
+        double[] buffer = new double[tlen];
+        for (int i=0; i<tcount; i++) {
+            for (int j=0; j<tlen; j++) {
+                buffer[j] = random.nextGaussian();
+            }
+            tuples.setTuple(i, buffer);
+        }
+        return tuples;
+    }
+
+    @Test
+    public void testSaveAndOpen() throws IOException {
+        
+        ArrayTupleList expected = randomTuples(5, 1000);
+        File f = File.createTempFile("tuples", ".npy");
+        f.deleteOnExit();
+        
+        TupleIO.saveNpy(f, expected);
+        // The data section must start on a 64-byte boundary.
+        assertEquals(0L, (f.length() - 8L*5*1000) % 64);
+        
+        NpyTupleList npy = TupleIO.loadNpy(f);
+        assertFalse(npy.isSinglePrecision());
+        assertFalse(npy.isFortranOrder());
+        assertTrue(FSTupleListFactoryTest.tupleListsEqual(expected, npy));
+        assertArrayEquals(expected.getColumn(3, null), npy.getColumn(3, null), 0.0);
+        
+        // Small segments, so bulk reads cross segment boundaries.
+        NpyTupleList segmented = new NpyTupleList(f, 8L*5*7);
+        assertTrue(FSTupleListFactoryTest.tupleListsEqual(expected, segmented));
+        assertArrayEquals(expected.getTuples(3, 500, null, 0), segmented.getTuples(3, 500, null, 0), 0.0);
+        
+        try {
+            npy.setTuple(0, new double[5]);
+            fail("expected UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            // Expected.
+        }
+        
+        npy.close();
+        assertFalse(npy.isOpen());
+        
+        ArrayTupleListFactory factory = new ArrayTupleListFactory();
+        TupleList copy = TupleIO.loadNpy(f, "copy", factory);
+        assertTrue(FSTupleListFactoryTest.tupleListsEqual(expected, copy));
+        copy.setTuple(0, new double[5]);
+    }
+    
+    @Test
+    public void testSinglePrecision() throws IOException {
+        
+        ArrayTupleList doubles = randomTuples(3, 200);
+        ArrayFloatTupleList floats = new ArrayFloatTupleList(3, 200);
+        for (int i=0; i<200; i++) {
+            floats.setTuple(i, doubles.getTuple(i, null));
+        }
+        
+        File f = File.createTempFile("tuples", ".npy");
+        f.deleteOnExit();
+        TupleIO.saveNpy(f, floats);
+        assertEquals(0L, (f.length() - 4L*3*200) % 64);
+        
+        NpyTupleList npy = TupleIO.loadNpy(f);
+        assertTrue(npy.isSinglePrecision());
+        assertTrue(FSTupleListFactoryTest.tupleListsEqual(floats, npy));
+    }
+    
+    @Test
+    public void testFortranOrderBigEndian() throws IOException {
+        
+        ArrayTupleList expected = randomTuples(4, 30);
+        File f = File.createTempFile("tuples", ".npy");
+        f.deleteOnExit();
+        
+        // Write the file the way numpy does for a transposed, big-endian array, using 
+        // a version 2 header.
+        String header = "{'descr': '>f8', 'fortran_order': True, 'shape': (30, 4), }";
+        while ((12 + header.length() + 1) % 64 != 0) {
+            header += " ";
+        }
+        header += "\n";
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(f))) {
+            out.write(new byte[] { (byte) 0x93, 'N', 'U', 'M', 'P', 'Y', 2, 0 });
+            out.write(new byte[] { (byte) header.length(), 0, 0, 0 });
+            out.writeBytes(header);
+            for (int j=0; j<4; j++) {
+                for (int i=0; i<30; i++) {
+                    out.writeDouble(expected.getTupleValue(i, j));
+                }
+            }
+        }
+        
+        NpyTupleList npy = TupleIO.loadNpy(f);
+        assertTrue(npy.isFortranOrder());
+        assertEquals(4, npy.getTupleLength());
+        assertEquals(30, npy.getTupleCount());
+        assertTrue(FSTupleListFactoryTest.tupleListsEqual(expected, npy));
+        assertArrayEquals(expected.getTuples(0, 30, null, 0), npy.getTuples(0, 30, null, 0), 0.0);
+        assertArrayEquals(expected.getColumn(2, null), npy.getColumn(2, null), 0.0);
+    }
+}
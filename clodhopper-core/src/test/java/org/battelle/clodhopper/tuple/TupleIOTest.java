@@ -0,0 +1,120 @@
+package org.battelle.clodhopper.tuple;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.battelle.clodhopper.util.DataConversion;
+import org.junit.*;
+
+public class TupleIOTest {
+
+    @Test
+    public void testParseDouble() {
+        Random random = new Random();
+        String[] fixed = { "0", "-0", "1", "+1", " 2.5 ", "1e10", "1E-10", "-.5", "5.", 
+                "123456789012345", "1234567890123456789", "1.7976931348623157e308", "4.9e-324", 
+                "1e23", "1e-400", "NaN", "-Infinity", "3.14159265358979323846" };
+        for (String s : fixed) {
+            assertParsesLikeJDK(s);
+        }
+        for (int i = 0; i < 10000; i++) {
+            double d = random.nextGaussian() * Math.pow(10.0, random.nextInt(40) - 20);
+            assertParsesLikeJDK(Double.toString(d));
+            assertParsesLikeJDK(String.format("%.6f", d));
+            assertParsesLikeJDK(String.format("%.4e", d));
+        }
+        for (String s : new String[] { "", " ", "-", ".", "1e", "1.2.3", "x1", "1x" }) {
+            try {
+                byte[] bytes = s.getBytes(StandardCharsets.ISO_8859_1);
+                DataConversion.parseDouble(bytes, 0, bytes.length);
+                fail("expected NumberFormatException for \"" + s + "\"");
+            } catch (NumberFormatException nfe) {
+                // Expected.
+            }
+        }
+    }
+
+    private static void assertParsesLikeJDK(String s) {
+        byte[] bytes = ("," + s + ",").getBytes(StandardCharsets.ISO_8859_1);
+        double expected = Double.parseDouble(s);
+        double actual = DataConversion.parseDouble(bytes, 1, bytes.length - 1);
+        assertEquals(s, Double.doubleToLongBits(expected), Double.doubleToLongBits(actual));
+    }
+
+    @Test
+    public void testLoadCSVParallel() throws IOException {
+
+        Random random = new Random();
+        File file = File.createTempFile("tuples", ".csv");
+        file.deleteOnExit();
+
+        int rows = 30000;
+        int cols = 6;
+        try (PrintWriter pw = new PrintWriter(file, "UTF-8")) {
+            pw.println("id,label,a,b,c,d,e,f");
+            for (int i = 0; i < rows; i++) {
+                StringBuilder sb = new StringBuilder();
+                sb.append(i).append(",name").append(i);
+                for (int j = 0; j < cols; j++) {
+                    sb.append(',').append(random.nextGaussian() * 1000.0);
+                }
+                pw.print(sb);
+                // Mix line endings and blank lines.
+                pw.print(i % 7 == 0 ? "\r\n" : "\n");
+                if (i % 1000 == 0) {
+                    pw.print("\n");
+                }
+            }
+        }
+
+        ArrayTupleListFactory factory = new ArrayTupleListFactory();
+        TupleList expected = TupleIO.loadCSV(file, null, ",", 1, 0, "sequential", factory);
+        assertEquals(cols, expected.getTupleLength());
+        assertEquals(rows, expected.getTupleCount());
+
+        for (int threads : new int[] { 1, 4 }) {
+            TupleList actual = TupleIO.loadCSVParallel(file, "UTF-8", ",", 1, "parallel" + threads, 
+                    factory, threads, null, null);
+            assertTrue(FSTupleListFactoryTest.tupleListsEqual(expected, actual));
+        }
+
+        // On a shared executor, which must be left running.
+        ExecutorService shared = Executors.newFixedThreadPool(2);
+        try {
+            TupleList actual = TupleIO.loadCSVParallel(file, "UTF-8", ",", 1, "shared", 
+                    factory, 4, shared, null, null);
+            assertTrue(FSTupleListFactoryTest.tupleListsEqual(expected, actual));
+            assertFalse(shared.isShutdown());
+        } finally {
+            shared.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testLoadCSVParallelBadRow() throws IOException {
+
+        File file = File.createTempFile("tuples", ".csv");
+        file.deleteOnExit();
+        try (PrintWriter pw = new PrintWriter(file, "UTF-8")) {
+            pw.println("1.0,2.0,3.0");
+            pw.println("4.0,5.0");
+        }
+
+        ArrayTupleListFactory factory = new ArrayTupleListFactory();
+        try {
+            TupleIO.loadCSVParallel(file, "bad", factory, null, null);
+            fail("expected IOException");
+        } catch (IOException ioe) {
+            // Expected.
+        }
+        // The partially loaded tuples must have been cleaned up.
+        assertFalse(factory.hasTuplesFor("bad"));
+    }
+}
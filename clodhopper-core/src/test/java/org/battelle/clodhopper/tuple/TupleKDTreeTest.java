@@ -153,6 +153,26 @@ public class TupleKDTreeTest {
     System.out.println("root balance factor = " + node.balanceFactor());
   }
 
+  @Test
+  public void testForColumnarTupleListBalanced() {
+      
+    int tupleCount = 200;
+    int numClusters = 10;
+    int tupleLength = 10;
+    int nnCount = 5;
+    
+    TupleList tuples = generateTestTuples(tupleCount, tupleLength, numClusters, 123L);
+    ColumnarTupleList columnarTuples = ColumnarTupleList.copyOf(tuples);
+    DistanceMetric distMetric = new EuclideanDistanceMetric();
+
+    TupleKDTree kdTree = TupleKDTree.forTupleListBalanced(tuples, distMetric);
+    TupleKDTree columnarKdTree = TupleKDTree.forTupleListBalanced(columnarTuples, distMetric);
+
+    for (int ndx=0; ndx<tupleCount; ndx++) {
+      assertArrayEquals(kdTree.nearest(ndx, nnCount), columnarKdTree.nearest(ndx, nnCount));
+    }
+  }
+
   @Test
   public void testNearestNdxNum() {
       